@@ -0,0 +1,234 @@
+package test.bhavaya.beans;
+
+import junit.framework.TestCase;
+import org.bhavaya.beans.BeanFactory;
+import org.bhavaya.beans.BeanFactoryLoad;
+import org.bhavaya.beans.LoadGroup;
+import org.bhavaya.beans.LoadProgressMonitor;
+import org.bhavaya.beans.criterion.CriteriaBeanCollection;
+import org.bhavaya.beans.criterion.Criterion;
+import org.bhavaya.beans.criterion.CriterionGroup;
+import org.bhavaya.collection.CollectionListener;
+import org.bhavaya.collection.ListEvent;
+import org.bhavaya.db.BulkLoad;
+import org.bhavaya.db.DBUtilities;
+import org.bhavaya.db.SqlBeanFactory;
+import org.bhavayademo.beans.Counterparty;
+import org.bhavayademo.beans.Instrument;
+import org.bhavayademo.beans.Trade;
+
+import javax.swing.DefaultBoundedRangeModel;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads beans from the demo database through SqlBeanFactory.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class SqlBeanFactoryTest extends TestCase {
+    private static final String TRADE_DATASOURCE = "demoDatabaseForTrades";
+    private static final String INSTRUMENT_DATASOURCE = "demoDatabaseForInstruments";
+    private static final int FIRST_TRADE_ID = 1000;
+    private static final int TRADE_COUNT = 120;
+    private static final int FIRST_COUNTERPARTY_ID = 100;
+    private static final int COUNTERPARTY_COUNT = 200;
+
+    public SqlBeanFactoryTest(String s) {
+        super(s);
+    }
+
+    protected void setUp() throws Exception {
+        DBUtilities.executeUpdateScript(TRADE_DATASOURCE, "destroyDemo.sql", false);
+        DBUtilities.executeUpdateScript(TRADE_DATASOURCE, "createDemo.sql", true);
+        DBUtilities.executeUpdateScript(TRADE_DATASOURCE, "createDemoStaticData.sql", true);
+        DBUtilities.executeUpdateScript(TRADE_DATASOURCE, "createDemoTestData.sql", true);
+        for (int i = FIRST_TRADE_ID; i < FIRST_TRADE_ID + TRADE_COUNT; i++) {
+            DBUtilities.executeUpdate(TRADE_DATASOURCE, "INSERT INTO TRADE VALUES (" + i + ", 0, 0, '2002-08-11', 0, " + (i % 5) + ", 'bulk', 2, " + (i * 10) + ", 100.5)");
+        }
+        for (int i = FIRST_COUNTERPARTY_ID; i < FIRST_COUNTERPARTY_ID + COUNTERPARTY_COUNT; i++) {
+            DBUtilities.executeUpdate(TRADE_DATASOURCE, "INSERT INTO COUNTERPARTY VALUES (" + i + ", 'C" + i + "')");
+        }
+        BeanFactory.clearAllBeanFactories(true, false);
+    }
+
+    protected void tearDown() throws Exception {
+        // read from the beanFactory properties again
+        setLoadSetting("bulkLoadThreads", -1);
+        setLoadSetting("partitionedLoadRows", -1);
+    }
+
+    public void testGetObjectsByCompoundKeys() {
+        Object[] keys = getTradeKeys(0, TRADE_COUNT, true);
+        Object[] trades = BeanFactory.getInstance(Trade.class, TRADE_DATASOURCE).getObjects(keys);
+
+        assertEquals(TRADE_COUNT, trades.length);
+        for (int i = 0; i < trades.length; i++) {
+            Trade trade = (Trade) trades[i];
+            assertEquals(FIRST_TRADE_ID + i, trade.getTradeId());
+            assertEquals((FIRST_TRADE_ID + i) * 10, trade.getQuantity().getAmount(), 0);
+            assertEquals((FIRST_TRADE_ID + i) % 5, trade.getInstrument().getInstrumentId());
+        }
+    }
+
+    public void testGetObjectsBySingleKeys() {
+        Object[] instruments = BeanFactory.getInstance(Instrument.class, INSTRUMENT_DATASOURCE).getObjects(new Object[]{new Integer(3), new Integer(77), new Integer(2)});
+        assertEquals(2, instruments.length);
+        assertEquals("M&S 7.75 30/12/2003", ((Instrument) instruments[0]).getDescription());
+        assertEquals("3M EIB 2.75 01/01/2005", ((Instrument) instruments[1]).getDescription());
+    }
+
+    public void testGetObjectsSelectsOnlyKeysNotLoaded() {
+        SqlBeanFactory tradeFactory = (SqlBeanFactory) BeanFactory.getInstance(Trade.class, TRADE_DATASOURCE);
+        Object[] firstTrades = tradeFactory.getObjects(getTradeKeys(0, 30, false));
+        assertEquals(30, firstTrades.length);
+
+        BulkLoad bulkLoad = tradeFactory.getObjectsAsync(getTradeKeys(0, TRADE_COUNT, true), null, null);
+        Object[] trades = bulkLoad.getObjects();
+        assertEquals(TRADE_COUNT - 30 + 1, bulkLoad.getKeyCount());
+        assertEquals(bulkLoad.getKeyCount(), bulkLoad.getLoadedKeyCount());
+        assertEquals(TRADE_COUNT, trades.length);
+        for (int i = 0; i < firstTrades.length; i++) {
+            assertSame(firstTrades[i], trades[i]);
+        }
+
+        // the missing key is now known not to exist
+        bulkLoad = tradeFactory.getObjectsAsync(getTradeKeys(0, TRADE_COUNT, true), null, null);
+        assertEquals(TRADE_COUNT, bulkLoad.getObjects().length);
+        assertEquals(0, bulkLoad.getKeyCount());
+    }
+
+    public void testLoadsOfALoadGroupAreBatched() {
+        BeanFactory instrumentFactory = BeanFactory.getInstance(Instrument.class, INSTRUMENT_DATASOURCE);
+        LoadGroup loadGroup = new LoadGroup();
+        BeanFactoryLoad[] loads = new BeanFactoryLoad[5];
+        for (int i = 0; i < loads.length; i++) {
+            loads[i] = new BeanFactoryLoad(instrumentFactory, new Integer(i), null, loadGroup);
+            assertFalse(instrumentFactory.containsKey(new Integer(i)));
+        }
+
+        // as the first load of the group does, get the keys of every load before any load sets its value
+        loadGroup.loadBatches();
+        assertFalse(loadGroup.isLoaded());
+        for (int i = 0; i < loads.length; i++) {
+            assertTrue(instrumentFactory.containsKey(new Integer(i)));
+        }
+
+        Instrument instrument = (Instrument) loads[0].load();
+        assertEquals(0, instrument.getInstrumentId());
+        assertTrue(loadGroup.isLoaded());
+        for (int i = 0; i < loads.length; i++) {
+            assertSame(instrumentFactory.get(new Integer(i)), loads[i].load());
+        }
+    }
+
+    public void testBeanRemovedBetweenPartsIsNotAddedAgain() throws Exception {
+        setLoadSetting("bulkLoadThreads", 4);
+        setLoadSetting("partitionedLoadRows", 20);
+        BeanFactory counterpartyFactory = BeanFactory.getInstance(Counterparty.class, TRADE_DATASOURCE);
+        assertTrue(counterpartyFactory.isLoadedInParts());
+
+        CriterionGroup criteria = new CriterionGroup("All", Criterion.ALL_CRITERION);
+        final CriteriaBeanCollection counterparties = counterpartyFactory.getBeanCollection(criteria);
+        final List removed = new ArrayList();
+        final int[] parts = new int[1];
+        counterparties.addCollectionListener(new CollectionListener() {
+            public void collectionChanged(ListEvent e) {
+                if (e.getType() != ListEvent.ALL_ROWS || counterparties.size() == 0) return;
+                if (parts[0]++ == 0) {
+                    // as a delete notification would, between the first part and the next
+                    Object counterparty = counterparties.iterator().next();
+                    removed.add(counterparty);
+                    counterparties.remove(counterparty, false);
+                }
+            }
+        });
+
+        // the collection loaded when the listener was added, changing the criteria loads it again while listened to
+        criteria.setCriteria(new Criterion[0]);
+        int size = counterparties.size();
+        int existingCounterparties = counterpartyFactory.getAllObjects().length;
+        assertTrue(existingCounterparties >= COUNTERPARTY_COUNT);
+        assertEquals(existingCounterparties - 1, size);
+        assertTrue(parts[0] > 1);
+        assertEquals(1, removed.size());
+        assertFalse(counterparties.contains(removed.get(0)));
+
+        Set names = new HashSet();
+        for (Object counterparty : counterparties) {
+            assertTrue(names.add(((Counterparty) counterparty).getName()));
+        }
+    }
+
+    public void testBeanAddedBeforeFirstPartIsKept() throws Exception {
+        setLoadSetting("bulkLoadThreads", 4);
+        setLoadSetting("partitionedLoadRows", 20);
+        BeanFactory counterpartyFactory = BeanFactory.getInstance(Counterparty.class, TRADE_DATASOURCE);
+        CriterionGroup criteria = new CriterionGroup("All", Criterion.ALL_CRITERION);
+        final CriteriaBeanCollection counterparties = counterpartyFactory.getBeanCollection(criteria);
+        counterparties.size();
+
+        final Counterparty added = (Counterparty) BeanFactory.newBeanInstance(Counterparty.class);
+        final int[] parts = new int[1];
+        counterparties.addCollectionListener(new CollectionListener() {
+            public void collectionChanged(ListEvent e) {
+                if (e.getType() == ListEvent.ALL_ROWS) parts[0]++;
+            }
+        });
+        counterparties.setLoadDecorator(new CriteriaBeanCollection.LoadDecorator() {
+            public void run(CriteriaBeanCollection.LoadRunnable loadRunnable, boolean firstLoad) {
+                loadRunnable.run(new AddingLoadProgressMonitor(counterparties, added));
+            }
+        });
+
+        // as an insert notification would, after the load starts and before its first part
+        criteria.setCriteria(new Criterion[0]);
+        assertTrue(parts[0] > 1);
+        assertTrue(counterparties.contains(added));
+        assertEquals(counterpartyFactory.getAllObjects().length + 1, counterparties.size());
+    }
+
+    private static class AddingLoadProgressMonitor extends DefaultBoundedRangeModel implements LoadProgressMonitor {
+        private CriteriaBeanCollection collection;
+        private Object bean;
+
+        public AddingLoadProgressMonitor(CriteriaBeanCollection collection, Object bean) {
+            this.collection = collection;
+            this.bean = bean;
+        }
+
+        public void loadingStackPush(Object object) {
+            if (bean != null) collection.add(bean, false);
+            bean = null;
+        }
+
+        public void loadingStackPop() {
+        }
+    }
+
+    private static void setLoadSetting(String name, int value) throws Exception {
+        Field field = SqlBeanFactory.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.setInt(null, value);
+    }
+
+    private static Object[] getTradeKeys(int from, int to, boolean includeMissingKey) {
+        List keys = new ArrayList();
+        for (int i = from; i < to; i++) {
+            keys.add(getTradeKey(FIRST_TRADE_ID + i));
+        }
+        if (includeMissingKey) keys.add(getTradeKey(99999));
+        return keys.toArray();
+    }
+
+    private static List getTradeKey(int tradeId) {
+        List key = new ArrayList(2);
+        key.add(new Integer(tradeId));
+        key.add(new Integer(0));
+        return key;
+    }
+}
@@ -30,6 +30,7 @@
 package org.bhavaya.beans;
 
 import org.bhavaya.beans.criterion.CriteriaBeanCollection;
+import org.bhavaya.beans.criterion.CriteriaIndex;
 import org.bhavaya.beans.criterion.Criterion;
 import org.bhavaya.beans.criterion.CriterionGroup;
 import org.bhavaya.collection.*;
@@ -113,6 +114,7 @@ public abstract class BeanFactory implements BeanMap, Association, CriterionBean
     private static final Map lazyNullsByType = new HashMap();
     private static final Map locks = new HashMap();
     protected static final Map partiallyInflatedBeans = new HashMap();
+    private static final ThreadLocal inflatingThreads = new ThreadLocal();
 
     protected final MapEvent COMMIT_EVENT = new MapEvent(this, MapEvent.COMMIT, null, null);
     protected final MapEvent ALL_ROWS_EVENT = new MapEvent(this, MapEvent.ALL_ROWS, null, null);
@@ -138,7 +140,9 @@ public abstract class BeanFactory implements BeanMap, Association, CriterionBean
     protected final String logPrefix;
     protected final Association discardedBeans = new SynchronizedAssociation(ReferenceAssociation.newWeakInstance());
     private CriteriaBeanCollection allBeansCollection;
+    private CriteriaIndex criteriaIndex;
     private final ThreadLocal lockThreadLocal = new ThreadLocal();
+    private final LockStatistics lockStatistics = new LockStatistics();
 
     static {
         BeanUtilities.addPersistenceDelegate(BeanFactory.class, new PersistenceDelegate() {
@@ -379,6 +383,21 @@ public abstract class BeanFactory implements BeanMap, Association, CriterionBean
         return lock;
     }
 
+    /**
+     * Callers that want their wait for getLock() included in getLockStatistics() take System.nanoTime() before
+     * synchronizing, and pass it to this as soon as they hold the lock.
+     */
+    protected final void lockAcquired(long lockRequestNanos) {
+        lockStatistics.hierarchyLockAcquired(System.nanoTime() - lockRequestNanos);
+    }
+
+    /**
+     * Returns usage and contention counters for this BeanFactory's stores and hierarchy lock.
+     */
+    public LockStatistics getLockStatistics() {
+        return lockStatistics;
+    }
+
     /**
      * Returns whether this BeanFactory's type (class) has been loaded by this beanfactory yet.  This can be used to
      * ascertain whether any data reads or rights have occured yet.
@@ -484,8 +503,11 @@ public abstract class BeanFactory implements BeanMap, Association, CriterionBean
         if (!referenceType.equalsIgnoreCase(Schema.STRONG_REFERENCE)) {
             Schema schema = Schema.getInstance(type);
             if (schema.getDataQuantity().equals(Schema.LOW) && schema.getDataVolatility().equals(Schema.LOW)) {
-                return new SynchronizedAssociation(new DefaultAssociation(new LinkedHashMap()));
+                return newStrongStore(indexName);
             } else {
+                Association primitiveKeyStore = newPrimitiveKeyStore(indexName, referenceType);
+                if (primitiveKeyStore != null) return newStore(primitiveKeyStore);
+
                 ReferenceAssociation referenceAssociation;
                 if (referenceType.equalsIgnoreCase(Schema.WEAK_REFERENCE)) {
                     referenceAssociation = ReferenceAssociation.newWeakInstance(new LinkedHashMap());
@@ -495,13 +517,52 @@ public abstract class BeanFactory implements BeanMap, Association, CriterionBean
                     throw new IllegalStateException("Unknown reference type.");
                 }
                 referenceAssociation.addReferenceRemovedListener(new ReferenceRemovedListener(this, indexName));
-                return new SynchronizedAssociation(referenceAssociation);
+                return newStore(referenceAssociation);
             }
         } else {
-            return new SynchronizedAssociation(new DefaultAssociation(new LinkedHashMap()));
+            return newStrongStore(indexName);
+        }
+    }
+
+    protected Association newStrongStore(String indexName) {
+        Association store = newPrimitiveKeyStore(indexName, Schema.STRONG_REFERENCE);
+        if (store == null) store = new DefaultAssociation(new LinkedHashMap());
+        return newStore(store);
+    }
+
+    /**
+     * Returns an unsynchronized PrimitiveKeyAssociation if the schema's storeType is PRIMITIVE and the key columns of
+     * the index can be packed into a long, otherwise null.
+     */
+    private Association newPrimitiveKeyStore(String indexName, String storeReferenceType) {
+        Schema schema = Schema.getInstance(type);
+        if (!schema.getStoreType().equals(Schema.PRIMITIVE_STORE)) return null;
+
+        PrimitiveKeyAssociation.KeyLayout keyLayout = PrimitiveKeyAssociation.KeyLayout.getInstance(schema.getKeyTypes(indexName));
+        if (keyLayout == null) {
+            log.warn(logPrefix + "cannot pack keys" + (indexName != null ? " of index: " + indexName : "") + " into a long, using default store");
+            return null;
+        }
+
+        if (storeReferenceType.equalsIgnoreCase(Schema.STRONG_REFERENCE)) {
+            return new PrimitiveKeyAssociation(keyLayout, PrimitiveKeyAssociation.STRONG);
+        } else {
+            int primitiveReferenceType = storeReferenceType.equalsIgnoreCase(Schema.WEAK_REFERENCE) ? PrimitiveKeyAssociation.WEAK : PrimitiveKeyAssociation.SOFT;
+            PrimitiveKeyAssociation store = new PrimitiveKeyAssociation(keyLayout, primitiveReferenceType);
+            store.addReferenceRemovedListener(new ReferenceRemovedListener(this, indexName));
+            return store;
         }
     }
 
+    /**
+     * Wraps an unsynchronized store so it can be shared between threads, lock usage being recorded in
+     * getLockStatistics().  With the beanFactory property concurrentReadStores set to true, get and containsKey on the
+     * store do not lock.
+     */
+    protected Association newStore(Association unsynchronizedStore) {
+        return new ConcurrentAssociation(unsynchronizedStore, Schema.isConcurrentReadStores(), lockStatistics);
+    }
+
     protected Association getPrimaryStore() {
         loadClass();
         return primaryStore;
@@ -603,6 +664,19 @@ public abstract class BeanFactory implements BeanMap, Association, CriterionBean
         return allBeansCollection;
     }
 
+    /**
+     * The index that routes this factory's map events to the CriteriaBeanCollections on it.
+     */
+    public CriteriaIndex getCriteriaIndex() {
+        synchronized (listenerLock) {
+            if (criteriaIndex == null) {
+                criteriaIndex = new CriteriaIndex();
+                addMapListener(criteriaIndex);
+            }
+            return criteriaIndex;
+        }
+    }
+
     public CriteriaBeanCollection getBeanCollection(CriterionGroup criterionGroup) {
         // note: schema.getType is different to type, schema.getType is likely to be a superclass of type
         return createCriteriaBeanCollection(schema.getType(), criterionGroup);
@@ -629,6 +703,31 @@ public abstract class BeanFactory implements BeanMap, Association, CriterionBean
         }
     }
 
+    /**
+     * As getObjects(criterionGroup, loadProgressMonitor).  A BeanFactory that isLoadedInParts may also pass the beans
+     * to partLoadListener a part at a time, on the calling thread, as each part is inflated.  The returned array
+     * contains the beans of all the parts.
+     */
+    public Object[] getObjects(CriterionGroup criterionGroup, LoadProgressMonitor loadProgressMonitor, PartLoadListener partLoadListener) {
+        return getObjects(criterionGroup, loadProgressMonitor);
+    }
+
+    /**
+     * Returns true if getObjects(CriterionGroup, LoadProgressMonitor, PartLoadListener) may load the beans in parts.
+     */
+    public boolean isLoadedInParts() {
+        return false;
+    }
+
+    public Object[] getObjects(Object[] keys, String indexName, LoadProgressMonitor loadProgressMonitor) {
+        BeanFactory.loadProgressMonitors.set(loadProgressMonitor);
+        try {
+            return getObjects(keys, indexName);
+        } finally {
+            BeanFactory.loadProgressMonitors.set(null);
+        }
+    }
+
     /**
      * Returns the bean with the given key.  Care must be taken to ensure that the key is of an instance with
      * compatible equals and hashCode as the key that will be generated by BeanFactory.  For example, if a bean is
@@ -662,10 +761,23 @@ public abstract class BeanFactory implements BeanMap, Association, CriterionBean
     protected static void addPartiallyInflatedBean(Object bean) {
         if (bean == null) return;
         synchronized (partiallyInflatedBeans) {
-            partiallyInflatedBeans.put(bean, Thread.currentThread());
+            partiallyInflatedBeans.put(bean, getInflatingThread());
         }
     }
 
+    /**
+     * Beans partially inflated by the current thread are treated as if inflatingThread had inflated them, so that
+     * threads inflating on behalf of inflatingThread do not wait for each other.  Pass null to clear.
+     */
+    protected static void setInflatingThread(Thread inflatingThread) {
+        inflatingThreads.set(inflatingThread);
+    }
+
+    private static Thread getInflatingThread() {
+        Thread inflatingThread = (Thread) inflatingThreads.get();
+        return inflatingThread != null ? inflatingThread : Thread.currentThread();
+    }
+
     protected static boolean isPartiallyInflated(Object bean) {
         if (bean == null) return false;
         synchronized (partiallyInflatedBeans) {
@@ -710,7 +822,7 @@ public abstract class BeanFactory implements BeanMap, Association, CriterionBean
             synchronized (partiallyInflatedBeans) {
                 Thread inflatingThread = (Thread) partiallyInflatedBeans.get(bean);
                 Thread originalInflatingThread = inflatingThread;
-                Thread currentThread = Thread.currentThread();
+                Thread currentThread = getInflatingThread();
                 long startTime = System.currentTimeMillis();
                 boolean waited = false;
 
@@ -741,7 +853,9 @@ public abstract class BeanFactory implements BeanMap, Association, CriterionBean
     }
 
     protected Object putNullKey(Object key, String indexName, Association store) {
+        long lockRequestNanos = System.nanoTime();
         synchronized (getLock()) {
+            lockAcquired(lockRequestNanos);
             if (!isUnique(indexName)) {
                 DefaultBeanCollection emptyBeanCollection = new DefaultBeanCollection(type);
                 store.put(key, emptyBeanCollection);
@@ -784,7 +898,9 @@ public abstract class BeanFactory implements BeanMap, Association, CriterionBean
         boolean canPut;
         Object existingValue = null;
 
+        long lockRequestNanos = System.nanoTime();
         synchronized (getLock()) {
+            lockAcquired(lockRequestNanos);
             canPut = canPut(key, value);
             if (canPut) {
                 existingValue = putInPrimaryStore(key, value);
@@ -880,7 +996,9 @@ public abstract class BeanFactory implements BeanMap, Association, CriterionBean
     protected Object remove(Object key, boolean fireCommit, boolean fireMapChanged) {
         Object removedValue;
 
+        long lockRequestNanos = System.nanoTime();
         synchronized (getLock()) {
+            lockAcquired(lockRequestNanos);
             removedValue = getPrimaryStore().remove(key);
             if (removedValue != null) {
                 discardedBeans.put(key, removedValue);
@@ -1404,11 +1522,26 @@ public abstract class BeanFactory implements BeanMap, Association, CriterionBean
         }
     }
 
+    protected static LoadProgressMonitor getLoadProgressMonitor() {
+        return (LoadProgressMonitor) BeanFactory.loadProgressMonitors.get();
+    }
+
+    protected static void setLoadProgressMonitor(LoadProgressMonitor loadProgressMonitor) {
+        BeanFactory.loadProgressMonitors.set(loadProgressMonitor);
+    }
+
     protected static void setCurrentLoadProgress(int numberOfRows) {
         LoadProgressMonitor loadProgressMonitor = (LoadProgressMonitor) BeanFactory.loadProgressMonitors.get();
         if (loadProgressMonitor != null) loadProgressMonitor.setValue(numberOfRows);
     }
 
+    /**
+     * Receives the beans of a load made in parts, see getObjects(CriterionGroup, LoadProgressMonitor, PartLoadListener).
+     */
+    public static interface PartLoadListener {
+        public void partLoaded(Object[] beans);
+    }
+
     private static class ReferenceRemovedListener implements MapListener {
         private BeanFactory beanFactory;
         private String indexName;
@@ -90,6 +90,8 @@ public class BeanFactoryLoad implements LoadClosure {
             // it is important to iterate over all of them if using WEAK/SOFT references in the BeanFactory,
             BeanFactory.pushBeanFactoryLoadStack(beanFactory);
             try {
+                // load the keys of the whole group in batches first, unless this load selects its own set of beans
+                if (isBatchable()) loadGroup.loadBatches();
                 propertyValue = set();
                 loadGroup.setLoaded();
             } finally {
@@ -103,6 +105,14 @@ public class BeanFactoryLoad implements LoadClosure {
         loadGroup = null;
     }
 
+    /**
+     * Returns true if this load gets its value with BeanFactory.get(key, index), so its key can be loaded together
+     * with the keys of the other loads in its LoadGroup, see LoadGroup.loadBatches.
+     */
+    protected boolean isBatchable() {
+        return true;
+    }
+
     protected Object get() {
         return beanFactory.get(key, index);
     }
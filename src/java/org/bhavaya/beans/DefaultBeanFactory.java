@@ -40,7 +40,6 @@ import java.beans.PersistenceDelegate;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 
 /**
@@ -150,7 +149,7 @@ public class DefaultBeanFactory extends BeanFactory {
     protected Association getDefaultStore(String indexName) {
         if (getSchema().isDefaultReferenceType()) { // if not set then always use strong reference caches
             // overriding this prevents use of ReferenceAssociations, we dont want entries to be garbage collected
-            return new SynchronizedAssociation(new DefaultAssociation(new LinkedHashMap()));
+            return newStrongStore(indexName);
         } else {
             return super.getDefaultStore(indexName);
         }
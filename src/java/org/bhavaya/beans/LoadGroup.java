@@ -29,10 +29,19 @@
 
 package org.bhavaya.beans;
 
+import org.bhavaya.util.ApplicationProperties;
 import org.bhavaya.util.LoadClosure;
+import org.bhavaya.util.Log;
+import org.bhavaya.util.PropertyGroup;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Description
@@ -41,12 +50,19 @@ import java.util.List;
  * @version $Revision: 1.2 $
  */
 public class LoadGroup {
+    private static final Log log = Log.getCategory(LoadGroup.class);
+
+    private static final String BATCH_LAZY_LOADS_PROPERTY = "batchLazyLoads";
+    private static Boolean batchLazyLoads;
+
     private List loads;
     private boolean loaded;
+    private boolean batched;
 
     public LoadGroup() {
         loads = new ArrayList();
         loaded = false;
+        batched = false;
     }
 
     public void add(LoadClosure load) {
@@ -59,6 +75,8 @@ public class LoadGroup {
             loaded = true;
         }
 
+        loadBatches();
+
         // do not lock this or loads while iterating to avoid deadlocks
         for (int i = 0; i < loads.size(); i++) {
             LoadClosure load = (LoadClosure) loads.get(i);
@@ -71,4 +89,69 @@ public class LoadGroup {
             return loaded;
         }
     }
+
+    /**
+     * Loads the keys of the batchable BeanFactoryLoads of this group with one BeanFactory.getObjects(keys, index) per
+     * BeanFactory and index, so each load then finds its bean already in the BeanFactory, rather than each load
+     * selecting its own key.  Only the first call does anything.
+     * <p/>
+     * Called within a push of the BeanFactory load stack, which keeps the loaded beans strongly referenced until the
+     * loads have been set.
+     */
+    public void loadBatches() {
+        synchronized (this) {
+            if (batched) return;
+            batched = true;
+        }
+        if (!isBatchLazyLoads()) return;
+
+        Map keysByIndexByBeanFactory = new LinkedHashMap();
+        for (int i = 0; i < loads.size(); i++) {
+            Object load = loads.get(i);
+            if (!(load instanceof BeanFactoryLoad)) continue;
+            BeanFactoryLoad beanFactoryLoad = (BeanFactoryLoad) load;
+            if (!beanFactoryLoad.isBatchable()) continue;
+
+            Map keysByIndex = (Map) keysByIndexByBeanFactory.get(beanFactoryLoad.getBeanFactory());
+            if (keysByIndex == null) {
+                keysByIndex = new HashMap();
+                keysByIndexByBeanFactory.put(beanFactoryLoad.getBeanFactory(), keysByIndex);
+            }
+            Set keys = (Set) keysByIndex.get(beanFactoryLoad.getIndex());
+            if (keys == null) {
+                keys = new LinkedHashSet();
+                keysByIndex.put(beanFactoryLoad.getIndex(), keys);
+            }
+            keys.add(beanFactoryLoad.getKey());
+        }
+
+        for (Iterator iterator = keysByIndexByBeanFactory.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry entry = (Map.Entry) iterator.next();
+            BeanFactory beanFactory = (BeanFactory) entry.getKey();
+            Map keysByIndex = (Map) entry.getValue();
+            for (Iterator keysIterator = keysByIndex.entrySet().iterator(); keysIterator.hasNext();) {
+                Map.Entry keysEntry = (Map.Entry) keysIterator.next();
+                String index = (String) keysEntry.getKey();
+                Set keys = (Set) keysEntry.getValue();
+                if (keys.size() < 2) continue; // the load will get its own key
+
+                try {
+                    if (log.isDebug()) log.debug("Batch loading " + keys.size() + " keys for: " + beanFactory + "/" + index);
+                    beanFactory.getObjects(keys.toArray(), index);
+                } catch (Exception e) {
+                    // each load will get its own key instead
+                    log.error("Could not batch load " + keys.size() + " keys for: " + beanFactory + "/" + index, e);
+                }
+            }
+        }
+    }
+
+    private static synchronized boolean isBatchLazyLoads() {
+        if (batchLazyLoads == null) {
+            PropertyGroup beanFactoryProperties = ApplicationProperties.getApplicationProperties().getGroup("beanFactory");
+            String batchLazyLoadsString = beanFactoryProperties != null ? beanFactoryProperties.getProperty(BATCH_LAZY_LOADS_PROPERTY) : null;
+            batchLazyLoads = Boolean.valueOf(batchLazyLoadsString == null || Boolean.valueOf(batchLazyLoadsString).booleanValue());
+        }
+        return batchLazyLoads.booleanValue();
+    }
 }
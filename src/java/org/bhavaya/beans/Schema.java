@@ -58,6 +58,9 @@ public class Schema {
     public static final String SOFT_REFERENCE = "SOFT";
     public static final String WEAK_REFERENCE = "WEAK";
 
+    public static final String DEFAULT_STORE = "DEFAULT";
+    public static final String PRIMITIVE_STORE = "PRIMITIVE";
+
     private static final String SCHEMA_PROPERTY = "schema";
     private static final String SCHEMA_STRICT_VALIDATION_PROPERTY = "schemaStrictValidation";
     private static final Class[] EMPTY_CLASS_ARRAY = new Class[0];
@@ -74,6 +77,7 @@ public class Schema {
     private static boolean strictValidation = true;
     private static String defaultReferenceType;
     private static int defaultMaximumJoinTableCount;
+    private static boolean concurrentReadStores;
 
     private Class type;
     private String typeName;
@@ -106,6 +110,7 @@ public class Schema {
     private Index[] indicies;
     private String dataVolatility = HIGH;
     private String dataQuantity = HIGH;
+    private String storeType = DEFAULT_STORE;
     private Map propertiesByName = new LinkedHashMap(); //maintain insertion order
     private Property[] properties;
     private Map propertiesByColumn = new LinkedHashMap(); //maintain insertion order
@@ -226,6 +231,32 @@ public class Schema {
                   String storedProcedureString,
                   String kxSqlString, 
                   Operation[] operations) {
+        this(schemaFile, generate, typeName, generatedClassName, superTypeName, defaultDataSourceName, beanFactoryTypeName, referenceType,
+                transformClassName, subClassMappingsForTables, toStringCode, primaryKey, indicies, dataVolatility, dataQuantity, null, properties,
+                sqlString, storedProcedureString, kxSqlString, operations);
+    }
+
+    public Schema(String schemaFile,
+                  boolean generate,
+                  String typeName,
+                  String generatedClassName,
+                  String superTypeName,
+                  String defaultDataSourceName,
+                  String beanFactoryTypeName,
+                  String referenceType,
+                  String transformClassName,
+                  SubClassMappingsForTable[] subClassMappingsForTables,
+                  String toStringCode,
+                  Column[] primaryKey,
+                  Index[] indicies,
+                  String dataVolatility,
+                  String dataQuantity,
+                  String storeType,
+                  Property[] properties,
+                  String sqlString,
+                  String storedProcedureString,
+                  String kxSqlString,
+                  Operation[] operations) {
         if (log.isDebug()) log.debug("Instantiating schema: " + typeName + " with generated class: " + generatedClassName);
         if (typeName == null) {
             throw new RuntimeException("type is null");
@@ -256,6 +287,7 @@ public class Schema {
             setIndicies(indicies);
             setDataVolatility(dataVolatility);
             setDataQuantity(dataQuantity);
+            setStoreType(storeType);
             setSqlString(sqlString);
             setStoredProcedureString(storedProcedureString);
             setKxSqlString(kxSqlString);
@@ -376,6 +408,7 @@ public class Schema {
                 setIndicies(superSchema.indicies);
                 setDataVolatility(superSchema.getDataVolatility());
                 setDataQuantity(superSchema.getDataQuantity());
+                setStoreType(superSchema.getStoreType());
                 addProperties(superSchema.getProperties());
                 setSqlString(superSchema.sqlString);
                 setStoredProcedureString(superSchema.storedProcedureString);
@@ -455,6 +488,13 @@ public class Schema {
         return referenceType == null;
     }
 
+    /**
+     * Whether BeanFactory stores answer get and containsKey without locking, see ConcurrentAssociation.
+     */
+    public static boolean isConcurrentReadStores() {
+        return concurrentReadStores;
+    }
+
     public void setReferenceType(String referenceType) {
         if (referenceType != null) {
             if (!isValidReferenceType(referenceType)) throw new RuntimeException("Invalid value for reference type: " + this.referenceType);
@@ -713,6 +753,15 @@ public class Schema {
     }
 
 
+    protected Class[] getKeyTypes(String indexName) {
+        Column[] keyColumns = indexName == null ? primaryKey : getIndex(indexName).getColumns();
+        Class[] keyTypes = new Class[keyColumns.length];
+        for (int i = 0; i < keyColumns.length; i++) {
+            keyTypes[i] = getType(keyColumns[i]);
+        }
+        return keyTypes;
+    }
+
     protected Class getKeyType(int componentPosition, String indexName) {
         Column[] keyColumns = indexName == null ? primaryKey : getIndex(indexName).getColumns();
         Column keyColumn = keyColumns[componentPosition];
@@ -790,6 +839,23 @@ public class Schema {
         return dataQuantity;
     }
 
+    private void setStoreType(String storeType) {
+        if (storeType == null) return; // assume default or set by superType
+
+        if (!storeType.equalsIgnoreCase(DEFAULT_STORE) && !storeType.equalsIgnoreCase(PRIMITIVE_STORE)) {
+            throw new RuntimeException("Invalid storeType: " + storeType + " for type: " + typeName);
+        }
+        this.storeType = storeType.toUpperCase();
+    }
+
+    /**
+     * DEFAULT_STORE or PRIMITIVE_STORE.  With PRIMITIVE_STORE, BeanFactory stores keyed by integral columns hold their
+     * keys packed into longs, see PrimitiveKeyAssociation.
+     */
+    public String getStoreType() {
+        return storeType;
+    }
+
     private void setToStringCode(String toStringCode) {
         if (toStringCode != null) {
             this.toStringCode = toStringCode;
@@ -1181,6 +1247,10 @@ public class Schema {
         if (maximumJoinTableCount != null) defaultMaximumJoinTableCount = maximumJoinTableCount.intValue();
         if (log.isDebugEnabled())log.debug("Default maximum join depth has been set to: " + defaultMaximumJoinTableCount);
 
+        String concurrentReadStoresString = propertyGroup != null ? propertyGroup.getProperty("concurrentReadStores") : null;
+        concurrentReadStores = concurrentReadStoresString != null && Boolean.valueOf(concurrentReadStoresString).booleanValue();
+        if (log.isDebugEnabled())log.debug("Concurrent read stores have been set to: " + concurrentReadStores);
+
         String schemaFileName = ApplicationProperties.getApplicationProperties().getProperty(SCHEMA_PROPERTY);
         if (schemaFileName == null) {
             log.warn("Not loading schema as no schema file defined in application properties");
@@ -1359,6 +1429,7 @@ public class Schema {
             String kxSqlString = getAttributeValue(typeNode, "kxSqlString");
             String dataVolatility = getAttributeValue(typeNode, "dataVolatility");
             String dataQuantity = getAttributeValue(typeNode, "dataQuantity");
+            String storeType = getAttributeValue(typeNode, "storeType");
             String toStringCode = getAttributeValue(typeNode, "toStringCode");
 
             Column[] primaryKey = null;
@@ -1430,7 +1501,7 @@ public class Schema {
                     subClassMappingsForTables,
                     toStringCode,
                     primaryKey,
-                    (Index[]) indices.toArray(new Index[indices.size()]), dataVolatility, dataQuantity, (Property[]) properties.toArray(new Property[properties.size()]),
+                    (Index[]) indices.toArray(new Index[indices.size()]), dataVolatility, dataQuantity, storeType, (Property[]) properties.toArray(new Property[properties.size()]),
                     sqlString,
                     storedProcedure,
                     kxSqlString, 
@@ -1870,6 +1941,7 @@ public class Schema {
             if (superSchema == null || !Utilities.equals(schema.getKxSqlString(), superSchema.getKxSqlString())) writeAttribute(buffer, "kxSqlString", schema.getKxSqlString(), 2, true);
             if (superSchema == null || !Utilities.equals(schema.getDataVolatility(), superSchema.getDataVolatility())) writeAttribute(buffer, "dataVolatility", schema.getDataVolatility(), 2, true);
             if (superSchema == null || !Utilities.equals(schema.getDataQuantity(), superSchema.getDataQuantity())) writeAttribute(buffer, "dataQuantity", schema.getDataQuantity(), 2, true);
+            if (superSchema == null ? !schema.getStoreType().equals(DEFAULT_STORE) : !Utilities.equals(schema.getStoreType(), superSchema.getStoreType())) writeAttribute(buffer, "storeType", schema.getStoreType(), 2, true);
             if (superSchema == null || !Utilities.equals(schema.getToStringCode(), superSchema.getToStringCode())) writeAttribute(buffer, "toStringCode", schema.getToStringCode(), 2, true);
             buffer.append(">");
 
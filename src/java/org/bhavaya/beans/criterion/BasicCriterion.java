@@ -60,8 +60,21 @@ public class BasicCriterion implements SqlCriterion {
     public static final String SUBTREE = "subtree";
     public static final String LIST = "list";
 
+    static final int UNRESOLVED_OPERATOR = -2;
+    static final int UNKNOWN_OPERATOR = -1;
+    static final int EQUALS = 0;
+    static final int NOT_EQUALS = 1;
+    static final int GREATER = 2;
+    static final int LESS = 3;
+    static final int GREATER_OR_EQUALS = 4;
+    static final int LESS_OR_EQUALS = 5;
+    static final int IN = 6;
+    static final int NOT_IN = 7;
+    private static final String[] OPERATOR_NAMES = {"=", "<>", ">", "<", ">=", "<=", "IN", "NOT IN"};
+
     private String operator;
     private Object rightOperand;
+    private int operatorCode = UNRESOLVED_OPERATOR;
     protected BeanPathTransformerGroup transformerGroup;
     protected String id;
     private Object sqlFormatter;
@@ -153,69 +166,148 @@ public class BasicCriterion implements SqlCriterion {
     }
 
     protected boolean evaluate(Object leftOperandValue, Object rightOperandValue) {
-        return evaluate(leftOperandValue, getOperator(), rightOperandValue);
+        return evaluate(leftOperandValue, getOperatorCode(), rightOperandValue);
+    }
+
+    int getOperatorCode() {
+        if (operatorCode == UNRESOLVED_OPERATOR) operatorCode = getOperatorCode(getOperator());
+        return operatorCode;
+    }
+
+    static int getOperatorCode(String operator) {
+        if (operator == null) return UNKNOWN_OPERATOR;
+        if (operator.equals("=")) return EQUALS;
+        if (operator.equals("<>") || operator.equals("!=")) return NOT_EQUALS;
+        if (operator.equals(">")) return GREATER;
+        if (operator.equals("<")) return LESS;
+        if (operator.equals(">=")) return GREATER_OR_EQUALS;
+        if (operator.equals("<=")) return LESS_OR_EQUALS;
+        if (operator.equalsIgnoreCase(EnumerationCriterion.ENUM_IN_OPERATION)) return IN;
+        if (operator.equalsIgnoreCase(EnumerationCriterion.ENUM_NOT_IN_OPERATION)) return NOT_IN;
+        return UNKNOWN_OPERATOR;
+    }
+
+    private static String getOperatorName(int operatorCode) {
+        return operatorCode >= 0 && operatorCode < OPERATOR_NAMES.length ? OPERATOR_NAMES[operatorCode] : "unknown";
     }
 
     protected static boolean evaluate(Object leftOperandValue, String operator, Object rightOperandValue) {
+        return evaluate(leftOperandValue, getOperatorCode(operator), rightOperandValue);
+    }
+
+    static boolean evaluate(Object leftOperandValue, int operatorCode, Object rightOperandValue) {
         if (leftOperandValue == null) {
-            if (operator.equals("=") || operator.equalsIgnoreCase(EnumerationCriterion.ENUM_IN_OPERATION)) return rightOperandValue == null;
-            if (operator.equals("<>") || operator.equals("!=") || operator.equalsIgnoreCase(EnumerationCriterion.ENUM_NOT_IN_OPERATION)) return rightOperandValue != null;
-            return false;
+            return evaluateNull(operatorCode, rightOperandValue);
 
         } else if (Schema.hasInstance(leftOperandValue.getClass())) {
             // RightOperand must be a key
             rightOperandValue = Schema.getInstance(leftOperandValue.getClass()).changeKeyType(rightOperandValue, null);
-            Object leftOperandKey = BeanFactory.getKeyForBean(leftOperandValue); // convert bean to key
+            return evaluateBean(leftOperandValue, operatorCode, rightOperandValue);
 
-            if (operator.equals("=") || operator.equalsIgnoreCase(EnumerationCriterion.ENUM_IN_OPERATION)) return Utilities.equals(leftOperandKey, rightOperandValue);
-            if (operator.equals("<>") || operator.equals("!=") || operator.equalsIgnoreCase(EnumerationCriterion.ENUM_NOT_IN_OPERATION)) return !Utilities.equals(leftOperandKey, rightOperandValue);
+        } else if (rightOperandValue instanceof Number) {
+            return evaluate(getLeftOperandDouble(leftOperandValue), operatorCode, ((Number) rightOperandValue).doubleValue());
+        } else {
+            return evaluateNonNumeric(leftOperandValue, operatorCode, rightOperandValue);
+        }
+    }
 
-            if (leftOperandValue instanceof Comparable) {
-                rightOperandValue = BeanFactory.getInstance(leftOperandValue.getClass()).get(rightOperandValue); // convert key to bean
-                return evaluate((Comparable) leftOperandValue, operator, (Comparable) rightOperandValue);
-            }
+    static boolean evaluateNull(int operatorCode, Object rightOperandValue) {
+        if (operatorCode == EQUALS || operatorCode == IN) return rightOperandValue == null;
+        if (operatorCode == NOT_EQUALS || operatorCode == NOT_IN) return rightOperandValue != null;
+        return false;
+    }
 
-            log.error("Cannot evaluate operands of type Bean with operator: " + operator + " the bean may need to implement Comparable");
-            return false;
+    /**
+     * @param rightOperandKey the right operand already converted to the key type of the left operand's schema
+     */
+    static boolean evaluateBean(Object leftOperandValue, int operatorCode, Object rightOperandKey) {
+        Object leftOperandKey = BeanFactory.getKeyForBean(leftOperandValue); // convert bean to key
 
-        } else if (rightOperandValue instanceof Number) {
-            Double rightOperandNumber = ((Number) rightOperandValue).doubleValue();
-            Double leftOperandNumber = getLeftOperandNumber(leftOperandValue);
-            return evaluate(leftOperandNumber, operator, rightOperandNumber);
-        } else if (leftOperandValue instanceof java.lang.Boolean) {
+        if (operatorCode == EQUALS || operatorCode == IN) return Utilities.equals(leftOperandKey, rightOperandKey);
+        if (operatorCode == NOT_EQUALS || operatorCode == NOT_IN) return !Utilities.equals(leftOperandKey, rightOperandKey);
+
+        if (leftOperandValue instanceof Comparable) {
+            Object rightOperandValue = BeanFactory.getInstance(leftOperandValue.getClass()).get(rightOperandKey); // convert key to bean
+            return evaluate((Comparable) leftOperandValue, operatorCode, (Comparable) rightOperandValue);
+        }
+
+        log.error("Cannot evaluate operands of type Bean with operator: " + getOperatorName(operatorCode) + " the bean may need to implement Comparable");
+        return false;
+    }
+
+    /**
+     * Handles a non-null, non-bean left operand against a right operand that is not a Number.
+     */
+    static boolean evaluateNonNumeric(Object leftOperandValue, int operatorCode, Object rightOperandValue) {
+        if (leftOperandValue instanceof java.lang.Boolean) {
             Boolean leftOperandBoolean = (Boolean) leftOperandValue;
             Boolean rightOperandBooean = (Boolean) rightOperandValue;
-            if (!operator.equals("=")) {
-                log.error("Boolean data type only supports '=', not " + operator);
+            if (operatorCode != EQUALS) {
+                log.error("Boolean data type only supports '=', not " + getOperatorName(operatorCode));
                 return false;
             }
             return leftOperandBoolean.booleanValue() == rightOperandBooean.booleanValue();
         } else if (leftOperandValue instanceof java.util.Date) {
             java.util.Date rightOperandDate = getRightOperandDate(rightOperandValue);
             java.util.Date leftOperandDate = (java.util.Date) leftOperandValue;
-            return evaluate(leftOperandDate, operator, rightOperandDate);
+            return evaluate(leftOperandDate, operatorCode, rightOperandDate);
 
         } else if (leftOperandValue instanceof Enum) {
-            return evaluate((Enum) leftOperandValue, operator, (Enum) rightOperandValue);
+            return evaluate((Enum) leftOperandValue, operatorCode, (Enum) rightOperandValue);
         } else {
             String leftOperandString = String.valueOf(leftOperandValue);
             String rightOperandString = String.valueOf(rightOperandValue);
-            return evaluate(leftOperandString, operator, rightOperandString);
+            return evaluate(leftOperandString, operatorCode, rightOperandString);
         }
     }
 
-    private static boolean evaluate(Comparable leftOperand, String operator, Comparable rightOperand) {
-        if (operator.equals("=") || operator.equalsIgnoreCase(EnumerationCriterion.ENUM_IN_OPERATION)) return leftOperand.equals(rightOperand);
-        if (operator.equals(">")) return leftOperand.compareTo(rightOperand) > 0;
-        if (operator.equals("<")) return leftOperand.compareTo(rightOperand) < 0;
-        if (operator.equals("<>") || operator.equals("!=") || operator.equalsIgnoreCase(EnumerationCriterion.ENUM_NOT_IN_OPERATION)) return !leftOperand.equals(rightOperand);
-        if (operator.equals(">=")) return leftOperand.equals(rightOperand) || leftOperand.compareTo(rightOperand) > 0;
-        if (operator.equals("<=")) return leftOperand.equals(rightOperand) || leftOperand.compareTo(rightOperand) < 0;
-        log.error("Cannot evaluate operands of type Comparable with operator: " + operator);
+    /**
+     * Same semantics as comparing the boxed values with Double.equals and Double.compareTo.
+     */
+    static boolean evaluate(double leftOperand, int operatorCode, double rightOperand) {
+        int comparison = Double.compare(leftOperand, rightOperand);
+        switch (operatorCode) {
+            case EQUALS:
+            case IN:
+                return comparison == 0;
+            case NOT_EQUALS:
+            case NOT_IN:
+                return comparison != 0;
+            case GREATER:
+                return comparison > 0;
+            case LESS:
+                return comparison < 0;
+            case GREATER_OR_EQUALS:
+                return comparison >= 0;
+            case LESS_OR_EQUALS:
+                return comparison <= 0;
+        }
+        log.error("Cannot evaluate operands of type Comparable with operator: " + getOperatorName(operatorCode));
         return false;
     }
 
-    private static java.util.Date getRightOperandDate(Object rightOperandValue) {
+    static boolean evaluate(Comparable leftOperand, int operatorCode, Comparable rightOperand) {
+        switch (operatorCode) {
+            case EQUALS:
+            case IN:
+                return leftOperand.equals(rightOperand);
+            case GREATER:
+                return leftOperand.compareTo(rightOperand) > 0;
+            case LESS:
+                return leftOperand.compareTo(rightOperand) < 0;
+            case NOT_EQUALS:
+            case NOT_IN:
+                return !leftOperand.equals(rightOperand);
+            case GREATER_OR_EQUALS:
+                return leftOperand.equals(rightOperand) || leftOperand.compareTo(rightOperand) > 0;
+            case LESS_OR_EQUALS:
+                return leftOperand.equals(rightOperand) || leftOperand.compareTo(rightOperand) < 0;
+        }
+        log.error("Cannot evaluate operands of type Comparable with operator: " + getOperatorName(operatorCode));
+        return false;
+    }
+
+    static java.util.Date getRightOperandDate(Object rightOperandValue) {
         java.util.Date rightOperandDate;
         if (rightOperandValue instanceof DateFunction) {
             rightOperandDate = ((DateFunction) rightOperandValue).getDate();
@@ -225,19 +317,22 @@ public class BasicCriterion implements SqlCriterion {
         return rightOperandDate;
     }
 
-    private static Double getLeftOperandNumber(Object leftOperandValue) {
-        Double leftOperandNumber;
+    static Double getLeftOperandNumber(Object leftOperandValue) {
+        if (leftOperandValue instanceof Double) return (Double) leftOperandValue;
+        return new Double(getLeftOperandDouble(leftOperandValue));
+    }
+
+    static double getLeftOperandDouble(Object leftOperandValue) {
         if (leftOperandValue instanceof Double) {
-            leftOperandNumber = (Double) leftOperandValue;
+            return ((Double) leftOperandValue).doubleValue();
             // leave this case in, as it uses the plain amount not the scaled number
-        } else if (leftOperandValue instanceof ScalableNumber) { 
-            leftOperandNumber = new Double(((ScalableNumber) leftOperandValue).getAmount());
+        } else if (leftOperandValue instanceof ScalableNumber) {
+            return ((ScalableNumber) leftOperandValue).getAmount();
         } else if (leftOperandValue instanceof Numeric) {
-            leftOperandNumber = new Double(((Numeric) leftOperandValue).doubleValue());
+            return ((Numeric) leftOperandValue).doubleValue();
         } else {
-            leftOperandNumber = new Double(((Number) leftOperandValue).doubleValue());
+            return ((Number) leftOperandValue).doubleValue();
         }
-        return leftOperandNumber;
     }
 
     public boolean equals(Object o) {
@@ -58,7 +58,7 @@ public class CriteriaBeanCollection<E> extends AuditBeanCollection<E> implements
     private static Log log = Log.getCategory(CriteriaBeanCollection.class);
 
     private BeanFactory beanFactory;
-    private SynchronisationWeakMapListener.Synchronisable synchronisable;
+    private CriteriaIndex.IndexedSynchronisable synchronisable;
     private boolean inited;
     private CriterionGroup mergedCriteria;
     private CriterionGroup primaryCriteria;
@@ -72,6 +72,7 @@ public class CriteriaBeanCollection<E> extends AuditBeanCollection<E> implements
     private LoadRunnable commitLoadRunnable;
     private LoadRunnable noncommitLoadRunnable;
     private Map<MapListener, BeanFactory> registeredBeanFactories = new HashMap<MapListener, BeanFactory>();
+    private PartLoader partLoader; // guarded by this
 
     static {
         BeanUtilities.addPersistenceDelegate(CriteriaBeanCollection.class, new BhavayaPersistenceDelegate(new String[]{"beanFactory", "type", "primaryCriteria", "namedCriteriaById"}));
@@ -178,7 +179,7 @@ public class CriteriaBeanCollection<E> extends AuditBeanCollection<E> implements
     }
 
     protected void initImpl() {
-        beanFactory.addMapListener(new SynchronisationWeakMapListener(beanFactory, synchronisable));
+        beanFactory.getCriteriaIndex().add(synchronisable);
         refresh(true);
     }
 
@@ -419,6 +420,11 @@ public class CriteriaBeanCollection<E> extends AuditBeanCollection<E> implements
     private void load(boolean commit, boolean allRows, LoadProgressMonitor loadProgressMonitor) {
         if (log.isDebug()) log.debug(logPrefix + "loading data for criteria: " + mergedCriteria.getName());
 
+        if (allRows && beanFactory.isLoadedInParts()) {
+            loadInParts(commit, loadProgressMonitor);
+            return;
+        }
+
         synchronized (this) {
             Object[] beans = beanFactory.getObjects(mergedCriteria, loadProgressMonitor);
 
@@ -452,6 +458,99 @@ public class CriteriaBeanCollection<E> extends AuditBeanCollection<E> implements
         if (commit) fireCommit();
     }
 
+    /**
+     * Replaces the beans with those loaded for the criteria, adding each part of the load as the BeanFactory inflates it,
+     * so that the first rows are available before the load completes.  The collection is not locked between parts, so
+     * beans removed while the load runs, e.g. by a delete notification, are recorded and not added again, and beans
+     * added before the first part replaces the old beans, e.g. by an insert notification, are recorded and kept.
+     */
+    private void loadInParts(boolean commit, LoadProgressMonitor loadProgressMonitor) {
+        PartLoader partLoader = new PartLoader();
+        synchronized (this) {
+            this.partLoader = partLoader;
+        }
+        try {
+            Object[] beans = beanFactory.getObjects(mergedCriteria, loadProgressMonitor, partLoader);
+            partLoader.loadCompleted(beans);
+        } finally {
+            synchronized (this) {
+                if (this.partLoader == partLoader) this.partLoader = null;
+            }
+        }
+        if (commit) fireCommit();
+    }
+
+    protected synchronized boolean add(E value, boolean fireCommit, boolean fireCollectionChanged) {
+        if (partLoader != null) partLoader.added(value);
+        return super.add(value, fireCommit, fireCollectionChanged);
+    }
+
+    protected synchronized void add(int index, E value, boolean fireCommit, boolean fireCollectionChanged) {
+        if (partLoader != null) partLoader.added(value);
+        super.add(index, value, fireCommit, fireCollectionChanged);
+    }
+
+    protected synchronized boolean remove(Object value, boolean fireCommit, boolean fireCollectionChanged) {
+        if (partLoader != null) partLoader.removed(value);
+        return super.remove(value, fireCommit, fireCollectionChanged);
+    }
+
+    private class PartLoader implements BeanFactory.PartLoadListener {
+        private boolean cleared;
+        private Set<Object> delivered = new HashSet<Object>();
+        private Set<Object> removed = new HashSet<Object>();
+        private Set<Object> addedBeforeClear = new LinkedHashSet<Object>();
+
+        public void partLoaded(Object[] beans) {
+            addBeans(beans, true);
+        }
+
+        /**
+         * Adds the beans of the whole load that no part delivered, as the BeanFactory may not have split the load, or
+         * may have loaded beans outside the parts.
+         */
+        public void loadCompleted(Object[] beans) {
+            addBeans(beans, false);
+        }
+
+        private void addBeans(Object[] beans, boolean part) {
+            boolean added = false;
+            synchronized (CriteriaBeanCollection.this) {
+                if (!cleared) {
+                    clear(false, false);
+                    cleared = true;
+                    added = true;
+                    for (Object bean : addedBeforeClear) {
+                        add((E) bean, false, false);
+                    }
+                }
+                for (Object bean : beans) {
+                    if (part ? !delivered.add(bean) : delivered.contains(bean)) continue;
+                    if (removed.contains(bean)) continue;
+                    added |= add((E) bean, false, false);
+                }
+            }
+            if (added) fireCollectionChanged();
+        }
+
+        /**
+         * Called with the collection locked.  Beans added after the first part are not recorded, as nothing clears
+         * them.
+         */
+        public void added(Object bean) {
+            removed.remove(bean);
+            if (!cleared) addedBeforeClear.add(bean);
+        }
+
+        /**
+         * Called with the collection locked.
+         */
+        public void removed(Object bean) {
+            removed.add(bean);
+            addedBeforeClear.remove(bean);
+        }
+    }
+
     public int getLoadRowCount() {
         return beanFactory.getLoadRowCount(mergedCriteria);
     }
@@ -483,7 +582,7 @@ public class CriteriaBeanCollection<E> extends AuditBeanCollection<E> implements
         return beanCollection.getType().getName() + "@" + System.identityHashCode(beanCollection) + " (" + beanCollection.primaryCriteria.getName() + "): ";
     }
 
-    public class CriteriaBeanCollectionSynchronisable implements SynchronisationWeakMapListener.Synchronisable {
+    public class CriteriaBeanCollectionSynchronisable implements CriteriaIndex.IndexedSynchronisable {
         private CriteriaBeanCollection beanCollection;
 
         public CriteriaBeanCollectionSynchronisable(CriteriaBeanCollection beanCollection) {
@@ -519,6 +618,10 @@ public class CriteriaBeanCollection<E> extends AuditBeanCollection<E> implements
             return beanCollection.mergedCriteria.evaluate(bean);
         }
 
+        public CriterionGroup getCriteria() {
+            return beanCollection.mergedCriteria;
+        }
+
         public String getLogPrefix() {
             return CriteriaBeanCollection.getLogPrefix(beanCollection);
         }
@@ -526,6 +629,7 @@ public class CriteriaBeanCollection<E> extends AuditBeanCollection<E> implements
 
     private class Refresher implements PropertyChangeListener {
         public void propertyChange(PropertyChangeEvent evt) {
+            if (isInited()) beanFactory.getCriteriaIndex().reindex(synchronisable);
             if (requiresRefresh()) refresh(true);
         }
 
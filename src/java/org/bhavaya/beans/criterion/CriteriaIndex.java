@@ -0,0 +1,440 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+package org.bhavaya.beans.criterion;
+
+import org.bhavaya.beans.BeanFactory;
+import org.bhavaya.beans.Schema;
+import org.bhavaya.collection.MapEvent;
+import org.bhavaya.collection.MapListener;
+import org.bhavaya.collection.SynchronisationWeakMapListener;
+import org.bhavaya.util.DateFunction;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+/**
+ * Routes the MapEvents of a BeanFactory to the CriteriaBeanCollections on it, evaluating the criteria of only those
+ * collections that could possibly contain the bean.
+ * <p/>
+ * Each collection is indexed on one of its criteria, keyed on the criterion id, which determines the left operand bean
+ * path.  An "=" or "IN" criterion is indexed in hash buckets of its right operands, a "&lt;", "&lt;=", "&gt;" or "&gt;="
+ * criterion with a numeric right operand in a sorted map of its thresholds, and a collection with neither in a fallback
+ * list that sees every event.  For each event the left operand values are read once per indexed criterion id, and looked
+ * up using the same conversions as BasicCriterion.evaluate, so that a collection is only skipped when its criterion would
+ * have evaluated to false.  Where a left operand value is not of the type the index expects, every collection indexed on
+ * that criterion id is evaluated.
+ * <p/>
+ * INSERTs go only to the matching collections.  UPDATEs also go to the rest, as a collection that holds the bean must drop
+ * it, but without evaluating their criteria.  Other events go to every collection.  Collections are held weakly.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class CriteriaIndex implements MapListener {
+    private static final Entry[] EMPTY_ENTRY_ARRAY = new Entry[0];
+    private static final Object FALLBACK_KEY = new Object();
+
+    public interface IndexedSynchronisable extends SynchronisationWeakMapListener.Synchronisable {
+        /**
+         * @return the criteria the collection's beans satisfy.
+         */
+        public CriterionGroup getCriteria();
+    }
+
+    private final Object lock = new Object();
+    private Entry[] entries = EMPTY_ENTRY_ARRAY; // copy on write, in the order they were added
+    private OperandIndex[] operandIndexes = new OperandIndex[0]; // copy on write
+    private Map idToOperandIndex = new HashMap();
+    private Map fallback = new HashMap();
+    private int nextSequence;
+
+    public void add(IndexedSynchronisable synchronisable) {
+        synchronized (lock) {
+            if (getEntry(synchronisable) != null) return;
+            Entry entry = new Entry(synchronisable, nextSequence++);
+            index(entry, synchronisable.getCriteria());
+            Entry[] newEntries = new Entry[entries.length + 1];
+            System.arraycopy(entries, 0, newEntries, 0, entries.length);
+            newEntries[entries.length] = entry;
+            entries = newEntries;
+        }
+    }
+
+    public void remove(IndexedSynchronisable synchronisable) {
+        synchronized (lock) {
+            Entry entry = getEntry(synchronisable);
+            if (entry != null) removeEntry(entry);
+        }
+    }
+
+    /**
+     * Call when the criteria of synchronisable have changed.  Does nothing if it has not been added.
+     */
+    public void reindex(IndexedSynchronisable synchronisable) {
+        synchronized (lock) {
+            Entry entry = getEntry(synchronisable);
+            if (entry != null) {
+                unindex(entry);
+                index(entry, synchronisable.getCriteria());
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return entries.length;
+        }
+    }
+
+    public void mapChanged(MapEvent mapEvent) {
+        int mapEventType = mapEvent.getType();
+        Entry[] currentEntries;
+        synchronized (lock) {
+            currentEntries = entries;
+        }
+
+        if (mapEventType == MapEvent.INSERT || (mapEventType == MapEvent.UPDATE && mapEvent.getKey() != null)) {
+            Set candidates = getCandidates(mapEvent.getValue());
+            if (mapEventType == MapEvent.INSERT) {
+                Entry[] candidateEntries = (Entry[]) candidates.toArray(new Entry[candidates.size()]);
+                Arrays.sort(candidateEntries);
+                synchronise(candidateEntries, mapEvent, null);
+            } else {
+                synchronise(currentEntries, mapEvent, candidates);
+            }
+        } else {
+            synchronise(currentEntries, mapEvent, null);
+        }
+    }
+
+    private void synchronise(Entry[] entries, MapEvent mapEvent, Set candidates) {
+        for (int i = 0; i < entries.length; i++) {
+            Entry entry = entries[i];
+            IndexedSynchronisable synchronisable = (IndexedSynchronisable) entry.get();
+            if (synchronisable == null) {
+                synchronized (lock) {
+                    removeEntry(entry);
+                }
+            } else {
+                SynchronisationWeakMapListener.synchronise(synchronisable, mapEvent, candidates == null || candidates.contains(entry));
+            }
+        }
+    }
+
+    private Set getCandidates(Object bean) {
+        OperandIndex[] currentOperandIndexes;
+        synchronized (lock) {
+            currentOperandIndexes = operandIndexes;
+        }
+
+        // read the left operands outside the lock, as bean getters may load data
+        Set[] leftOperandValues = new Set[currentOperandIndexes.length];
+        for (int i = 0; i < currentOperandIndexes.length; i++) {
+            leftOperandValues[i] = currentOperandIndexes[i].criterion.getLeftOperandValues(bean);
+        }
+
+        Set candidates = new HashSet();
+        synchronized (lock) {
+            addAll(candidates, fallback);
+            for (int i = 0; i < currentOperandIndexes.length; i++) {
+                if (leftOperandValues[i] == null) continue;
+                for (Iterator iterator = leftOperandValues[i].iterator(); iterator.hasNext();) {
+                    currentOperandIndexes[i].addCandidates(iterator.next(), candidates);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private Entry getEntry(IndexedSynchronisable synchronisable) {
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].get() == synchronisable) return entries[i];
+        }
+        return null;
+    }
+
+    private void removeEntry(Entry entry) {
+        int index = Arrays.asList(entries).indexOf(entry);
+        if (index < 0) return;
+        unindex(entry);
+        Entry[] newEntries = new Entry[entries.length - 1];
+        System.arraycopy(entries, 0, newEntries, 0, index);
+        System.arraycopy(entries, index + 1, newEntries, index, entries.length - index - 1);
+        entries = newEntries;
+    }
+
+    private void index(Entry entry, CriterionGroup criterionGroup) {
+        Criterion[] criteria = criterionGroup == null ? null : criterionGroup.getCriteria();
+        if (criteria == null) return; // evaluates to false for every bean
+
+        // the criteria are ANDed, so any one of them will do, an equality selects fewest collections
+        for (int i = 0; i < criteria.length; i++) {
+            if (indexEquality(entry, criteria[i])) return;
+        }
+        for (int i = 0; i < criteria.length; i++) {
+            if (indexRange(entry, criteria[i])) return;
+        }
+        put(fallback, FALLBACK_KEY, entry);
+    }
+
+    private boolean indexEquality(Entry entry, Criterion criterion) {
+        Object[] rightOperands;
+        if (criterion.getClass() == BasicCriterion.class && Criterion.OPERATOR_EQUALS.equals(((BasicCriterion) criterion).getOperator())) {
+            rightOperands = new Object[]{((BasicCriterion) criterion).getRightOperand()};
+        } else if (criterion.getClass() == EnumerationCriterion.class && EnumerationCriterion.ENUM_IN_OPERATION.equals(((EnumerationCriterion) criterion).getOperator())) {
+            EnumerationCriterion.EnumElement[] enumElements = (EnumerationCriterion.EnumElement[]) ((EnumerationCriterion) criterion).getRightOperand();
+            rightOperands = new Object[enumElements.length];
+            for (int i = 0; i < enumElements.length; i++) {
+                rightOperands[i] = enumElements[i].getId();
+            }
+        } else {
+            return false;
+        }
+
+        BasicCriterion basicCriterion = (BasicCriterion) criterion;
+        Schema schema = null;
+        for (int i = 0; i < rightOperands.length; i++) {
+            // a null may match a null left operand, or the string "null", and a date function changes over time
+            if (rightOperands[i] == null || rightOperands[i] instanceof DateFunction) return false;
+        }
+        if (Schema.hasInstance(basicCriterion.getToBeanType())) {
+            schema = Schema.getInstance(basicCriterion.getToBeanType());
+            try {
+                for (int i = 0; i < rightOperands.length; i++) {
+                    Object rightOperand = rightOperands[i];
+                    if (rightOperand instanceof List) rightOperand = new ArrayList((List) rightOperand); // changeKeyType converts lists in place
+                    rightOperands[i] = schema.changeKeyType(rightOperand, null);
+                }
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+
+        OperandIndex operandIndex = getOperandIndex(basicCriterion);
+        if (schema != null && operandIndex.keySchema != null && operandIndex.keySchema != schema) return false;
+        for (int i = 0; i < rightOperands.length; i++) {
+            Object rightOperand = rightOperands[i];
+            if (schema != null) {
+                operandIndex.keySchema = schema;
+                put(operandIndex.keyBuckets, rightOperand, entry);
+            } else if (rightOperand instanceof Number) {
+                put(operandIndex.numberBuckets, new Double(((Number) rightOperand).doubleValue()), entry);
+            } else {
+                put(operandIndex.objectBuckets, rightOperand, entry);
+                put(operandIndex.stringBuckets, String.valueOf(rightOperand), entry);
+            }
+        }
+        // with no right operands an IN matches nothing
+        return true;
+    }
+
+    private boolean indexRange(Entry entry, Criterion criterion) {
+        if (criterion.getClass() != BasicCriterion.class) return false;
+        BasicCriterion basicCriterion = (BasicCriterion) criterion;
+        Object rightOperand = basicCriterion.getRightOperand();
+        if (!(rightOperand instanceof Number) || Schema.hasInstance(basicCriterion.getToBeanType())) return false;
+
+        String operator = basicCriterion.getOperator();
+        OperandIndex operandIndex = getOperandIndex(basicCriterion);
+        Map thresholds;
+        if (">".equals(operator)) {
+            thresholds = operandIndex.greaterThan;
+        } else if (">=".equals(operator)) {
+            thresholds = operandIndex.greaterThanOrEqual;
+        } else if ("<".equals(operator)) {
+            thresholds = operandIndex.lessThan;
+        } else if ("<=".equals(operator)) {
+            thresholds = operandIndex.lessThanOrEqual;
+        } else {
+            return false;
+        }
+        put(thresholds, new Double(((Number) rightOperand).doubleValue()), entry);
+        return true;
+    }
+
+    private OperandIndex getOperandIndex(BasicCriterion criterion) {
+        OperandIndex operandIndex = (OperandIndex) idToOperandIndex.get(criterion.getId());
+        if (operandIndex == null) {
+            operandIndex = new OperandIndex(criterion);
+            idToOperandIndex.put(criterion.getId(), operandIndex);
+            operandIndexes = (OperandIndex[]) idToOperandIndex.values().toArray(new OperandIndex[idToOperandIndex.size()]);
+        }
+        return operandIndex;
+    }
+
+    private void put(Map buckets, Object key, Entry entry) {
+        List bucket = (List) buckets.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList(2);
+            buckets.put(key, bucket);
+        }
+        bucket.add(entry);
+        entry.registrations.add(new Object[]{buckets, key});
+    }
+
+    private void unindex(Entry entry) {
+        for (Iterator iterator = entry.registrations.iterator(); iterator.hasNext();) {
+            Object[] registration = (Object[]) iterator.next();
+            Map buckets = (Map) registration[0];
+            List bucket = (List) buckets.get(registration[1]);
+            bucket.remove(entry);
+            if (bucket.isEmpty()) buckets.remove(registration[1]);
+        }
+        entry.registrations.clear();
+
+        boolean removedOperandIndex = false;
+        for (Iterator iterator = idToOperandIndex.values().iterator(); iterator.hasNext();) {
+            OperandIndex operandIndex = (OperandIndex) iterator.next();
+            if (operandIndex.isEmpty()) {
+                iterator.remove();
+                removedOperandIndex = true;
+            }
+        }
+        if (removedOperandIndex) {
+            operandIndexes = (OperandIndex[]) idToOperandIndex.values().toArray(new OperandIndex[idToOperandIndex.size()]);
+        }
+    }
+
+    private static void addAll(Set candidates, Map buckets) {
+        for (Iterator iterator = buckets.values().iterator(); iterator.hasNext();) {
+            candidates.addAll((List) iterator.next());
+        }
+    }
+
+    private static void addBucket(Set candidates, Map buckets, Object key) {
+        List bucket = (List) buckets.get(key);
+        if (bucket != null) candidates.addAll(bucket);
+    }
+
+    private static class Entry extends WeakReference implements Comparable {
+        private final int sequence;
+        private final List registrations = new ArrayList(2);
+
+        public Entry(IndexedSynchronisable synchronisable, int sequence) {
+            super(synchronisable);
+            this.sequence = sequence;
+        }
+
+        public int compareTo(Object o) {
+            int otherSequence = ((Entry) o).sequence;
+            return sequence < otherSequence ? -1 : (sequence == otherSequence ? 0 : 1);
+        }
+    }
+
+    /**
+     * The collections indexed on criteria with the same id, and so the same left operand.
+     */
+    private static class OperandIndex {
+        private final BasicCriterion criterion;
+        private Schema keySchema;
+        private final Map keyBuckets = new HashMap();
+        private final Map numberBuckets = new HashMap();
+        private final Map objectBuckets = new HashMap();
+        private final Map stringBuckets = new HashMap();
+        private final NavigableMap greaterThan = new TreeMap();
+        private final NavigableMap greaterThanOrEqual = new TreeMap();
+        private final NavigableMap lessThan = new TreeMap();
+        private final NavigableMap lessThanOrEqual = new TreeMap();
+
+        public OperandIndex(BasicCriterion criterion) {
+            this.criterion = criterion;
+        }
+
+        public boolean isEmpty() {
+            return keyBuckets.isEmpty() && numberBuckets.isEmpty() && objectBuckets.isEmpty() && stringBuckets.isEmpty() && !hasThresholds();
+        }
+
+        private boolean hasThresholds() {
+            return !greaterThan.isEmpty() || !greaterThanOrEqual.isEmpty() || !lessThan.isEmpty() || !lessThanOrEqual.isEmpty();
+        }
+
+        /**
+         * Adds the collections whose criterion could evaluate to true for leftOperandValue, following the branches of
+         * BasicCriterion.evaluate(Object, String, Object).
+         */
+        public void addCandidates(Object leftOperandValue, Set candidates) {
+            if (leftOperandValue == null) return; // only matches a null right operand, which is not indexed
+
+            if (Schema.hasInstance(leftOperandValue.getClass())) {
+                if (Schema.getInstance(leftOperandValue.getClass()) == keySchema) {
+                    addBucket(candidates, keyBuckets, BeanFactory.getKeyForBean(leftOperandValue));
+                } else {
+                    addAll(candidates, keyBuckets);
+                }
+                addAllNonKeys(candidates);
+                return;
+            }
+            addAll(candidates, keyBuckets);
+
+            if (!numberBuckets.isEmpty() || hasThresholds()) {
+                Double leftOperandNumber;
+                try {
+                    leftOperandNumber = BasicCriterion.getLeftOperandNumber(leftOperandValue);
+                } catch (ClassCastException e) {
+                    leftOperandNumber = null; // evaluate will throw the same
+                }
+                if (leftOperandNumber == null) {
+                    addAllNumbers(candidates);
+                } else {
+                    addBucket(candidates, numberBuckets, leftOperandNumber);
+                    addAllBuckets(candidates, greaterThan.headMap(leftOperandNumber, false));
+                    addAllBuckets(candidates, greaterThanOrEqual.headMap(leftOperandNumber, true));
+                    addAllBuckets(candidates, lessThan.tailMap(leftOperandNumber, false));
+                    addAllBuckets(candidates, lessThanOrEqual.tailMap(leftOperandNumber, true));
+                }
+            }
+
+            if (leftOperandValue instanceof Boolean || leftOperandValue instanceof Date || leftOperandValue instanceof Enum) {
+                addBucket(candidates, objectBuckets, leftOperandValue);
+            } else {
+                addBucket(candidates, stringBuckets, String.valueOf(leftOperandValue));
+            }
+        }
+
+        private void addAllNonKeys(Set candidates) {
+            addAllNumbers(candidates);
+            addAll(candidates, objectBuckets);
+            addAll(candidates, stringBuckets);
+        }
+
+        private void addAllNumbers(Set candidates) {
+            addAll(candidates, numberBuckets);
+            addAll(candidates, greaterThan);
+            addAll(candidates, greaterThanOrEqual);
+            addAll(candidates, lessThan);
+            addAll(candidates, lessThanOrEqual);
+        }
+
+        private static void addAllBuckets(Set candidates, Map buckets) {
+            if (!buckets.isEmpty()) addAll(candidates, buckets);
+        }
+    }
+}
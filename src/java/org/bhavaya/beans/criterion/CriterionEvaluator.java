@@ -0,0 +1,337 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+package org.bhavaya.beans.criterion;
+
+import org.bhavaya.beans.Schema;
+import org.bhavaya.util.DynamicObservable;
+import org.bhavaya.util.Generic;
+import org.bhavaya.util.Type;
+
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * A Criterion compiled for repeated evaluation against beans, as built by CriterionGroup.
+ * <p/>
+ * BasicCriterion and EnumerationCriterion are compiled to evaluators that resolve their operator to an opcode once,
+ * convert their right operands once (a Number to a primitive double, anything compared as a String to its String value,
+ * a key to the key type of each bean type it is compared with), and read the left operand through attribute indexes
+ * cached per bean class instead of the name lookups of BeanPathTransformer.  A bean path that goes through an array is
+ * left to the transformer.  The results are the same as Criterion.evaluate.  Other criteria, including subclasses of
+ * the two, are evaluated by the criterion itself.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+abstract class CriterionEvaluator {
+    private static final Object NO_VALUE = new Object();
+    private static final Object UNRESOLVED = new Object();
+
+    public abstract boolean evaluate(Object bean);
+
+    public static CriterionEvaluator compile(Criterion criterion) {
+        if (criterion.getClass() == BasicCriterion.class) {
+            BasicCriterion basicCriterion = (BasicCriterion) criterion;
+            if (basicCriterion.transformerGroup != null && basicCriterion.getOperatorCode() != BasicCriterion.UNKNOWN_OPERATOR) {
+                return new BasicEvaluator(basicCriterion);
+            }
+        } else if (criterion.getClass() == EnumerationCriterion.class) {
+            EnumerationCriterion enumerationCriterion = (EnumerationCriterion) criterion;
+            int operatorCode = enumerationCriterion.getOperatorCode();
+            if (enumerationCriterion.transformerGroup != null && (operatorCode == BasicCriterion.IN || operatorCode == BasicCriterion.NOT_IN)
+                    && enumerationCriterion.getRightOperand() instanceof EnumerationCriterion.EnumElement[]) {
+                return new EnumerationEvaluator(enumerationCriterion);
+            }
+        }
+        return new DelegatingEvaluator(criterion);
+    }
+
+    private static class DelegatingEvaluator extends CriterionEvaluator {
+        private final Criterion criterion;
+
+        public DelegatingEvaluator(Criterion criterion) {
+            this.criterion = criterion;
+        }
+
+        public boolean evaluate(Object bean) {
+            return criterion.evaluate(bean);
+        }
+    }
+
+    /**
+     * Evaluates each left operand value of a BasicCriterion in turn until one decides the result.
+     */
+    private abstract static class LeftOperandEvaluator extends CriterionEvaluator {
+        protected final BasicCriterion criterion;
+        protected final int operatorCode;
+        private final boolean resultOnMatch;
+        private volatile BeanTypeAccessor lastBeanTypeAccessor;
+        private volatile LeftOperandType lastLeftOperandType;
+
+        protected LeftOperandEvaluator(BasicCriterion criterion, boolean resultOnMatch) {
+            this.criterion = criterion;
+            this.operatorCode = criterion.getOperatorCode();
+            this.resultOnMatch = resultOnMatch;
+        }
+
+        public boolean evaluate(Object bean) {
+            if (bean == null) return criterion.evaluate(bean);
+
+            PathAccessor[] pathAccessors = getPathAccessors(bean.getClass());
+            if (pathAccessors == null) return criterion.evaluate(bean);
+
+            for (int i = 0; i < pathAccessors.length; i++) {
+                Object leftOperandValue = pathAccessors[i].get(bean);
+                if (leftOperandValue == NO_VALUE) continue;
+                if (leftOperandValue == UNRESOLVED) return evaluate(criterion.getLeftOperandValues(bean));
+                if (matches(leftOperandValue)) return resultOnMatch;
+            }
+            return !resultOnMatch;
+        }
+
+        private boolean evaluate(Set leftOperandValues) {
+            for (Iterator iterator = leftOperandValues.iterator(); iterator.hasNext();) {
+                if (matches(iterator.next())) return resultOnMatch;
+            }
+            return !resultOnMatch;
+        }
+
+        /**
+         * @return true if the leftOperandValue decides the result of the criterion.
+         */
+        protected abstract boolean matches(Object leftOperandValue);
+
+        protected boolean matches(Object leftOperandValue, int operatorCode, Operand rightOperand) {
+            if (leftOperandValue == null) return BasicCriterion.evaluateNull(operatorCode, rightOperand.value);
+
+            LeftOperandType leftOperandType = getLeftOperandType(leftOperandValue.getClass());
+            if (leftOperandType.schema != null) {
+                return BasicCriterion.evaluateBean(leftOperandValue, operatorCode, rightOperand.getKey(leftOperandType.schema));
+            } else if (rightOperand.number) {
+                return BasicCriterion.evaluate(BasicCriterion.getLeftOperandDouble(leftOperandValue), operatorCode, rightOperand.doubleValue);
+            } else if (leftOperandType.comparedAsString) {
+                return BasicCriterion.evaluate(String.valueOf(leftOperandValue), operatorCode, rightOperand.stringValue);
+            } else {
+                return BasicCriterion.evaluateNonNumeric(leftOperandValue, operatorCode, rightOperand.value);
+            }
+        }
+
+        private PathAccessor[] getPathAccessors(Class beanType) {
+            BeanTypeAccessor beanTypeAccessor = lastBeanTypeAccessor;
+            if (beanTypeAccessor == null || beanTypeAccessor.beanType != beanType) {
+                beanTypeAccessor = new BeanTypeAccessor(beanType, criterion.transformerGroup.getTransformer(beanType));
+                lastBeanTypeAccessor = beanTypeAccessor;
+            }
+            return beanTypeAccessor.pathAccessors;
+        }
+
+        private LeftOperandType getLeftOperandType(Class type) {
+            LeftOperandType leftOperandType = lastLeftOperandType;
+            if (leftOperandType == null || leftOperandType.type != type) {
+                leftOperandType = new LeftOperandType(type);
+                lastLeftOperandType = leftOperandType;
+            }
+            return leftOperandType;
+        }
+    }
+
+    private static class BasicEvaluator extends LeftOperandEvaluator {
+        private final Operand rightOperand;
+
+        public BasicEvaluator(BasicCriterion criterion) {
+            super(criterion, true);
+            this.rightOperand = new Operand(criterion.getRightOperand());
+        }
+
+        protected boolean matches(Object leftOperandValue) {
+            return matches(leftOperandValue, operatorCode, rightOperand);
+        }
+    }
+
+    private static class EnumerationEvaluator extends LeftOperandEvaluator {
+        private final Operand[] rightOperands;
+
+        public EnumerationEvaluator(EnumerationCriterion criterion) {
+            // IN is true if any left operand equals any right operand, NOT IN is false if any does
+            super(criterion, criterion.getOperatorCode() == BasicCriterion.IN);
+            EnumerationCriterion.EnumElement[] enumElements = (EnumerationCriterion.EnumElement[]) criterion.getRightOperand();
+            rightOperands = new Operand[enumElements.length];
+            for (int i = 0; i < enumElements.length; i++) {
+                rightOperands[i] = new Operand(enumElements[i].getId());
+            }
+        }
+
+        public boolean evaluate(Object bean) {
+            if (rightOperands.length == 0) return operatorCode == BasicCriterion.NOT_IN;
+            return super.evaluate(bean);
+        }
+
+        protected boolean matches(Object leftOperandValue) {
+            for (int i = 0; i < rightOperands.length; i++) {
+                // for NOT IN the operator evaluates to false when the operands are equal
+                if (matches(leftOperandValue, operatorCode, rightOperands[i]) == (operatorCode == BasicCriterion.IN)) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A right operand, pre-converted to the forms a left operand is compared with.
+     */
+    private static class Operand {
+        private final Object value;
+        private final boolean number;
+        private final double doubleValue;
+        private final String stringValue;
+        private volatile OperandKey lastKey;
+
+        public Operand(Object value) {
+            this.value = value;
+            this.number = value instanceof Number;
+            this.doubleValue = number ? ((Number) value).doubleValue() : 0;
+            this.stringValue = String.valueOf(value);
+        }
+
+        public Object getKey(Schema schema) {
+            OperandKey key = lastKey;
+            if (key == null || key.schema != schema) {
+                key = new OperandKey(schema, schema.changeKeyType(value, null));
+                lastKey = key;
+            }
+            return key.key;
+        }
+    }
+
+    private static class OperandKey {
+        private final Schema schema;
+        private final Object key;
+
+        public OperandKey(Schema schema, Object key) {
+            this.schema = schema;
+            this.key = key;
+        }
+    }
+
+    /**
+     * How a left operand of a given class is compared, see BasicCriterion.evaluate.
+     */
+    private static class LeftOperandType {
+        private final Class type;
+        private final Schema schema;
+        private final boolean comparedAsString;
+
+        public LeftOperandType(Class type) {
+            this.type = type;
+            this.schema = Schema.hasInstance(type) ? Schema.getInstance(type) : null;
+            this.comparedAsString = !Boolean.class.isAssignableFrom(type) && !java.util.Date.class.isAssignableFrom(type) && !Enum.class.isAssignableFrom(type);
+        }
+    }
+
+    private static class BeanTypeAccessor {
+        private final Class beanType;
+        private final PathAccessor[] pathAccessors;
+
+        public BeanTypeAccessor(Class beanType, BeanPathTransformer transformer) {
+            this.beanType = beanType;
+            if (transformer == null) {
+                pathAccessors = null;
+            } else {
+                String[] beanPaths = transformer.getBeanPaths();
+                pathAccessors = new PathAccessor[beanPaths.length];
+                for (int i = 0; i < beanPaths.length; i++) {
+                    pathAccessors[i] = new PathAccessor(beanPaths[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads one bean path the way BeanPathTransformer does, returning NO_VALUE where the transformer would add no value,
+     * and UNRESOLVED where it would add the elements of an array.
+     */
+    private static class PathAccessor {
+        private final String[] path;
+        private final AttributeAccessor[] attributeAccessors;
+
+        public PathAccessor(String beanPath) {
+            this.path = beanPath.length() == 0 ? new String[0] : Generic.beanPathStringToArray(beanPath);
+            this.attributeAccessors = new AttributeAccessor[path.length];
+        }
+
+        public Object get(Object bean) {
+            Object beanValue = bean;
+            for (int i = 0; i < path.length; i++) {
+                AttributeAccessor attributeAccessor = attributeAccessors[i];
+                if (attributeAccessor == null || attributeAccessor.type != beanValue.getClass()) {
+                    attributeAccessor = new AttributeAccessor(beanValue, path[i]);
+                    attributeAccessors[i] = attributeAccessor;
+                }
+
+                beanValue = attributeAccessor.get(beanValue);
+                if (beanValue == NO_VALUE || beanValue == null) return beanValue;
+                if (i + 1 < path.length && beanValue.getClass().isArray()) return UNRESOLVED;
+            }
+            return beanValue.getClass().isArray() ? UNRESOLVED : beanValue;
+        }
+    }
+
+    private static class AttributeAccessor {
+        private final Class type;
+        private final String attributeName;
+        private final Type genericType;
+        private final int attributeIndex;
+
+        public AttributeAccessor(Object instance, String attributeName) {
+            this.type = instance.getClass();
+            this.attributeName = attributeName;
+
+            Type genericType = Generic.getType(instance);
+            if (instance instanceof DynamicObservable || type == Class.class || genericType != Generic.getType(type)) {
+                // the attributes depend on the instance, not its class
+                this.genericType = null;
+                this.attributeIndex = -1;
+            } else {
+                this.genericType = genericType;
+                this.attributeIndex = genericType.attributeExists(attributeName) ? genericType.getAttributeIndex(attributeName) : -1;
+            }
+        }
+
+        public Object get(Object instance) {
+            if (genericType == null) {
+                Type instanceType = Generic.getType(instance);
+                if (!instanceType.attributeExists(attributeName)) return NO_VALUE;
+                return instanceType.get(instance, attributeName);
+            }
+            if (attributeIndex == -1) return NO_VALUE;
+            return genericType.get(instance, attributeIndex);
+        }
+    }
+}
@@ -51,6 +51,7 @@ public class CriterionGroup extends DefaultObservable implements Filter, Describ
     protected Criterion[] criteria;
     private SQL selectStatement = null;
     private CriterionGroupSqlOptimiser criterionGroupSqlOptimiser;
+    private volatile CompiledCriteria compiledCriteria;
 
     /**
      * a criterion group with "null" criteria will reject all beans
@@ -120,24 +121,41 @@ public class CriterionGroup extends DefaultObservable implements Filter, Describ
      * i.e. perform a lazy AND operation.
      */
     public boolean evaluate(Object bean) {
-        if (log.isDebug()) log.debug("CriterionGroup: " + getName() + " is evaluating bean");
+        boolean debug = log.isDebug();
+        if (debug) log.debug("CriterionGroup: " + getName() + " is evaluating bean");
 
+        Criterion[] criteria = this.criteria;
         if (criteria == null) return false;
         if (criteria.length == 0) return true;
 
-        for (int i = 0; i < criteria.length; i++) {
-            Criterion criterion = criteria[i];
-            boolean result = criterion.evaluate(bean);
+        CriterionEvaluator[] evaluators = getEvaluators(criteria);
+        for (int i = 0; i < evaluators.length; i++) {
+            boolean result = evaluators[i].evaluate(bean);
             if (!result) {
-                if (log.isDebug()) log.debug("Failed test: " + criterion.getName());
+                if (debug) log.debug("Failed test: " + criteria[i].getName());
                 return false;
             }
         }
 
-        if (log.isDebug()) log.debug("Passed all " + criteria.length + " tests");
+        if (debug) log.debug("Passed all " + criteria.length + " tests");
         return true;
     }
 
+    /**
+     * The criteria are compiled on first evaluation, and again whenever they are replaced.
+     */
+    private CriterionEvaluator[] getEvaluators(Criterion[] criteria) {
+        CompiledCriteria compiledCriteria = this.compiledCriteria;
+        if (compiledCriteria == null || compiledCriteria.criteria != criteria) {
+            CriterionEvaluator[] evaluators = new CriterionEvaluator[criteria.length];
+            for (int i = 0; i < criteria.length; i++) {
+                evaluators[i] = CriterionEvaluator.compile(criteria[i]);
+            }
+            compiledCriteria = new CompiledCriteria(criteria, evaluators);
+            this.compiledCriteria = compiledCriteria;
+        }
+        return compiledCriteria.evaluators;
+    }
 
     public SQL getSQL(Class beanType) {
         if (selectStatement == null) {
@@ -196,4 +214,14 @@ public class CriterionGroup extends DefaultObservable implements Filter, Describ
     public Object clone() {
         return new CriterionGroup(name, criteria);
     }
+
+    private static class CompiledCriteria {
+        private final Criterion[] criteria;
+        private final CriterionEvaluator[] evaluators;
+
+        public CompiledCriteria(Criterion[] criteria, CriterionEvaluator[] evaluators) {
+            this.criteria = criteria;
+            this.evaluators = evaluators;
+        }
+    }
 }
@@ -0,0 +1,284 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+package org.bhavaya.beans.generator;
+
+import org.apache.bcel.Constants;
+import org.apache.bcel.generic.*;
+import org.bhavaya.util.ApplicationProperties;
+import org.bhavaya.util.ClassUtilities;
+import org.bhavaya.util.Log;
+import org.bhavaya.util.PropertyGroup;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Generates a PropertyAccessor for a property of a bean class, whose get and set call the property's read and write
+ * methods directly, boxing and unboxing primitives, instead of going through Method.invoke.
+ * <p/>
+ * A method is only called directly if the generated class can link to it: the method and the class it is invoked on
+ * must be public, and for a write method so must its parameter type.  The accessor is defined in a class loader that
+ * sees both the bean class and PropertyAccessor.  Where that is not possible, generate returns null or, for one of the
+ * two methods, an accessor whose other method throws UnsupportedOperationException, and callers carry on using
+ * reflection.  The set method of an accessor expects a value that is an instance of the write method's parameter
+ * type, or for a primitive parameter, exactly its wrapper type; see canSetDirectly.
+ * <p/>
+ * Setting beanFactory.generatedPropertyAccessors to false turns generation off.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class PropertyAccessorGenerator {
+    private static final Log log = Log.getCategory(PropertyAccessorGenerator.class);
+
+    private static final String ACCESSOR_CLASS_NAME = PropertyAccessor.class.getName();
+    private static final String GENERATED_PACKAGE = ClassUtilities.getPackageName(PropertyAccessorGenerator.class) + ".accessor.";
+    private static final String ENABLED_PROPERTY = "generatedPropertyAccessors";
+
+    // the values are weak too, as an AccessorClassLoader refers to its parent
+    private static final Map<ClassLoader, WeakReference<AccessorClassLoader>> classLoaders = new WeakHashMap<ClassLoader, WeakReference<AccessorClassLoader>>();
+    private static int accessorCount;
+    private static Boolean enabled;
+
+    private PropertyAccessorGenerator() {
+    }
+
+    public static synchronized boolean isEnabled() {
+        if (enabled == null) {
+            PropertyGroup beanFactoryProperties = ApplicationProperties.getApplicationProperties().getGroup("beanFactory");
+            String enabledString = beanFactoryProperties != null ? beanFactoryProperties.getProperty(ENABLED_PROPERTY) : null;
+            enabled = Boolean.valueOf(enabledString == null || Boolean.valueOf(enabledString).booleanValue());
+        }
+        return enabled.booleanValue();
+    }
+
+    /**
+     * @return true if the generated accessor for readMethod can call it directly.
+     */
+    public static boolean canRead(Class beanType, Method readMethod) {
+        return readMethod != null && readMethod.getParameterTypes().length == 0 && getInvokedType(beanType, readMethod) != null;
+    }
+
+    /**
+     * @return true if the generated accessor for writeMethod can call it directly.
+     */
+    public static boolean canWrite(Class beanType, Method writeMethod) {
+        if (writeMethod == null || writeMethod.getParameterTypes().length != 1 || getInvokedType(beanType, writeMethod) == null) return false;
+        Class parameterType = writeMethod.getParameterTypes()[0];
+        while (parameterType.isArray()) parameterType = parameterType.getComponentType();
+        return Modifier.isPublic(parameterType.getModifiers());
+    }
+
+    /**
+     * @return true if value can be passed to the set method of the accessor generated for writeMethod.
+     */
+    public static boolean canSetDirectly(Class parameterType, Object value) {
+        if (parameterType.isPrimitive()) return value != null && value.getClass() == getWrapperType(parameterType);
+        return value == null || parameterType.isInstance(value);
+    }
+
+    /**
+     * @param readMethod  may be null, or a method canRead rejects, in which case the accessor cannot get.
+     * @param writeMethod may be null, or a method canWrite rejects, in which case the accessor cannot set.
+     * @return null if neither method can be called directly, or the accessor could not be generated.
+     */
+    public static PropertyAccessor generate(Class beanType, String propertyName, Method readMethod, Method writeMethod) {
+        if (!isEnabled()) return null;
+        if (!canRead(beanType, readMethod)) readMethod = null;
+        if (!canWrite(beanType, writeMethod)) writeMethod = null;
+        if (readMethod == null && writeMethod == null) return null;
+
+        try {
+            AccessorClassLoader classLoader = getClassLoader(beanType);
+            if (classLoader == null) return null;
+
+            String className;
+            synchronized (PropertyAccessorGenerator.class) {
+                className = GENERATED_PACKAGE + beanType.getSimpleName() + "_" + propertyName + "_Accessor" + (accessorCount++);
+            }
+
+            ClassGen classGen = new ClassGen(className, ACCESSOR_CLASS_NAME, "<generated>", Constants.ACC_PUBLIC | Constants.ACC_FINAL | Constants.ACC_SUPER, null);
+            InstructionFactory factory = new InstructionFactory(classGen, classGen.getConstantPool());
+            classGen.addEmptyConstructor(Constants.ACC_PUBLIC);
+            addGetMethod(classGen, factory, beanType, readMethod);
+            addSetMethod(classGen, factory, beanType, writeMethod);
+
+            byte[] bytes = classGen.getJavaClass().getBytes();
+            return (PropertyAccessor) classLoader.define(className, bytes).getDeclaredConstructor().newInstance();
+        } catch (Throwable e) {
+            log.warn("Could not generate accessor for: " + beanType.getName() + "." + propertyName + ", using reflection", e);
+            return null;
+        }
+    }
+
+    private static void addGetMethod(ClassGen classGen, InstructionFactory factory, Class beanType, Method readMethod) {
+        InstructionList il = new InstructionList();
+        if (readMethod == null) {
+            appendThrowUnsupported(il, factory);
+        } else {
+            Class returnType = readMethod.getReturnType();
+            appendInvoke(il, factory, beanType, readMethod);
+            if (returnType.isPrimitive()) {
+                Class wrapperType = getWrapperType(returnType);
+                il.append(factory.createInvoke(wrapperType.getName(), "valueOf", Type.getType(wrapperType), new Type[]{Type.getType(returnType)}, Constants.INVOKESTATIC));
+            }
+            il.append(InstructionFactory.createReturn(Type.OBJECT));
+        }
+        addMethod(classGen, il, Type.OBJECT, new Type[]{Type.OBJECT}, "get");
+    }
+
+    private static void addSetMethod(ClassGen classGen, InstructionFactory factory, Class beanType, Method writeMethod) {
+        InstructionList il = new InstructionList();
+        if (writeMethod == null) {
+            appendThrowUnsupported(il, factory);
+        } else {
+            appendInvoke(il, factory, beanType, writeMethod);
+            Class returnType = writeMethod.getReturnType();
+            if (returnType != void.class) il.append(InstructionFactory.createPop(Type.getType(returnType).getSize()));
+            il.append(InstructionFactory.createReturn(Type.VOID));
+        }
+        addMethod(classGen, il, Type.VOID, new Type[]{Type.OBJECT, Type.OBJECT}, "set");
+    }
+
+    /**
+     * Appends a call to method, taking the instance from local 1 and its argument, if any, from local 2.
+     */
+    private static void appendInvoke(InstructionList il, InstructionFactory factory, Class beanType, Method method) {
+        Class invokedType = getInvokedType(beanType, method);
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        if (!isStatic) {
+            il.append(InstructionFactory.createLoad(Type.OBJECT, 1));
+            il.append(factory.createCheckCast((ReferenceType) Type.getType(invokedType)));
+        }
+
+        Class[] parameterTypes = method.getParameterTypes();
+        if (parameterTypes.length == 1) {
+            Class parameterType = parameterTypes[0];
+            il.append(InstructionFactory.createLoad(Type.OBJECT, 2));
+            if (parameterType.isPrimitive()) {
+                Class wrapperType = getWrapperType(parameterType);
+                il.append(factory.createCheckCast((ReferenceType) Type.getType(wrapperType)));
+                il.append(factory.createInvoke(wrapperType.getName(), parameterType.getName() + "Value", Type.getType(parameterType), Type.NO_ARGS, Constants.INVOKEVIRTUAL));
+            } else if (parameterType != Object.class) {
+                il.append(factory.createCheckCast((ReferenceType) Type.getType(parameterType)));
+            }
+        }
+
+        Type[] argumentTypes = new Type[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            argumentTypes[i] = Type.getType(parameterTypes[i]);
+        }
+        short kind = isStatic ? Constants.INVOKESTATIC : invokedType.isInterface() ? Constants.INVOKEINTERFACE : Constants.INVOKEVIRTUAL;
+        il.append(factory.createInvoke(invokedType.getName(), method.getName(), Type.getType(method.getReturnType()), argumentTypes, kind));
+    }
+
+    private static void appendThrowUnsupported(InstructionList il, InstructionFactory factory) {
+        il.append(factory.createNew("java.lang.UnsupportedOperationException"));
+        il.append(InstructionConstants.DUP);
+        il.append(factory.createInvoke("java.lang.UnsupportedOperationException", "<init>", Type.VOID, Type.NO_ARGS, Constants.INVOKESPECIAL));
+        il.append(InstructionConstants.ATHROW);
+    }
+
+    private static void addMethod(ClassGen classGen, InstructionList il, Type returnType, Type[] argumentTypes, String name) {
+        MethodGen method = new MethodGen(Constants.ACC_PUBLIC, returnType, argumentTypes, null, name, classGen.getClassName(), il, classGen.getConstantPool());
+        method.setMaxStack();
+        method.setMaxLocals();
+        classGen.addMethod(method.getMethod());
+        il.dispose();
+    }
+
+    /**
+     * @return the public class method can be invoked on for instances of beanType, or null if there is none.
+     */
+    private static Class getInvokedType(Class beanType, Method method) {
+        if (!Modifier.isPublic(method.getModifiers())) return null;
+        if (Modifier.isStatic(method.getModifiers())) {
+            return Modifier.isPublic(method.getDeclaringClass().getModifiers()) ? method.getDeclaringClass() : null;
+        }
+        if (Modifier.isPublic(beanType.getModifiers()) && method.getDeclaringClass().isAssignableFrom(beanType)) return beanType;
+        if (Modifier.isPublic(method.getDeclaringClass().getModifiers())) return method.getDeclaringClass();
+        return null;
+    }
+
+    private static Class getWrapperType(Class primitiveType) {
+        if (primitiveType == int.class) return Integer.class;
+        if (primitiveType == long.class) return Long.class;
+        if (primitiveType == double.class) return Double.class;
+        if (primitiveType == float.class) return Float.class;
+        if (primitiveType == boolean.class) return Boolean.class;
+        if (primitiveType == char.class) return Character.class;
+        if (primitiveType == short.class) return Short.class;
+        if (primitiveType == byte.class) return Byte.class;
+        throw new IllegalArgumentException("Not a primitive type: " + primitiveType);
+    }
+
+    /**
+     * Accessors are defined in a loader that is a child of the bean class's loader, if that loader sees PropertyAccessor,
+     * otherwise of PropertyAccessor's loader, if that sees the bean class, as for classes of the JDK.
+     */
+    private static synchronized AccessorClassLoader getClassLoader(Class beanType) {
+        ClassLoader parent = beanType.getClassLoader();
+        if (!isVisible(PropertyAccessor.class, parent)) {
+            parent = PropertyAccessor.class.getClassLoader();
+            if (!isVisible(beanType, parent)) return null;
+        }
+
+        WeakReference<AccessorClassLoader> classLoaderReference = classLoaders.get(parent);
+        AccessorClassLoader classLoader = classLoaderReference != null ? classLoaderReference.get() : null;
+        if (classLoader == null) {
+            classLoader = new AccessorClassLoader(parent);
+            classLoaders.put(parent, new WeakReference<AccessorClassLoader>(classLoader));
+        }
+        return classLoader;
+    }
+
+    private static boolean isVisible(Class type, ClassLoader classLoader) {
+        try {
+            return Class.forName(type.getName(), false, classLoader) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static class AccessorClassLoader extends ClassLoader {
+        public AccessorClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        public synchronized Class define(String className, byte[] bytes) {
+            return defineClass(className, bytes, 0, bytes.length);
+        }
+    }
+
+}
@@ -0,0 +1,254 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+package org.bhavaya.collection;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe Association that records its lock usage in a LockStatistics.
+ * <p/>
+ * All writes, and all reads other than get and containsKey, are made under a single lock, as in SynchronizedAssociation.
+ * If unlockedReads is true, get and containsKey do not take the lock at all.  They are answered from an index of key to
+ * value, which the writers maintain alongside the delegate.  The index holds values weakly, so it does not change
+ * when a bean can be garbage collected from a ReferenceAssociation or PrimitiveKeyAssociation.  A read whose value has been collected, but whose
+ * key the delegate has not yet expunged, falls back to reading the delegate under the lock.
+ * <p/>
+ * As with SynchronizedAssociation, keySet, values and entrySet are views of the delegate and must not be used to
+ * modify it.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class ConcurrentAssociation implements Association {
+    private static final Object NULL_VALUE = new Object();
+
+    private final Association delegate;
+    private final LockStatistics lockStatistics;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ConcurrentHashMap index;
+
+    public ConcurrentAssociation(Association delegate, boolean unlockedReads, LockStatistics lockStatistics) {
+        this.delegate = delegate;
+        this.lockStatistics = lockStatistics;
+        this.index = unlockedReads ? new ConcurrentHashMap() : null;
+        if (unlockedReads) {
+            MapListener referenceRemovedListener = new MapListener() {
+                public void mapChanged(MapEvent e) {
+                    // called by the delegate while it holds our lock
+                    index.remove(e.getKey());
+                }
+            };
+            if (delegate instanceof ReferenceAssociation) {
+                ((ReferenceAssociation) delegate).addReferenceRemovedListener(referenceRemovedListener);
+            } else if (delegate instanceof PrimitiveKeyAssociation) {
+                ((PrimitiveKeyAssociation) delegate).addReferenceRemovedListener(referenceRemovedListener);
+            }
+        }
+    }
+
+    private void lock() {
+        if (lock.tryLock()) {
+            lockStatistics.writeLockAcquired(false, 0);
+        } else {
+            long startTime = System.nanoTime();
+            lock.lock();
+            lockStatistics.writeLockAcquired(true, System.nanoTime() - startTime);
+        }
+    }
+
+    private void lockForRead() {
+        lockStatistics.lockedRead();
+        lock.lock();
+    }
+
+    private void indexPut(Object key, Object value) {
+        if (index != null) index.put(key, value == null ? NULL_VALUE : new WeakReference(value));
+    }
+
+    public Object get(Object key) {
+        if (index != null) {
+            Object indexValue = index.get(key);
+            if (indexValue == null) {
+                lockStatistics.unlockedRead();
+                return null;
+            } else if (indexValue == NULL_VALUE) {
+                lockStatistics.unlockedRead();
+                return null;
+            } else {
+                Object value = ((WeakReference) indexValue).get();
+                if (value != null) {
+                    lockStatistics.unlockedRead();
+                    return value;
+                }
+            }
+        }
+
+        lockForRead();
+        try {
+            return delegate.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean containsKey(Object key) {
+        if (index != null) {
+            Object indexValue = index.get(key);
+            if (indexValue == null || indexValue == NULL_VALUE || ((WeakReference) indexValue).get() != null) {
+                lockStatistics.unlockedRead();
+                return indexValue != null;
+            }
+        }
+
+        lockForRead();
+        try {
+            return delegate.containsKey(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Object put(Object key, Object value) {
+        lock();
+        try {
+            Object existingValue = delegate.put(key, value);
+            indexPut(key, value);
+            return existingValue;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Object remove(Object key) {
+        lock();
+        try {
+            Object removedValue = delegate.remove(key);
+            if (index != null) index.remove(key);
+            return removedValue;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void putAll(Map t) {
+        lock();
+        try {
+            delegate.putAll(t);
+            if (index != null) {
+                for (Iterator iterator = t.entrySet().iterator(); iterator.hasNext();) {
+                    Map.Entry entry = (Map.Entry) iterator.next();
+                    indexPut(entry.getKey(), entry.getValue());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock();
+        try {
+            delegate.clear();
+            if (index != null) index.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lockForRead();
+        try {
+            return delegate.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        lockForRead();
+        try {
+            return delegate.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean containsValue(Object value) {
+        lockForRead();
+        try {
+            return delegate.containsValue(value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Object getKeyForValue(Object value) {
+        lockForRead();
+        try {
+            return delegate.getKeyForValue(value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Set keySet() {
+        lockForRead();
+        try {
+            return delegate.keySet();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Collection values() {
+        lockForRead();
+        try {
+            return delegate.values();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Set entrySet() {
+        lockForRead();
+        try {
+            return delegate.entrySet();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -47,10 +47,21 @@ public class DefaultBeanCollection<E> implements BeanCollection<E>, RandomAccess
 
     private Class<E> type;
     private List<CollectionListener> collectionListeners;
-    private IndexedSet<E> indexedSet;
+    private final boolean treeIndexed;
+    private List<E> indexedSet;
 
     public DefaultBeanCollection(Class<E> type) {
+        this(type, false);
+    }
+
+    /**
+     * @param treeIndexed hold the beans in a TreeIndexedSet, rather than an IndexedSet, for large collections that
+     * have beans inserted or removed anywhere but the end.  Inserts and removes are then O(log n) rather than O(n),
+     * but get and indexOf are O(log n) rather than O(1).
+     */
+    public DefaultBeanCollection(Class<E> type, boolean treeIndexed) {
         this.type = type;
+        this.treeIndexed = treeIndexed;
     }
 
     @SuppressWarnings("unchecked")
@@ -93,7 +104,12 @@ public class DefaultBeanCollection<E> implements BeanCollection<E>, RandomAccess
     }
 
     public void ensureCapacity(int minCapacity) {
-        getIndexedSet().ensureCapacity(minCapacity);
+        List<E> indexedSet = getIndexedSet();
+        if (indexedSet instanceof TreeIndexedSet) {
+            ((TreeIndexedSet<E>) indexedSet).ensureCapacity(minCapacity);
+        } else {
+            ((IndexedSet<E>) indexedSet).ensureCapacity(minCapacity);
+        }
     }
 
     protected synchronized void add(int index, E value, boolean fireCommit, boolean fireCollectionChanged) {
@@ -312,7 +328,7 @@ public class DefaultBeanCollection<E> implements BeanCollection<E>, RandomAccess
     }
 
     public synchronized Object clone() {
-        DefaultBeanCollection<E> copy = new DefaultBeanCollection<E>(type);
+        DefaultBeanCollection<E> copy = new DefaultBeanCollection<E>(type, treeIndexed);
         if (indexedSet != null) {
             for (E e : this) {
                 copy.add(e);
@@ -332,8 +348,8 @@ public class DefaultBeanCollection<E> implements BeanCollection<E>, RandomAccess
     /**
      * Encapsulate access as many DefaultBeanCollections can be constructed that are never actually accessed
      */
-    private IndexedSet<E> getIndexedSet() {
-        if (indexedSet == null) indexedSet = new IndexedSet<E>();
+    private List<E> getIndexedSet() {
+        if (indexedSet == null) indexedSet = treeIndexed ? new TreeIndexedSet<E>() : new IndexedSet<E>();
         return indexedSet;
     }
 
@@ -0,0 +1,116 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+package org.bhavaya.collection;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters describing how often a BeanFactory's locks and stores are used and how long threads wait for them.
+ * Reads are counted by ConcurrentAssociation, which distinguishes reads that needed no lock from those that fell
+ * back to the write lock.  Hierarchy lock waits are the time between requesting and entering BeanFactory.getLock().
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class LockStatistics {
+    private final AtomicLong unlockedReads = new AtomicLong();
+    private final AtomicLong lockedReads = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong contendedWrites = new AtomicLong();
+    private final AtomicLong writeWaitNanos = new AtomicLong();
+    private final AtomicLong hierarchyLockAcquisitions = new AtomicLong();
+    private final AtomicLong hierarchyLockWaitNanos = new AtomicLong();
+    private final AtomicLong maximumHierarchyLockWaitNanos = new AtomicLong();
+
+    public void unlockedRead() {
+        unlockedReads.incrementAndGet();
+    }
+
+    public void lockedRead() {
+        lockedReads.incrementAndGet();
+    }
+
+    public void writeLockAcquired(boolean contended, long waitNanos) {
+        writes.incrementAndGet();
+        if (contended) {
+            contendedWrites.incrementAndGet();
+            writeWaitNanos.addAndGet(waitNanos);
+        }
+    }
+
+    public void hierarchyLockAcquired(long waitNanos) {
+        hierarchyLockAcquisitions.incrementAndGet();
+        hierarchyLockWaitNanos.addAndGet(waitNanos);
+        long maximum = maximumHierarchyLockWaitNanos.get();
+        while (waitNanos > maximum && !maximumHierarchyLockWaitNanos.compareAndSet(maximum, waitNanos)) {
+            maximum = maximumHierarchyLockWaitNanos.get();
+        }
+    }
+
+    public long getUnlockedReads() {
+        return unlockedReads.get();
+    }
+
+    public long getLockedReads() {
+        return lockedReads.get();
+    }
+
+    public long getWrites() {
+        return writes.get();
+    }
+
+    public long getContendedWrites() {
+        return contendedWrites.get();
+    }
+
+    public long getWriteWaitMillis() {
+        return writeWaitNanos.get() / 1000000;
+    }
+
+    public long getHierarchyLockAcquisitions() {
+        return hierarchyLockAcquisitions.get();
+    }
+
+    public long getHierarchyLockWaitMillis() {
+        return hierarchyLockWaitNanos.get() / 1000000;
+    }
+
+    public long getMaximumHierarchyLockWaitMillis() {
+        return maximumHierarchyLockWaitNanos.get() / 1000000;
+    }
+
+    public String toString() {
+        return "unlockedReads: " + getUnlockedReads() + ", lockedReads: " + getLockedReads() + ", writes: " + getWrites()
+                + ", contendedWrites: " + getContendedWrites() + ", writeWaitMillis: " + getWriteWaitMillis()
+                + ", hierarchyLockAcquisitions: " + getHierarchyLockAcquisitions() + ", hierarchyLockWaitMillis: " + getHierarchyLockWaitMillis()
+                + ", maximumHierarchyLockWaitMillis: " + getMaximumHierarchyLockWaitMillis();
+    }
+}
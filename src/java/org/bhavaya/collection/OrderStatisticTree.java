@@ -0,0 +1,557 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+package org.bhavaya.collection;
+
+import java.util.Comparator;
+
+/**
+ * A sequence of values held in a balanced binary tree (a treap), where each node records the size of its subtree.
+ * A value can be inserted at an index, or in order using a Comparator, and removed by its Node, in O(log n).
+ * The Node at an index, and the index of a Node, are also found in O(log n), so a caller that keeps the Node for each
+ * value can find where the value is without the O(n) renumbering that an ArrayList of indexed values needs after every
+ * insert or remove.
+ * <p/>
+ * A value may also be given a non-negative weight, which is zero if not given, and each node records the total weight
+ * of its subtree.  The total weight of the values before an index, and the index of the value a given total weight
+ * falls in, are then found in O(log n), as for rows that each span a varying number of rows in another model.
+ * <p/>
+ * Not thread-safe.  Nodes must only be passed back to the tree that created them, and not after the tree has been
+ * cleared or its values set.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class OrderStatisticTree {
+    private static final Node[] EMPTY_NODE_ARRAY = new Node[0];
+
+    private Node root;
+    private int seed;
+
+    // results of split
+    private Node splitLeft;
+    private Node splitRight;
+
+    public static class Node {
+        private Object value;
+        private Node left;
+        private Node right;
+        private Node parent;
+        private int size = 1;
+        private int weight;
+        private int weightSum;
+        private final int priority;
+
+        private Node(Object value, int weight, int priority) {
+            this.value = value;
+            this.weight = weight;
+            this.weightSum = weight;
+            this.priority = priority;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public void setValue(Object value) {
+            this.value = value;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        /**
+         * Whether the node is still in its tree.
+         */
+        public boolean isAttached() {
+            return size > 0;
+        }
+    }
+
+    public OrderStatisticTree() {
+        seed = System.identityHashCode(this) | 1;
+    }
+
+    private int nextPriority() {
+        // xorshift, the tree only needs priorities that are independent of the values' order
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int weightSum(Node node) {
+        return node == null ? 0 : node.weightSum;
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        node.weightSum = node.weight + weightSum(node.left) + weightSum(node.right);
+        if (node.left != null) node.left.parent = node;
+        if (node.right != null) node.right.parent = node;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * @return the sum of the weights of all values.
+     */
+    public int getTotalWeight() {
+        return weightSum(root);
+    }
+
+    public void clear() {
+        root = null;
+    }
+
+    public Node getNode(int index) {
+        checkIndex(index, size() - 1);
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    public Object get(int index) {
+        return getNode(index).value;
+    }
+
+    public int getWeight(int index) {
+        return getNode(index).weight;
+    }
+
+    public int indexOf(Node node) {
+        if (!node.isAttached()) return -1;
+        int index = size(node.left);
+        for (Node child = node; child.parent != null; child = child.parent) {
+            if (child == child.parent.right) index += size(child.parent.left) + 1;
+        }
+        return index;
+    }
+
+    public Node add(Object value) {
+        return add(size(), value);
+    }
+
+    public Node add(int index, Object value) {
+        return add(index, value, 0);
+    }
+
+    public Node add(int index, Object value, int weight) {
+        checkIndex(index, size());
+        checkWeight(weight);
+        Node node = new Node(value, weight, nextPriority());
+        if (root == null) {
+            root = node;
+            return node;
+        }
+
+        Node parent = root;
+        while (true) {
+            parent.size++;
+            parent.weightSum += weight;
+            int leftSize = size(parent.left);
+            if (index <= leftSize) {
+                if (parent.left == null) {
+                    parent.left = node;
+                    break;
+                }
+                parent = parent.left;
+            } else {
+                index -= leftSize + 1;
+                if (parent.right == null) {
+                    parent.right = node;
+                    break;
+                }
+                parent = parent.right;
+            }
+        }
+        node.parent = parent;
+        siftUp(node);
+        return node;
+    }
+
+    /**
+     * Inserts value after every value that compares less than or equal to it.  The tree must already be in the
+     * comparator's order.
+     */
+    public Node add(Object value, Comparator comparator) {
+        Node node = new Node(value, 0, nextPriority());
+        if (root == null) {
+            root = node;
+            return node;
+        }
+
+        Node parent = root;
+        while (true) {
+            parent.size++;
+            if (comparator.compare(value, parent.value) < 0) {
+                if (parent.left == null) {
+                    parent.left = node;
+                    break;
+                }
+                parent = parent.left;
+            } else {
+                if (parent.right == null) {
+                    parent.right = node;
+                    break;
+                }
+                parent = parent.right;
+            }
+        }
+        node.parent = parent;
+        siftUp(node);
+        return node;
+    }
+
+    /**
+     * Inserts values, with their weights, at index, in O(values.length + log n), returning the Node for each value.
+     */
+    public Node[] addAll(int index, Object[] values, int[] weights) {
+        checkIndex(index, size());
+        Node[] nodes = new Node[values.length];
+        Node subtree = build(values, weights, nodes);
+        if (subtree != null) {
+            split(root, index);
+            Node right = splitRight;
+            setRoot(merge(merge(splitLeft, subtree), right));
+        }
+        return nodes;
+    }
+
+    /**
+     * Replaces the value and weight at index.
+     */
+    public void set(int index, Object value, int weight) {
+        checkWeight(weight);
+        Node node = getNode(index);
+        node.value = value;
+        int weightChange = weight - node.weight;
+        node.weight = weight;
+        for (; node != null; node = node.parent) {
+            node.weightSum += weightChange;
+        }
+    }
+
+    public void remove(Node node) {
+        if (!node.isAttached()) return;
+
+        // rotate the node down until it is a leaf, then detach it
+        while (node.left != null || node.right != null) {
+            if (node.right == null || (node.left != null && node.left.priority > node.right.priority)) {
+                rotateRight(node);
+            } else {
+                rotateLeft(node);
+            }
+        }
+
+        Node parent = node.parent;
+        if (parent == null) {
+            root = null;
+        } else {
+            if (parent.left == node) {
+                parent.left = null;
+            } else {
+                parent.right = null;
+            }
+            for (Node ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+                ancestor.size--;
+                ancestor.weightSum -= node.weight;
+            }
+        }
+        node.parent = null;
+        node.size = 0;
+    }
+
+    public Object remove(int index) {
+        Node node = getNode(index);
+        remove(node);
+        return node.value;
+    }
+
+    /**
+     * Removes count values starting at fromIndex, in O(count + log n).
+     */
+    public void remove(int fromIndex, int count) {
+        if (count < 0) throw new IllegalArgumentException("Count: " + count);
+        checkIndex(fromIndex, size() - count);
+        split(root, fromIndex);
+        Node left = splitLeft;
+        split(splitRight, count);
+        Node removed = splitLeft;
+        setRoot(merge(left, splitRight));
+        detach(removed);
+    }
+
+    /**
+     * Replaces the contents of the tree with values, in O(n), returning the Node for each value.
+     */
+    public Node[] setValues(Object[] values) {
+        return setValues(values, null);
+    }
+
+    /**
+     * Replaces the contents of the tree with values and their weights, in O(n), returning the Node for each value.
+     */
+    public Node[] setValues(Object[] values, int[] weights) {
+        root = null;
+        if (values.length == 0) return EMPTY_NODE_ARRAY;
+        Node[] nodes = new Node[values.length];
+        setRoot(build(values, weights, nodes));
+        return nodes;
+    }
+
+    /**
+     * @return the sum of the weights of the values before index, or the total weight if index is the size.
+     */
+    public int getWeightBefore(int index) {
+        checkIndex(index, size());
+        int weight = 0;
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (index <= leftSize) {
+                node = node.left;
+            } else {
+                weight += weightSum(node.left) + node.weight;
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * @return the index of the value whose weight spans weight, that is the last index whose getWeightBefore is at or
+     * before weight, and whose own weight is not zero.  If weight is not less than the total weight, the last index.
+     */
+    public int indexOfWeight(int weight) {
+        checkWeight(weight);
+        if (weight >= getTotalWeight()) return size() - 1;
+        int index = 0;
+        Node node = root;
+        while (true) {
+            int leftWeight = weightSum(node.left);
+            if (weight < leftWeight) {
+                node = node.left;
+            } else if (weight < leftWeight + node.weight) {
+                return index + size(node.left);
+            } else {
+                weight -= leftWeight + node.weight;
+                index += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    public Node first() {
+        if (root == null) return null;
+        Node node = root;
+        while (node.left != null) node = node.left;
+        return node;
+    }
+
+    public static Node next(Node node) {
+        if (node.right != null) {
+            node = node.right;
+            while (node.left != null) node = node.left;
+            return node;
+        }
+        while (node.parent != null && node == node.parent.right) node = node.parent;
+        return node.parent;
+    }
+
+    public Object[] toArray() {
+        Object[] values = new Object[size()];
+        int i = 0;
+        for (Node node = first(); node != null; node = next(node)) {
+            values[i++] = node.value;
+        }
+        return values;
+    }
+
+    /**
+     * Builds a tree of values, with weights of zero if weights is null, filling nodes with the Node for each value.
+     */
+    private Node build(Object[] values, int[] weights, Node[] nodes) {
+        if (weights != null && values.length != weights.length) throw new IllegalArgumentException("Values: " + values.length + ", weights: " + weights.length);
+        if (values.length == 0) return null;
+
+        // build the cartesian tree of the priorities in a single pass, keeping the right spine on a stack
+        Node[] rightSpine = new Node[values.length];
+        int spineLength = 0;
+        for (int i = 0; i < values.length; i++) {
+            int weight = weights == null ? 0 : weights[i];
+            checkWeight(weight);
+            Node node = new Node(values[i], weight, nextPriority());
+            nodes[i] = node;
+            Node lastPopped = null;
+            while (spineLength > 0 && rightSpine[spineLength - 1].priority < node.priority) {
+                lastPopped = rightSpine[--spineLength];
+            }
+            node.left = lastPopped;
+            if (spineLength > 0) rightSpine[spineLength - 1].right = node;
+            rightSpine[spineLength++] = node;
+        }
+
+        updateAll(rightSpine[0]);
+        return rightSpine[0];
+    }
+
+    private static void updateAll(Node node) {
+        if (node == null) return;
+        updateAll(node.left);
+        updateAll(node.right);
+        update(node);
+    }
+
+    /**
+     * Splits node into splitLeft, holding its first index values, and splitRight, holding the rest.
+     */
+    private void split(Node node, int index) {
+        if (node == null) {
+            splitLeft = null;
+            splitRight = null;
+            return;
+        }
+        int leftSize = size(node.left);
+        if (index <= leftSize) {
+            split(node.left, index);
+            node.left = splitRight;
+            update(node);
+            splitRight = node;
+        } else {
+            split(node.right, index - leftSize - 1);
+            node.right = splitLeft;
+            update(node);
+            splitLeft = node;
+        }
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        } else {
+            right.left = merge(left, right.left);
+            update(right);
+            return right;
+        }
+    }
+
+    private void setRoot(Node node) {
+        root = node;
+        if (node != null) node.parent = null;
+    }
+
+    private static void detach(Node node) {
+        if (node == null) return;
+        detach(node.left);
+        detach(node.right);
+        node.left = null;
+        node.right = null;
+        node.parent = null;
+        node.size = 0;
+    }
+
+    private void siftUp(Node node) {
+        while (node.parent != null && node.priority > node.parent.priority) {
+            if (node == node.parent.left) {
+                rotateRight(node.parent);
+            } else {
+                rotateLeft(node.parent);
+            }
+        }
+    }
+
+    private void rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        if (pivot.left != null) pivot.left.parent = node;
+        replaceChild(node, pivot);
+        pivot.left = node;
+        node.parent = pivot;
+        update(node);
+        update(pivot);
+    }
+
+    private void rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        if (pivot.right != null) pivot.right.parent = node;
+        replaceChild(node, pivot);
+        pivot.right = node;
+        node.parent = pivot;
+        update(node);
+        update(pivot);
+    }
+
+    private void replaceChild(Node child, Node replacement) {
+        Node parent = child.parent;
+        replacement.parent = parent;
+        if (parent == null) {
+            root = replacement;
+        } else if (parent.left == child) {
+            parent.left = replacement;
+        } else {
+            parent.right = replacement;
+        }
+    }
+
+    private void checkIndex(int index, int maximum) {
+        if (index < 0 || index > maximum) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+
+    private static void checkWeight(int weight) {
+        if (weight < 0) throw new IllegalArgumentException("Negative weight: " + weight);
+    }
+}
@@ -0,0 +1,714 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+package org.bhavaya.collection;
+
+import org.bhavaya.util.ClassUtilities;
+import org.bhavaya.util.Utilities;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+/**
+ * An Association for keys made up of integral values, which holds each key packed into a long, rather than as a boxed
+ * object or a list of boxed objects.
+ * <p/>
+ * A KeyLayout describes how keys are packed.  A single Long, Integer, Short, Byte, Character or Boolean key is packed
+ * as its value.  A compound key, a List with one component per key column as created by the BeanFactories, is packed
+ * if its components fit into 64 bits together, e.g. two Integers.  Keys are only unpacked into new objects when they are
+ * read back out, by getKeyForValue or the keySet and entrySet views.  A key that does not fit the layout, because a
+ * component is null or not of the exact class the layout expects, is held in an ordinary Association alongside.
+ * <p/>
+ * Entries are held in parallel arrays in insertion order, indexed by two open-addressing tables: one by packed key,
+ * and one by value hashCode for getKeyForValue.  With SOFT or WEAK references the entry holds the reference to its value
+ * directly, and the reference knows its entry, so a collected value is removed without a map of keys to references.
+ * Listeners added with addReferenceRemovedListener are told of those removals, as with ReferenceAssociation.
+ * <p/>
+ * As with DefaultAssociation, no check is made in put() that the values are unique, the views cannot be used to modify
+ * the Association, and the class is not thread-safe.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class PrimitiveKeyAssociation implements Association {
+    public static final int STRONG = 0;
+    public static final int SOFT = 1;
+    public static final int WEAK = 2;
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final Object NULL_VALUE = new Object();
+
+    private final KeyLayout keyLayout;
+    private final int referenceType;
+    private ReferenceQueue referenceQueue;
+    private List referenceRemovedListeners;
+
+    // entries in insertion order, a null entryValue is a removed entry
+    private long[] entryKeys;
+    private Object[] entryValues;
+    private int[] entryValueHashes;
+    private int entryCount;
+    private int size;
+
+    // open-addressing tables of entry index + 1, with 0 for an empty slot, each twice the capacity of the entries
+    private int[] keyTable;
+    private int[] valueTable;
+
+    private Association overflow;
+    private int modCount;
+
+    private transient Set entrySet;
+    private transient Set keySet;
+    private transient Collection values;
+
+    public PrimitiveKeyAssociation(KeyLayout keyLayout, int referenceType) {
+        this(keyLayout, referenceType, DEFAULT_CAPACITY);
+    }
+
+    public PrimitiveKeyAssociation(KeyLayout keyLayout, int referenceType, int initialCapacity) {
+        if (referenceType != STRONG && referenceType != SOFT && referenceType != WEAK) throw new IllegalArgumentException("Invalid reference type: " + referenceType);
+        this.keyLayout = keyLayout;
+        this.referenceType = referenceType;
+        if (referenceType != STRONG) referenceQueue = new ReferenceQueue();
+
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < initialCapacity) capacity <<= 1;
+        init(capacity);
+    }
+
+    private void init(int capacity) {
+        entryKeys = new long[capacity];
+        entryValues = new Object[capacity];
+        entryValueHashes = new int[capacity];
+        keyTable = new int[capacity * 2];
+        valueTable = new int[capacity * 2];
+        entryCount = 0;
+    }
+
+    public KeyLayout getKeyLayout() {
+        return keyLayout;
+    }
+
+    public void addReferenceRemovedListener(MapListener l) {
+        if (referenceRemovedListeners == null) referenceRemovedListeners = new ArrayList();
+        referenceRemovedListeners.add(l);
+    }
+
+    public void removeReferenceRemovedListener(MapListener l) {
+        if (referenceRemovedListeners == null) return;
+        referenceRemovedListeners.remove(l);
+    }
+
+    private void fireReferenceRemoved(Object key) {
+        if (referenceRemovedListeners == null) return;
+        MapEvent event = new MapEvent(this, MapEvent.DELETE, key, null);
+        for (Iterator iterator = referenceRemovedListeners.iterator(); iterator.hasNext();) {
+            MapListener listener = (MapListener) iterator.next();
+            listener.mapChanged(event);
+        }
+    }
+
+    private void expungeStaleEntries() {
+        if (referenceQueue == null) return;
+        EntryReference reference = (EntryReference) referenceQueue.poll();
+        while (reference != null) {
+            int entry = reference.getEntry();
+            if (entry >= 0 && entryValues[entry] == reference) {
+                Object key = keyLayout.unpack(entryKeys[entry]);
+                removeEntry(entry);
+                fireReferenceRemoved(key);
+            }
+            reference = (EntryReference) referenceQueue.poll();
+        }
+    }
+
+    private Association getOverflow() {
+        if (overflow == null) {
+            if (referenceType == STRONG) {
+                overflow = new DefaultAssociation(new LinkedHashMap());
+            } else {
+                ReferenceAssociation referenceAssociation = referenceType == SOFT ? ReferenceAssociation.newSoftInstance(new LinkedHashMap()) : ReferenceAssociation.newWeakInstance(new LinkedHashMap());
+                referenceAssociation.addReferenceRemovedListener(new MapListener() {
+                    public void mapChanged(MapEvent e) {
+                        fireReferenceRemoved(e.getKey());
+                    }
+                });
+                overflow = referenceAssociation;
+            }
+        }
+        return overflow;
+    }
+
+    public Object put(Object key, Object value) {
+        expungeStaleEntries();
+        if (!keyLayout.canPack(key)) return getOverflow().put(key, value);
+
+        long packedKey = keyLayout.pack(key);
+        int entry = findEntry(packedKey);
+        if (entry >= 0) {
+            Object oldValue = getValue(entry);
+            delete(valueTable, entryValueHashes[entry], entry, false);
+            releaseValue(entry);
+            setValue(entry, value);
+            return oldValue;
+        }
+
+        if (entryCount == entryKeys.length) rebuild(size < entryCount / 2 ? entryKeys.length : entryKeys.length * 2);
+        entry = entryCount++;
+        entryKeys[entry] = packedKey;
+        insert(keyTable, hash(packedKey), entry);
+        setValue(entry, value);
+        size++;
+        modCount++;
+        return null;
+    }
+
+    public Object get(Object key) {
+        expungeStaleEntries();
+        if (!keyLayout.canPack(key)) return overflow == null ? null : overflow.get(key);
+        int entry = findEntry(keyLayout.pack(key));
+        return entry >= 0 ? getValue(entry) : null;
+    }
+
+    public boolean containsKey(Object key) {
+        expungeStaleEntries();
+        if (!keyLayout.canPack(key)) return overflow != null && overflow.containsKey(key);
+        return findEntry(keyLayout.pack(key)) >= 0;
+    }
+
+    public Object remove(Object key) {
+        expungeStaleEntries();
+        if (!keyLayout.canPack(key)) return overflow == null ? null : overflow.remove(key);
+        int entry = findEntry(keyLayout.pack(key));
+        if (entry < 0) return null;
+        Object value = getValue(entry);
+        removeEntry(entry);
+        return value;
+    }
+
+    public Object getKeyForValue(Object value) {
+        expungeStaleEntries();
+        int entry = findValueEntry(value);
+        if (entry >= 0) return keyLayout.unpack(entryKeys[entry]);
+        return overflow == null ? null : overflow.getKeyForValue(value);
+    }
+
+    public boolean containsValue(Object value) {
+        expungeStaleEntries();
+        return findValueEntry(value) >= 0 || (overflow != null && overflow.containsValue(value));
+    }
+
+    public int size() {
+        expungeStaleEntries();
+        return size + (overflow == null ? 0 : overflow.size());
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void putAll(Map t) {
+        for (Iterator iterator = t.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry entry = (Map.Entry) iterator.next();
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < entryCount; i++) {
+            if (entryValues[i] != null) releaseValue(i);
+        }
+        init(DEFAULT_CAPACITY);
+        size = 0;
+        if (referenceType != STRONG) referenceQueue = new ReferenceQueue();
+        if (overflow != null) overflow.clear();
+        modCount++;
+    }
+
+    public Object clone() {
+        throw new UnsupportedOperationException();
+    }
+
+    private Object getValue(int entry) {
+        Object storedValue = entryValues[entry];
+        if (storedValue == NULL_VALUE || storedValue == null) return null;
+        if (referenceType == STRONG) return storedValue;
+        return ((EntryReference) storedValue).get();
+    }
+
+    private void setValue(int entry, Object value) {
+        Object storedValue;
+        if (value == null) {
+            storedValue = NULL_VALUE;
+        } else if (referenceType == SOFT) {
+            storedValue = new SoftEntryReference(value, referenceQueue, entry);
+        } else if (referenceType == WEAK) {
+            storedValue = new WeakEntryReference(value, referenceQueue, entry);
+        } else {
+            storedValue = value;
+        }
+        int valueHash = valueHash(value);
+        entryValues[entry] = storedValue;
+        entryValueHashes[entry] = valueHash;
+        insert(valueTable, valueHash, entry);
+    }
+
+    private void releaseValue(int entry) {
+        Object storedValue = entryValues[entry];
+        if (referenceType != STRONG && storedValue != NULL_VALUE) {
+            EntryReference reference = (EntryReference) storedValue;
+            reference.setEntry(-1);
+            reference.clear();
+        }
+    }
+
+    private void removeEntry(int entry) {
+        delete(keyTable, hash(entryKeys[entry]), entry, true);
+        delete(valueTable, entryValueHashes[entry], entry, false);
+        releaseValue(entry);
+        entryValues[entry] = null;
+        size--;
+        modCount++;
+    }
+
+    /**
+     * Compacts the entries into arrays of the given capacity, dropping removed entries, and rebuilds the tables.
+     */
+    private void rebuild(int capacity) {
+        long[] oldEntryKeys = entryKeys;
+        Object[] oldEntryValues = entryValues;
+        int[] oldEntryValueHashes = entryValueHashes;
+        int oldEntryCount = entryCount;
+        init(capacity);
+
+        for (int i = 0; i < oldEntryCount; i++) {
+            Object storedValue = oldEntryValues[i];
+            if (storedValue == null) continue;
+            int entry = entryCount++;
+            entryKeys[entry] = oldEntryKeys[i];
+            entryValues[entry] = storedValue;
+            entryValueHashes[entry] = oldEntryValueHashes[i];
+            if (referenceType != STRONG && storedValue != NULL_VALUE) ((EntryReference) storedValue).setEntry(entry);
+            insert(keyTable, hash(entryKeys[entry]), entry);
+            insert(valueTable, entryValueHashes[entry], entry);
+        }
+    }
+
+    private int findEntry(long packedKey) {
+        int mask = keyTable.length - 1;
+        for (int i = hash(packedKey) & mask; ; i = (i + 1) & mask) {
+            int slot = keyTable[i];
+            if (slot == 0) return -1;
+            if (entryKeys[slot - 1] == packedKey) return slot - 1;
+        }
+    }
+
+    private int findValueEntry(Object value) {
+        int valueHash = valueHash(value);
+        int mask = valueTable.length - 1;
+        for (int i = valueHash & mask; ; i = (i + 1) & mask) {
+            int slot = valueTable[i];
+            if (slot == 0) return -1;
+            int entry = slot - 1;
+            if (entryValueHashes[entry] == valueHash) {
+                if (value == null) {
+                    if (entryValues[entry] == NULL_VALUE) return entry;
+                } else if (value.equals(getValue(entry))) {
+                    return entry;
+                }
+            }
+        }
+    }
+
+    private static void insert(int[] table, int hash, int entry) {
+        int mask = table.length - 1;
+        int i = hash & mask;
+        while (table[i] != 0) i = (i + 1) & mask;
+        table[i] = entry + 1;
+    }
+
+    /**
+     * Removes entry from the table, shifting back any later slots in its probe sequence, so no tombstones are needed.
+     */
+    private void delete(int[] table, int hash, int entry, boolean isKeyTable) {
+        int mask = table.length - 1;
+        int i = hash & mask;
+        while (table[i] != entry + 1) i = (i + 1) & mask;
+
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            int slot = table[j];
+            if (slot == 0) break;
+            int home = (isKeyTable ? hash(entryKeys[slot - 1]) : entryValueHashes[slot - 1]) & mask;
+            // the slot at j can move to i unless its home lies cyclically within (i, j]
+            boolean canMove = j > i ? (home <= i || home > j) : (home <= i && home > j);
+            if (canMove) {
+                table[i] = slot;
+                i = j;
+            }
+        }
+        table[i] = 0;
+    }
+
+    /**
+     * Spreads the high bits into the low bits as HashMap does, but leaves keys that are close together, such as ids
+     * allocated in sequence, close together in the table.
+     */
+    private static int hash(long packedKey) {
+        int h = (int) (packedKey ^ (packedKey >>> 32));
+        return h ^ (h >>> 16);
+    }
+
+    private static int valueHash(Object value) {
+        if (value == null) return 0;
+        int h = value.hashCode() * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    public Set keySet() {
+        if (keySet == null) {
+            keySet = new AbstractSet() {
+                public Iterator iterator() {
+                    return new EntryIterator() {
+                        protected Object next(int entry, Object value) {
+                            return keyLayout.unpack(entryKeys[entry]);
+                        }
+
+                        protected Iterator overflowIterator() {
+                            return overflow.keySet().iterator();
+                        }
+                    };
+                }
+
+                public int size() {
+                    return PrimitiveKeyAssociation.this.size();
+                }
+
+                public boolean contains(Object k) {
+                    return containsKey(k);
+                }
+            };
+        }
+        return keySet;
+    }
+
+    public Collection values() {
+        if (values == null) {
+            values = new AbstractCollection() {
+                public Iterator iterator() {
+                    return new EntryIterator() {
+                        protected Object next(int entry, Object value) {
+                            return value;
+                        }
+
+                        protected Iterator overflowIterator() {
+                            return overflow.values().iterator();
+                        }
+                    };
+                }
+
+                public int size() {
+                    return PrimitiveKeyAssociation.this.size();
+                }
+
+                public boolean contains(Object v) {
+                    return containsValue(v);
+                }
+            };
+        }
+        return values;
+    }
+
+    public Set entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet() {
+                public Iterator iterator() {
+                    return new EntryIterator() {
+                        protected Object next(int entry, Object value) {
+                            return new Entry(keyLayout.unpack(entryKeys[entry]), value);
+                        }
+
+                        protected Iterator overflowIterator() {
+                            return overflow.entrySet().iterator();
+                        }
+                    };
+                }
+
+                public int size() {
+                    return PrimitiveKeyAssociation.this.size();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * Iterates the packed entries in insertion order, skipping any whose value has been collected, then the overflow.
+     */
+    private abstract class EntryIterator implements Iterator {
+        private int expectedModCount;
+        private int nextEntry = -1;
+        private Object nextValue; // holds the next value strongly, so it cannot be collected before next() is called
+        private Iterator overflowIterator;
+
+        public EntryIterator() {
+            expungeStaleEntries();
+            expectedModCount = modCount;
+            advance();
+        }
+
+        protected abstract Object next(int entry, Object value);
+
+        protected abstract Iterator overflowIterator();
+
+        private void advance() {
+            for (nextEntry++; nextEntry < entryCount; nextEntry++) {
+                Object storedValue = entryValues[nextEntry];
+                if (storedValue == null) continue;
+                nextValue = getValue(nextEntry);
+                if (nextValue != null || storedValue == NULL_VALUE) return;
+            }
+            nextValue = null;
+            if (overflow != null) overflowIterator = new DelegatingIterator(overflowIterator());
+        }
+
+        public boolean hasNext() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            return nextEntry < entryCount || (overflowIterator != null && overflowIterator.hasNext());
+        }
+
+        public Object next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            if (nextEntry >= entryCount) return overflowIterator.next();
+            Object next = next(nextEntry, nextValue);
+            advance();
+            return next;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class Entry implements Map.Entry {
+        private Object key;
+        private Object value;
+
+        public Entry(Object key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public Object getKey() {
+            return key;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public Object setValue(Object value) {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) return false;
+            Map.Entry other = (Map.Entry) o;
+            return Utilities.equals(key, other.getKey()) && Utilities.equals(value, other.getValue());
+        }
+
+        public int hashCode() {
+            return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+        }
+
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    private static interface EntryReference {
+        public int getEntry();
+
+        public void setEntry(int entry);
+
+        public Object get();
+
+        public void clear();
+    }
+
+    private static class SoftEntryReference extends SoftReference implements EntryReference {
+        private int entry;
+
+        public SoftEntryReference(Object value, ReferenceQueue queue, int entry) {
+            super(value, queue);
+            this.entry = entry;
+        }
+
+        public int getEntry() {
+            return entry;
+        }
+
+        public void setEntry(int entry) {
+            this.entry = entry;
+        }
+    }
+
+    private static class WeakEntryReference extends WeakReference implements EntryReference {
+        private int entry;
+
+        public WeakEntryReference(Object value, ReferenceQueue queue, int entry) {
+            super(value, queue);
+            this.entry = entry;
+        }
+
+        public int getEntry() {
+            return entry;
+        }
+
+        public void setEntry(int entry) {
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * Describes how a key of one or more integral components is packed into a long.  Each component takes as many bits
+     * as its type needs, 64 for a Long, 32 for an Integer, 16 for a Short or Character, 8 for a Byte and 1 for a Boolean,
+     * the first component in the lowest bits.
+     */
+    public static class KeyLayout {
+        private final Class[] componentTypes;
+        private final int[] widths;
+        private final int[] shifts;
+        private final boolean compound;
+
+        /**
+         * Returns the layout for keys with components of the given types, or null if they cannot be packed into a long.
+         */
+        public static KeyLayout getInstance(Class[] keyTypes) {
+            if (keyTypes == null || keyTypes.length == 0) return null;
+
+            Class[] componentTypes = new Class[keyTypes.length];
+            int[] widths = new int[keyTypes.length];
+            int[] shifts = new int[keyTypes.length];
+            int totalWidth = 0;
+            for (int i = 0; i < keyTypes.length; i++) {
+                if (keyTypes[i] == null) return null;
+                componentTypes[i] = ClassUtilities.typeToClass(keyTypes[i]);
+                widths[i] = getWidth(componentTypes[i]);
+                if (widths[i] == 0) return null;
+                shifts[i] = totalWidth;
+                totalWidth += widths[i];
+                if (totalWidth > 64) return null;
+            }
+            return new KeyLayout(componentTypes, widths, shifts);
+        }
+
+        private static int getWidth(Class type) {
+            if (type == Long.class) return 64;
+            if (type == Integer.class) return 32;
+            if (type == Short.class || type == Character.class) return 16;
+            if (type == Byte.class) return 8;
+            if (type == Boolean.class) return 1;
+            return 0;
+        }
+
+        private KeyLayout(Class[] componentTypes, int[] widths, int[] shifts) {
+            this.componentTypes = componentTypes;
+            this.widths = widths;
+            this.shifts = shifts;
+            this.compound = componentTypes.length > 1;
+        }
+
+        public boolean canPack(Object key) {
+            if (!compound) return key != null && key.getClass() == componentTypes[0];
+            if (!(key instanceof List)) return false;
+
+            List compoundKey = (List) key;
+            if (compoundKey.size() != componentTypes.length) return false;
+            for (int i = 0; i < componentTypes.length; i++) {
+                Object component = compoundKey.get(i);
+                if (component == null || component.getClass() != componentTypes[i]) return false;
+            }
+            return true;
+        }
+
+        public long pack(Object key) {
+            if (!compound) return getBits(key);
+
+            List compoundKey = (List) key;
+            long packedKey = 0;
+            for (int i = 0; i < componentTypes.length; i++) {
+                packedKey |= (getBits(compoundKey.get(i)) & getMask(widths[i])) << shifts[i];
+            }
+            return packedKey;
+        }
+
+        public Object unpack(long packedKey) {
+            if (!compound) return getComponent(componentTypes[0], packedKey);
+
+            List compoundKey = new EfficientArrayList(componentTypes.length);
+            for (int i = 0; i < componentTypes.length; i++) {
+                compoundKey.add(getComponent(componentTypes[i], (packedKey >>> shifts[i]) & getMask(widths[i])));
+            }
+            return compoundKey;
+        }
+
+        private static long getMask(int width) {
+            return width == 64 ? -1L : (1L << width) - 1;
+        }
+
+        private static long getBits(Object component) {
+            if (component instanceof Number) return ((Number) component).longValue();
+            if (component instanceof Character) return ((Character) component).charValue();
+            return ((Boolean) component).booleanValue() ? 1 : 0;
+        }
+
+        private static Object getComponent(Class type, long bits) {
+            if (type == Long.class) return Long.valueOf(bits);
+            if (type == Integer.class) return Integer.valueOf((int) bits);
+            if (type == Short.class) return Short.valueOf((short) bits);
+            if (type == Byte.class) return Byte.valueOf((byte) bits);
+            if (type == Character.class) return Character.valueOf((char) bits);
+            return Boolean.valueOf(bits != 0);
+        }
+
+        public String toString() {
+            StringBuffer buffer = new StringBuffer("KeyLayout[");
+            for (int i = 0; i < componentTypes.length; i++) {
+                if (i > 0) buffer.append(", ");
+                buffer.append(ClassUtilities.getUnqualifiedClassName(componentTypes[i])).append(':').append(widths[i]);
+            }
+            return buffer.append(']').toString();
+        }
+    }
+}
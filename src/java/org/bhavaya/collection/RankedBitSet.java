@@ -0,0 +1,307 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+
+package org.bhavaya.collection;
+
+import java.util.Arrays;
+
+/**
+ * A sequence of bits that can have ranges of bits inserted and removed, like a List&lt;Boolean&gt;, and that can find the
+ * rank of an index (the number of set bits before it) and select the index of the n'th set bit.
+ * <p/>
+ * The set bits are counted per block of 512 bits, and the counts are only brought up to date when a rank or select
+ * needs them, so a run of changes costs O(1) per set or clear plus one pass over the blocks after the first one changed.
+ * Rank and select are O(log n) once the counts are up to date.  Inserting or removing bits shifts the bits above them,
+ * which is O(n / 64).
+ * <p/>
+ * Not thread-safe.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class RankedBitSet {
+    private static final int WORDS_PER_BLOCK = 8;
+    private static final int BLOCK_SHIFT = 9;  //512 bits per block
+
+    private long[] words;
+    private int size;
+    private int[] blockRanks;   //set bits before each block, and the total set bits at the end
+    private int validBlockRanks;    //blockRanks[0..validBlockRanks] are up to date
+
+    public RankedBitSet() {
+        this(0);
+    }
+
+    /**
+     * @param size the number of bits, all clear
+     */
+    public RankedBitSet(int size) {
+        words = new long[Math.max(blockCount(size), 1) * WORDS_PER_BLOCK];
+        blockRanks = new int[words.length / WORDS_PER_BLOCK + 2];
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean get(int index) {
+        checkIndex(index);
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void set(int index, boolean value) {
+        checkIndex(index);
+        int wordIndex = index >>> 6;
+        long word = words[wordIndex];
+        long newWord = value ? word | (1L << index) : word & ~(1L << index);
+        if (newWord != word) {
+            words[wordIndex] = newWord;
+            invalidateBlockRanks(wordIndex);
+        }
+    }
+
+    /**
+     * Inserts count clear bits at index, moving the bits from index upwards up by count.
+     */
+    public void insert(int index, int count) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        if (count <= 0) return;
+        int oldSize = size;
+        ensureCapacity(oldSize + count);
+        size = oldSize + count;
+        int insertEnd = index + count;
+        //highest word first, so that the bits are read before they are overwritten
+        for (int wordIndex = (size - 1) >>> 6; wordIndex >= (index >>> 6); wordIndex--) {
+            int firstBit = wordIndex << 6;
+            long moved = read64(firstBit - count) & maskFrom(insertEnd - firstBit);
+            long kept = words[wordIndex] & maskBelow(index - firstBit);
+            words[wordIndex] = moved | kept;
+        }
+        invalidateBlockRanks(index >>> 6);
+    }
+
+    /**
+     * Removes the count bits from index, moving the bits above them down by count.
+     */
+    public void remove(int index, int count) {
+        if (index < 0 || count < 0 || index + count > size) throw new IndexOutOfBoundsException("Index: " + index + ", count: " + count + ", size: " + size);
+        if (count == 0) return;
+        //lowest word first, so that the bits are read before they are overwritten. Bits read from beyond size are clear.
+        for (int wordIndex = index >>> 6; wordIndex <= (size - 1) >>> 6; wordIndex++) {
+            int firstBit = wordIndex << 6;
+            long moved = read64(firstBit + count) & maskFrom(index - firstBit);
+            long kept = words[wordIndex] & maskBelow(index - firstBit);
+            words[wordIndex] = moved | kept;
+        }
+        size -= count;
+        invalidateBlockRanks(index >>> 6);
+    }
+
+    public void clear() {
+        Arrays.fill(words, 0);
+        size = 0;
+        validBlockRanks = 0;
+    }
+
+    /**
+     * @return the number of set bits
+     */
+    public int cardinality() {
+        return rank(size);
+    }
+
+    /**
+     * @return the number of set bits before index, which is the position of the bit at index amongst the set bits
+     */
+    public int rank(int index) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        int block = index >>> BLOCK_SHIFT;
+        updateBlockRanks(block);
+        int rank = blockRanks[block];
+        int wordIndex = index >>> 6;
+        for (int i = block * WORDS_PER_BLOCK; i < wordIndex; i++) {
+            rank += Long.bitCount(words[i]);
+        }
+        if ((index & 63) != 0) {
+            rank += Long.bitCount(words[wordIndex] & maskBelow(index & 63));
+        }
+        return rank;
+    }
+
+    /**
+     * @return the index of the set bit with the given rank, the inverse of rank for set bits
+     */
+    public int select(int rank) {
+        int blockCount = blockCount(size);
+        updateBlockRanks(blockCount);
+        if (rank < 0 || rank >= blockRanks[blockCount]) throw new IndexOutOfBoundsException("Rank: " + rank + ", cardinality: " + blockRanks[blockCount]);
+
+        //the last block that starts with no more than rank set bits before it
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (blockRanks[mid] <= rank) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        int remaining = rank - blockRanks[low];
+        for (int wordIndex = low * WORDS_PER_BLOCK; ; wordIndex++) {
+            long word = words[wordIndex];
+            int bitCount = Long.bitCount(word);
+            if (remaining < bitCount) {
+                for (int i = 0; i < remaining; i++) {
+                    word &= word - 1;   //clear the lowest set bit
+                }
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            remaining -= bitCount;
+        }
+    }
+
+    /**
+     * @return the index of the first set bit at or after fromIndex, or -1 if there is none
+     */
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex >= size) return -1;
+        int wordIndex = fromIndex >>> 6;
+        long word = words[wordIndex] & maskFrom(fromIndex & 63);
+        while (word == 0) {
+            if (++wordIndex >= wordCount(size)) return -1;
+            word = words[wordIndex];
+        }
+        return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RankedBitSet)) return false;
+        RankedBitSet other = (RankedBitSet) o;
+        if (size != other.size) return false;
+        for (int i = 0; i < wordCount(size); i++) {
+            if (words[i] != other.words[i]) return false;
+        }
+        return true;
+    }
+
+    public int hashCode() {
+        int hashCode = size;
+        for (int i = 0; i < wordCount(size); i++) {
+            hashCode = 31 * hashCode + (int) (words[i] ^ (words[i] >>> 32));
+        }
+        return hashCode;
+    }
+
+    public String toString() {
+        StringBuffer buffer = new StringBuffer(size);
+        for (int i = 0; i < size; i++) {
+            buffer.append(get(i) ? '1' : '0');
+        }
+        return buffer.toString();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+    }
+
+    private void ensureCapacity(int newSize) {
+        int wordCount = wordCount(newSize);
+        if (wordCount > words.length) {
+            int newLength = Math.max(wordCount, words.length * 3 / 2);
+            newLength = (newLength + WORDS_PER_BLOCK - 1) / WORDS_PER_BLOCK * WORDS_PER_BLOCK;
+            long[] newWords = new long[newLength];
+            System.arraycopy(words, 0, newWords, 0, words.length);
+            words = newWords;
+            int[] newBlockRanks = new int[newLength / WORDS_PER_BLOCK + 2];
+            System.arraycopy(blockRanks, 0, newBlockRanks, 0, blockRanks.length);
+            blockRanks = newBlockRanks;
+        }
+    }
+
+    /**
+     * @return the 64 bits from bitIndex, bits before 0 or beyond the words being clear
+     */
+    private long read64(int bitIndex) {
+        if (bitIndex <= -64) return 0;
+        if (bitIndex < 0) return words[0] << -bitIndex;
+        int wordIndex = bitIndex >>> 6;
+        int offset = bitIndex & 63;
+        long low = wordIndex < words.length ? words[wordIndex] : 0;
+        if (offset == 0) return low;
+        long high = wordIndex + 1 < words.length ? words[wordIndex + 1] : 0;
+        return (low >>> offset) | (high << (64 - offset));
+    }
+
+    /**
+     * @return a mask of the bits at and above bit
+     */
+    private static long maskFrom(int bit) {
+        if (bit <= 0) return -1L;
+        if (bit >= 64) return 0;
+        return -1L << bit;
+    }
+
+    /**
+     * @return a mask of the bits below bit
+     */
+    private static long maskBelow(int bit) {
+        return ~maskFrom(bit);
+    }
+
+    private static int wordCount(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    private static int blockCount(int size) {
+        return (wordCount(size) + WORDS_PER_BLOCK - 1) / WORDS_PER_BLOCK;
+    }
+
+    private void invalidateBlockRanks(int wordIndex) {
+        int block = wordIndex / WORDS_PER_BLOCK;
+        if (block < validBlockRanks) validBlockRanks = block;
+    }
+
+    private void updateBlockRanks(int toBlock) {
+        for (int block = validBlockRanks; block < toBlock; block++) {
+            int rank = blockRanks[block];
+            int firstWord = block * WORDS_PER_BLOCK;
+            for (int i = firstWord; i < firstWord + WORDS_PER_BLOCK; i++) {
+                rank += Long.bitCount(words[i]);
+            }
+            blockRanks[block + 1] = rank;
+        }
+        if (toBlock > validBlockRanks) validBlockRanks = toBlock;
+    }
+}
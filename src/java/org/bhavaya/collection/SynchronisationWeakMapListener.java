@@ -64,7 +64,14 @@ public class SynchronisationWeakMapListener extends WeakMapListener {
     }
 
     protected void mapChanged(Object mapListenerOwner, MapEvent mapEvent) {
-        Synchronisable synchronisable = (Synchronisable) mapListenerOwner;
+        synchronise((Synchronisable) mapListenerOwner, mapEvent, true);
+    }
+
+    /**
+     * Applies mapEvent to synchronisable.  If mayMatch is false the caller knows the bean is not within the
+     * synchronisable's criteria, so it is not evaluated.
+     */
+    public static void synchronise(Synchronisable synchronisable, MapEvent mapEvent, boolean mayMatch) {
         String logPrefix = log.isDebug() ? synchronisable.getLogPrefix() : null;
 
         synchronized (synchronisable) {
@@ -80,7 +87,7 @@ public class SynchronisationWeakMapListener extends WeakMapListener {
                 synchronisable.onCommit();
             } else if (mapEventType == MapEvent.INSERT) {
                 if (!synchronisable.contains(key, bean)) {
-                    if (synchronisable.evaluate(key, bean)) {
+                    if (mayMatch && synchronisable.evaluate(key, bean)) {
                         if (log.isDebug()) log.debug(logPrefix + "inserting key: " + key);
                         synchronisable.onInsert(key, bean);
                     } else {
@@ -91,7 +98,7 @@ public class SynchronisationWeakMapListener extends WeakMapListener {
                 }
             } else if (mapEventType == MapEvent.UPDATE && key != null) {
                 if (synchronisable.contains(key, bean)) {    //if contains
-                    if (synchronisable.evaluate(key, bean)) {
+                    if (mayMatch && synchronisable.evaluate(key, bean)) {
                         if (log.isDebug()) log.debug(logPrefix + "updating key: " + key);
                         synchronisable.onUpdate(key, bean);
                     } else {
@@ -99,7 +106,7 @@ public class SynchronisationWeakMapListener extends WeakMapListener {
                         synchronisable.onDelete(key, bean);
                     }
                 } else {
-                    if (synchronisable.evaluate(key, bean)) {
+                    if (mayMatch && synchronisable.evaluate(key, bean)) {
                         if (log.isDebug()) log.debug(logPrefix + "inserting key: " + key + " because it is now within criteria");
                         synchronisable.onInsert(key, bean);
                     } else {
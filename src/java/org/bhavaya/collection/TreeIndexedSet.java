@@ -0,0 +1,328 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+package org.bhavaya.collection;
+
+import java.util.*;
+
+/**
+ * A List with the same set semantics as IndexedSet, each element held at most once, in insertion order, with cheap
+ * contains and indexOf.  The elements are held in an OrderStatisticTree, with a map from each element to its node, so
+ * that adding or removing an element at any position costs O(log n), rather than the O(n) index renumbering
+ * IndexedSet does after every insert or remove that is not at the end.  indexOf and get(index) are O(log n), so
+ * IndexedSet remains the better choice for lists that are mostly read; iterators step from node to node in amortised
+ * O(1).
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class TreeIndexedSet<E> implements List<E>, Cloneable {
+    private OrderStatisticTree tree;
+    private HashMap<Object, OrderStatisticTree.Node> objectsToNode;
+    private transient int modCount = 0;
+
+    public TreeIndexedSet(int initialSize) {
+        tree = new OrderStatisticTree();
+        objectsToNode = new HashMap<Object, OrderStatisticTree.Node>(Math.max((int) (initialSize / .75f) + 1, 16));
+    }
+
+    public TreeIndexedSet() {
+        this(16);
+    }
+
+    public TreeIndexedSet(Collection<? extends E> collection) {
+        this(collection.size());
+        addAll(collection);
+    }
+
+    public void ensureCapacity(int minCapacity) {
+        if (objectsToNode.isEmpty() && minCapacity > 16) {
+            objectsToNode = new HashMap<Object, OrderStatisticTree.Node>((int) (minCapacity / .75f) + 1);
+        }
+    }
+
+    /**
+     * if the set already contains the given object, this method has no effect (i.e. no indexes are updated)
+     * if you expect the index of the given object to be updated to be size()-1 (whether it is already present or not),
+     * then please use add(index, object)
+     */
+    public boolean add(E o) {
+        if (objectsToNode.containsKey(o)) return false;
+        objectsToNode.put(o, tree.add(o));
+        modCount++;
+        return true;
+    }
+
+    public void add(int index, E element) {
+        removeInternal(element);    //since we are adding at a specified index, we should update the index of the object if it already exists
+        objectsToNode.put(element, tree.add(index, element));
+        modCount++;
+    }
+
+    public boolean addAll(Collection<? extends E> c) {
+        if (!objectsToNode.isEmpty()) {
+            boolean added = false;
+            for (E o : c) {
+                if (add(o)) added = true;
+            }
+            return added;
+        }
+
+        // build the tree in one pass when empty, e.g. on the first load of a collection
+        LinkedHashSet<E> distinct = new LinkedHashSet<E>(c);
+        if (distinct.isEmpty()) return false;
+        Object[] values = distinct.toArray();
+        OrderStatisticTree.Node[] nodes = tree.setValues(values);
+        ensureCapacity(values.length);
+        for (int i = 0; i < values.length; i++) {
+            objectsToNode.put(values[i], nodes[i]);
+        }
+        modCount++;
+        return true;
+    }
+
+    public boolean addAll(int index, Collection<? extends E> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean remove(Object o) {
+        return removeInternal(o);
+    }
+
+    private boolean removeInternal(Object o) {
+        OrderStatisticTree.Node node = objectsToNode.remove(o);
+        if (node == null) return false;
+        tree.remove(node);
+        modCount++;
+        return true;
+    }
+
+    public E remove(int index) {
+        E obj = get(index);
+        removeInternal(obj);
+        return obj;
+    }
+
+    public boolean removeAll(Collection<?> c) {
+        boolean removed = false;
+        for (Object o : c) {
+            if (removeInternal(o)) {
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    public E set(int index, E o) {
+        OrderStatisticTree.Node node = objectsToNode.get(o);
+        int oldIndex = node != null ? tree.indexOf(node) : -1;
+
+        E oldObject;
+        if (node != null && oldIndex == index) {
+            // the new element ".equals" the old element and is at the same index, just replace the old one with the new one, as it doesnt affect the position
+            // we still change the instance, as the identity of o may be different to oldObject, even though they are .equals
+            objectsToNode.remove(o);
+            objectsToNode.put(o, node);
+            node.setValue(o);
+            oldObject = o;
+        } else if (node != null) {
+            // the element is already in the Set, but in a different position to index
+            throw new UnsupportedOperationException("Invalid set: index: " + index + ", oldIndex: " + oldIndex + ", size: " + size() + ", object: " + o);
+        } else {
+            // the element is not already in the Set
+            node = tree.getNode(index);
+            oldObject = (E) node.getValue();
+            objectsToNode.remove(oldObject);
+            node.setValue(o);
+            objectsToNode.put(o, node);
+        }
+
+        modCount++;
+        return oldObject;
+    }
+
+    public boolean contains(Object o) {
+        return objectsToNode.containsKey(o);
+    }
+
+    public int indexOf(Object o) {
+        OrderStatisticTree.Node node = objectsToNode.get(o);
+        return node != null ? tree.indexOf(node) : -1;
+    }
+
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    public void clear() {
+        tree.clear();
+        objectsToNode.clear();
+        modCount++;
+    }
+
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int size() {
+        return tree.size();
+    }
+
+    public boolean isEmpty() {
+        return tree.isEmpty();
+    }
+
+    public E get(int index) {
+        return (E) tree.get(index);
+    }
+
+    public Iterator<E> iterator() {
+        return listIterator(0);
+    }
+
+    public ListIterator<E> listIterator() {
+        return listIterator(0);
+    }
+
+    public ListIterator<E> listIterator(int index) {
+        if (index < 0 || index > size()) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+        return new ListItr(index);
+    }
+
+    public List<E> subList(int fromIndex, int toIndex) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Object[] toArray() {
+        return tree.toArray();
+    }
+
+    public <T> T[] toArray(T a[]) {
+        int size = size();
+        if (a.length < size) a = (T[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), size);
+        System.arraycopy(tree.toArray(), 0, a, 0, size);
+        if (a.length > size) a[size] = null;
+        return a;
+    }
+
+    public boolean containsAll(Collection<?> c) {
+        for (Object o : c) {
+            if (!contains(o)) return false;
+        }
+        return true;
+    }
+
+    public Object clone() throws CloneNotSupportedException {
+        TreeIndexedSet<E> clone = (TreeIndexedSet<E>) super.clone();
+        clone.tree = new OrderStatisticTree();
+        clone.objectsToNode = new HashMap<Object, OrderStatisticTree.Node>();
+        clone.addAll((Collection<? extends E>) Arrays.asList(toArray()));
+        return clone;
+    }
+
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TreeIndexedSet)) return false;
+        return Arrays.equals(toArray(), ((TreeIndexedSet) o).toArray());
+    }
+
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    private class ListItr implements ListIterator<E> {
+        private int cursor;
+        private OrderStatisticTree.Node nextNode;
+        private int lastReturnedIndex = -1;
+        private int expectedModCount = modCount;
+
+        ListItr(int index) {
+            cursor = index;
+        }
+
+        public boolean hasNext() {
+            return cursor < size();
+        }
+
+        public E next() {
+            checkForComodification();
+            if (cursor >= size()) throw new NoSuchElementException();
+            OrderStatisticTree.Node node = nextNode != null ? nextNode : tree.getNode(cursor);
+            E next = (E) node.getValue();
+            nextNode = OrderStatisticTree.next(node);
+            lastReturnedIndex = cursor;
+            cursor++;
+            return next;
+        }
+
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+
+        public E previous() {
+            checkForComodification();
+            if (cursor <= 0) throw new NoSuchElementException();
+            E previous = (E) tree.getNode(cursor - 1).getValue();
+            nextNode = null;
+            cursor--;
+            lastReturnedIndex = cursor;
+            return previous;
+        }
+
+        public int nextIndex() {
+            return cursor;
+        }
+
+        public int previousIndex() {
+            return cursor - 1;
+        }
+
+        public void remove() {
+            if (lastReturnedIndex == -1) throw new IllegalStateException();
+            checkForComodification();
+            TreeIndexedSet.this.remove(lastReturnedIndex);
+            if (lastReturnedIndex < cursor) cursor--;
+            nextNode = null;
+            lastReturnedIndex = -1;
+            expectedModCount = modCount;
+        }
+
+        public void set(E o) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void add(E o) {
+            throw new UnsupportedOperationException();
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+        }
+    }
+}
@@ -36,14 +36,26 @@ import javax.management.MBeanServer;
 import javax.management.MBeanServerFactory;
 import javax.management.ObjectName;
 import java.io.*;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Cool, fast and hip.
+ * <p/>
+ * By default every subscriber and publisher connection gets its own thread.  If the subject's
+ * <code>serverIoThreads</code> property is greater than zero, connections are instead multiplexed over that many
+ * selector threads.  In that mode messages are framed on the '\0' delimiter as raw bytes and each message is held
+ * in one read-only buffer shared by every subscriber, which are written to with gathering writes.  The wire
+ * protocol is identical in both modes.
  *
  * @author Philip Milne
  * @author Brendon McLean
@@ -63,6 +75,11 @@ public class NotificationServer {
     public static final String SUBSCRIBE_PORT_PROPERTY = "subscribePort";
     public static final String DIAGNOSTIC_PORT_PROPERTY = "diagnosticPort";
     private static final String MAX_QUEUED_NOTIFICATIONS_PER_SUBSCRIBER_PROPERTY = "maximumQueuedNotificationsPerSubscriberOnServer";
+    public static final String IO_THREADS_PROPERTY = "serverIoThreads";
+    public static final String OVERFLOW_POLICY_PROPERTY = "subscriberQueueOverflowPolicy";
+
+    private static final int MAX_BUFFERS_PER_WRITE = 64;
+    private static final int DEFAULT_SUBSCRIBER_QUEUE_CAPACITY = 8192;
 
     private int txPort;
     private int rxPort;
@@ -70,9 +87,12 @@ public class NotificationServer {
     private boolean daemon;
     private long reconnectionPeriod;
     private int maximumQueuedNotificationsPerSubscriber;
+    private int ioThreads;
+    private SubscriberQueue.OverflowPolicy overflowPolicy;
 
-    private TxDispatcher txDispatcher;
-    private RxDispatcher rxDispatcher;
+    private Dispatcher txDispatcher;
+    private Dispatcher rxDispatcher;
+    private IoReactor[] ioReactors;
     private MBeanServer mBeanServer;
     private HtmlAdaptorServer htmlAdaptor;
 
@@ -105,11 +125,24 @@ public class NotificationServer {
         int diagnosticPort = Integer.parseInt(diagnosticPortString);
         int maximumQueuedNotificationsPerSubscriber = Integer.parseInt(maximumQueuedNotificationsPerSubscriberString);
         long reconnectionPeriod = Long.parseLong(reconnectionPeriodString);
+        String ioThreadsString = subjectProperties.getProperty(IO_THREADS_PROPERTY);
+        int ioThreads = ioThreadsString != null ? Integer.parseInt(ioThreadsString) : 0;
+        SubscriberQueue.OverflowPolicy overflowPolicy = SubscriberQueue.OverflowPolicy.getInstance(subjectProperties.getProperty(OVERFLOW_POLICY_PROPERTY));
 
-        return new NotificationServer(txPort, rxPort, diagnosticPort, daemon, reconnectionPeriod, maximumQueuedNotificationsPerSubscriber);
+        return new NotificationServer(txPort, rxPort, diagnosticPort, daemon, reconnectionPeriod, maximumQueuedNotificationsPerSubscriber, ioThreads, overflowPolicy);
     }
 
     public NotificationServer(int txPort, int rxPort, int diagnosticPort, boolean daemon, long reconnectionPeriod, int maximumQueuedNotificationsPerSubscriber) throws Exception {
+        this(txPort, rxPort, diagnosticPort, daemon, reconnectionPeriod, maximumQueuedNotificationsPerSubscriber, 0, SubscriberQueue.OverflowPolicy.DISCONNECT);
+    }
+
+    /**
+     * @param ioThreads number of selector threads to multiplex subscriber connections over, or zero for a thread per connection
+     * @param overflowPolicy what to do when a subscriber has more than maximumQueuedNotificationsPerSubscriber
+     * notifications queued.  If maximumQueuedNotificationsPerSubscriber is negative the queue is not bounded by
+     * configuration, so a default capacity is used and DISCONNECT is treated as SPILL.
+     */
+    public NotificationServer(int txPort, int rxPort, int diagnosticPort, boolean daemon, long reconnectionPeriod, int maximumQueuedNotificationsPerSubscriber, int ioThreads, SubscriberQueue.OverflowPolicy overflowPolicy) throws Exception {
         log.info("Notification server instantiating");
         this.txPort = txPort;
         this.rxPort = rxPort;
@@ -117,6 +150,12 @@ public class NotificationServer {
         this.daemon = daemon;
         this.reconnectionPeriod = reconnectionPeriod;
         this.maximumQueuedNotificationsPerSubscriber = maximumQueuedNotificationsPerSubscriber;
+        this.ioThreads = ioThreads;
+        this.overflowPolicy = overflowPolicy;
+        if (maximumQueuedNotificationsPerSubscriber < 0) {
+            log.warn(MAX_QUEUED_NOTIFICATIONS_PER_SUBSCRIBER_PROPERTY + " is negative, subscriber queues hold " + DEFAULT_SUBSCRIBER_QUEUE_CAPACITY
+                    + " notifications before applying overflow policy " + (overflowPolicy == SubscriberQueue.OverflowPolicy.DISCONNECT ? SubscriberQueue.OverflowPolicy.SPILL : overflowPolicy));
+        }
         setupDiagnostics(diagnosticPort);
         log.info("Notification server instantiated");
     }
@@ -161,6 +200,14 @@ public class NotificationServer {
         return maximumQueuedNotificationsPerSubscriber;
     }
 
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    public SubscriberQueue.OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
     public MBeanServer getMBeanServer() {
         return mBeanServer;
     }
@@ -168,8 +215,25 @@ public class NotificationServer {
     public void start() throws Exception {
         log.info("Notification server starting");
         log.info("Instantiating dispatchers");
-        txDispatcher = new TxDispatcher(txPort, reconnectionPeriod, daemon, maximumQueuedNotificationsPerSubscriber, mBeanServer);
-        rxDispatcher = new RxDispatcher(rxPort, reconnectionPeriod, daemon, txDispatcher, mBeanServer);
+        log.info("Subscriber queue overflow policy: " + overflowPolicy);
+        if (ioThreads > 0) {
+            log.info("Using " + ioThreads + " selector io threads");
+            // Publishers get a reactor of their own so a BLOCK overflow policy only ever stalls publishers
+            ioReactors = new IoReactor[ioThreads + 1];
+            for (int i = 0; i < ioReactors.length; i++) {
+                ioReactors[i] = new IoReactor("IOReactor" + i, daemon);
+                ioReactors[i].start();
+            }
+            IoReactor[] subscriberIoReactors = new IoReactor[ioThreads];
+            System.arraycopy(ioReactors, 1, subscriberIoReactors, 0, ioThreads);
+            SelectorTxDispatcher selectorTxDispatcher = new SelectorTxDispatcher(txPort, reconnectionPeriod, daemon, maximumQueuedNotificationsPerSubscriber, overflowPolicy, mBeanServer, subscriberIoReactors);
+            txDispatcher = selectorTxDispatcher;
+            rxDispatcher = new SelectorRxDispatcher(rxPort, reconnectionPeriod, daemon, selectorTxDispatcher, mBeanServer, new IoReactor[]{ioReactors[0]});
+        } else {
+            TxDispatcher threadedTxDispatcher = new TxDispatcher(txPort, reconnectionPeriod, daemon, maximumQueuedNotificationsPerSubscriber, overflowPolicy, mBeanServer);
+            txDispatcher = threadedTxDispatcher;
+            rxDispatcher = new RxDispatcher(rxPort, reconnectionPeriod, daemon, threadedTxDispatcher, mBeanServer);
+        }
         startDispatcher(txDispatcher);
         startDispatcher(rxDispatcher);
         log.info("Notification server started");
@@ -204,6 +268,12 @@ public class NotificationServer {
         rxDispatcher = null;
         stopDispatcher(txDispatcher);
         txDispatcher = null;
+        if (ioReactors != null) {
+            for (int i = 0; i < ioReactors.length; i++) {
+                ioReactors[i].close();
+            }
+            ioReactors = null;
+        }
         log.info("Notification server closed");
     }
 
@@ -223,12 +293,42 @@ public class NotificationServer {
         public boolean isActive();
 
         public String getName();
+
+        public String getOverflowPolicy();
+
+        public int getQueueCapacity();
+
+        public int getQueueDepth();
+
+        public int getMaximumQueueDepth();
+
+        public long getQueuedBytes();
+
+        public long getSpilledMessageCount();
+
+        public long getBlockedPublisherCount();
+
+        public double getMeanWriteLatencyMillis();
+
+        public double getMaximumWriteLatencyMillis();
+
+        public String getWriteLatencyHistogram();
+    }
+
+    public static interface SelectorConnectionMBean extends ConnectionMBean {
     }
 
-    private abstract static class Connection extends Thread implements ConnectionMBean {
+    private static interface ClientConnection extends ConnectionMBean {
+        public void start();
+
+        public String getObjectName();
+    }
+
+    private abstract static class Connection extends Thread implements ConnectionMBean, ClientConnection {
         protected Socket socket;
         protected boolean active;
         protected int messageCount = 0;
+        protected SubscriberQueue queue;
 
         public Connection(String name, Socket socket, boolean daemon) {
             super(name + "(" + socket.getInetAddress() + ":" + socket.getPort() + ")");
@@ -264,6 +364,46 @@ public class NotificationServer {
             return active;
         }
 
+        public String getOverflowPolicy() {
+            return queue != null ? queue.getOverflowPolicy().toString() : "";
+        }
+
+        public int getQueueCapacity() {
+            return queue != null ? queue.getCapacity() : 0;
+        }
+
+        public int getQueueDepth() {
+            return queue != null ? queue.getDepth() : 0;
+        }
+
+        public int getMaximumQueueDepth() {
+            return queue != null ? queue.getMaximumDepth() : 0;
+        }
+
+        public long getQueuedBytes() {
+            return queue != null ? queue.getQueuedBytes() : 0;
+        }
+
+        public long getSpilledMessageCount() {
+            return queue != null ? queue.getSpilledCount() : 0;
+        }
+
+        public long getBlockedPublisherCount() {
+            return queue != null ? queue.getBlockedCount() : 0;
+        }
+
+        public double getMeanWriteLatencyMillis() {
+            return queue != null ? queue.getLatencyHistogram().getMeanMillis() : 0;
+        }
+
+        public double getMaximumWriteLatencyMillis() {
+            return queue != null ? queue.getLatencyHistogram().getMaximumMillis() : 0;
+        }
+
+        public String getWriteLatencyHistogram() {
+            return queue != null ? queue.getLatencyHistogram().toString() : "";
+        }
+
         public String getObjectName() {
             return Utilities.MBEANSERVER_DOMAIN + ":type=" + ClassUtilities.getUnqualifiedClassName(getClass()) + ",host=" + socket.getInetAddress() + ",port=" + socket.getPort();
         }
@@ -335,38 +475,30 @@ public class NotificationServer {
 
     private static class TXConnection extends Connection {
         private Writer writer;
-        private int maximumQueuedNotificationsPerSubscriber;
-        private List lineBuffer = new ArrayList();
         private TxDispatcher txDispatcher;
+        private Object[] writeBatch = new Object[MAX_BUFFERS_PER_WRITE];
 
-        private TXConnection(Socket socket, boolean daemon, TxDispatcher txDispatcher, int maximumQueuedNotificationsPerSubscriber) throws IOException {
+        private TXConnection(Socket socket, boolean daemon, TxDispatcher txDispatcher, int maximumQueuedNotificationsPerSubscriber, SubscriberQueue.OverflowPolicy overflowPolicy) throws IOException {
             super("TXConnection", socket, daemon);
-            this.maximumQueuedNotificationsPerSubscriber = maximumQueuedNotificationsPerSubscriber;
             this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
             this.txDispatcher = txDispatcher;
+            this.queue = createSubscriberQueue(getName(), maximumQueuedNotificationsPerSubscriber, overflowPolicy, SubscriberQueue.CHAR_ARRAY_CODEC);
         }
 
         public void run() {
             while (active) {
                 try {
-                    Object[] lineBufferCopy;
-                    synchronized (lineBuffer) {
-                        while (active && lineBuffer.isEmpty()) {
-                            //nothing to do, relinquish the lock
-                            lineBuffer.wait();
-                        }
-
-                        lineBufferCopy = lineBuffer.toArray(new Object[lineBuffer.size()]);
-                        lineBuffer.clear();
-                    }
+                    queue.waitForMessages();
+                    int batchSize = queue.peek(writeBatch);
 
                     if (active && !isInterrupted()) {
-                        for (int i = 0; i < lineBufferCopy.length && active; i++) {
-                            char[] line = (char[]) lineBufferCopy[i];
-                            writer.write(line);
-                            writer.flush();
-                            messageCount++;
+                        for (int i = 0; i < batchSize; i++) {
+                            writer.write((char[]) writeBatch[i]);
+                            writeBatch[i] = null;
                         }
+                        writer.flush();
+                        queue.remove(batchSize);
+                        messageCount += batchSize;
                     } else {
                         break;
                     }
@@ -384,26 +516,13 @@ public class NotificationServer {
         }
 
         protected void closeImplementation() {
-            synchronized (lineBuffer) {
-                lineBuffer.notify();// required if called from a seperate thread
-            }
+            queue.close(); // wakes the sender thread if called from a seperate thread
         }
 
         public void processLine(char[] line) {
-            if (!isInterrupted()) {
-                //make sure we are locked
-                synchronized (lineBuffer) {
-                    int bufferDepth = lineBuffer.size();
-                    lineBuffer.add(line);
-
-                    // Wake up sender thread after releasing lock.
-                    if (maximumQueuedNotificationsPerSubscriber >= 0 && bufferDepth > maximumQueuedNotificationsPerSubscriber) {
-                        log.warn(getName() + ": is too slow.  Interrupting thread to kick client");
-                        interrupt();
-                    }
-
-                    lineBuffer.notify();
-                }
+            if (!isInterrupted() && !queue.offer(line)) {
+                log.warn(getName() + ": is too slow.  Interrupting thread to kick client");
+                interrupt();
             }
         }
     }
@@ -437,7 +556,7 @@ public class NotificationServer {
 
             log.info(getName() + ": Binding to port " + port);
             try {
-                serverSocket = new ServerSocket(port);
+                serverSocket = createServerSocket(port);
                 log.info(getName() + ": Bind successful");
             } catch (IOException e) {
                 log.error(getName() + ": Could not bind to port " + port, e);
@@ -455,7 +574,7 @@ public class NotificationServer {
             while (active) {
                 try {
                     Socket clientSocket = serverSocket.accept();
-                    Connection connection;
+                    ClientConnection connection;
 
                     synchronized (clientConnections) {
                         if (!active) {
@@ -483,7 +602,7 @@ public class NotificationServer {
                         Thread.sleep(reconnectionPeriod);
                         log.error(getName() + ": Creating a new socket");
                         serverSocket.close();
-                        serverSocket = new ServerSocket(port);
+                        serverSocket = createServerSocket(port);
                         log.error(getName() + ": Created a new socket");
                     } catch (Exception ex) {
                         log.error(getName() + ": Could not create a new socket", e);
@@ -511,18 +630,18 @@ public class NotificationServer {
                 }
 
                 // kick off all existing connections
-                Connection[] connections = getConnections();
+                ClientConnection[] connections = getConnections();
                 for (int i = 0; i < connections.length; i++) {
-                    Connection connection = connections[i];
+                    ClientConnection connection = connections[i];
                     closeConnection(connection);
                 }
             }
             log.info(getName() + ": closed");
         }
 
-        public Connection[] getConnections() {
+        public ClientConnection[] getConnections() {
             synchronized (clientConnections) {
-                return (Connection[]) clientConnections.toArray(new Connection[clientConnections.size()]);
+                return (ClientConnection[]) clientConnections.toArray(new ClientConnection[clientConnections.size()]);
             }
         }
 
@@ -530,7 +649,7 @@ public class NotificationServer {
             return clientConnections.size();
         }
 
-        public void closeConnection(Connection connection) {
+        public void closeConnection(ClientConnection connection) {
             boolean removed = clientConnections.remove(connection);
             if (removed) {
                 try {
@@ -543,7 +662,11 @@ public class NotificationServer {
             }
         }
 
-        protected abstract Connection createConnection(Socket socket, boolean daemon) throws IOException;
+        protected ServerSocket createServerSocket(int port) throws IOException {
+            return new ServerSocket(port);
+        }
+
+        protected abstract ClientConnection createConnection(Socket socket, boolean daemon) throws IOException;
 
         protected void finalize() throws Throwable {
             if (log.isDebug()) log.debug(getName() + ": garbage collecting");
@@ -567,22 +690,24 @@ public class NotificationServer {
             this.txDispatcher = txDispatcher;
         }
 
-        protected Connection createConnection(Socket socket, boolean daemon) throws IOException {
+        protected ClientConnection createConnection(Socket socket, boolean daemon) throws IOException {
             return new RXConnection(socket, daemon, this, txDispatcher);
         }
     }
 
     private static class TxDispatcher extends Dispatcher {
         private int maximumQueuedNotificationsPerSubscriber;
+        private SubscriberQueue.OverflowPolicy overflowPolicy;
 
-        public TxDispatcher(int txPort, long reconnectionPeriod, boolean daemon, int maximumQueuedNotificationsPerSubscriber, MBeanServer mBeanServer) throws IOException {
+        public TxDispatcher(int txPort, long reconnectionPeriod, boolean daemon, int maximumQueuedNotificationsPerSubscriber, SubscriberQueue.OverflowPolicy overflowPolicy, MBeanServer mBeanServer) throws IOException {
             super("TXDispatcher", reconnectionPeriod, txPort, daemon, mBeanServer);
             this.maximumQueuedNotificationsPerSubscriber = maximumQueuedNotificationsPerSubscriber;
+            this.overflowPolicy = overflowPolicy;
             log.info(getName() + ": maximumQueuedNotificationsPerSubscriber: " + maximumQueuedNotificationsPerSubscriber);
         }
 
-        protected Connection createConnection(Socket socket, boolean daemon) throws IOException {
-            return new TXConnection(socket, daemon, this, maximumQueuedNotificationsPerSubscriber);
+        protected ClientConnection createConnection(Socket socket, boolean daemon) throws IOException {
+            return new TXConnection(socket, daemon, this, maximumQueuedNotificationsPerSubscriber, overflowPolicy);
         }
 
         public TXConnection[] getTxConnections() {
@@ -601,18 +726,428 @@ public class NotificationServer {
         }
     }
 
+    /**
+     * Owns one selector and services the reads and writes of every connection registered with it.  Work for the
+     * selector thread submitted from other threads is queued and the selector woken up.
+     */
+    private static class IoReactor extends Thread {
+        private Selector selector;
+        private List pendingTasks = new ArrayList();
+        private volatile boolean active;
+
+        public IoReactor(String name, boolean daemon) throws IOException {
+            super(name);
+            this.selector = Selector.open();
+            this.active = true;
+            setDaemon(daemon);
+        }
+
+        public Selector getSelector() {
+            return selector;
+        }
+
+        public void execute(Runnable task) {
+            synchronized (pendingTasks) {
+                pendingTasks.add(task);
+            }
+            selector.wakeup();
+        }
+
+        public void run() {
+            log.info(getName() + ": Starting thread");
+            while (active) {
+                try {
+                    selector.select();
+                    runPendingTasks();
+
+                    Iterator iterator = selector.selectedKeys().iterator();
+                    while (iterator.hasNext()) {
+                        SelectionKey key = (SelectionKey) iterator.next();
+                        iterator.remove();
+                        SelectorConnection connection = (SelectorConnection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isReadable()) connection.handleRead();
+                            if (key.isValid() && key.isWritable()) connection.handleWrite();
+                        } catch (IOException e) {
+                            connection.disconnected();
+                        } catch (CancelledKeyException e) {
+                            connection.disconnected();
+                        }
+                    }
+                } catch (Exception e) {
+                    log.error(getName() + ": Error servicing selector", e);
+                }
+            }
+
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.error(e);
+            }
+            if (log.isDebug()) log.debug(getName() + ": Ending thread");
+        }
+
+        private void runPendingTasks() {
+            Object[] tasks;
+            synchronized (pendingTasks) {
+                if (pendingTasks.isEmpty()) return;
+                tasks = pendingTasks.toArray(new Object[pendingTasks.size()]);
+                pendingTasks.clear();
+            }
+            for (int i = 0; i < tasks.length; i++) {
+                ((Runnable) tasks[i]).run();
+            }
+        }
+
+        public void close() {
+            log.info(getName() + ": closing");
+            active = false;
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * A negative maximum keeps the old meaning of an unbounded queue: a ring of DEFAULT_SUBSCRIBER_QUEUE_CAPACITY that
+     * spills to disk rather than disconnecting once it is full.
+     */
+    private static SubscriberQueue createSubscriberQueue(String name, int maximumQueuedNotificationsPerSubscriber, SubscriberQueue.OverflowPolicy overflowPolicy, SubscriberQueue.Codec codec) {
+        if (maximumQueuedNotificationsPerSubscriber < 0) {
+            if (overflowPolicy == SubscriberQueue.OverflowPolicy.DISCONNECT) overflowPolicy = SubscriberQueue.OverflowPolicy.SPILL;
+            return new SubscriberQueue(name, DEFAULT_SUBSCRIBER_QUEUE_CAPACITY, overflowPolicy, codec);
+        }
+        // the subscriber used to be kicked once more than the maximum were queued
+        return new SubscriberQueue(name, maximumQueuedNotificationsPerSubscriber + 1, overflowPolicy, codec);
+    }
+
+    private abstract static class SelectorConnection implements SelectorConnectionMBean, ClientConnection {
+        private String name;
+        protected Socket socket;
+        protected SocketChannel channel;
+        protected SelectionKey key;
+        protected IoReactor ioReactor;
+        private Dispatcher dispatcher;
+        protected volatile boolean active;
+        protected volatile int messageCount = 0;
+        protected SubscriberQueue queue;
+
+        public SelectorConnection(String name, Socket socket, IoReactor ioReactor, Dispatcher dispatcher) throws IOException {
+            this.name = name + "(" + socket.getInetAddress() + ":" + socket.getPort() + ")";
+            this.socket = socket;
+            this.channel = socket.getChannel();
+            this.channel.configureBlocking(false);
+            this.ioReactor = ioReactor;
+            this.dispatcher = dispatcher;
+            this.active = true;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String toString() {
+            return getName();
+        }
+
+        public void start() {
+            ioReactor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        key = channel.register(ioReactor.getSelector(), SelectionKey.OP_READ, SelectorConnection.this);
+                        registered();
+                    } catch (IOException e) {
+                        disconnected();
+                    }
+                }
+            });
+        }
+
+        /**
+         * Called on the reactor thread once the channel is registered with the selector.
+         */
+        protected void registered() throws IOException {
+        }
+
+        protected abstract void handleRead() throws IOException;
+
+        protected abstract void handleWrite() throws IOException;
+
+        protected void disconnected() {
+            active = false;
+            dispatcher.closeConnection(this);
+        }
+
+        public void close() {
+            log.info(getName() + ": Terminating after " + messageCount + " messages");
+            active = false;
+            if (queue != null) queue.close();
+            try {
+                channel.close();
+            } catch (IOException e) {
+            }
+            if (log.isDebug()) log.debug(getName() + ": Terminated");
+        }
+
+        public int getMessageCount() {
+            return messageCount;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public String getOverflowPolicy() {
+            return queue != null ? queue.getOverflowPolicy().toString() : "";
+        }
+
+        public int getQueueCapacity() {
+            return queue != null ? queue.getCapacity() : 0;
+        }
+
+        public int getQueueDepth() {
+            return queue != null ? queue.getDepth() : 0;
+        }
+
+        public int getMaximumQueueDepth() {
+            return queue != null ? queue.getMaximumDepth() : 0;
+        }
+
+        public long getQueuedBytes() {
+            return queue != null ? queue.getQueuedBytes() : 0;
+        }
+
+        public long getSpilledMessageCount() {
+            return queue != null ? queue.getSpilledCount() : 0;
+        }
+
+        public long getBlockedPublisherCount() {
+            return queue != null ? queue.getBlockedCount() : 0;
+        }
+
+        public double getMeanWriteLatencyMillis() {
+            return queue != null ? queue.getLatencyHistogram().getMeanMillis() : 0;
+        }
+
+        public double getMaximumWriteLatencyMillis() {
+            return queue != null ? queue.getLatencyHistogram().getMaximumMillis() : 0;
+        }
+
+        public String getWriteLatencyHistogram() {
+            return queue != null ? queue.getLatencyHistogram().toString() : "";
+        }
+
+        public String getObjectName() {
+            return Utilities.MBEANSERVER_DOMAIN + ":type=" + ClassUtilities.getUnqualifiedClassName(getClass()) + ",host=" + socket.getInetAddress() + ",port=" + socket.getPort();
+        }
+    }
+
+    private static class SelectorRxConnection extends SelectorConnection {
+        private ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_INIT_SIZE);
+        private int scanIndex = 0;
+        private SelectorTxDispatcher txDispatcher;
+
+        private SelectorRxConnection(Socket socket, IoReactor ioReactor, SelectorRxDispatcher rxDispatcher, SelectorTxDispatcher txDispatcher) throws IOException {
+            super("SelectorRxConnection", socket, ioReactor, rxDispatcher);
+            this.txDispatcher = txDispatcher;
+        }
+
+        protected void handleRead() throws IOException {
+            if (channel.read(readBuffer) == -1) {
+                disconnected();
+                return;
+            }
+
+            // Frame on '\0' in place, only copying out each completed message once.
+            byte[] bytes = readBuffer.array();
+            int end = readBuffer.position();
+            int messageStart = 0;
+            for (int i = scanIndex; i < end; i++) {
+                if (bytes[i] == 0) {
+                    int length = i + 1 - messageStart;
+                    byte[] msg = new byte[length];
+                    System.arraycopy(bytes, messageStart, msg, 0, length);
+                    messageStart = i + 1;
+                    messageCount++;
+                    txDispatcher.processLine(ByteBuffer.wrap(msg).asReadOnlyBuffer());
+                }
+            }
+
+            readBuffer.flip();
+            readBuffer.position(messageStart);
+            readBuffer.compact();
+            scanIndex = end - messageStart;
+
+            if (!readBuffer.hasRemaining()) {
+                ByteBuffer newBuffer = ByteBuffer.allocate(readBuffer.capacity() * 2);
+                readBuffer.flip();
+                newBuffer.put(readBuffer);
+                readBuffer = newBuffer;
+            }
+        }
+
+        protected void handleWrite() throws IOException {
+        }
+    }
+
+    private static class SelectorTxConnection extends SelectorConnection {
+        private AtomicBoolean writeScheduled = new AtomicBoolean(false);
+        private Object[] writeBatch = new Object[MAX_BUFFERS_PER_WRITE];
+        private ByteBuffer[] writeBuffers = new ByteBuffer[MAX_BUFFERS_PER_WRITE];
+        private ByteBuffer discardBuffer = ByteBuffer.allocate(256);
+        private Runnable writeTask = new Runnable() {
+            public void run() {
+                try {
+                    if (key != null) handleWrite();
+                } catch (IOException e) {
+                    disconnected();
+                } catch (CancelledKeyException e) {
+                    disconnected();
+                }
+            }
+        };
+
+        private SelectorTxConnection(Socket socket, IoReactor ioReactor, SelectorTxDispatcher txDispatcher, int maximumQueuedNotificationsPerSubscriber, SubscriberQueue.OverflowPolicy overflowPolicy) throws IOException {
+            super("SelectorTxConnection", socket, ioReactor, txDispatcher);
+            this.queue = createSubscriberQueue(getName(), maximumQueuedNotificationsPerSubscriber, overflowPolicy, SubscriberQueue.BYTE_BUFFER_CODEC);
+        }
+
+        protected void registered() throws IOException {
+            handleWrite();
+        }
+
+        protected void handleRead() throws IOException {
+            // Subscribers never send anything, this is only here to notice them going away
+            discardBuffer.clear();
+            if (channel.read(discardBuffer) == -1) disconnected();
+        }
+
+        protected void handleWrite() throws IOException {
+            while (true) {
+                int batchSize = queue.peek(writeBatch);
+                if (batchSize == 0) {
+                    writeScheduled.set(false);
+                    // a publisher may have queued something before seeing the flag cleared
+                    if (queue.isEmpty() || !writeScheduled.compareAndSet(false, true)) {
+                        key.interestOps(SelectionKey.OP_READ);
+                        return;
+                    }
+                    continue;
+                }
+
+                for (int i = 0; i < batchSize; i++) {
+                    writeBuffers[i] = (ByteBuffer) writeBatch[i];
+                    writeBatch[i] = null;
+                }
+                channel.write(writeBuffers, 0, batchSize);
+
+                int written = 0;
+                while (written < batchSize && !writeBuffers[written].hasRemaining()) written++;
+                Arrays.fill(writeBuffers, 0, batchSize, null);
+                queue.remove(written);
+                messageCount += written;
+
+                if (written < batchSize) {
+                    // socket buffer is full, wait until the selector says we can write again
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+        }
+
+        public void processLine(ByteBuffer line) {
+            if (!active) return;
+
+            // duplicate shares the content but gives this subscriber its own position
+            if (!queue.offer(line.duplicate())) {
+                log.warn(getName() + ": is too slow.  Kicking client");
+                disconnected();
+            } else if (writeScheduled.compareAndSet(false, true)) {
+                ioReactor.execute(writeTask);
+            }
+        }
+    }
+
+    private static abstract class SelectorDispatcher extends Dispatcher {
+        private IoReactor[] ioReactors;
+        private int nextIoReactor = 0;
+
+        public SelectorDispatcher(String name, long reconnectionPeriod, int port, boolean daemon, MBeanServer mBeanServer, IoReactor[] ioReactors) throws IOException {
+            super(name, reconnectionPeriod, port, daemon, mBeanServer);
+            this.ioReactors = ioReactors;
+        }
+
+        protected ServerSocket createServerSocket(int port) throws IOException {
+            // Sockets accepted from a channel's server socket have channels of their own
+            ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+            ServerSocket serverSocket = serverSocketChannel.socket();
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(new InetSocketAddress(port));
+            return serverSocket;
+        }
+
+        protected IoReactor nextIoReactor() {
+            IoReactor ioReactor = ioReactors[nextIoReactor];
+            nextIoReactor = (nextIoReactor + 1) % ioReactors.length;
+            return ioReactor;
+        }
+    }
+
+    private static class SelectorRxDispatcher extends SelectorDispatcher {
+        private SelectorTxDispatcher txDispatcher;
+
+        public SelectorRxDispatcher(int rxPort, long reconnectionPeriod, boolean daemon, SelectorTxDispatcher txDispatcher, MBeanServer mBeanServer, IoReactor[] ioReactors) throws IOException {
+            super("RXDispatcher", reconnectionPeriod, rxPort, daemon, mBeanServer, ioReactors);
+            this.txDispatcher = txDispatcher;
+        }
+
+        protected ClientConnection createConnection(Socket socket, boolean daemon) throws IOException {
+            return new SelectorRxConnection(socket, nextIoReactor(), this, txDispatcher);
+        }
+    }
+
+    private static class SelectorTxDispatcher extends SelectorDispatcher {
+        private int maximumQueuedNotificationsPerSubscriber;
+        private SubscriberQueue.OverflowPolicy overflowPolicy;
+
+        public SelectorTxDispatcher(int txPort, long reconnectionPeriod, boolean daemon, int maximumQueuedNotificationsPerSubscriber, SubscriberQueue.OverflowPolicy overflowPolicy, MBeanServer mBeanServer, IoReactor[] ioReactors) throws IOException {
+            super("TXDispatcher", reconnectionPeriod, txPort, daemon, mBeanServer, ioReactors);
+            this.maximumQueuedNotificationsPerSubscriber = maximumQueuedNotificationsPerSubscriber;
+            this.overflowPolicy = overflowPolicy;
+            log.info(getName() + ": maximumQueuedNotificationsPerSubscriber: " + maximumQueuedNotificationsPerSubscriber);
+        }
+
+        protected ClientConnection createConnection(Socket socket, boolean daemon) throws IOException {
+            return new SelectorTxConnection(socket, nextIoReactor(), this, maximumQueuedNotificationsPerSubscriber, overflowPolicy);
+        }
+
+        public SelectorTxConnection[] getTxConnections() {
+            synchronized (clientConnections) {
+                return (SelectorTxConnection[]) clientConnections.toArray(new SelectorTxConnection[clientConnections.size()]);
+            }
+        }
+
+        public void processLine(ByteBuffer msg) {
+            SelectorTxConnection[] txConnections = getTxConnections();
+
+            for (int i = 0; i < txConnections.length; i++) {
+                txConnections[i].processLine(msg);
+            }
+        }
+    }
+
     public static void main(String[] args) throws Exception {
         NotificationServer notificationServer;
         if (args.length == 1) {
             String subject = args[0];
             notificationServer = NotificationServer.newInstance(subject, false);
-        } else if (args.length == 5) {
+        } else if (args.length >= 5 && args.length <= 7) {
             int rxPort = Integer.parseInt(args[0]);
             int txPort = Integer.parseInt(args[1]);
             int diagnosticPort = Integer.parseInt(args[2]);
             long reconnectionPeriod = Long.parseLong(args[3]);
             int maximumQueuedNotificationsPerSubscriber = Integer.parseInt(args[4]);
-            notificationServer = new NotificationServer(rxPort, txPort, diagnosticPort, false, reconnectionPeriod, maximumQueuedNotificationsPerSubscriber);
+            int ioThreads = args.length >= 6 ? Integer.parseInt(args[5]) : 0;
+            SubscriberQueue.OverflowPolicy overflowPolicy = SubscriberQueue.OverflowPolicy.getInstance(args.length == 7 ? args[6] : null);
+            notificationServer = new NotificationServer(rxPort, txPort, diagnosticPort, false, reconnectionPeriod, maximumQueuedNotificationsPerSubscriber, ioThreads, overflowPolicy);
         } else {
             throw new RuntimeException("Invalid parameters");
         }
@@ -0,0 +1,552 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+package org.bhavaya.coms;
+
+import org.bhavaya.util.Log;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded queue of notifications waiting to be written to one subscriber of the NotificationServer.
+ * <p/>
+ * Publishers offer into a fixed size ring without taking a lock, a single writer per subscriber consumes with
+ * peek/remove.  What happens when the ring is full is decided by the OverflowPolicy.  With SPILL, once the ring
+ * overflows every further message goes to a local file until the writer has caught up with it, so ordering per
+ * publisher is kept.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class SubscriberQueue {
+    private static final Log log = Log.getCategory(SubscriberQueue.class);
+
+    private static final long BLOCK_WAIT_MILLIS = 100;
+
+    public static enum OverflowPolicy {
+        /**
+         * Tell the caller to drop the subscriber, it will reconnect and reload.
+         */
+        DISCONNECT,
+        /**
+         * Make the publisher wait until the subscriber has room.
+         */
+        BLOCK,
+        /**
+         * Spill to a local file and replay it once the subscriber catches up.
+         */
+        SPILL;
+
+        public static OverflowPolicy getInstance(String name) {
+            if (name == null || name.length() == 0) return DISCONNECT;
+            return valueOf(name.trim().toUpperCase());
+        }
+    }
+
+    /**
+     * How a message type is measured and written to and read back from a spill file.
+     */
+    public static interface Codec {
+        public int sizeOf(Object message);
+
+        public void write(Object message, DataOutput out) throws IOException;
+
+        public Object read(DataInput in) throws IOException;
+    }
+
+    public static final Codec CHAR_ARRAY_CODEC = new Codec() {
+        public int sizeOf(Object message) {
+            return ((char[]) message).length;
+        }
+
+        public void write(Object message, DataOutput out) throws IOException {
+            char[] chars = (char[]) message;
+            out.writeInt(chars.length);
+            for (int i = 0; i < chars.length; i++) {
+                out.writeChar(chars[i]);
+            }
+        }
+
+        public Object read(DataInput in) throws IOException {
+            char[] chars = new char[in.readInt()];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = in.readChar();
+            }
+            return chars;
+        }
+    };
+
+    public static final Codec BYTE_BUFFER_CODEC = new Codec() {
+        public int sizeOf(Object message) {
+            return ((ByteBuffer) message).remaining();
+        }
+
+        public void write(Object message, DataOutput out) throws IOException {
+            ByteBuffer buffer = ((ByteBuffer) message).duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        public Object read(DataInput in) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        }
+    };
+
+    private String name;
+    private OverflowPolicy overflowPolicy;
+    private Codec codec;
+
+    // Ring with a sequence per slot, a slot at position p is free when its sequence is p and full when it is p + 1
+    private int capacity;
+    private Object[] messages;
+    private long[] enqueueTimes;
+    private int[] sizes;
+    private AtomicLongArray sequences;
+    private AtomicLong tail = new AtomicLong();
+    private volatile long head = 0;
+
+    private volatile boolean closed = false;
+    private volatile boolean consumerWaiting = false;
+    private final Object consumerMonitor = new Object();
+    private volatile int blockedProducers = 0;
+    private final Object producerMonitor = new Object();
+
+    private final Object spillLock = new Object();
+    private volatile boolean spilling = false;
+    private Spill spill;
+    private boolean lastPeekFromSpill;
+
+    private AtomicLong queuedBytes = new AtomicLong();
+    private AtomicLong enqueuedCount = new AtomicLong();
+    private volatile long dequeuedCount = 0;
+    private AtomicLong spilledCount = new AtomicLong();
+    private AtomicLong blockedCount = new AtomicLong();
+    private volatile int maximumDepth = 0;
+    private LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+    /**
+     * @param capacity number of messages the ring holds, must be at least one.  Callers that want an unbounded queue
+     * should pass a default capacity with the SPILL policy.
+     */
+    public SubscriberQueue(String name, int capacity, OverflowPolicy overflowPolicy, Codec codec) {
+        if (capacity < 1) throw new IllegalArgumentException(name + ": capacity must be at least 1, not " + capacity);
+        this.name = name;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.codec = codec;
+        this.messages = new Object[this.capacity];
+        this.enqueueTimes = new long[this.capacity];
+        this.sizes = new int[this.capacity];
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * @return false if the message could not be queued and the subscriber should be disconnected.
+     */
+    public boolean offer(Object message) {
+        if (closed) return false;
+        int size = codec.sizeOf(message);
+
+        if (!spilling && offerToRing(message, size)) {
+            messageQueued(size);
+            return true;
+        }
+
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            blockedCount.incrementAndGet();
+            synchronized (producerMonitor) {
+                blockedProducers++;
+                try {
+                    while (!closed && !offerToRing(message, size)) {
+                        producerMonitor.wait(BLOCK_WAIT_MILLIS);
+                    }
+                } catch (InterruptedException e) {
+                    return false;
+                } finally {
+                    blockedProducers--;
+                }
+            }
+            if (closed) return false;
+            messageQueued(size);
+            return true;
+        } else if (overflowPolicy == OverflowPolicy.SPILL) {
+            synchronized (spillLock) {
+                try {
+                    if (spill == null) spill = new Spill();
+                    spill.write(message, System.nanoTime());
+                    spilling = true;
+                } catch (IOException e) {
+                    log.error(name + ": could not spill to disk", e);
+                    return false;
+                }
+            }
+            spilledCount.incrementAndGet();
+            messageQueued(size);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean offerToRing(Object message, int size) {
+        long position = tail.get();
+        while (true) {
+            int slot = (int) (position % capacity);
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+
+        int slot = (int) (position % capacity);
+        messages[slot] = message;
+        enqueueTimes[slot] = System.nanoTime();
+        sizes[slot] = size;
+        sequences.set(slot, position + 1);
+        return true;
+    }
+
+    private void messageQueued(int size) {
+        queuedBytes.addAndGet(size);
+        long depth = enqueuedCount.incrementAndGet() - dequeuedCount;
+        if (depth > maximumDepth) maximumDepth = (int) depth;
+        if (consumerWaiting) {
+            synchronized (consumerMonitor) {
+                consumerMonitor.notify();
+            }
+        }
+    }
+
+    /**
+     * Copies the messages at the head of the queue into batch without removing them.  Only to be called by the
+     * single consumer.
+     *
+     * @return the number of messages copied
+     */
+    public int peek(Object[] batch) {
+        int count = 0;
+        long position = head;
+        while (count < batch.length) {
+            int slot = (int) (position % capacity);
+            if (sequences.get(slot) != position + 1) break;
+            batch[count++] = messages[slot];
+            position++;
+        }
+
+        lastPeekFromSpill = false;
+        if (count == 0 && spilling) {
+            synchronized (spillLock) {
+                // close may have deleted the spill since spilling was read
+                if (!spilling || spill == null) return 0;
+                try {
+                    count = spill.peek(batch);
+                    lastPeekFromSpill = true;
+                } catch (IOException e) {
+                    log.error(name + ": could not replay spilled messages", e);
+                    close();
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Removes the first count messages returned by the last call to peek.
+     */
+    public void remove(int count) {
+        if (count == 0) return;
+        long now = System.nanoTime();
+
+        if (lastPeekFromSpill) {
+            synchronized (spillLock) {
+                if (spill == null) return;
+                for (int i = 0; i < count; i++) {
+                    latencyHistogram.record(now - spill.removeFirst());
+                }
+                queuedBytes.addAndGet(-spill.removedBytes);
+                spill.removedBytes = 0;
+                if (spill.isEmpty()) {
+                    spilling = false;
+                    spill.reset();
+                }
+            }
+        } else {
+            long position = head;
+            long bytes = 0;
+            for (int i = 0; i < count; i++) {
+                int slot = (int) (position % capacity);
+                messages[slot] = null;
+                bytes += sizes[slot];
+                latencyHistogram.record(now - enqueueTimes[slot]);
+                sequences.set(slot, position + capacity);
+                position++;
+            }
+            head = position;
+            queuedBytes.addAndGet(-bytes);
+
+            if (blockedProducers > 0) {
+                synchronized (producerMonitor) {
+                    producerMonitor.notifyAll();
+                }
+            }
+        }
+        dequeuedCount += count;
+    }
+
+    public boolean isEmpty() {
+        return enqueuedCount.get() == dequeuedCount;
+    }
+
+    /**
+     * Waits until the queue is not empty or has been closed.  Only to be called by the single consumer.
+     */
+    public void waitForMessages() throws InterruptedException {
+        synchronized (consumerMonitor) {
+            consumerWaiting = true;
+            try {
+                while (!closed && isEmpty()) {
+                    consumerMonitor.wait();
+                }
+            } finally {
+                consumerWaiting = false;
+            }
+        }
+    }
+
+    public void close() {
+        closed = true;
+        synchronized (consumerMonitor) {
+            consumerMonitor.notifyAll();
+        }
+        synchronized (producerMonitor) {
+            producerMonitor.notifyAll();
+        }
+        synchronized (spillLock) {
+            if (spill != null) {
+                spill.delete();
+                spill = null;
+            }
+            spilling = false;
+        }
+    }
+
+    public int getDepth() {
+        return (int) (enqueuedCount.get() - dequeuedCount);
+    }
+
+    public int getMaximumDepth() {
+        return maximumDepth;
+    }
+
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+
+    public long getSpilledCount() {
+        return spilledCount.get();
+    }
+
+    public long getBlockedCount() {
+        return blockedCount.get();
+    }
+
+    public LatencyHistogram getLatencyHistogram() {
+        return latencyHistogram;
+    }
+
+    /**
+     * Messages that overflowed the ring, appended to a temporary file and read back in order.
+     */
+    private class Spill {
+        private File file;
+        private RandomAccessFile writeFile;
+        private DataOutputStream out;
+        private DataInputStream in;
+        private FileInputStream inputStream;
+        private long writtenCount = 0;
+        private long readCount = 0;
+        private LinkedList replayMessages = new LinkedList();
+        private long removedBytes = 0;
+
+        public Spill() throws IOException {
+            file = File.createTempFile("notificationSpill", ".dat");
+            file.deleteOnExit();
+            log.info(name + ": spilling to " + file);
+            writeFile = new RandomAccessFile(file, "rw");
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(writeFile.getFD())));
+        }
+
+        public void write(Object message, long enqueueTime) throws IOException {
+            out.writeLong(enqueueTime);
+            codec.write(message, out);
+            writtenCount++;
+        }
+
+        public int peek(Object[] batch) throws IOException {
+            if (replayMessages.size() < batch.length && readCount < writtenCount) {
+                out.flush();
+                if (in == null) {
+                    inputStream = new FileInputStream(file);
+                    in = new DataInputStream(new BufferedInputStream(inputStream));
+                }
+                while (replayMessages.size() < batch.length && readCount < writtenCount) {
+                    long enqueueTime = in.readLong();
+                    Object message = codec.read(in);
+                    replayMessages.add(new SpilledMessage(message, enqueueTime, codec.sizeOf(message)));
+                    readCount++;
+                }
+            }
+
+            int count = Math.min(batch.length, replayMessages.size());
+            for (int i = 0; i < count; i++) {
+                batch[i] = ((SpilledMessage) replayMessages.get(i)).message;
+            }
+            return count;
+        }
+
+        public long removeFirst() {
+            SpilledMessage spilledMessage = (SpilledMessage) replayMessages.removeFirst();
+            removedBytes += spilledMessage.size;
+            return spilledMessage.enqueueTime;
+        }
+
+        public boolean isEmpty() {
+            return replayMessages.isEmpty() && readCount == writtenCount;
+        }
+
+        public void reset() {
+            try {
+                if (in != null) in.close();
+                in = null;
+                inputStream = null;
+                out.flush();
+                writeFile.setLength(0);
+                writeFile.seek(0);
+            } catch (IOException e) {
+                log.error(name + ": could not truncate " + file, e);
+            }
+            writtenCount = 0;
+            readCount = 0;
+        }
+
+        public void delete() {
+            try {
+                if (in != null) in.close();
+                out.close();
+            } catch (IOException e) {
+                log.error(e);
+            }
+            if (!file.delete()) log.warn(name + ": could not delete " + file);
+        }
+    }
+
+    private static class SpilledMessage {
+        private Object message;
+        private long enqueueTime;
+        private int size;
+
+        public SpilledMessage(Object message, long enqueueTime, int size) {
+            this.message = message;
+            this.enqueueTime = enqueueTime;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Counts of enqueue to write latencies in power of two microsecond buckets.  Only written by the consumer.
+     */
+    public static class LatencyHistogram {
+        private static final int BUCKETS = 24;
+
+        private long[] counts = new long[BUCKETS];
+        private volatile long count = 0;
+        private volatile long totalNanos = 0;
+        private volatile long maximumNanos = 0;
+
+        public void record(long nanos) {
+            long micros = nanos / 1000;
+            int bucket = 0;
+            while (micros > 0 && bucket < BUCKETS - 1) {
+                micros >>= 1;
+                bucket++;
+            }
+            counts[bucket]++;
+            totalNanos += nanos;
+            if (nanos > maximumNanos) maximumNanos = nanos;
+            count++;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMillis() {
+            long count = this.count;
+            return count == 0 ? 0 : totalNanos / (count * 1000000d);
+        }
+
+        public double getMaximumMillis() {
+            return maximumNanos / 1000000d;
+        }
+
+        public String toString() {
+            StringBuffer buffer = new StringBuffer();
+            for (int i = 0; i < BUCKETS; i++) {
+                long bucketCount = counts[i];
+                if (bucketCount == 0) continue;
+                if (buffer.length() > 0) buffer.append(", ");
+                buffer.append(i == BUCKETS - 1 ? ">" : "<").append(1L << i).append("us: ").append(bucketCount);
+            }
+            return buffer.toString();
+        }
+    }
+}
@@ -73,6 +73,15 @@ public abstract class AbstractBhavayaDataSource implements BhavayaDataSource {
                 throw new RuntimeException(e);
             }
         }
+        String fetchSize = propertyGroup.getProperty("fetchSize");
+        String statementCacheSize = propertyGroup.getProperty("statementCacheSize");
+        if (dialect instanceof DefaultDatabaseDialect) {
+            DefaultDatabaseDialect defaultDialect = (DefaultDatabaseDialect) dialect;
+            if (fetchSize != null && fetchSize.length() > 0) defaultDialect.setFetchSize(Integer.parseInt(fetchSize));
+            if (statementCacheSize != null && statementCacheSize.length() > 0) defaultDialect.setStatementCacheSize(Integer.parseInt(statementCacheSize));
+        } else if ((fetchSize != null && fetchSize.length() > 0) || (statementCacheSize != null && statementCacheSize.length() > 0)) {
+            log.warn("Ignoring fetchSize and statementCacheSize for dataSource: " + dataSourceName + ", as dialect: " + dialectClassName + " does not extend DefaultDatabaseDialect");
+        }
     }
 
     public String getDataSourceName() {
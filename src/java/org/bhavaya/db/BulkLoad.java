@@ -0,0 +1,129 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+package org.bhavaya.db;
+
+import org.bhavaya.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Handle on a bulk load of beans by key, see SqlBeanFactory.getObjectsAsync.  get() returns the loaded beans as an
+ * Object[] in key order.  Listeners added with addCompletionListener are run once the load has finished, successfully
+ * or not, on the thread that finished it, or immediately if it has already finished.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class BulkLoad extends FutureTask {
+    private static final Log log = Log.getCategory(BulkLoad.class);
+
+    private final List completionListeners = new ArrayList();
+    private boolean completed;
+    private volatile int keyCount;
+    private volatile int loadedKeyCount;
+
+    BulkLoad(Callable callable) {
+        super(callable);
+    }
+
+    /**
+     * As get(), but rethrows any exception thrown by the load as a RuntimeException.
+     */
+    public Object[] getObjects() {
+        try {
+            return (Object[]) get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The number of keys that were not already loaded when the load started.
+     */
+    public int getKeyCount() {
+        return keyCount;
+    }
+
+    /**
+     * The number of those keys whose select has been executed and inflated so far.
+     */
+    public int getLoadedKeyCount() {
+        return loadedKeyCount;
+    }
+
+    void setKeyCount(int keyCount) {
+        this.keyCount = keyCount;
+    }
+
+    void setLoadedKeyCount(int loadedKeyCount) {
+        this.loadedKeyCount = loadedKeyCount;
+    }
+
+    public void addCompletionListener(Runnable listener) {
+        synchronized (completionListeners) {
+            if (!completed) {
+                completionListeners.add(listener);
+                return;
+            }
+        }
+        runListener(listener);
+    }
+
+    protected void done() {
+        Runnable[] listeners;
+        synchronized (completionListeners) {
+            completed = true;
+            listeners = (Runnable[]) completionListeners.toArray(new Runnable[completionListeners.size()]);
+            completionListeners.clear();
+        }
+        for (int i = 0; i < listeners.length; i++) {
+            runListener(listeners[i]);
+        }
+    }
+
+    private static void runListener(Runnable listener) {
+        try {
+            listener.run();
+        } catch (Throwable t) {
+            log.error("Error in bulk load completion listener", t);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.bhavaya.db;
+
+/**
+ * A SqlMonitor that is also told when notification re-selects are combined.  Kept apart from SqlMonitor so that
+ * monitors written before re-selects were combined still load.
+ */
+public interface CoalescingSqlMonitor extends SqlMonitor {
+    /**
+     * Called when several notification re-selects were combined, sqlSaved is the number of statements that did not
+     * need to be executed.
+     */
+    void sqlCoalesced(int sqlSaved);
+}
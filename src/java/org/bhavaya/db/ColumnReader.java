@@ -0,0 +1,181 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+package org.bhavaya.db;
+
+import org.bhavaya.util.DateUtilities;
+import org.bhavaya.util.Utilities;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Reads the value of a column of a ResultSet as one type.  The reader for a column can be chosen once, from the types
+ * in the ResultSetMetaData, rather than working out how to convert each cell as it is read.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public abstract class ColumnReader {
+    public static final ColumnReader STRING = new ColumnReader() {
+        public Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+            String value = resultSet.getString(columnIndex);
+            return value != null ? value.trim() : null;
+        }
+    };
+
+    public static final ColumnReader LONG = new ColumnReader() {
+        public Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+            long aLong = resultSet.getLong(columnIndex);
+            return resultSet.wasNull() ? null : Long.valueOf(aLong);
+        }
+    };
+
+    public static final ColumnReader INTEGER = new ColumnReader() {
+        public Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+            int anInt = resultSet.getInt(columnIndex);
+            return resultSet.wasNull() ? null : Integer.valueOf(anInt);
+        }
+    };
+
+    public static final ColumnReader SHORT = new ColumnReader() {
+        public Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+            short aShort = resultSet.getShort(columnIndex);
+            return resultSet.wasNull() ? null : Short.valueOf(aShort);
+        }
+    };
+
+    public static final ColumnReader BYTE = new ColumnReader() {
+        public Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+            byte aByte = resultSet.getByte(columnIndex);
+            return resultSet.wasNull() ? null : Byte.valueOf(aByte);
+        }
+    };
+
+    public static final ColumnReader DOUBLE = new ColumnReader() {
+        public Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+            double aDouble = resultSet.getDouble(columnIndex);
+            return resultSet.wasNull() ? null : Double.valueOf(aDouble);
+        }
+    };
+
+    public static final ColumnReader FLOAT = new ColumnReader() {
+        public Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+            float aFloat = resultSet.getFloat(columnIndex);
+            return resultSet.wasNull() ? null : Float.valueOf(aFloat);
+        }
+    };
+
+    public static final ColumnReader BIG_DECIMAL = new ColumnReader() {
+        public Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+            return resultSet.getBigDecimal(columnIndex);
+        }
+    };
+
+    public static final ColumnReader BOOLEAN = new ColumnReader() {
+        public Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+            boolean aBoolean = resultSet.getBoolean(columnIndex);
+            return resultSet.wasNull() ? null : Boolean.valueOf(aBoolean);
+        }
+    };
+
+    /**
+     * For booleans stored in columns that are not boolean, e.g. 'Y'/'N' or 1/0.
+     */
+    public static final ColumnReader BOOLEAN_FROM_STRING = new ColumnReader() {
+        public Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+            return Boolean.valueOf(Utilities.booleanValue((String) STRING.read(resultSet, columnIndex)));
+        }
+    };
+
+    // assume all dates/times are stored in GMT
+
+    // cannot do "resultSet.getTimestamp(i,  (Calendar) gmtCalendar.get());"
+    // as there is a bug in jConnect which does not return the time for the correct timezone,
+    // which in our case is always GMT.
+    // Therefore get the local time and convert to GMT by adding the GMT offset
+    // this includes any default saving offset if we are in a daylight saving period.
+    public static final ColumnReader DATE = new ColumnReader() {
+        public Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+            Timestamp timestamp = resultSet.getTimestamp(columnIndex);
+            return timestamp != null ? new java.util.Date(DateUtilities.addGmtOffset(timestamp.getTime())) : null;
+        }
+    };
+
+    public static final ColumnReader SQL_DATE = new ColumnReader() {
+        public Object read(ResultSet resultSet, int columnIndex) throws SQLException {
+            Timestamp timestamp = resultSet.getTimestamp(columnIndex);
+            return timestamp != null ? DateUtilities.newDate(DateUtilities.addGmtOffset(timestamp.getTime())) : null;
+        }
+    };
+
+    /**
+     * @param columnIndex 1-based, as for ResultSet
+     */
+    public abstract Object read(ResultSet resultSet, int columnIndex) throws SQLException;
+
+    /**
+     * @param expectedType the type to read values as, or null to read them as actualType
+     * @param actualType   the type of the column, see DBUtilities.getClassByJdbcType
+     */
+    public static ColumnReader getInstance(Class expectedType, Class actualType) {
+        if ((expectedType == Boolean.class || expectedType == boolean.class) && actualType != Boolean.class) {
+            return BOOLEAN_FROM_STRING;
+        }
+        if (expectedType == null) expectedType = actualType;
+
+        if (expectedType == String.class || expectedType == Character.class || expectedType == char.class) {
+            return STRING;
+        } else if (expectedType == Long.class || expectedType == long.class) {
+            return LONG;
+        } else if (expectedType == Integer.class || expectedType == int.class) {
+            return INTEGER;
+        } else if (expectedType == Short.class || expectedType == short.class) {
+            return SHORT;
+        } else if (expectedType == Byte.class || expectedType == byte.class) {
+            return BYTE;
+        } else if (expectedType == Double.class || expectedType == double.class) {
+            return DOUBLE;
+        } else if (expectedType == Float.class || expectedType == float.class) {
+            return FLOAT;
+        } else if (expectedType == BigDecimal.class) {
+            return BIG_DECIMAL;
+        } else if (expectedType == Boolean.class || expectedType == boolean.class) {
+            return BOOLEAN;
+        } else if (expectedType == java.util.Date.class) {
+            return DATE;
+        } else if (expectedType == java.sql.Date.class) {
+            return SQL_DATE;
+        }
+        throw new RuntimeException("Cannot type: " + expectedType.getName());
+    }
+}
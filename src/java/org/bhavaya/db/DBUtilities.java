@@ -243,70 +243,11 @@ public class DBUtilities {
     }
 
     public static Object getObjectFromResultSet(int columnIndex, ResultSet resultSet, Class expectedType) throws SQLException {
-        if (expectedType == Boolean.class || expectedType == boolean.class) {
-            Class actualType = getExpectedType(resultSet, columnIndex);
-            if (actualType != Boolean.class) {
-                String stringValue = (String) getObjectFromResultSetInternal(columnIndex, resultSet, String.class);
-                return Boolean.valueOf(Utilities.booleanValue(stringValue));
-            }
-        }
-
-        if (expectedType == null) {
-            expectedType = getExpectedType(resultSet, columnIndex);
+        Class actualType = null;
+        if (expectedType == null || expectedType == Boolean.class || expectedType == boolean.class) {
+            actualType = getExpectedType(resultSet, columnIndex);
         }
-
-        return getObjectFromResultSetInternal(columnIndex, resultSet, expectedType);
-    }
-
-    private static Object getObjectFromResultSetInternal(int columnIndex, ResultSet resultSet, Class expectedType) throws SQLException {
-        Object propertyValue;
-        if (expectedType == String.class || expectedType == Character.class || expectedType == char.class) {
-            propertyValue = resultSet.getString(columnIndex);
-            propertyValue = propertyValue != null ? ((String) propertyValue).trim() : null;
-        } else if (expectedType == Long.class || expectedType == long.class) {
-            long aLong = resultSet.getLong(columnIndex);
-            propertyValue = resultSet.wasNull() ? null : new Long(aLong);
-        } else if (expectedType == Integer.class || expectedType == int.class) {
-            int anInt = resultSet.getInt(columnIndex);
-            propertyValue = resultSet.wasNull() ? null : new Integer(anInt);
-        } else if (expectedType == Short.class || expectedType == short.class) {
-            short aShort = resultSet.getShort(columnIndex);
-            propertyValue = resultSet.wasNull() ? null : new Short(aShort);
-        } else if (expectedType == Byte.class || expectedType == byte.class) {
-            byte aByte = resultSet.getByte(columnIndex);
-            propertyValue = resultSet.wasNull() ? null : new Byte(aByte);
-        } else if (expectedType == Double.class || expectedType == double.class) {
-            double aDouble = resultSet.getDouble(columnIndex);
-            propertyValue = resultSet.wasNull() ? null : new Double(aDouble);
-        } else if (expectedType == Float.class || expectedType == float.class) {
-            float aFloat = resultSet.getFloat(columnIndex);
-            propertyValue = resultSet.wasNull() ? null : new Float(aFloat);
-        } else if (expectedType == BigDecimal.class) {
-            propertyValue = resultSet.getBigDecimal(columnIndex);
-        } else if (expectedType == Boolean.class || expectedType == boolean.class) {
-            boolean aBoolean = resultSet.getBoolean(columnIndex);
-            propertyValue = resultSet.wasNull() ? null : Boolean.valueOf(aBoolean);
-        } else if (expectedType == java.util.Date.class || expectedType == java.sql.Date.class) {
-            // assume all dates/times are stored in GMT
-
-            // cannot do "propertyValue = resultSet.getTimestamp(i,  (Calendar) gmtCalendar.get());"
-            // as there is a bug in jConnect which does not return the time for the correct timezone,
-            // which in our case is always GMT.
-            // Therefore get the local time and convert to GMT by adding the GMT offset
-            // this includes any default saving offset if we are in a daylight saving period.
-            propertyValue = resultSet.getTimestamp(columnIndex);
-            if (propertyValue != null) {
-                long timeInMillis = DateUtilities.addGmtOffset(((java.util.Date) propertyValue).getTime());
-                if (expectedType == java.sql.Date.class) {
-                    propertyValue = DateUtilities.newDate(timeInMillis);
-                } else {
-                    propertyValue = new java.util.Date(timeInMillis);
-                }
-            }
-        } else {
-            throw new RuntimeException("Cannot type: " + expectedType.getName());
-        }
-        return propertyValue;
+        return ColumnReader.getInstance(expectedType, actualType).read(resultSet, columnIndex);
     }
 
     private static Class getExpectedType(ResultSet resultSet, int columnIndex) throws SQLException {
@@ -52,8 +52,12 @@ public class DefaultDatabaseDialect implements DatabaseDialect {
     private static final SimpleDateFormatThreadLocal SQL_DATE_FORMAT = new SimpleDateFormatThreadLocal("yyyy-MM-dd", TimeZone.getTimeZone("GMT"));
     private static final SimpleDateFormatThreadLocal SQL_DATETIME_FORMAT = new SimpleDateFormatThreadLocal("yyyy-MM-dd HH:mm:ss:SSS", TimeZone.getTimeZone("GMT"));
     protected static int localTempTableCount = 0;
+    public static final int DEFAULT_FETCH_SIZE = 0;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
 
     private Map gmtDateFormatsByPattern;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
 
     public DefaultDatabaseDialect() {
     }
@@ -149,4 +153,26 @@ public class DefaultDatabaseDialect implements DatabaseDialect {
     public boolean containsPrivateTempTable(SQL sqlToExecute) {
         return false;
     }
+
+    /**
+     * @return the number of rows to fetch from the database at a time for a select, or 0 to use the driver's default.
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @return the number of prepared select statements to keep open for each connection, or 0 to not prepare them.
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
 }
@@ -0,0 +1,555 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+package org.bhavaya.db;
+
+import org.bhavaya.beans.Column;
+import org.bhavaya.beans.Schema;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single pass parser for the statements of a sql notification transaction.  It reads the transaction in place and
+ * recognises the simple shapes that sql broadcasters emit:
+ * <pre>
+ * INSERT [INTO] table [(column, ...)] VALUES (value, ...)
+ * UPDATE table SET column = value, ... [WHERE column = value AND ...]
+ * DELETE [FROM] table [WHERE column = value AND ...]
+ * TRUNCATE [TABLE] table
+ * DROP TABLE table
+ * </pre>
+ * where each value is a single string, number or NULL.  Table and columns are resolved as it goes, values are only
+ * recorded as offsets into the transaction so SQL can render them when they are first used.  Lines that cannot be a
+ * valid statement, e.g. "begin transaction", are skipped without creating anything.
+ * <p/>
+ * Anything else, or anything this parser would not tokenize in exactly the same way as Tokenizer2, is handed back
+ * to SQL to be parsed from its tokens, so both routes produce the same statements.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+final class NotificationSqlParser {
+    static final int END = 0;
+    static final int PARSED = 1;
+    static final int IGNORED = 2;
+    static final int UNSUPPORTED = 3;
+    static final int UNTOKENIZABLE = 4;
+
+    private static final Map tablesByDataSourceName = new ConcurrentHashMap();
+
+    private final CharSequence input;
+    private final int length;
+    private final String dataSourceName;
+    private final Map tablesByName;
+    private int cursor;
+    private int statementStart;
+    private int statementEnd;
+    private Statement statement;
+
+    NotificationSqlParser(CharSequence input, String dataSourceName) {
+        this.input = input;
+        this.length = input.length();
+        this.dataSourceName = dataSourceName;
+
+        Map tablesByName = (Map) tablesByDataSourceName.get(dataSourceName);
+        if (tablesByName == null) {
+            tablesByName = new ConcurrentHashMap();
+            tablesByDataSourceName.put(dataSourceName, tablesByName);
+        }
+        this.tablesByName = tablesByName;
+    }
+
+    /**
+     * Moves to the next line of the transaction.  Returns END when there are no more lines, PARSED when getStatement
+     * can be used, IGNORED when the line is not a statement, UNSUPPORTED when the line has to be parsed from its tokens,
+     * and UNTOKENIZABLE when the rest of the transaction, from getStatementStart, has to be tokenized in one go.
+     */
+    int next() {
+        statement = null;
+        if (cursor >= length) return END;
+        statementStart = cursor;
+
+        int result = Schema.isGenerationMode() ? UNSUPPORTED : parseStatement();
+        if (result == PARSED) {
+            statementEnd = cursor;
+        } else {
+            statement = null;
+            statementEnd = findLineEnd(statementStart);
+            if (statementEnd == -1) {
+                cursor = length;
+                return UNTOKENIZABLE;
+            }
+        }
+        cursor = statementEnd + 1;
+        return result;
+    }
+
+    Statement getStatement() {
+        return statement;
+    }
+
+    int getStatementStart() {
+        return statementStart;
+    }
+
+    String getStatementString() {
+        return input.subSequence(statementStart, statementEnd).toString();
+    }
+
+    private int parseStatement() {
+        int start = skipWhitespace(statementStart);
+        int end = identifierEnd(start);
+        if (end == start) return isLineEnd(start) ? IGNORED : UNSUPPORTED;
+
+        if (matches(start, end, "INSERT")) {
+            return parseInsert(end);
+        } else if (matches(start, end, "UPDATE")) {
+            return parseUpdate(end);
+        } else if (matches(start, end, "DELETE")) {
+            return parseDelete(end);
+        } else if (matches(start, end, "TRUNCATE")) {
+            return parseTruncate(end);
+        } else if (matches(start, end, "DROP")) {
+            return parseDropTable(end);
+        } else if (matches(start, end, "SELECT")) {
+            return UNSUPPORTED;
+        } else {
+            return IGNORED;
+        }
+    }
+
+    private int parseInsert(int position) {
+        position = skipWhitespace(position);
+        int end = identifierEnd(position);
+        if (matches(position, end, "INTO")) {
+            position = skipWhitespace(end);
+            end = identifierEnd(position);
+        }
+        if (!startStatement(SQL.INSERT, position, end)) return UNSUPPORTED;
+        position = skipWhitespace(end);
+
+        Column[] columns;
+        if (charAt(position) == '(') {
+            columns = new Column[8];
+            int columnCount = 0;
+            for (position = skipWhitespace(position + 1); ; position = skipWhitespace(position + 1)) {
+                end = identifierEnd(position);
+                if (end == position) return UNSUPPORTED;
+                String columnName = substring(position, end);
+                if (SQL.isKeyword(columnName)) return UNSUPPORTED;
+                Column column = statement.table.getColumn(columnName);
+                if (column == null || indexOf(columns, columnCount, column) != -1) return UNSUPPORTED;
+                if (columnCount == columns.length) columns = (Column[]) grow(columns, new Column[columnCount * 2]);
+                columns[columnCount++] = column;
+
+                position = skipWhitespace(end);
+                if (charAt(position) == ')') break;
+                if (charAt(position) != ',') return UNSUPPORTED;
+            }
+            if (columnCount != columns.length) columns = (Column[]) grow(columns, new Column[columnCount]);
+            position = skipWhitespace(position + 1);
+        } else {
+            columns = statement.table.getColumns();
+        }
+        statement.columns = columns;
+
+        end = identifierEnd(position);
+        if (!matches(position, end, "VALUES")) return UNSUPPORTED;
+        position = skipWhitespace(end);
+        if (charAt(position) != '(') return UNSUPPORTED;
+
+        int[] valueBounds = new int[columns.length * 2];
+        int valueCount = 0;
+        for (position = skipWhitespace(position + 1); ; position = skipWhitespace(position + 1)) {
+            end = literalEnd(position);
+            if (end == -1 || valueCount == columns.length) return UNSUPPORTED;
+            valueBounds[valueCount * 2] = position;
+            valueBounds[valueCount * 2 + 1] = end;
+            valueCount++;
+
+            position = skipWhitespace(end);
+            if (charAt(position) == ')') break;
+            if (charAt(position) != ',') return UNSUPPORTED;
+        }
+        statement.valueBounds = valueBounds;
+        statement.valueCount = valueCount;
+
+        // the where clause for an insert is made from the primary key values
+        Column[] keyColumns = statement.table.getPrimaryKey();
+        for (int i = 0; i < keyColumns.length; i++) {
+            int index = indexOf(columns, columns.length, keyColumns[i]);
+            if (index == -1 || index >= valueCount) return UNSUPPORTED;
+        }
+
+        return endStatement(skipWhitespace(position + 1));
+    }
+
+    private int parseUpdate(int position) {
+        position = skipWhitespace(position);
+        int end = identifierEnd(position);
+        if (!startStatement(SQL.UPDATE, position, end)) return UNSUPPORTED;
+
+        position = skipWhitespace(end);
+        end = identifierEnd(position);
+        if (!matches(position, end, "SET")) return UNSUPPORTED;
+
+        Column[] columns = new Column[4];
+        int[] valueBounds = new int[8];
+        int columnCount = 0;
+        for (position = skipWhitespace(end); ; position = skipWhitespace(position + 1)) {
+            end = identifierEnd(position);
+            if (end == position) return UNSUPPORTED;
+            Column column = statement.table.getColumn(unqualifiedSubstring(position, end));
+            if (column == null) return UNSUPPORTED;
+
+            position = skipWhitespace(end);
+            if (!isEquals(position)) return UNSUPPORTED;
+            position = skipWhitespace(position + 1);
+            end = literalEnd(position);
+            if (end == -1) return UNSUPPORTED;
+
+            if (columnCount == columns.length) {
+                columns = (Column[]) grow(columns, new Column[columnCount * 2]);
+                valueBounds = grow(valueBounds, columnCount * 4);
+            }
+            columns[columnCount] = column;
+            valueBounds[columnCount * 2] = position;
+            valueBounds[columnCount * 2 + 1] = end;
+            columnCount++;
+
+            position = skipWhitespace(end);
+            if (charAt(position) != ',') break;
+        }
+        if (columnCount != columns.length) columns = (Column[]) grow(columns, new Column[columnCount]);
+        statement.columns = columns;
+        statement.valueBounds = valueBounds;
+        statement.valueCount = columnCount;
+
+        return parseOptionalWhereClause(position);
+    }
+
+    private int parseDelete(int position) {
+        position = skipWhitespace(position);
+        int end = identifierEnd(position);
+        if (matches(position, end, "FROM")) {
+            position = skipWhitespace(end);
+            end = identifierEnd(position);
+        }
+        if (!startStatement(SQL.DELETE, position, end)) return UNSUPPORTED;
+        return parseOptionalWhereClause(skipWhitespace(end));
+    }
+
+    private int parseTruncate(int position) {
+        position = skipWhitespace(position);
+        int end = identifierEnd(position);
+        if (matches(position, end, "TABLE")) {
+            position = skipWhitespace(end);
+            end = identifierEnd(position);
+        }
+        if (!startStatement(SQL.TRUNCATE, position, end)) return UNSUPPORTED;
+        return endStatement(skipWhitespace(end));
+    }
+
+    private int parseDropTable(int position) {
+        position = skipWhitespace(position);
+        int end = identifierEnd(position);
+        if (!matches(position, end, "TABLE")) return UNSUPPORTED;
+        position = skipWhitespace(end);
+        end = identifierEnd(position);
+        if (!startStatement(SQL.DROP_TABLE, position, end)) return UNSUPPORTED;
+        return endStatement(skipWhitespace(end));
+    }
+
+    /**
+     * Records each "column = value" term as five offsets, the column name, the value and the following AND (-1 if
+     * there is none).
+     */
+    private int parseOptionalWhereClause(int position) {
+        if (isLineEnd(position)) return endStatement(position);
+        int end = identifierEnd(position);
+        if (!matches(position, end, "WHERE")) return UNSUPPORTED;
+
+        Column[] whereColumns = new Column[4];
+        int[] whereBounds = new int[20];
+        int termCount = 0;
+        for (position = skipWhitespace(end); ; position = skipWhitespace(position)) {
+            int nameStart = position;
+            int nameEnd = identifierEnd(position);
+            if (nameEnd == nameStart || SQL.isKeyword(substring(nameStart, nameEnd))) return UNSUPPORTED;
+            Column column = statement.table.getColumn(unqualifiedSubstring(nameStart, nameEnd));
+            if (column == null) return UNSUPPORTED;
+
+            position = skipWhitespace(nameEnd);
+            if (!isEquals(position)) return UNSUPPORTED;
+            position = skipWhitespace(position + 1);
+            int valueStart = position;
+            int valueEnd = literalEnd(position);
+            if (valueEnd == -1) return UNSUPPORTED;
+
+            position = skipWhitespace(valueEnd);
+            int and = -1;
+            if (!isLineEnd(position)) {
+                end = identifierEnd(position);
+                if (!matches(position, end, "AND")) return UNSUPPORTED;
+                and = position;
+                position = skipWhitespace(end);
+                if (isLineEnd(position)) return UNSUPPORTED;
+            }
+
+            if (termCount == whereColumns.length) {
+                whereColumns = (Column[]) grow(whereColumns, new Column[termCount * 2]);
+                whereBounds = grow(whereBounds, termCount * 10);
+            }
+            whereColumns[termCount] = column;
+            whereBounds[termCount * 5] = nameStart;
+            whereBounds[termCount * 5 + 1] = nameEnd;
+            whereBounds[termCount * 5 + 2] = valueStart;
+            whereBounds[termCount * 5 + 3] = valueEnd;
+            whereBounds[termCount * 5 + 4] = and;
+            termCount++;
+
+            if (and == -1) break;
+        }
+        statement.whereColumns = whereColumns;
+        statement.whereBounds = whereBounds;
+        statement.whereTermCount = termCount;
+
+        return endStatement(position);
+    }
+
+    private boolean startStatement(int operationType, int tableStart, int tableEnd) {
+        if (tableEnd == tableStart) return false;
+        String tableName = substring(tableStart, tableEnd);
+        if (SQL.isKeyword(tableName)) return false;
+
+        CatalogSchemaTable catalogSchemaTable = (CatalogSchemaTable) tablesByName.get(tableName);
+        if (catalogSchemaTable == null) {
+            catalogSchemaTable = CatalogSchemaTable.getInstance(tableName, dataSourceName);
+            tablesByName.put(tableName, catalogSchemaTable);
+        }
+        Table table = Table.getInstance(catalogSchemaTable, dataSourceName);
+        if (table == null) return false;
+
+        statement = new Statement(input, operationType, catalogSchemaTable, table);
+        return true;
+    }
+
+    private int endStatement(int position) {
+        if (!isLineEnd(position)) return UNSUPPORTED;
+        statement.start = statementStart;
+        statement.end = position;
+        cursor = position;
+        return PARSED;
+    }
+
+    /**
+     * Finds the newline that ends the line starting at position, stepping over string literals the way Tokenizer2
+     * does.  Returns -1 if Tokenizer2 would not end the line at a newline, i.e. there is an unterminated or double
+     * quoted string, or a character it cannot tokenize.
+     */
+    private int findLineEnd(int position) {
+        for (; position < length; position++) {
+            char c = input.charAt(position);
+            if (c == '\n') {
+                return position;
+            } else if (c == '\'') {
+                position = stringEnd(position) - 1;
+                if (position < 0) return -1;
+            } else if (c == '"' || c > 255) {
+                return -1;
+            }
+        }
+        return length;
+    }
+
+    private int skipWhitespace(int position) {
+        while (position < length) {
+            char c = input.charAt(position);
+            if (c == '\n' || c > 255 || !Character.isWhitespace(c)) break;
+            position++;
+        }
+        return position;
+    }
+
+    private boolean isLineEnd(int position) {
+        return position == length || input.charAt(position) == '\n';
+    }
+
+    private char charAt(int position) {
+        return position < length ? input.charAt(position) : '\n';
+    }
+
+    private boolean isEquals(int position) {
+        if (charAt(position) != '=') return false;
+        char next = charAt(position + 1);
+        return next != '=' && next != '*';
+    }
+
+    /**
+     * Identifiers follow Pattern.IDENTIFIER, returns position if there is no identifier at position.
+     */
+    private int identifierEnd(int position) {
+        if (position == length) return position;
+        char c = input.charAt(position);
+        if (!isLetter(c) && c != '_' && c != '@' && c != '%') return position;
+        for (position++; position < length; position++) {
+            c = input.charAt(position);
+            if (!isLetter(c) && !(c >= '0' && c <= '9') && "_@%.*#$&".indexOf(c) == -1) break;
+        }
+        return position;
+    }
+
+    /**
+     * A literal is a string, a number or NULL, that Tokenizer2 would read as one token and that is followed by a
+     * delimiter.  Returns -1 if there is no such literal at position.
+     */
+    private int literalEnd(int position) {
+        char c = charAt(position);
+        int end;
+        if (c == '\'') {
+            end = stringEnd(position);
+        } else if (c == '-' || c == '+' || (c >= '0' && c <= '9')) {
+            end = numberEnd(position);
+        } else {
+            end = identifierEnd(position);
+            if (!matches(position, end, "NULL")) end = -1;
+        }
+        if (end == -1) return -1;
+
+        c = charAt(end);
+        if (c == ',' || c == ')' || c == '\n' || (c <= 255 && Character.isWhitespace(c))) return end;
+        return -1;
+    }
+
+    private int stringEnd(int position) {
+        for (position++; position < length; position++) {
+            char c = input.charAt(position);
+            if (c > 255) {
+                return -1;
+            } else if (c == '\'') {
+                if (position + 1 < length && input.charAt(position + 1) == '\'') {
+                    position++;
+                } else {
+                    return position + 1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private int numberEnd(int position) {
+        if (input.charAt(position) == '-' || input.charAt(position) == '+') position++;
+        int digitsStart = position;
+        while (position < length && input.charAt(position) >= '0' && input.charAt(position) <= '9') position++;
+        if (position == digitsStart) return -1;
+        if (position < length && input.charAt(position) == '.') {
+            for (position++; position < length && input.charAt(position) >= '0' && input.charAt(position) <= '9'; position++) {
+            }
+        }
+        return position;
+    }
+
+    private boolean matches(int start, int end, String keyword) {
+        if (end - start != keyword.length()) return false;
+        for (int i = 0; i < keyword.length(); i++) {
+            if (Character.toUpperCase(input.charAt(start + i)) != keyword.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private String substring(int start, int end) {
+        return input.subSequence(start, end).toString();
+    }
+
+    private String unqualifiedSubstring(int start, int end) {
+        for (int i = end - 1; i >= start; i--) {
+            if (input.charAt(i) == '.') return substring(i + 1, end);
+        }
+        return substring(start, end);
+    }
+
+    private static int indexOf(Column[] columns, int count, Column column) {
+        for (int i = 0; i < count; i++) {
+            if (columns[i].equals(column)) return i;
+        }
+        return -1;
+    }
+
+    private static Object[] grow(Object[] array, Object[] newArray) {
+        System.arraycopy(array, 0, newArray, 0, Math.min(array.length, newArray.length));
+        return newArray;
+    }
+
+    private static int[] grow(int[] array, int newLength) {
+        int[] newArray = new int[newLength];
+        System.arraycopy(array, 0, newArray, 0, Math.min(array.length, newLength));
+        return newArray;
+    }
+
+    /**
+     * A statement as offsets into the transaction it came from.
+     */
+    static final class Statement {
+        final CharSequence input;
+        final int operationType;
+        final CatalogSchemaTable catalogSchemaTable;
+        final Table table;
+        int start;
+        int end;
+        // insert columns or update set columns, with start and end offsets of their values
+        Column[] columns;
+        int[] valueBounds;
+        int valueCount;
+        // where clause terms, see parseOptionalWhereClause
+        Column[] whereColumns;
+        int[] whereBounds;
+        int whereTermCount;
+
+        private Statement(CharSequence input, int operationType, CatalogSchemaTable catalogSchemaTable, Table table) {
+            this.input = input;
+            this.operationType = operationType;
+            this.catalogSchemaTable = catalogSchemaTable;
+            this.table = table;
+        }
+
+        String substring(int start, int end) {
+            return input.subSequence(start, end).toString();
+        }
+
+        String getValue(int index) {
+            return substring(valueBounds[index * 2], valueBounds[index * 2 + 1]);
+        }
+    }
+}
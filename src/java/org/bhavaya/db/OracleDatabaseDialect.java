@@ -48,6 +48,7 @@ public class OracleDatabaseDialect extends DefaultDatabaseDialect {
     private static final SimpleDateFormatThreadLocal SQL_DATETIME_FORMAT = new SimpleDateFormatThreadLocal("yyyy-MM-dd HH:mm:ss", TimeZone.getTimeZone("GMT"));
 
     public OracleDatabaseDialect() {
+        setFetchSize(500); // the driver fetches 10 rows at a time by default
     }
 
     protected void initPatterns() {
@@ -0,0 +1,109 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+package org.bhavaya.db;
+
+import org.bhavaya.util.NamedExecutors;
+import org.bhavaya.util.Transform;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs work that has been split into partitions.  The items of one partition are processed in order by one call to a
+ * Processor, partitions are processed concurrently on a fixed pool of daemon threads.  Idle threads exit after
+ * KEEP_ALIVE_SECONDS, so a pool that is not used holds no threads.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+class PartitionedExecutor {
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    public static interface Processor {
+        public void process(List items) throws Exception;
+    }
+
+    private ThreadPoolExecutor executor;
+
+    public PartitionedExecutor(String name, int threads) {
+        executor = (ThreadPoolExecutor) NamedExecutors.newFixedThreadPool(name, threads, NamedExecutors.DAEMON_THREAD_CONFIGURER);
+        executor.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Groups items by the partition the partitioner returns for them, keeping their order within each partition, and
+     * processes the partitions.  A single partition is processed on the calling thread.  Every partition has finished
+     * before this returns or throws, if several fail the first failure is thrown.
+     *
+     * @return the number of partitions
+     */
+    public int execute(List items, Transform partitioner, final Processor processor) throws Exception {
+        Map itemsByPartition = new LinkedHashMap();
+        for (int i = 0; i < items.size(); i++) {
+            Object item = items.get(i);
+            Object partition = partitioner.execute(item);
+            List itemsForPartition = (List) itemsByPartition.get(partition);
+            if (itemsForPartition == null) {
+                itemsForPartition = new ArrayList();
+                itemsByPartition.put(partition, itemsForPartition);
+            }
+            itemsForPartition.add(item);
+        }
+
+        if (itemsByPartition.size() <= 1) {
+            processor.process(items);
+            return itemsByPartition.size();
+        }
+
+        List futures = new ArrayList(itemsByPartition.size());
+        for (Iterator iterator = itemsByPartition.values().iterator(); iterator.hasNext();) {
+            final List itemsForPartition = (List) iterator.next();
+            futures.add(executor.submit(new Callable() {
+                public Object call() throws Exception {
+                    processor.process(itemsForPartition);
+                    return null;
+                }
+            }));
+        }
+
+        Exception exception = null;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                ((Future) futures.get(i)).get();
+            } catch (ExecutionException e) {
+                if (exception == null) exception = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+        if (exception != null) throw exception;
+        return itemsByPartition.size();
+    }
+}
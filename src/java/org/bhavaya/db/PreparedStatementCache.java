@@ -0,0 +1,338 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+package org.bhavaya.db;
+
+import org.bhavaya.util.Log;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The prepared select statements of a connection, so that a statement the database has already parsed can be run
+ * again with new values.
+ * <p/>
+ * Select statements are generated with their values written into the text, so they are first turned into their shape
+ * by parameterise, which replaces the numeric literals that are compared against, or listed in an IN clause, with
+ * parameters.  String literals are left in the text, as comparing a CHAR column against a bound string is not the same
+ * as comparing it against a literal on some databases.
+ * <p/>
+ * An IN list of numbers is written as a power of two parameters, padded with its last value, so lists of any length
+ * share a few shapes.
+ * A statement with more than MAX_PARAMETERS, such as a long list or a chain of ORs selecting many compound keys, is not
+ * prepared at all, as each length would be a shape of its own that would rarely be run again.
+ * <p/>
+ * A statement is taken out of the cache while its result set is open, and released back into it when the result set is
+ * closed, so two threads sharing a connection never share a statement.  The least recently used statements are closed
+ * when there are more than the cache size.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class PreparedStatementCache {
+    private static final Log log = Log.getCategory(PreparedStatementCache.class);
+
+    private static final Map connectionToCache = new WeakHashMap();
+
+    // where parameterise is in an IN (...) list
+    private static final int NOT_IN_LIST = 0;
+    private static final int IN_KEYWORD_READ = 1;
+    private static final int IN_LIST_VALUE_EXPECTED = 2;
+    private static final int IN_LIST_VALUE_READ = 3;
+
+    private static final int MAX_PARAMETERS = 64;
+
+    private final int maximumSize;
+    private final LinkedHashMap shapeToStatement;
+
+    public static PreparedStatementCache getInstance(Connection connection, int maximumSize) {
+        synchronized (connectionToCache) {
+            PreparedStatementCache cache = (PreparedStatementCache) connectionToCache.get(connection);
+            if (cache == null) {
+                cache = new PreparedStatementCache(maximumSize);
+                connectionToCache.put(connection, cache);
+            }
+            return cache;
+        }
+    }
+
+    public PreparedStatementCache(int maximumSize) {
+        this.maximumSize = maximumSize;
+        this.shapeToStatement = new LinkedHashMap(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry eldest) {
+                if (size() > PreparedStatementCache.this.maximumSize) {
+                    DBUtilities.closeResultSetAndStatement(null, (PreparedStatement) eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the cached statement for the shape, removing it from the cache until it is released, or null if none is cached.
+     */
+    public synchronized PreparedStatement take(String shape) {
+        return (PreparedStatement) shapeToStatement.remove(shape);
+    }
+
+    /**
+     * Puts the statement back in the cache, once the result set from it is closed.
+     */
+    public void release(String shape, PreparedStatement statement) {
+        PreparedStatement statementToClose = null;
+        synchronized (this) {
+            if (shapeToStatement.containsKey(shape)) {
+                statementToClose = statement;
+            } else {
+                shapeToStatement.put(shape, statement);
+            }
+        }
+        if (statementToClose != null) DBUtilities.closeResultSetAndStatement(null, statementToClose);
+    }
+
+    public synchronized int size() {
+        return shapeToStatement.size();
+    }
+
+    public void clear() {
+        List statements;
+        synchronized (this) {
+            statements = new ArrayList(shapeToStatement.values());
+            shapeToStatement.clear();
+        }
+        for (Iterator iterator = statements.iterator(); iterator.hasNext();) {
+            DBUtilities.closeResultSetAndStatement(null, (PreparedStatement) iterator.next());
+        }
+    }
+
+    /**
+     * @return the shape of sql and the values of its parameters, or null if sql cannot be prepared, i.e. it already
+     *         contains a parameter marker, or should not be, i.e. it has more than MAX_PARAMETERS.
+     */
+    public static ParameterisedSql parameterise(String sql) {
+        StringBuffer shape = null;
+        List parameters = null;
+        int copiedTo = 0;
+
+        boolean afterComparison = false;
+        int inListState = NOT_IN_LIST;
+        int inListValueCount = 0;
+        int inListShapeStart = 0;
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+
+            int tokenStart = i;
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(sql, i);
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int lineEnd = sql.indexOf('\n', i);
+                i = lineEnd == -1 ? length : lineEnd + 1;
+                continue;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int commentEnd = sql.indexOf("*/", i + 2);
+                i = commentEnd == -1 ? length : commentEnd + 2;
+                continue;
+            } else if (c == '?') {
+                return null;
+            } else if (isComparison(c)) {
+                while (i < length && isComparison(sql.charAt(i))) i++;
+                afterComparison = true;
+                inListState = NOT_IN_LIST;
+                continue;
+            } else if (Character.isDigit(c) || ((c == '-' || c == '+') && (afterComparison || inListState == IN_LIST_VALUE_EXPECTED)
+                    && i + 1 < length && Character.isDigit(sql.charAt(i + 1)))) {
+                i++;
+                boolean decimal = false;
+                while (i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    decimal |= sql.charAt(i) == '.';
+                    i++;
+                }
+                boolean wholeToken = i == length || !isIdentifierPart(sql.charAt(i));
+                if (wholeToken && (afterComparison || inListState == IN_LIST_VALUE_EXPECTED)) {
+                    Object value = toNumber(sql.substring(tokenStart, i), decimal);
+                    if (value != null) {
+                        if (shape == null) {
+                            shape = new StringBuffer(length);
+                            parameters = new ArrayList();
+                        }
+                        shape.append(sql, copiedTo, tokenStart);
+                        if (inListState == IN_LIST_VALUE_EXPECTED && inListValueCount == 0) inListShapeStart = shape.length();
+                        shape.append('?');
+                        copiedTo = i;
+                        parameters.add(value);
+                        if (parameters.size() > MAX_PARAMETERS) return null;
+                        afterComparison = false;
+                        if (inListState == IN_LIST_VALUE_EXPECTED) {
+                            inListState = IN_LIST_VALUE_READ;
+                            inListValueCount++;
+                        } else {
+                            inListState = NOT_IN_LIST;
+                        }
+                        continue;
+                    }
+                }
+            } else if (isIdentifierPart(c)) {
+                while (i < length && isIdentifierPart(sql.charAt(i))) i++;
+                afterComparison = false;
+                inListState = (i - tokenStart == 2 && sql.regionMatches(true, tokenStart, "in", 0, 2)) ? IN_KEYWORD_READ : NOT_IN_LIST;
+                continue;
+            } else if (c == '(' && inListState == IN_KEYWORD_READ) {
+                i++;
+                afterComparison = false;
+                inListState = IN_LIST_VALUE_EXPECTED;
+                inListValueCount = 0;
+                continue;
+            } else if (c == ')' && inListState == IN_LIST_VALUE_READ) {
+                // every value of the list is a parameter, write them the same way whatever the spacing, repeating the last
+                // value up to the next power of two
+                Object lastValue = parameters.get(parameters.size() - 1);
+                shape.setLength(inListShapeStart);
+                shape.append('?');
+                for (int j = 1; j < inListValueCount; j++) {
+                    shape.append(",?");
+                }
+                for (int padding = Integer.highestOneBit(inListValueCount - 1) * 2 - inListValueCount; padding > 0; padding--) {
+                    shape.append(",?");
+                    parameters.add(lastValue);
+                }
+                copiedTo = i;
+                if (parameters.size() > MAX_PARAMETERS) return null;
+                i++;
+            } else if (c == ',' && inListState == IN_LIST_VALUE_READ) {
+                i++;
+                afterComparison = false;
+                inListState = IN_LIST_VALUE_EXPECTED;
+                continue;
+            } else {
+                i++;
+            }
+            afterComparison = false;
+            inListState = NOT_IN_LIST;
+        }
+
+        if (shape == null) return new ParameterisedSql(sql, new Object[0]);
+        shape.append(sql, copiedTo, length);
+        return new ParameterisedSql(shape.toString(), parameters.toArray());
+    }
+
+    private static boolean isComparison(char c) {
+        return c == '=' || c == '<' || c == '>' || c == '!';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '@' || c == '#' || c == '$';
+    }
+
+    /**
+     * @return the index after the closing quote of the quoted string or identifier starting at start.
+     */
+    private static int skipQuoted(String sql, int start) {
+        char quote = sql.charAt(start);
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2; // an escaped quote
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    private static Object toNumber(String literal, boolean decimal) {
+        try {
+            if (literal.charAt(0) == '+') literal = literal.substring(1);
+            if (decimal) return new BigDecimal(literal);
+            long value = Long.parseLong(literal);
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) return Integer.valueOf((int) value);
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            if (log.isDebug()) log.debug("Leaving literal in statement: " + literal);
+            return null;
+        }
+    }
+
+    /**
+     * The shape of a statement, with parameter markers in place of its literals, and the values of the literals.
+     */
+    public static class ParameterisedSql {
+        private String shape;
+        private Object[] parameters;
+
+        public ParameterisedSql(String shape, Object[] parameters) {
+            this.shape = shape;
+            this.parameters = parameters;
+        }
+
+        public String getShape() {
+            return shape;
+        }
+
+        public Object[] getParameters() {
+            return parameters;
+        }
+
+        public void bind(PreparedStatement statement) throws SQLException {
+            for (int i = 0; i < parameters.length; i++) {
+                Object parameter = parameters[i];
+                if (parameter instanceof Integer) {
+                    statement.setInt(i + 1, ((Integer) parameter).intValue());
+                } else if (parameter instanceof Long) {
+                    statement.setLong(i + 1, ((Long) parameter).longValue());
+                } else {
+                    statement.setBigDecimal(i + 1, (BigDecimal) parameter);
+                }
+            }
+        }
+
+        public String toString() {
+            return shape;
+        }
+    }
+}
@@ -56,6 +56,12 @@ public class ResultSetTabularData implements TabularData {
     private ResultSet resultSet;
     private Statement statement;
     private ResultSetMetaData metaData;
+    private Class[] resultSetTypes;
+    private ColumnReader[] columnReaders;   //for reading a column as its own type, created when first used
+    private Class[] expectedTypes;
+    private ColumnReader[] expectedTypeReaders;     //for the last expected type a column was read as
+    private PreparedStatementCache statementCache;
+    private String statementShape;  //set if statement was prepared for this shape, and is released back to statementCache
     private String sql;
     private int rowType;
     private int rowIndex;
@@ -91,6 +97,14 @@ public class ResultSetTabularData implements TabularData {
         }
 
         this.metaData = this.resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        resultSetTypes = new Class[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            resultSetTypes[i] = DBUtilities.getClassByJdbcType(metaData.getColumnType(i + 1), metaData.getScale(i + 1));
+        }
+        columnReaders = new ColumnReader[columnCount];
+        expectedTypes = new Class[columnCount];
+        expectedTypeReaders = new ColumnReader[columnCount];
         row = new Row();
     }
 
@@ -105,8 +119,7 @@ public class ResultSetTabularData implements TabularData {
 //                String tableName = metaData.getTableName(i + 1);
 //                CatalogSchemaTable catalogSchemaTable = CatalogSchemaTable.getInstance(catalogName, schemaName, tableName, null);
 //                TableColumn column = Table.getInstance(catalogSchemaTable, dataSourceName).getColumn(metaData.getColumnName(i + 1));
-            Class columnType = DBUtilities.getClassByJdbcType(metaData.getColumnType(i + 1), metaData.getScale(i + 1));
-            Column column = new Column(metaData.getColumnLabel(i + 1), columnType);
+            Column column = new Column(metaData.getColumnLabel(i + 1), resultSetTypes[i]);
             columns[i] = column;
             if (!columnToLastIndex.contains(column)) columnToLastIndex.put(column, i); // columns can be repeated more than once in a sql statement, e.g. where there is two tables in the statement, there may be a column called "id" in both tables which is used to join
         }
@@ -130,19 +143,83 @@ public class ResultSetTabularData implements TabularData {
     }
 
     private void createResultSet(Connection connection, String sql) throws SQLException {
-        if (resultSet != null) DBUtilities.closeResultSetAndStatement(resultSet, statement);
-        statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-        sql = DataSourceFactory.getInstance(dataSourceName).getDialect().transformSelectSql(sql);
+        if (resultSet != null) closeResultSetAndStatement();
+        DatabaseDialect dialect = DataSourceFactory.getInstance(dataSourceName).getDialect();
+        sql = dialect.transformSelectSql(sql);
         sqlLog.info(sql);
 
+        int fetchSize = DefaultDatabaseDialect.DEFAULT_FETCH_SIZE;
+        int statementCacheSize = DefaultDatabaseDialect.DEFAULT_STATEMENT_CACHE_SIZE;
+        if (dialect instanceof DefaultDatabaseDialect) {
+            fetchSize = ((DefaultDatabaseDialect) dialect).getFetchSize();
+            statementCacheSize = ((DefaultDatabaseDialect) dialect).getStatementCacheSize();
+        }
+
         Profiler.Task executionTask = Profiler.taskStarted(Profiler.SQL_EXECUTE, sql);
         try {
-            resultSet = statement.executeQuery(sql);
+            PreparedStatementCache.ParameterisedSql parameterisedSql = statementCacheSize > 0 ? PreparedStatementCache.parameterise(sql) : null;
+            if (parameterisedSql != null) {
+                statementCache = PreparedStatementCache.getInstance(connection, statementCacheSize);
+                if (!executePrepared(connection, parameterisedSql, fetchSize)) parameterisedSql = null;
+            }
+            if (parameterisedSql == null) {
+                statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                if (fetchSize > 0) statement.setFetchSize(fetchSize);
+                resultSet = statement.executeQuery(sql);
+            }
+        } catch (SQLException e) {
+            // the caller has no ResultSetTabularData to close the statement with
+            DBUtilities.closeResultSetAndStatement(resultSet, statement);
+            resultSet = null;
+            statement = null;
+            statementShape = null;
+            throw e;
         } finally {
             Profiler.taskStopped(executionTask);
         }
     }
 
+    /**
+     * Executes the statement for the shape of parameterisedSql, taking it from the statement cache or preparing it.
+     * An error executing the statement is thrown, and the statement is closed rather than released back to the cache.
+     *
+     * @return false if the statement could not be prepared or have its values bound, so should be executed unprepared.
+     */
+    private boolean executePrepared(Connection connection, PreparedStatementCache.ParameterisedSql parameterisedSql, int fetchSize) throws SQLException {
+        String shape = parameterisedSql.getShape();
+        PreparedStatement preparedStatement = statementCache.take(shape);
+        try {
+            if (preparedStatement == null) {
+                preparedStatement = connection.prepareStatement(shape, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                if (fetchSize > 0) preparedStatement.setFetchSize(fetchSize);
+            }
+            parameterisedSql.bind(preparedStatement);
+        } catch (SQLException e) {
+            // e.g. a driver that cannot bind a parameter where parameterise put one
+            log.warn("Executing statement unprepared after failing to prepare it: " + shape, e);
+            DBUtilities.closeResultSetAndStatement(null, preparedStatement);
+            return false;
+        }
+
+        statement = preparedStatement;
+        resultSet = preparedStatement.executeQuery();
+        statementShape = shape;
+        return true;
+    }
+
+    /**
+     * Closes the result set, and releases the statement back to the statement cache if it was prepared, else closes it.
+     */
+    private void closeResultSetAndStatement() {
+        if (statementShape != null) {
+            DBUtilities.closeResultSetAndStatement(resultSet, null);
+            statementCache.release(statementShape, (PreparedStatement) statement);
+            statementShape = null;
+        } else {
+            DBUtilities.closeResultSetAndStatement(resultSet, statement);
+        }
+    }
+
     public String toString() {
         return sql;
     }
@@ -177,6 +254,10 @@ public class ResultSetTabularData implements TabularData {
         log.warn("Encountered sqlState: " + sqlState + ", reexecuting sql: " + sql);
 
         try {
+            // the statement may be broken, so it is not put back in the statement cache
+            DBUtilities.closeResultSetAndStatement(resultSet, statement);
+            resultSet = null;
+            statementShape = null;
             createResultSet(connection, sql);
             moveToCorrectResultSetRow();
         } catch (SQLException e1) {
@@ -215,7 +296,7 @@ public class ResultSetTabularData implements TabularData {
 
     public void close() {
         if (resultSet != null) {
-            DBUtilities.closeResultSetAndStatement(resultSet, statement);
+            closeResultSetAndStatement();
             DBUtilities.close(connection);
             resultSet = null;
             statement = null;
@@ -238,17 +319,33 @@ public class ResultSetTabularData implements TabularData {
 
         public Object getColumnValue(int columnIndex, Class expectedType) {
             try {
-                return DBUtilities.getObjectFromResultSet(columnIndex + 1, resultSet, expectedType); // resultSet use a 1-based index
+                return getColumnReader(columnIndex, expectedType).read(resultSet, columnIndex + 1); // resultSet use a 1-based index
             } catch (SQLException e) {
                 if (DBUtilities.isRecoverableException(e)) {
                     recreateResultSet(e);
-                    return getColumnValue(columnIndex);
+                    return getColumnValue(columnIndex, expectedType);
                 } else {
                     throw new RuntimeException(e);
                 }
             }
         }
 
+        private ColumnReader getColumnReader(int columnIndex, Class expectedType) {
+            if (expectedType == null) {
+                ColumnReader columnReader = columnReaders[columnIndex];
+                if (columnReader == null) {
+                    columnReader = ColumnReader.getInstance(null, resultSetTypes[columnIndex]);
+                    columnReaders[columnIndex] = columnReader;
+                }
+                return columnReader;
+            }
+            if (expectedTypes[columnIndex] != expectedType) {
+                expectedTypeReaders[columnIndex] = ColumnReader.getInstance(expectedType, resultSetTypes[columnIndex]);
+                expectedTypes[columnIndex] = expectedType;
+            }
+            return expectedTypeReaders[columnIndex];
+        }
+
         public int getRowType() {
             return rowType;
         }
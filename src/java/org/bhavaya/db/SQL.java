@@ -84,6 +84,7 @@ public class SQL {
     private Set modifiedColumns;    //need an indexed view of the columns fo SQLResultSetFascade
     private Map columnValueMap;
     private Map whereClauseColumnValueMap;
+    private Map joinToSelectColumnValueMap;
     private CatalogSchemaTable[] tables;
     private String body;
     private String whereClause;
@@ -93,6 +94,7 @@ public class SQL {
     private String orderByClause;
     private Map aliasedTables;
     private boolean valid;
+    private volatile NotificationSqlParser.Statement unrenderedStatement;
 
     private int numberOfTokens = 0;
     private int position = 0;
@@ -117,12 +119,47 @@ public class SQL {
         return parseTransaction(sqlTransactionString, DataSourceFactory.getDefaultDataSourceName());
     }
 
+    /**
+     * Parses the statements of a notification transaction.  The simple statements broadcasters send are read in a
+     * single pass by NotificationSqlParser, anything else is parsed from its tokens.
+     */
     public static SQL[] parseTransaction(String sqlTransactionString, String dataSourceName) {
         List statements = (List) statementsThreadLocal.get();
+        NotificationSqlParser parser = new NotificationSqlParser(sqlTransactionString, dataSourceName);
+
+        for (int result = parser.next(); result != NotificationSqlParser.END; result = parser.next()) {
+            if (result == NotificationSqlParser.PARSED) {
+                statements.add(new SQL(parser.getStatement(), dataSourceName));
+            } else if (result == NotificationSqlParser.UNSUPPORTED) {
+                String line = parser.getStatementString();
+                String[] tokens = tokenizeStatement(line);
+                if (tokens.length > 0) addStatement(statements, tokens, line, sqlTransactionString, dataSourceName);
+            } else if (result == NotificationSqlParser.UNTOKENIZABLE) {
+                tokenizeTransaction(statements, sqlTransactionString.substring(parser.getStatementStart()), sqlTransactionString, dataSourceName);
+            }
+        }
+
+        SQL[] sqlStatements = (SQL[]) statements.toArray(new SQL[statements.size()]);
+        statements.clear(); // reduce accumalated memory
+        return sqlStatements;
+    }
+
+    /**
+     * Parses the statements of a transaction from Tokenizer2 tokens, one statement per line.
+     */
+    static SQL[] parseTransactionFromTokens(String sqlTransactionString, String dataSourceName) {
+        List statements = (List) statementsThreadLocal.get();
+        tokenizeTransaction(statements, sqlTransactionString, sqlTransactionString, dataSourceName);
+        SQL[] sqlStatements = (SQL[]) statements.toArray(new SQL[statements.size()]);
+        statements.clear(); // reduce accumalated memory
+        return sqlStatements;
+    }
+
+    private static void tokenizeTransaction(List statements, String transactionToTokenize, String sqlTransactionString, String dataSourceName) {
         List tokensForStatement = (List) tokensForStatementThreadLocal.get();
         FastStringBuffer line = (FastStringBuffer) lineBufferThreadLocal.get();
 
-        Tokenizer2 tokenizer = new Tokenizer2(sqlTransactionString);
+        Tokenizer2 tokenizer = new Tokenizer2(transactionToTokenize);
 
         for (String token = tokenizer.readToken(); token.length() != 0; token = tokenizer.readToken()) {
             char firstChar = token.charAt(0);
@@ -137,26 +174,29 @@ public class SQL {
         }
 
         addTokensToStatements(statements, tokensForStatement, line, sqlTransactionString, dataSourceName);
-        SQL[] sqlStatements = (SQL[]) statements.toArray(new SQL[statements.size()]);
-        statements.clear(); // reduce accumalated memory
-        return sqlStatements;
     }
 
     private static void addTokensToStatements(List statements, List tokensForStatement, FastStringBuffer line, String sqlTransactionString, String dataSourceName) {
         try {
             if (tokensForStatement.size() == 0) return; // will still clear in finally block
             String[] tokens = (String[]) tokensForStatement.toArray(new String[tokensForStatement.size()]);
-            SQL statement = new SQL(tokens, line.toString(), dataSourceName);
-            if (statement.valid) statements.add(statement);
-        } catch (Exception e) {
-            log.error("Error parsing line: " + line.toString());
-            log.error("Error parsing transaction: " + sqlTransactionString);
+            addStatement(statements, tokens, line.toString(), sqlTransactionString, dataSourceName);
         } finally {
             line.setLength(0);
             tokensForStatement.clear();
         }
     }
 
+    private static void addStatement(List statements, String[] tokens, String line, String sqlTransactionString, String dataSourceName) {
+        try {
+            SQL statement = new SQL(tokens, line, dataSourceName);
+            if (statement.valid) statements.add(statement);
+        } catch (Exception e) {
+            log.error("Error parsing line: " + line);
+            log.error("Error parsing transaction: " + sqlTransactionString);
+        }
+    }
+
     protected static String[] tokenizeStatement(String statementString) {
         //if (log.isDebug()) log.debug("Tokenizing statement: " + statementString);
         List tokensForStatement = (List) tokensForStatementThreadLocal.get();
@@ -226,7 +266,137 @@ public class SQL {
         setTokens(null);
     }
 
+    /**
+     * Creates a statement read by NotificationSqlParser.  Only what is needed to route the statement is created here,
+     * the statement string, column values and where clause are rendered from the transaction when first used.
+     */
+    private SQL(NotificationSqlParser.Statement parsedStatement, String dataSourceName) {
+        this.dataSourceName = dataSourceName;
+        this.valid = true;
+        this.operationType = parsedStatement.operationType;
+        this.tables = new CatalogSchemaTable[]{parsedStatement.catalogSchemaTable};
+
+        if (operationType == INSERT) {
+            operation = "INSERT";
+        } else if (operationType == UPDATE) {
+            operation = "UPDATE";
+        } else if (operationType == DELETE) {
+            operation = "DELETE";
+        } else if (operationType == TRUNCATE) {
+            operation = "TRUNCATE";
+        } else {
+            operation = "DROP TABLE";
+        }
+
+        if (parsedStatement.columns != null) {
+            for (int i = 0; i < parsedStatement.columns.length; i++) {
+                addColumn(parsedStatement.columns[i]);
+                if (operationType == UPDATE) addModifiedColumn(parsedStatement.columns[i]);
+            }
+        }
+
+        if (parsedStatement.whereTermCount > 0) {
+            // add where clause columns in the same order as parseWhereClause does
+            Map whereClauseColumns = new HashMap();
+            for (int i = 0; i < parsedStatement.whereTermCount; i++) {
+                Column column = parsedStatement.whereColumns[i];
+                if (!isModified(column)) whereClauseColumns.put(column, column);
+            }
+            for (Iterator iterator = whereClauseColumns.keySet().iterator(); iterator.hasNext();) {
+                addColumn((Column) iterator.next());
+            }
+        }
+
+        unrenderedStatement = parsedStatement;
+    }
+
+    private void render() {
+        if (unrenderedStatement != null) renderStatement();
+    }
+
+    private synchronized void renderStatement() {
+        NotificationSqlParser.Statement parsedStatement = unrenderedStatement;
+        if (parsedStatement == null) return;
+
+        statement = parsedStatement.substring(parsedStatement.start, parsedStatement.end);
+        for (int i = 0; i < parsedStatement.valueCount; i++) {
+            addColumnValue(parsedStatement.columns[i], parsedStatement.getValue(i));
+        }
+
+        if (operationType == INSERT) {
+            createWhereClauseFromKeyValues(parsedStatement.table.getPrimaryKey());
+        } else if (parsedStatement.whereTermCount > 0) {
+            renderWhereClause(parsedStatement);
+        }
+
+        unrenderedStatement = null;
+    }
+
+    /**
+     * Builds the where clause, and where clause for join to select, as parseWhereClause would from the same terms.
+     */
+    private void renderWhereClause(NotificationSqlParser.Statement parsedStatement) {
+        int[] whereBounds = parsedStatement.whereBounds;
+        StringBuffer whereClauseBuffer = new StringBuffer(parsedStatement.end - parsedStatement.start);
+        StringBuffer whereClauseForJoinToSelectBuffer = new StringBuffer(parsedStatement.end - parsedStatement.start);
+        Map columnsValues = new HashMap();
+        Map joinToSelectColumnValues = new LinkedHashMap();
+
+        for (int i = 0; i < parsedStatement.whereTermCount; i++) {
+            Column column = parsedStatement.whereColumns[i];
+            String columnValue = parsedStatement.substring(whereBounds[i * 5 + 2], whereBounds[i * 5 + 3]);
+            int termStart = whereClauseBuffer.length();
+
+            appendToken(whereClauseBuffer, parsedStatement.substring(whereBounds[i * 5], whereBounds[i * 5 + 1]));
+            appendToken(whereClauseBuffer, "=");
+            appendToken(whereClauseBuffer, columnValue);
+            appendToken(whereClauseForJoinToSelectBuffer, column.getRepresentation());
+
+            if (isModified(column)) {
+                // e.g. in an "update table set x = newValue, where x = oldValue" use the newValue for the whereClauseForJoinToSelect
+                String newColumnValue = (String) columnValueMap.get(column);
+                if (newColumnValue.equalsIgnoreCase("NULL")) {
+                    insertSpace(whereClauseForJoinToSelectBuffer, "IS");
+                    whereClauseForJoinToSelectBuffer.append("IS NULL");
+                    joinToSelectColumnValues.put(column, null);
+                } else {
+                    appendToken(whereClauseForJoinToSelectBuffer, "=");
+                    appendToken(whereClauseForJoinToSelectBuffer, newColumnValue);
+                    joinToSelectColumnValues.put(column, newColumnValue);
+                }
+            } else {
+                appendToken(whereClauseForJoinToSelectBuffer, "=");
+                appendToken(whereClauseForJoinToSelectBuffer, columnValue);
+                joinToSelectColumnValues.put(column, columnValue);
+            }
+
+            int and = whereBounds[i * 5 + 4];
+            if (and != -1) {
+                String andToken = parsedStatement.substring(and, and + 3);
+                appendToken(whereClauseBuffer, andToken);
+                appendToken(whereClauseForJoinToSelectBuffer, andToken);
+            }
+
+            if (isModified(column)) {
+                whereClauseBuffer.setLength(termStart);
+            } else {
+                columnsValues.put(column, columnValue);
+            }
+        }
+
+        for (Iterator iterator = columnsValues.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry entry = (Map.Entry) iterator.next();
+            addColumnValue((Column) entry.getKey(), (String) entry.getValue());
+            addWhereClauseColumnValue((Column) entry.getKey(), (String) entry.getValue());
+        }
+
+        whereClause = whereClauseBuffer.toString();
+        whereClauseForJoinToSelect = whereClauseForJoinToSelectBuffer.toString();
+        joinToSelectColumnValueMap = joinToSelectColumnValues;
+    }
+
     public Object clone() {
+        render();
         SQL newSQL = new SQL();
         newSQL.valid = valid;
         newSQL.statement = statement;
@@ -256,6 +426,7 @@ public class SQL {
         if (columnValueMap != null) newSQL.columnValueMap = (Map) ((HashMap) columnValueMap).clone();
         if (aliasedTables != null) newSQL.aliasedTables = (Map) ((HashMap) aliasedTables).clone();
         if (whereClauseColumnValueMap != null) newSQL.whereClauseColumnValueMap = (Map) ((HashMap) whereClauseColumnValueMap).clone();
+        if (joinToSelectColumnValueMap != null) newSQL.joinToSelectColumnValueMap = (Map) ((LinkedHashMap) joinToSelectColumnValueMap).clone();
         return newSQL;
     }
 
@@ -589,21 +760,28 @@ public class SQL {
             parseSelect();
             tables = tablesTemp;
             if (columnsTemp != null) columns = columnsTemp; // if columnsTemp is null we are relying on columns from select
+            joinToSelectColumnValueMap = null; // the where clause belongs to the select, not to the inserted rows
         } else {
             // Create where clause from data in VALUES clause
-            StringBuffer whereClauseBuffer = new StringBuffer(100);
-            Column[] keyColumns = table.getPrimaryKey();
-            for (int i = 0; i < keyColumns.length; i++) {
-                if (i > 0) whereClauseBuffer.append(" AND ");
-                Column keyColumn = keyColumns[i];
-                String columnValue = getColumnValue(keyColumn);
-                addWhereClauseColumnValue(keyColumn, columnValue);
-                whereClauseBuffer.append(keyColumn.getRepresentation()).append("=").append(columnValue);
-            }
-            whereClause = whereClauseBuffer.toString();
+            createWhereClauseFromKeyValues(table.getPrimaryKey());
         }
     }
 
+    private void createWhereClauseFromKeyValues(Column[] keyColumns) {
+        StringBuffer whereClauseBuffer = new StringBuffer(100);
+        joinToSelectColumnValueMap = new LinkedHashMap();
+        for (int i = 0; i < keyColumns.length; i++) {
+            if (i > 0) whereClauseBuffer.append(" AND ");
+            Column keyColumn = keyColumns[i];
+            if (columnValueMap == null || !columnValueMap.containsKey(keyColumn)) throw new RuntimeException("Column: " + keyColumn + " does not exist in sql statement: " + statement);
+            String columnValue = (String) columnValueMap.get(keyColumn);
+            addWhereClauseColumnValue(keyColumn, columnValue);
+            joinToSelectColumnValueMap.put(keyColumn, columnValue);
+            whereClauseBuffer.append(keyColumn.getRepresentation()).append("=").append(columnValue);
+        }
+        whereClause = whereClauseBuffer.toString();
+    }
+
     private void parseUpdate() {
         String token = tokens[++position];
 
@@ -749,9 +927,11 @@ public class SQL {
         boolean buildPrimaryKey = (getOperationType() == INSERT || getOperationType() == UPDATE || getOperationType() == DELETE);
         StringBuffer whereClauseForJoinToSelectBuffer = null;
         Map columnsValues = null;
+        Map joinToSelectColumnValues = null;
 
         if (buildPrimaryKey) {
             columnsValues = new HashMap();
+            joinToSelectColumnValues = new LinkedHashMap();
             whereClauseForJoinToSelectBuffer = new StringBuffer(statement.length() / 2);
         }
 
@@ -761,7 +941,7 @@ public class SQL {
             // fail if any other keyword
             if (isKeyword(token)) fail();
             if (buildPrimaryKey) {
-                int newPosition = parseWhereClauseKeyValue(position, whereClauseBuffer, whereClauseForJoinToSelectBuffer, columnsValues);
+                int newPosition = parseWhereClauseKeyValue(position, whereClauseBuffer, whereClauseForJoinToSelectBuffer, columnsValues, joinToSelectColumnValues);
                 if (!valid) return;
                 if (newPosition == -1) {
                     //this where clause does not contain a primary key definition and parseWhereClauseKeyValue did nothing
@@ -796,6 +976,7 @@ public class SQL {
             }
 
             whereClauseForJoinToSelect = whereClauseForJoinToSelectBuffer.toString();
+            joinToSelectColumnValueMap = joinToSelectColumnValues;
         }
 
         whereClause = whereClauseBuffer.toString();
@@ -814,9 +995,10 @@ public class SQL {
      * if any deviation is found then return "position" as it was passed to us
      * else return min( position+(length of successfully parsed statement), total number of tokens )
      * <p/>
-     * it also accumulates parsed tokens into the provided string buffer
+     * it also accumulates parsed tokens into the provided string buffer, and the value each column is compared
+     * with in the whereClauseForJoinToSelect into joinToSelectColumnValues (null where the comparison is not "=")
      */
-    private int parseWhereClauseKeyValue(int originalPosition, StringBuffer whereClauseAccumulator, StringBuffer whereClauseForJoinToSelectAccumulator, Map columnValues) {
+    private int parseWhereClauseKeyValue(int originalPosition, StringBuffer whereClauseAccumulator, StringBuffer whereClauseForJoinToSelectAccumulator, Map columnValues, Map joinToSelectColumnValues) {
         int originalWhereClauseAccumulatorLength = whereClauseAccumulator.length();
         int originalWhereClauseForJoinToSelectAccumulatorLength = whereClauseForJoinToSelectAccumulator.length();
         int currentPosition = originalPosition;
@@ -864,17 +1046,20 @@ public class SQL {
                         if (newColumnValue.equalsIgnoreCase("NULL")) {
                             insertSpace(whereClauseForJoinToSelectAccumulator, "IS");
                             whereClauseForJoinToSelectAccumulator.append("IS NULL");
+                            joinToSelectColumnValues.put(column, null);
                         } else {
                             insertSpace(whereClauseForJoinToSelectAccumulator, "=");
                             whereClauseForJoinToSelectAccumulator.append("=");
                             insertSpace(whereClauseForJoinToSelectAccumulator, newColumnValue);
                             whereClauseForJoinToSelectAccumulator.append(newColumnValue);
+                            joinToSelectColumnValues.put(column, newColumnValue);
                         }
                     } else {
                         insertSpace(whereClauseForJoinToSelectAccumulator, operator);
                         whereClauseForJoinToSelectAccumulator.append(operator);
                         insertSpace(whereClauseForJoinToSelectAccumulator, columnValue);
                         whereClauseForJoinToSelectAccumulator.append(columnValue);
+                        joinToSelectColumnValues.put(column, operator.equals("=") ? columnValue : null);
                     }
 
                     foundKeyValuePair = true;
@@ -958,10 +1143,12 @@ public class SQL {
     }
 
     public boolean hasColumnValue(Column column) {
+        render();
         return columnValueMap != null && columnValueMap.containsKey(column);
     }
 
     public String getColumnValue(Column column) {
+        render();
         if (columnValueMap == null || !columnValueMap.containsKey(column)) throw new RuntimeException("Column: " + column + " does not exist in sql statement: " + this);
         return (String) getColumnValueMap().get(column);
     }
@@ -1015,10 +1202,12 @@ public class SQL {
     }
 
     public String getWhereClause() {
+        render();
         return whereClause;
     }
 
     public String getWhereClauseForJoinToSelect() {
+        render();
         if (whereClauseForJoinToSelect != null) {
             return whereClauseForJoinToSelect;
         } else {
@@ -1026,6 +1215,20 @@ public class SQL {
         }
     }
 
+    /**
+     * Returns the columns and values of getWhereClauseForJoinToSelect, where it is made up entirely of
+     * "column = value" terms, otherwise null.  Used to combine the re-selects of several notifications into one statement.
+     */
+    public Map getJoinToSelectColumnValues() {
+        render();
+        if (joinToSelectColumnValueMap == null || joinToSelectColumnValueMap.size() == 0) return null;
+        for (Iterator iterator = joinToSelectColumnValueMap.values().iterator(); iterator.hasNext();) {
+            String columnValue = (String) iterator.next();
+            if (columnValue == null || columnValue.equalsIgnoreCase("NULL")) return null;
+        }
+        return joinToSelectColumnValueMap;
+    }
+
     public String getOrderByClause() {
         return orderByClause;
     }
@@ -1043,10 +1246,12 @@ public class SQL {
     }
 
     public String getStatementString() {
+        render();
         return statement;
     }
 
     public String joinWhereClause(String otherWhereClause, String operator) {
+        render();
         if (otherWhereClause == null || otherWhereClause.length() == 0) {
             return this.getStatementString();
         } else {
@@ -1309,6 +1514,30 @@ public class SQL {
         return new SQL(selectCountStatementBuffer.toString(), dataSourceName);
     }
 
+    /**
+     * Returns a statement selecting the number of rows, and the smallest and largest values of column, as NUMBEROFROWS,
+     * MINIMUMVALUE and MAXIMUMVALUE.
+     */
+    public SQL getSelectRangeStatement(Column column) {
+        StringBuffer selectRangeStatementBuffer = new StringBuffer(statement.length());
+        String columnRepresentation = column.getRepresentation();
+        selectRangeStatementBuffer.append("SELECT count(").append(columnRepresentation).append(") as NUMBEROFROWS, min(")
+                .append(columnRepresentation).append(") as MINIMUMVALUE, max(").append(columnRepresentation).append(") as MAXIMUMVALUE FROM ");
+
+        for (int i = 0; i < tables.length; i++) {
+            CatalogSchemaTable table = tables[i];
+            if (i > 0) selectRangeStatementBuffer.append(", ");
+            selectRangeStatementBuffer.append(table.getTableRepresentation());
+        }
+
+        if (whereClause != null) {
+            selectRangeStatementBuffer.append(" WHERE ");
+            selectRangeStatementBuffer.append(whereClause);
+        }
+
+        return new SQL(selectRangeStatementBuffer.toString(), dataSourceName);
+    }
+
     /**
      * Returns a String as SQL doesnt currently parse "SELECT .... INTO ...."
      *
@@ -1404,6 +1633,29 @@ public class SQL {
         return joinWhereClause(whereClauseBuffer.toString());
     }
 
+    /**
+     * As getSelectStatementForKeys(Column, Object[]), but also supports compound keys, each key being a List of key
+     * component values ordered as keyColumns.  Compound keys are selected with an OR of AND terms.
+     */
+    public SQL getSelectStatementForKeys(Column[] keyColumns, Object[] keys) {
+        if (keyColumns.length == 1) return getSelectStatementForKeys(keyColumns[0], keys);
+        if (keys == null || keys.length == 0) return this;
+
+        StringBuffer whereClauseBuffer = new StringBuffer(keys.length * keyColumns.length * 40);
+        for (int i = 0; i < keys.length; i++) {
+            List keyList = (List) keys[i];
+            if (i > 0) whereClauseBuffer.append(" OR ");
+            whereClauseBuffer.append("(");
+            for (int j = 0; j < keyColumns.length; j++) {
+                if (j > 0) whereClauseBuffer.append(" AND ");
+                whereClauseBuffer.append(keyColumns[j].getRepresentation()).append(" = ").append(getSqlFormatter().format(keyList.get(j)));
+            }
+            whereClauseBuffer.append(")");
+        }
+
+        return joinWhereClause(whereClauseBuffer.toString());
+    }
+
     public boolean tablesMatch(SQL incoming) {
         return Utilities.contains(tables, incoming.getTables()[0]);
     }
@@ -1418,10 +1670,11 @@ public class SQL {
     }
 
     public String toString() {
-        return statement;
+        return getStatementString();
     }
 
     public void debug() {
+        render();
         if (log.isDebug()) log.debug("");
         if (log.isDebug()) log.debug("Statement: " + this.statement);
         if (log.isDebug()) log.debug("Operation: " + this.getOperation());
@@ -1464,11 +1717,11 @@ public class SQL {
     }
 
     public boolean equals(Object object) {
-        return statement.equals(object);
+        return getStatementString().equals(object);
     }
 
     public int hashCode() {
-        return statement.hashCode();
+        return getStatementString().hashCode();
     }
 
     /**
@@ -1499,6 +1752,11 @@ public class SQL {
         return "";
     }
 
+    private static void appendToken(StringBuffer buffer, String token) {
+        insertSpace(buffer, token);
+        buffer.append(token);
+    }
+
     private static void insertSpace(StringBuffer buffer, String token) {
         if (buffer.length() == 0) return;
         if (token.equals("(") && isFunction(buffer)) return; // not order of if statement is useful performance optimisation, as isFunction is slow
@@ -1530,7 +1788,7 @@ public class SQL {
         return false;
     }
 
-    private static boolean isKeyword(String token) {
+    static boolean isKeyword(String token) {
         return keywordsSet.contains(token.toUpperCase());
     }
 
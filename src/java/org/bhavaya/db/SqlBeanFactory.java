@@ -52,6 +52,12 @@ import java.lang.reflect.Array;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Loads beans from the database.
@@ -80,7 +86,14 @@ public class SqlBeanFactory extends TabularDataBeanFactory {
         });
     }
 
+    private static final String BULK_LOAD_THREADS_PROPERTY = "bulkLoadThreads";
+    private static final String PARTITIONED_LOAD_ROWS_PROPERTY = "partitionedLoadRows";
+
     private static NotificationSubjectGroup[] notificationSubjectGroups;
+    private static int bulkLoadThreads = -1;
+    private static int partitionedLoadRows = -1;
+    private static ExecutorService bulkLoadExecutor;
+    private static ExecutorService bulkLoadDriverExecutor;
 
     private SQL beanSelectStatement;
     private Set sqlExecuted = new HashSet();
@@ -243,6 +256,88 @@ public class SqlBeanFactory extends TabularDataBeanFactory {
         return getObjects(criteria.getSQL(getType()));
     }
 
+    /**
+     * Loads the beans for criterionGroup in parts if isLoadedInParts and the criteria select more than twice
+     * beanFactory.partitionedLoadRows rows, otherwise as getObjects(criterionGroup, loadProgressMonitor).
+     * The rows are split into ranges of the primary key, and each range is inflated and its beans passed to
+     * partLoadListener in turn.  If the datasource is a ConnectionPoolDataSource, up to beanFactory.bulkLoadThreads
+     * ranges are selected at a time, each on its own connection from the pool, and a range is inflated as soon as its
+     * select completes while the remaining selects execute.  Other datasources share one connection, so the ranges
+     * are selected one after another.  loadProgressMonitor, which may be null, has its maximum set to the number of
+     * rows and its value to the number of rows inflated so far.
+     */
+    public Object[] getObjects(CriterionGroup criterionGroup, LoadProgressMonitor loadProgressMonitor, PartLoadListener partLoadListener) {
+        if (!isLoadedInParts()) return super.getObjects(criterionGroup, loadProgressMonitor, partLoadListener);
+
+        synchronized (loadedCriterionGroups) {
+            loadedCriterionGroups.add(criterionGroup);
+        }
+        if (criterionGroupSqlOptimiser != null) {
+            criterionGroup.setCriterionGroupSQLOptimiser(criterionGroupSqlOptimiser);
+        }
+
+        SQL selectStatement = criterionGroup.getSQL(getType());
+        PartitionedLoader partitionedLoader = createPartitionedLoader(selectStatement, loadProgressMonitor, partLoadListener);
+        if (partitionedLoader == null) return getObjects(criterionGroup, loadProgressMonitor);
+
+        try {
+            return partitionedLoader.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns true if beanFactory.partitionedLoadRows is set, beanFactory.bulkLoadThreads is greater than one and
+     * the beans have a single numeric primary key column to split the rows by.
+     */
+    public boolean isLoadedInParts() {
+        if (getPartitionedLoadRows() <= 0 || getBulkLoadThreads() <= 1 || primaryKeyColumns.length != 1) return false;
+        Class keyType = primaryKeyColumns[0].getType();
+        return keyType != null && Number.class.isAssignableFrom(ClassUtilities.typeToClass(keyType));
+    }
+
+    private PartitionedLoader createPartitionedLoader(SQL selectStatement, LoadProgressMonitor loadProgressMonitor, PartLoadListener partLoadListener) {
+        // grouped rows cannot be split by key
+        if (selectStatement.getGroupByClause() != null || selectStatement.getHavingClause() != null) return null;
+
+        Column keyColumn = primaryKeyColumns[0];
+        SQL rangeSql = selectStatement.getSelectRangeStatement(keyColumn);
+        Object record = DBUtilities.execute(getDataSourceName(), rangeSql.getStatementString()).iterator().next();
+        Number rowCount = (Number) Generic.get(record, "NUMBEROFROWS");
+        Number minimumKey = (Number) Generic.get(record, "MINIMUMVALUE");
+        Number maximumKey = (Number) Generic.get(record, "MAXIMUMVALUE");
+        if (rowCount == null || minimumKey == null || maximumKey == null) return null;
+
+        int rowsPerPartition = getPartitionedLoadRows();
+        if (rowCount.intValue() < rowsPerPartition * 2) return null;
+
+        long minimum = (long) Math.floor(minimumKey.doubleValue());
+        long maximum = (long) Math.ceil(maximumKey.doubleValue());
+        int partitionCount = (int) Math.min((rowCount.intValue() + rowsPerPartition - 1) / rowsPerPartition, maximum - minimum + 1);
+        if (partitionCount < 2) return null;
+
+        // the first and last ranges are open, so rows outside the sampled key range are still loaded
+        List partitionSelects = new ArrayList(partitionCount);
+        String keyRepresentation = keyColumn.getRepresentation();
+        double rangeWidth = (double) (maximum - minimum + 1) / partitionCount;
+        long lowerBound = minimum;
+        for (int i = 0; i < partitionCount; i++) {
+            long upperBound = i == partitionCount - 1 ? maximum + 1 : minimum + (long) Math.ceil(rangeWidth * (i + 1));
+            StringBuffer whereClause = new StringBuffer();
+            if (i > 0) whereClause.append(keyRepresentation).append(" >= ").append(lowerBound);
+            if (i > 0 && i < partitionCount - 1) whereClause.append(" AND ");
+            if (i < partitionCount - 1) whereClause.append(keyRepresentation).append(" < ").append(upperBound);
+            partitionSelects.add(new ChunkSelect(selectStatement.joinWhereClause(whereClause.toString()), 0));
+            lowerBound = upperBound;
+        }
+
+        log.info(logPrefix + "loading " + rowCount + " rows in " + partitionCount + " parts for sql: " + selectStatement.getStatementString());
+        return new PartitionedLoader(partitionSelects, rowCount.intValue(), loadProgressMonitor, partLoadListener);
+    }
+
     public Object[] getObjects(SQL selectStatement) {
         TabularDataToBeanFactoryTransformer transformer = load(selectStatement, true, null, null);
         Collection beans = transformer.getBeans();
@@ -251,47 +346,71 @@ public class SqlBeanFactory extends TabularDataBeanFactory {
         return beans.toArray(array);
     }
 
+    /**
+     * Returns the beans for keys, in the order of keys, loading those that are not already in the store,
+     * DBUtilities.MAX_ELEMENTS_FOR_IN_STATEMENT keys per select.  Compound keys are supported.  See getObjectsAsync.
+     * <p/>
+     * Keys already in the store, including keys known not to exist, are not selected again.
+     */
     public Object[] getObjects(Object[] keys, String indexName) {
         if (keys == null) return null;
-        Column[] keyColumns = getKeyColumns(indexName);
-        if (keyColumns.length != 1) return super.getObjects(keys, indexName);
+        BulkLoad bulkLoad = createBulkLoad(keys, indexName, getLoadProgressMonitor());
+        bulkLoad.run();
+        return bulkLoad.getObjects();
+    }
 
-        List objects = new ArrayList(keys.length);
-        SQL sql = getSchema().getSql();
+    /**
+     * As getObjects(keys, indexName), but returns immediately, the beans being loaded on a background thread.
+     * If the datasource is a ConnectionPoolDataSource and beanFactory.bulkLoadThreads is greater than one, that many
+     * selects are executed concurrently, each on its own connection from the pool, and each result set is inflated as
+     * soon as it arrives while the remaining selects execute.  Other datasources share one connection, so the selects
+     * are executed one after another.
+     * loadProgressMonitor, which may be null, has its maximum set to the number of keys to load and its value to
+     * the number loaded so far.
+     * Cancelling the BulkLoad interrupts the load between selects, beans already loaded stay loaded.
+     */
+    public BulkLoad getObjectsAsync(Object[] keys, String indexName, LoadProgressMonitor loadProgressMonitor) {
+        BulkLoad bulkLoad = createBulkLoad(keys, indexName, loadProgressMonitor);
+        getBulkLoadDriverExecutor().execute(bulkLoad);
+        return bulkLoad;
+    }
 
-        if (keyColumns.length == 1 && keys.length < DBUtilities.MAX_ELEMENTS_FOR_IN_STATEMENT) {
-            sql = sql.getSelectStatementForKeys(keyColumns[0], keys);
-        } else {
-            String temporaryTable;
-            try {
-                temporaryTable = DBUtilities.createTemporaryTable(getDataSourceName(), getPrimaryKeyColumns(), keys, true);
-            } catch (Exception e) {
-                log.error(e);
-                throw new RuntimeException(e);
-            }
-            StringBuffer whereClauseBuffer = new StringBuffer();
-            for (int i = 0; i < keyColumns.length; i++) {
-                if (i > 0) whereClauseBuffer.append(" AND ");
-                whereClauseBuffer.append(keyColumns[i].getRepresentation()).append(" = ").append(temporaryTable).append(".").append(keyColumns[i].getName());
-            }
-            sql = sql.joinWhereClause(whereClauseBuffer.toString(), new CatalogSchemaTable[]{new CatalogSchemaTable(null, temporaryTable, temporaryTable)});
+    private BulkLoad createBulkLoad(Object[] keys, String indexName, LoadProgressMonitor loadProgressMonitor) {
+        BulkLoader bulkLoader = new BulkLoader(keys, indexName, loadProgressMonitor);
+        bulkLoader.bulkLoad = new BulkLoad(bulkLoader);
+        return bulkLoader.bulkLoad;
+    }
+
+    private static synchronized int getBulkLoadThreads() {
+        if (bulkLoadThreads == -1) {
+            PropertyGroup beanFactoryProperties = ApplicationProperties.getApplicationProperties().getGroup("beanFactory");
+            Number threads = beanFactoryProperties != null ? beanFactoryProperties.getNumericProperty(BULK_LOAD_THREADS_PROPERTY) : null;
+            bulkLoadThreads = threads != null ? Math.max(threads.intValue(), 1) : 1;
         }
+        return bulkLoadThreads;
+    }
 
-        for (int i = 0; i < keys.length; i++) {
-            Object key = keys[i];
-            Object object = get(key, indexName, sql);
-            if (object != null) {
-                if (object instanceof Collection) {
-                    objects.addAll((Collection) object);
-                } else {
-                    objects.add(object);
-                }
-            }
+    private static synchronized int getPartitionedLoadRows() {
+        if (partitionedLoadRows == -1) {
+            PropertyGroup beanFactoryProperties = ApplicationProperties.getApplicationProperties().getGroup("beanFactory");
+            Number rows = beanFactoryProperties != null ? beanFactoryProperties.getNumericProperty(PARTITIONED_LOAD_ROWS_PROPERTY) : null;
+            partitionedLoadRows = rows != null ? Math.max(rows.intValue(), 0) : 0;
         }
+        return partitionedLoadRows;
+    }
 
-        Object[] array = (Object[]) Array.newInstance(getSchema().getType(), // this returns the non-generated type
-                objects.size());
-        return objects.toArray(array);
+    private static synchronized ExecutorService getBulkLoadExecutor() {
+        if (bulkLoadExecutor == null) {
+            bulkLoadExecutor = NamedExecutors.newFixedThreadPool("BulkLoadSelects", getBulkLoadThreads(), NamedExecutors.DAEMON_THREAD_CONFIGURER);
+        }
+        return bulkLoadExecutor;
+    }
+
+    private static synchronized ExecutorService getBulkLoadDriverExecutor() {
+        if (bulkLoadDriverExecutor == null) {
+            bulkLoadDriverExecutor = NamedExecutors.newCachedThreadPool("BulkLoads", NamedExecutors.DAEMON_THREAD_CONFIGURER);
+        }
+        return bulkLoadDriverExecutor;
     }
 
     /**
@@ -351,11 +470,16 @@ public class SqlBeanFactory extends TabularDataBeanFactory {
         return new SqlTabularDataToBeanFactoryTransformer(this, tabularData, cachedColumnValues, selectStatement, tabularDataSQL, parentSQL, joinsToParent);
     }
 
+    private TabularDataToBeanFactoryTransformer load(SQL selectStatement, boolean returnExactRows, SQL parentSQL, Join[] joinsToParent) {
+        return load(selectStatement, returnExactRows, null, parentSQL, joinsToParent);
+    }
+
     /**
      * Populates the BeanFactory with the set of beans identified by selectStatement.
      * If beanCollection is not null, it is also populated with the set of beans identified by selectStatement.
+     * If executedTabularData is not null, it is the result of already executing selectStatement, it is inflated and closed.
      */
-    private TabularDataToBeanFactoryTransformer load(SQL selectStatement, boolean returnExactRows, SQL parentSQL, Join[] joinsToParent) {
+    private TabularDataToBeanFactoryTransformer load(SQL selectStatement, boolean returnExactRows, TabularData executedTabularData, SQL parentSQL, Join[] joinsToParent) {
 //        ApplicationContext.productionAssert( ! SwingUtilities.isEventDispatchThread(), "Trying to track down blocking on AWT queue");
         TabularDataToBeanFactoryTransformer transformer = null;
         TabularData tabularData = null;
@@ -363,19 +487,25 @@ public class SqlBeanFactory extends TabularDataBeanFactory {
         pushBeanFactoryLoadStack(this);
         Profiler.Task sqlTask = null;
         try {
-            SQL sqlToExecute = optimiseSql(selectStatement, returnExactRows);
+            SQL sqlToExecute = executedTabularData != null ? selectStatement : optimiseSql(selectStatement, returnExactRows);
             if (sqlToExecute == null) return null;
             String statementString = sqlToExecute.getStatementString();
 
             sqlTask = Profiler.taskStarted(Profiler.SQL, statementString);
 
+            long lockRequestNanos = System.nanoTime();
             synchronized (getLock()) {
+                lockAcquired(lockRequestNanos);
                 Profiler.Task firstPassInflate = null;
                 try {
                     log.info(logPrefix + "executing sql: " + statementString);
                     long startTime = System.currentTimeMillis();
-                    Connection connection = getConnectionForSql();
-                    tabularData = new ResultSetTabularData(getDataSourceName(), connection, sqlToExecute.getStatementString(), TabularData.ROW_TYPE_SELECT, null);
+                    if (executedTabularData != null) {
+                        tabularData = executedTabularData;
+                    } else {
+                        Connection connection = getConnectionForSql();
+                        tabularData = new ResultSetTabularData(getDataSourceName(), connection, sqlToExecute.getStatementString(), TabularData.ROW_TYPE_SELECT, null);
+                    }
                     transformer = createTransformer(tabularData, null, selectStatement, sqlToExecute, parentSQL, joinsToParent);
                     firstPassInflate = Profiler.taskStarted(Profiler.SQL_INFLATE, "firstPassInflate");
                     transformer.firstPassInflate();
@@ -409,6 +539,7 @@ public class SqlBeanFactory extends TabularDataBeanFactory {
             throw new RuntimeException(e);
         } finally {
             if (transformer != null) transformer.removeFromPartiallyInflatedMap();
+            if (executedTabularData != null) executedTabularData.close();
             popBeanFactoryLoadStack(this);
             if (sqlTask != null) Profiler.taskStopped(sqlTask);
         }
@@ -420,6 +551,15 @@ public class SqlBeanFactory extends TabularDataBeanFactory {
         return DataSourceFactory.getInstance(getDataSourceName()).getConnection();
     }
 
+    /**
+     * @return the number of the selects to execute at a time, more than one only if the datasource gives each its own
+     *         connection, as the result sets of concurrent selects on a shared connection are not safe to stream
+     */
+    private int getSelectThreads(int selects) {
+        if (!(DataSourceFactory.getInstance(getDataSourceName()) instanceof ConnectionPoolDataSource)) return 1;
+        return Math.min(getBulkLoadThreads(), selects);
+    }
+
     private void addSqlExecuted(SQL sqlToExecute) {
         synchronized (sqlExecuted) {
             sqlExecuted.add(sqlToExecute.getStatementString());
@@ -444,7 +584,7 @@ public class SqlBeanFactory extends TabularDataBeanFactory {
     private SQL optimiseSql(SQL sql, boolean returnExactRows) {
         if (!returnExactRows) {
             // if the data is non-volatile and is a small amount, then just get it all
-            if (getSchema().getDataVolatility().equals(Schema.LOW) && getSchema().getDataQuantity().equals(Schema.LOW)) {
+            if (isLoadAll()) {
                 sql = beanSelectStatement;
             }
 
@@ -457,6 +597,10 @@ public class SqlBeanFactory extends TabularDataBeanFactory {
         return sql;
     }
 
+    private boolean isLoadAll() {
+        return getSchema().getDataVolatility().equals(Schema.LOW) && getSchema().getDataQuantity().equals(Schema.LOW);
+    }
+
     private void clearSqlExecuted() {
         synchronized (sqlExecuted) {
             sqlExecuted.clear();
@@ -476,6 +620,248 @@ public class SqlBeanFactory extends TabularDataBeanFactory {
         clearAllBeanFactories(datasourceName, SqlBeanFactory.class, false, true);
     }
 
+    /**
+     * Executes a list of ChunkSelects and inflates their results in turn on the calling thread.  With more than one
+     * thread, up to threads selects execute at a time on the bulk load executor, each on its own connection from the
+     * datasource, see getSelectThreads.
+     */
+    private abstract class ChunkedLoader {
+        protected void loadChunks(List chunkSelects, int threads) throws Exception {
+            if (threads > 1) {
+                loadConcurrently(chunkSelects, threads);
+            } else {
+                loadSerially(chunkSelects);
+            }
+        }
+
+        private void loadSerially(List chunkSelects) throws InterruptedException {
+            for (int i = 0; i < chunkSelects.size(); i++) {
+                if (Thread.interrupted()) throw new InterruptedException();
+                ChunkSelect chunkSelect = (ChunkSelect) chunkSelects.get(i);
+                chunkLoaded(chunkSelect, load(chunkSelect.sql, true, null, null));
+            }
+        }
+
+        /**
+         * Keeps up to threads selects executing, inflating each in the order they complete.  The next select is
+         * submitted before inflating, so the database is working on it meanwhile.
+         */
+        private void loadConcurrently(List chunkSelects, int threads) throws Exception {
+            CompletionService completionService = new ExecutorCompletionService(getBulkLoadExecutor());
+            Set pending = new HashSet();
+            int next = 0;
+            try {
+                for (; next < threads; next++) {
+                    pending.add(completionService.submit((ChunkSelect) chunkSelects.get(next)));
+                }
+                while (pending.size() > 0) {
+                    Future future = completionService.take();
+                    pending.remove(future);
+                    ChunkSelect chunkSelect = (ChunkSelect) getResult(future);
+                    if (next < chunkSelects.size()) {
+                        pending.add(completionService.submit((ChunkSelect) chunkSelects.get(next++)));
+                    }
+                    chunkLoaded(chunkSelect, load(chunkSelect.sql, true, chunkSelect.tabularData, null, null));
+                }
+            } finally {
+                // on failure or cancellation, wait for the selects already running and release their result sets
+                for (Iterator iterator = pending.iterator(); iterator.hasNext();) {
+                    try {
+                        ((ChunkSelect) getResult((Future) iterator.next())).tabularData.close();
+                    } catch (Exception e) {
+                        log.warn(logPrefix + "error during abandoned bulk load select", e);
+                    }
+                }
+            }
+        }
+
+        private Object getResult(Future future) throws Exception {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+
+        protected abstract void chunkLoaded(ChunkSelect chunkSelect, TabularDataToBeanFactoryTransformer transformer);
+    }
+
+    /**
+     * Loads the beans for a set of keys, see getObjectsAsync.  The thread running the load pushes this BeanFactory
+     * on the load stack once for the whole load and inflates each select in turn, only the selects themselves run
+     * on the bulk load executor.
+     */
+    private class BulkLoader extends ChunkedLoader implements Callable {
+        private Object[] keys;
+        private String indexName;
+        private LoadProgressMonitor loadProgressMonitor;
+        private BulkLoad bulkLoad;
+
+        public BulkLoader(Object[] keys, String indexName, LoadProgressMonitor loadProgressMonitor) {
+            this.keys = keys;
+            this.indexName = indexName;
+            this.loadProgressMonitor = loadProgressMonitor;
+        }
+
+        public Object call() throws Exception {
+            Association store = getStore(indexName);
+            if (store == null) throw new RuntimeException(logPrefix + "Could not find store for index: " + indexName);
+
+            // progress is reported per key here, rather than per row by each select's first pass
+            LoadProgressMonitor threadLoadProgressMonitor = getLoadProgressMonitor();
+            setLoadProgressMonitor(null);
+            if (loadProgressMonitor != null) loadProgressMonitor.loadingStackPush(SqlBeanFactory.this);
+            pushBeanFactoryLoadStack(SqlBeanFactory.this);
+            try {
+                List keysToLoad = getKeysToLoad(store);
+                bulkLoad.setKeyCount(keysToLoad.size());
+                if (loadProgressMonitor != null) loadProgressMonitor.setRangeProperties(0, 0, 0, keysToLoad.size(), false);
+
+                if (keysToLoad.size() > 0) {
+                    if (isLoadAll()) {
+                        load(beanSelectStatement, false, null, null);
+                        keysLoaded(keysToLoad.size());
+                    } else {
+                        List chunkSelects = getChunkSelects(keysToLoad);
+                        loadChunks(chunkSelects, getSelectThreads(chunkSelects.size()));
+                    }
+                }
+
+                return getLoadedObjects(store);
+            } finally {
+                popBeanFactoryLoadStack(SqlBeanFactory.this);
+                if (loadProgressMonitor != null) loadProgressMonitor.loadingStackPop();
+                setLoadProgressMonitor(threadLoadProgressMonitor);
+            }
+        }
+
+        private List getKeysToLoad(Association store) {
+            Set keysToLoad = new LinkedHashSet();
+            for (int i = 0; i < keys.length; i++) {
+                Object key = keys[i];
+                if (key != null && store.get(key) == null && !store.containsKey(key)) keysToLoad.add(key);
+            }
+            return new ArrayList(keysToLoad);
+        }
+
+        private List getChunkSelects(List keysToLoad) {
+            Column[] keyColumns = getKeyColumns(indexName);
+            int chunkSize = DBUtilities.MAX_ELEMENTS_FOR_IN_STATEMENT;
+            List chunkSelects = new ArrayList(keysToLoad.size() / chunkSize + 1);
+            for (int i = 0; i < keysToLoad.size(); i += chunkSize) {
+                Object[] chunkKeys = keysToLoad.subList(i, Math.min(i + chunkSize, keysToLoad.size())).toArray();
+                chunkSelects.add(new ChunkSelect(beanSelectStatement.getSelectStatementForKeys(keyColumns, chunkKeys), chunkKeys.length));
+            }
+            return chunkSelects;
+        }
+
+        protected void chunkLoaded(ChunkSelect chunkSelect, TabularDataToBeanFactoryTransformer transformer) {
+            keysLoaded(chunkSelect.keyCount);
+        }
+
+        private void keysLoaded(int keyCount) {
+            int loadedKeyCount = bulkLoad.getLoadedKeyCount() + keyCount;
+            bulkLoad.setLoadedKeyCount(loadedKeyCount);
+            if (loadProgressMonitor != null) loadProgressMonitor.setValue(loadedKeyCount);
+        }
+
+        private Object[] getLoadedObjects(Association store) {
+            List objects = new ArrayList(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                Object key = keys[i];
+                if (key == null) continue;
+                Object object = store.get(key);
+                if (object == null && !store.containsKey(key)) {
+                    object = putNullKey(key, indexName, store);
+                }
+                waitForBeanToInflate(object);
+                if (object != null) {
+                    if (object instanceof Collection) {
+                        objects.addAll((Collection) object);
+                    } else {
+                        objects.add(object);
+                    }
+                }
+            }
+
+            Object[] array = (Object[]) Array.newInstance(getSchema().getType(), // this returns the non-generated type
+                    objects.size());
+            return objects.toArray(array);
+        }
+    }
+
+    /**
+     * Loads the rows of a select in parts, see getObjects(CriterionGroup, LoadProgressMonitor, PartLoadListener).
+     */
+    private class PartitionedLoader extends ChunkedLoader implements Callable {
+        private List partitionSelects;
+        private int rowCount;
+        private LoadProgressMonitor loadProgressMonitor;
+        private PartLoadListener partLoadListener;
+        private List beans;
+
+        public PartitionedLoader(List partitionSelects, int rowCount, LoadProgressMonitor loadProgressMonitor, PartLoadListener partLoadListener) {
+            this.partitionSelects = partitionSelects;
+            this.rowCount = rowCount;
+            this.loadProgressMonitor = loadProgressMonitor;
+            this.partLoadListener = partLoadListener;
+            this.beans = new ArrayList(rowCount);
+        }
+
+        public Object[] call() throws Exception {
+            // progress is reported per part here, rather than per row by each select's first pass
+            LoadProgressMonitor threadLoadProgressMonitor = getLoadProgressMonitor();
+            setLoadProgressMonitor(null);
+            if (loadProgressMonitor != null) {
+                loadProgressMonitor.loadingStackPush(SqlBeanFactory.this);
+                loadProgressMonitor.setRangeProperties(0, 0, 0, rowCount, false);
+            }
+            pushBeanFactoryLoadStack(SqlBeanFactory.this);
+            try {
+                loadChunks(partitionSelects, getSelectThreads(partitionSelects.size()));
+            } finally {
+                popBeanFactoryLoadStack(SqlBeanFactory.this);
+                if (loadProgressMonitor != null) loadProgressMonitor.loadingStackPop();
+                setLoadProgressMonitor(threadLoadProgressMonitor);
+            }
+
+            Class type = getSchema().getType(); // can't get the generated type, because beans contains subclass instances which do not extends the generated type
+            return beans.toArray((Object[]) Array.newInstance(type, beans.size()));
+        }
+
+        protected void chunkLoaded(ChunkSelect chunkSelect, TabularDataToBeanFactoryTransformer transformer) {
+            Collection partBeans = transformer.getBeans();
+            beans.addAll(partBeans);
+            if (loadProgressMonitor != null) loadProgressMonitor.setValue(Math.min(beans.size(), rowCount));
+            if (partLoadListener != null) {
+                Object[] partBeansArray = (Object[]) Array.newInstance(getSchema().getType(), partBeans.size());
+                partLoadListener.partLoaded(partBeans.toArray(partBeansArray));
+            }
+        }
+    }
+
+    /**
+     * One select of a bulk load, executed on the bulk load executor using its own connection from a pooling
+     * datasource.
+     */
+    private class ChunkSelect implements Callable {
+        private SQL sql;
+        private int keyCount;
+        private TabularData tabularData;
+
+        public ChunkSelect(SQL sql, int keyCount) {
+            this.sql = sql;
+            this.keyCount = keyCount;
+        }
+
+        public Object call() throws Exception {
+            String statementString = sql.getStatementString();
+            log.info(logPrefix + "executing bulk load sql: " + statementString);
+            tabularData = new ResultSetTabularData(getDataSourceName(), getConnectionForSql(), statementString, TabularData.ROW_TYPE_SELECT, null);
+            return this;
+        }
+    }
+
     protected static class SqlTabularDataToBeanFactoryTransformer extends TabularDataToBeanFactoryTransformer {
         private SqlBeanFactory beanFactory;
         private SQL selectStatement;
@@ -634,10 +1020,14 @@ public class SqlBeanFactory extends TabularDataBeanFactory {
     }
 
     private static class NotificationListener implements org.bhavaya.coms.NotificationListener {
+        private static final String NOTIFICATION_THREADS_PROPERTY = "notificationThreads";
+
         private Map beanFactoriesByTable;
         private SqlBeanFactory[] beanFactories;
         private Task refreshDataTask;
         private NotificationSubjectGroup notificationSubjectGroup;
+        private PartitionedExecutor notificationExecutor;
+        private Map partitionsByBeanFactory;
 
         public NotificationListener(NotificationSubjectGroup notificationSubjectGroup) {
             this.notificationSubjectGroup = notificationSubjectGroup;
@@ -645,6 +1035,13 @@ public class SqlBeanFactory extends TabularDataBeanFactory {
             refreshDataTask = new RefreshDataTask(notificationSubjectGroup.dataSourceName);
             Collection instancesForNonTxConnection = getInstances(notificationSubjectGroup.dataSourceName, SqlBeanFactory.class).values();
             beanFactories = (SqlBeanFactory[]) instancesForNonTxConnection.toArray(new SqlBeanFactory[instancesForNonTxConnection.size()]);
+
+            PropertyGroup beanFactoryProperties = ApplicationProperties.getApplicationProperties().getGroup("beanFactory");
+            Number notificationThreads = beanFactoryProperties != null ? beanFactoryProperties.getNumericProperty(NOTIFICATION_THREADS_PROPERTY) : null;
+            if (notificationThreads != null && notificationThreads.intValue() > 1) {
+                log.info("Processing notifications for " + notificationSubjectGroup.dataSourceName + " on " + notificationThreads.intValue() + " threads");
+                notificationExecutor = new PartitionedExecutor("Notifications(" + notificationSubjectGroup.notificationSubject + ")", notificationThreads.intValue());
+            }
         }
 
         public final void receive(String incomingSqlStatements) {
@@ -727,16 +1124,22 @@ public class SqlBeanFactory extends TabularDataBeanFactory {
             IndexedSet events = new IndexedSet(processableBeanFactorySqlPairs.size());
 
             try {
-                Map cachedColumnValues = new HashMap();
-                TransformersByBean transformersByBean = new TransformersByBean();
-                Set beanFactoriesAffected = new LinkedHashSet();
-
                 for (int i = 0; i < processableBeanFactorySqlPairs.size(); i++) {
                     BeanFactorySQLPair beanFactorySQLPair = (BeanFactorySQLPair) processableBeanFactorySqlPairs.get(i);
                     pushedBeanFactories.add(beanFactorySQLPair.beanFactory);
                     pushBeanFactoryLoadStack(beanFactorySQLPair.beanFactory);
-                    boolean beansAffected = processNotification(beanFactorySQLPair.beanFactory, cachedColumnValues, beanFactorySQLPair.sql, events, transformersByBean);
-                    if (beansAffected) beanFactoriesAffected.add(beanFactorySQLPair.beanFactory);
+                }
+
+                firstPass(processableBeanFactorySqlPairs);
+
+                // everything from here on is in transaction order, regardless of how the first pass was partitioned
+                TransformersByBean transformersByBean = new TransformersByBean();
+                Set beanFactoriesAffected = new LinkedHashSet();
+                for (int i = 0; i < processableBeanFactorySqlPairs.size(); i++) {
+                    BeanFactorySQLPair beanFactorySQLPair = (BeanFactorySQLPair) processableBeanFactorySqlPairs.get(i);
+                    if (beanFactorySQLPair.transformer != null) transformersByBean.addTransformer(beanFactorySQLPair.transformer.getBeans().iterator().next(), beanFactorySQLPair.transformer);
+                    if (beanFactorySQLPair.beansAffected) beanFactoriesAffected.add(beanFactorySQLPair.beanFactory);
+                    events.addAll(beanFactorySQLPair.events);
                 }
 
                 List transformers = transformersByBean.getTransformers();
@@ -779,6 +1182,222 @@ public class SqlBeanFactory extends TabularDataBeanFactory {
             }
         }
 
+        /**
+         * Runs the first pass inflate of each pair.  When there is a notification executor, pairs are split into
+         * partitions of BeanFactories that cannot share locks or beans, each partition is processed in order on its
+         * own thread and partitions run concurrently.  Worker threads inflate on behalf of the notification thread,
+         * so they never wait on each other's partially inflated beans.
+         */
+        private void firstPass(List beanFactorySqlPairs) throws Exception {
+            if (notificationExecutor == null) {
+                firstPass(beanFactorySqlPairs, new HashMap());
+                return;
+            }
+
+            final Thread notificationThread = Thread.currentThread();
+            int partitions = notificationExecutor.execute(beanFactorySqlPairs, new Transform() {
+                public Object execute(Object beanFactorySQLPair) {
+                    return getPartition(((BeanFactorySQLPair) beanFactorySQLPair).beanFactory);
+                }
+            }, new PartitionedExecutor.Processor() {
+                public void process(List pairsForPartition) throws Exception {
+                    setInflatingThread(notificationThread);
+                    try {
+                        firstPass(pairsForPartition, new HashMap());
+                    } finally {
+                        setInflatingThread(null);
+                    }
+                }
+            });
+            if (log.isDebug() && partitions > 1) log.debug("Processed notification in " + partitions + " partitions");
+        }
+
+        private void firstPass(List beanFactorySqlPairs, Map cachedColumnValues) throws Exception {
+            coalesceReselects(beanFactorySqlPairs);
+            for (int i = 0; i < beanFactorySqlPairs.size(); i++) {
+                BeanFactorySQLPair beanFactorySQLPair = (BeanFactorySQLPair) beanFactorySqlPairs.get(i);
+                if (beanFactorySQLPair.coalescedPairs != null) {
+                    beanFactorySQLPair.beansAffected = processCoalescedNotifications(beanFactorySQLPair.beanFactory, cachedColumnValues, beanFactorySQLPair.coalescedPairs, beanFactorySQLPair);
+                } else if (!beanFactorySQLPair.coalesced) {
+                    beanFactorySQLPair.beansAffected = processNotification(beanFactorySQLPair.beanFactory, cachedColumnValues, beanFactorySQLPair.sql, beanFactorySQLPair);
+                }
+            }
+        }
+
+        /**
+         * Inserts and updates that do not contain the primary key of a BeanFactory have to be re-selected from the
+         * database.  Where several of these, for the same BeanFactory and table, insert or set the same columns and
+         * restrict the re-select with only "column = value" terms on the same columns, they are combined into one
+         * re-select using an IN list (or ORed terms for several columns), of at most
+         * DBUtilities.MAX_ELEMENTS_FOR_IN_STATEMENT statements.
+         * <p/>
+         * A combined re-select is run in place of the last statement it covers, as the database already reflects the
+         * whole transaction this only means earlier statements see their rows a little later in the first pass.
+         * Statements are not combined across anything that clears the BeanFactory.
+         */
+        private static void coalesceReselects(List beanFactorySqlPairs) {
+            Map openGroups = new LinkedHashMap();
+            List groups = new ArrayList();
+
+            for (int i = 0; i < beanFactorySqlPairs.size(); i++) {
+                BeanFactorySQLPair beanFactorySQLPair = (BeanFactorySQLPair) beanFactorySqlPairs.get(i);
+                SqlBeanFactory beanFactory = beanFactorySQLPair.beanFactory;
+                SQL sqlNotification = beanFactorySQLPair.sql;
+                int operationType = sqlNotification.getOperationType();
+
+                if (operationType == SQL.INSERT || operationType == SQL.UPDATE) {
+                    if (containsPrimaryKeyValues(sqlNotification, beanFactory.primaryKeyColumns)) continue;
+                    Map joinToSelectColumnValues = sqlNotification.getJoinToSelectColumnValues();
+                    if (joinToSelectColumnValues == null) continue;
+
+                    // the combined re-select is transformed as the last statement, so the statements must set the same columns
+                    List groupKey = Arrays.asList(new Object[]{beanFactory, sqlNotification.getTables()[0], new Integer(operationType),
+                                                               new HashSet(joinToSelectColumnValues.keySet()), new HashSet(sqlNotification.getColumns())});
+                    List group = (List) openGroups.get(groupKey);
+                    if (group == null || group.size() == DBUtilities.MAX_ELEMENTS_FOR_IN_STATEMENT) {
+                        group = new ArrayList();
+                        openGroups.put(groupKey, group);
+                        groups.add(group);
+                    }
+                    group.add(beanFactorySQLPair);
+                } else if (operationType != SQL.DELETE || !containsPrimaryKeyValues(sqlNotification, beanFactory.primaryKeyColumns)) {
+                    // the BeanFactory will be cleared, do not move any re-selects past this point
+                    for (Iterator iterator = openGroups.keySet().iterator(); iterator.hasNext();) {
+                        List groupKey = (List) iterator.next();
+                        if (groupKey.get(0) == beanFactory) iterator.remove();
+                    }
+                }
+            }
+
+            for (int i = 0; i < groups.size(); i++) {
+                List group = (List) groups.get(i);
+                if (group.size() < 2) continue;
+                for (int j = 0; j < group.size() - 1; j++) {
+                    ((BeanFactorySQLPair) group.get(j)).coalesced = true;
+                }
+                ((BeanFactorySQLPair) group.get(group.size() - 1)).coalescedPairs = group;
+            }
+        }
+
+        private final boolean processCoalescedNotifications(SqlBeanFactory beanFactory, Map cachedColumnValues, List coalescedPairs, BeanFactorySQLPair result) throws Exception {
+            SQL sqlNotification = result.sql;
+            CatalogSchemaTable table = sqlNotification.getTables()[0];
+            Column[] columns = (Column[]) sqlNotification.getJoinToSelectColumnValues().keySet().toArray(new Column[0]);
+
+            StringBuffer whereClauseBuffer = new StringBuffer();
+            if (columns.length == 1) {
+                whereClauseBuffer.append(columns[0].getRepresentation()).append(" IN (");
+                for (int i = 0; i < coalescedPairs.size(); i++) {
+                    if (i > 0) whereClauseBuffer.append(", ");
+                    whereClauseBuffer.append(((BeanFactorySQLPair) coalescedPairs.get(i)).sql.getJoinToSelectColumnValues().get(columns[0]));
+                }
+                whereClauseBuffer.append(")");
+            } else {
+                whereClauseBuffer.append("(");
+                for (int i = 0; i < coalescedPairs.size(); i++) {
+                    Map joinToSelectColumnValues = ((BeanFactorySQLPair) coalescedPairs.get(i)).sql.getJoinToSelectColumnValues();
+                    if (i > 0) whereClauseBuffer.append(" OR ");
+                    whereClauseBuffer.append("(");
+                    for (int j = 0; j < columns.length; j++) {
+                        if (j > 0) whereClauseBuffer.append(" AND ");
+                        whereClauseBuffer.append(columns[j].getRepresentation()).append(" = ").append(joinToSelectColumnValues.get(columns[j]));
+                    }
+                    whereClauseBuffer.append(")");
+                }
+                whereClauseBuffer.append(")");
+            }
+
+            SQL selectStatement = beanFactory.beanSelectStatement.joinWhereClause(whereClauseBuffer.toString(), new CatalogSchemaTable[]{table});
+            TabularData tabularData = null;
+            TabularDataToBeanFactoryTransformer transformer;
+
+            long lockRequestNanos = System.nanoTime();
+            synchronized (beanFactory.getLock()) {
+                beanFactory.lockAcquired(lockRequestNanos);
+                try {
+                    log.info(getLogPrefix(beanFactory) + "executing sql: " + selectStatement.getStatementString() + "\nFor " + coalescedPairs.size() + " notifications on: " + table);
+                    tabularData = new ResultSetTabularData(beanFactory.getDataSourceName(), selectStatement, SQLTabularData.getRowType(sqlNotification));
+                    SqlMonitor sqlMonitor = SqlMonitorFactory.getSqlMonitorInstance();
+                    sqlMonitor.sqlExecuted();
+                    if (sqlMonitor instanceof CoalescingSqlMonitor) ((CoalescingSqlMonitor) sqlMonitor).sqlCoalesced(coalescedPairs.size() - 1);
+                    transformer = beanFactory.createTransformer(tabularData, cachedColumnValues, selectStatement, sqlNotification, null, null);
+                    transformer.firstPassInflate();
+                } finally {
+                    // TabularData may already be closed, but repeat in finally block in case an exception was thrown and it was not closed.
+                    if (tabularData != null) tabularData.close();
+                }
+            }
+
+            boolean containsBeans = transformer.containsBeans();
+            if (containsBeans) {
+                result.transformer = transformer;
+            }
+
+            transformer.inflateBeansToFindLater();
+            transformer.fireMapChangedEvents(result.events);
+
+            return containsBeans;
+        }
+
+        /**
+         * BeanFactories whose types can reach each other through properties, super types or sub classes may lock each
+         * other while inflating, so they share a partition.  Types are joined with a union-find over type names.
+         */
+        private Object getPartition(SqlBeanFactory beanFactory) {
+            if (partitionsByBeanFactory == null) {
+                Map parents = new HashMap();
+                for (int i = 0; i < beanFactories.length; i++) {
+                    String typeName = beanFactories[i].getSchema().getTypeName();
+                    Set reachableTypeNames = new HashSet();
+                    addReachableTypeNames(typeName, reachableTypeNames);
+                    for (Iterator iterator = reachableTypeNames.iterator(); iterator.hasNext();) {
+                        union(parents, typeName, (String) iterator.next());
+                    }
+                }
+
+                partitionsByBeanFactory = new HashMap();
+                for (int i = 0; i < beanFactories.length; i++) {
+                    partitionsByBeanFactory.put(beanFactories[i], find(parents, beanFactories[i].getSchema().getTypeName()));
+                }
+            }
+
+            Object partition = partitionsByBeanFactory.get(beanFactory);
+            return partition != null ? partition : beanFactory;
+        }
+
+        private static void addReachableTypeNames(String typeName, Set reachableTypeNames) {
+            if (typeName == null || !Schema.hasInstance(typeName) || !reachableTypeNames.add(typeName)) return;
+
+            Schema schema = Schema.getInstance(typeName);
+            addReachableTypeNames(schema.getSuperTypeName(), reachableTypeNames);
+
+            Class[] subClasses = schema.getSubClasses();
+            if (subClasses != null) {
+                for (int i = 0; i < subClasses.length; i++) {
+                    addReachableTypeNames(Schema.getInstance(subClasses[i]).getTypeName(), reachableTypeNames);
+                }
+            }
+
+            Property[] properties = schema.getProperties();
+            for (int i = 0; i < properties.length; i++) {
+                addReachableTypeNames(properties[i].getTypeName(), reachableTypeNames);
+            }
+        }
+
+        private static String find(Map parents, String typeName) {
+            String parent = (String) parents.get(typeName);
+            if (parent == null || parent.equals(typeName)) return typeName;
+            String root = find(parents, parent);
+            parents.put(typeName, root);
+            return root;
+        }
+
+        private static void union(Map parents, String typeName1, String typeName2) {
+            String root1 = find(parents, typeName1);
+            String root2 = find(parents, typeName2);
+            if (!root1.equals(root2)) parents.put(root2, root1);
+        }
+
         private final Set getBeanFactoriesForTable(CatalogSchemaTable table) {
             Set beanFactoriesForTable = (Set) beanFactoriesByTable.get(table);
 
@@ -831,7 +1450,7 @@ public class SqlBeanFactory extends TabularDataBeanFactory {
          * <p/>
          * In case 1, you can determine the key for the bean to be deleted.
          */
-        private final boolean processNotification(SqlBeanFactory beanFactory, Map cachedColumnValues, SQL sqlNotification, IndexedSet events, TransformersByBean transformersByBean) throws Exception {
+        private final boolean processNotification(SqlBeanFactory beanFactory, Map cachedColumnValues, SQL sqlNotification, BeanFactorySQLPair result) throws Exception {
             if (log.isDebug()) log.debug(getLogPrefix(beanFactory) + "processing: " + sqlNotification.getStatementString());
             int incomingSqlOperationType = sqlNotification.getOperationType();
             boolean sqlNotificationContainsPrimaryKey = containsPrimaryKeyValues(sqlNotification, beanFactory.primaryKeyColumns);
@@ -841,7 +1460,9 @@ public class SqlBeanFactory extends TabularDataBeanFactory {
                 TabularDataToBeanFactoryTransformer transformer;
 
                 SQL selectStatement = beanFactory.beanSelectStatement.joinStatement(sqlNotification);
+                long lockRequestNanos = System.nanoTime();
                 synchronized (beanFactory.getLock()) {
+                    beanFactory.lockAcquired(lockRequestNanos);
                     try {
                         tabularData = getTabularData(beanFactory, sqlNotification, selectStatement, sqlNotificationContainsPrimaryKey);
                         transformer = beanFactory.createTransformer(tabularData, cachedColumnValues, selectStatement, sqlNotification, null, null);
@@ -854,17 +1475,17 @@ public class SqlBeanFactory extends TabularDataBeanFactory {
 
                 boolean containsBeans = transformer.containsBeans();
                 if (containsBeans) {
-                    transformersByBean.addTransformer(transformer.getBeans().iterator().next(), transformer);
+                    result.transformer = transformer;
                 }
 
                 transformer.inflateBeansToFindLater();
-                transformer.fireMapChangedEvents(events);
+                transformer.fireMapChangedEvents(result.events);
 
                 return containsBeans;
 
             } else if ((incomingSqlOperationType == SQL.DELETE && !sqlNotificationContainsPrimaryKey) || incomingSqlOperationType == SQL.TRUNCATE || incomingSqlOperationType == SQL.DROP_TABLE) {
                 // refresh all data, listeners will ask BeanFactory to reload data, when they receive an ALL_ROWS event
-                beanFactory.clear(events, false, true);
+                beanFactory.clear(result.events, false, true);
                 return true;
             } else {
                 log.error(getLogPrefix(beanFactory) + "unknown sql operation: " + incomingSqlOperationType);
@@ -897,6 +1518,13 @@ public class SqlBeanFactory extends TabularDataBeanFactory {
         private static final class BeanFactorySQLPair {
             private final SqlBeanFactory beanFactory;
             private final SQL sql;
+            // results of the first pass
+            private TabularDataToBeanFactoryTransformer transformer;
+            private List events = new ArrayList();
+            private boolean beansAffected;
+            // set where this pair's re-select is combined with others
+            private boolean coalesced;
+            private List coalescedPairs;
 
             public BeanFactorySQLPair(SqlBeanFactory beanFactory, SQL sql) {
                 this.beanFactory = beanFactory;
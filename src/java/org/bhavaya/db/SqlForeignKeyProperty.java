@@ -160,8 +160,7 @@ public class SqlForeignKeyProperty extends ForeignKeyProperty {
 
         protected Object get() {
             Object propertyValue;
-            int maximumJoinTableCount = ((SqlForeignKeyProperty)foreignKeyProperty).maximumJoinTableCount;
-            if (selectStatement != null && (maximumJoinTableCount < 0 || selectStatement.getTables().length <= maximumJoinTableCount)) {
+            if (isJoinedToParent()) {
                 propertyValue = ((SqlBeanFactory) beanFactory).get(key, index, selectStatement, parentSQL, joinsToParent);
             } else {
                 propertyValue = beanFactory.get(key, index);
@@ -170,6 +169,18 @@ public class SqlForeignKeyProperty extends ForeignKeyProperty {
             return propertyValue;
         }
 
+        /**
+         * A load joined to its parent's sql loads the beans for every load of the LoadGroup in one select already.
+         */
+        protected boolean isBatchable() {
+            return !isJoinedToParent();
+        }
+
+        private boolean isJoinedToParent() {
+            int maximumJoinTableCount = ((SqlForeignKeyProperty) foreignKeyProperty).maximumJoinTableCount;
+            return selectStatement != null && (maximumJoinTableCount < 0 || selectStatement.getTables().length <= maximumJoinTableCount);
+        }
+
         protected void reset() {
             super.reset();
             selectStatement = null;
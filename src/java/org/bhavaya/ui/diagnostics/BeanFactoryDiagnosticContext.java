@@ -1,6 +1,7 @@
 package org.bhavaya.ui.diagnostics;
 
 import org.bhavaya.beans.BeanFactory;
+import org.bhavaya.collection.LockStatistics;
 import org.bhavaya.ui.MenuGroup;
 import org.bhavaya.ui.AuditedAbstractAction;
 import org.bhavaya.util.Generic;
@@ -47,9 +48,33 @@ public class BeanFactoryDiagnosticContext extends DiagnosticContext {
             }
         }
         DiagnosticUtilities.tableFooter(buffer);
+
+        DiagnosticUtilities.contextHeader(buffer, "Bean Factory Locks");
+        appendLockStatisticsTable(buffer, beanFactoriesStatistics);
         return buffer.toString();
     }
 
+    private static void appendLockStatisticsTable(StringBuffer buffer, BeanFactoryStatistics[] beanFactoriesStatistics) {
+        DiagnosticUtilities.tableHeader(buffer);
+        DiagnosticUtilities.tableHeaderRow(buffer, new Object[]{"Type", "Unlocked Reads", "Locked Reads", "Writes", "Contended Writes", "Write Wait (ms)",
+                                                               "Hierarchy Lock Acquisitions", "Hierarchy Lock Wait (ms)", "Max Hierarchy Lock Wait (ms)"});
+        for (int i = 0; i < beanFactoriesStatistics.length; i++) {
+            LockStatistics lockStatistics = beanFactoriesStatistics[i].getLockStatistics();
+            if (lockStatistics != null && (lockStatistics.getWrites() > 0 || lockStatistics.getHierarchyLockAcquisitions() > 0)) {
+                DiagnosticUtilities.tableRow(buffer, new Object[]{beanFactoriesStatistics[i].getType(),
+                                                                  "" + lockStatistics.getUnlockedReads(),
+                                                                  "" + lockStatistics.getLockedReads(),
+                                                                  "" + lockStatistics.getWrites(),
+                                                                  "" + lockStatistics.getContendedWrites(),
+                                                                  "" + lockStatistics.getWriteWaitMillis(),
+                                                                  "" + lockStatistics.getHierarchyLockAcquisitions(),
+                                                                  "" + lockStatistics.getHierarchyLockWaitMillis(),
+                                                                  "" + lockStatistics.getMaximumHierarchyLockWaitMillis()});
+            }
+        }
+        DiagnosticUtilities.tableFooter(buffer);
+    }
+
     public MenuGroup[] createMenuGroups() {
         MenuGroup settingsMenuGroup = new MenuGroup("Options", KeyEvent.VK_O);
 
@@ -79,18 +104,24 @@ public class BeanFactoryDiagnosticContext extends DiagnosticContext {
         boolean classLoaded = beanFactory.isClassLoaded();
         int size = classLoaded ? beanFactory.size() : -1;
         int listeners = classLoaded ? beanFactory.getMapListenerCount() : -1;
-        return new BeanFactoryStatistics(type, size, listeners);
+        return new BeanFactoryStatistics(type, size, listeners, beanFactory.getLockStatistics());
     }
 
     public static class BeanFactoryStatistics {
         private String type;
         private int beanCount;
         private int listenerCount;
+        private LockStatistics lockStatistics;
 
         public BeanFactoryStatistics(String type, int beanCount, int listenerCount) {
+            this(type, beanCount, listenerCount, null);
+        }
+
+        public BeanFactoryStatistics(String type, int beanCount, int listenerCount, LockStatistics lockStatistics) {
             this.type = type;
             this.beanCount = beanCount;
             this.listenerCount = listenerCount;
+            this.lockStatistics = lockStatistics;
         }
 
         public String getType() {
@@ -105,6 +136,13 @@ public class BeanFactoryDiagnosticContext extends DiagnosticContext {
             return listenerCount;
         }
 
+        /**
+         * Null for the total row.
+         */
+        public LockStatistics getLockStatistics() {
+            return lockStatistics;
+        }
+
         public String toString() {
             return "Type: " + type + ", beanCount: " + beanCount + ", listenerCount: " + listenerCount;
         }
@@ -151,6 +189,13 @@ public class BeanFactoryDiagnosticContext extends DiagnosticContext {
 
     public static class BeanFactoryReport implements BeanFactoryReportMBean {
 
+        public String viewLockStatistics() {
+            StringBuffer sb = new StringBuffer("<html>");
+            appendLockStatisticsTable(sb, getBeanFactoriesStatistics());
+            sb.append("</html>");
+            return sb.toString();
+        }
+
         public String viewBeans(String beanClassName) {
             return generateBeanContentsReport(beanClassName, null, null, null);
         }
@@ -263,6 +308,8 @@ public class BeanFactoryDiagnosticContext extends DiagnosticContext {
 
         String viewBeans(String beanClassName);
 
+        String viewLockStatistics();
+
         /**
          * propertyName can be a bean path
          */
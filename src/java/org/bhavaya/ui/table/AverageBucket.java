@@ -57,23 +57,29 @@ public abstract class AverageBucket implements GroupedRowManager.ValueBucket {
 
     public void insert(Object value) {
         sum.insert(value);
-        average = null;
-        dataCount++;
+        sumChanged(1);
     }
 
     public boolean update(Object oldValue, Object newValue) {
         boolean b = sum.update(oldValue, newValue);
-        average = null;
+        sumChanged(0);
         return b;
     }
 
     public boolean delete(Object value) {
         boolean b = sum.delete(value);
-        average = null;
-        dataCount--;
+        sumChanged(-1);
         return b;
     }
 
+    /**
+     * for subclasses that change the sum bucket directly
+     */
+    protected void sumChanged(int dataCountDelta) {
+        average = null;
+        dataCount += dataCountDelta;
+    }
+
     public abstract Object calculateAverage(Object sum);
 
     public String toString() {
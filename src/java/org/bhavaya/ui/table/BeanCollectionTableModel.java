@@ -33,6 +33,7 @@ import org.bhavaya.collection.BeanCollection;
 import org.bhavaya.collection.CollectionListener;
 import org.bhavaya.collection.IndexedSet;
 import org.bhavaya.collection.ListEvent;
+import org.bhavaya.collection.TreeIndexedSet;
 import org.bhavaya.ui.SwingTask;
 import org.bhavaya.ui.table.diagnostics.TableUpdateDiagnostics;
 import org.bhavaya.ui.table.formula.FormulaEnabledObjectGraph;
@@ -70,7 +71,7 @@ public class BeanCollectionTableModel implements KeyedColumnTableModel, TabularB
 
     private static final Object[] EMPTY_OBJECT_ARRAY = new Object[]{};
 
-    private IndexedSet rows = new IndexedSet();
+    private TreeIndexedSet rows = new TreeIndexedSet();
     private FormulaEnabledObjectGraph objectCache;
     private ReschedulingChangeQueue reschedulingChangeQueue = new ReschedulingChangeQueue();
     private static ScheduledExecutorService changeExecutor = NamedExecutors.newSingleThreadScheduledExecutor("BeanCollectionTableModel_ChangeExecutor");
@@ -989,71 +990,140 @@ public class BeanCollectionTableModel implements KeyedColumnTableModel, TabularB
 
 
     /**
-     * attempt to shove as many changes through as possible without taking more than 150 milliseconds.
+     * attempt to shove as many changes through as possible without blocking the event thread for more than 50 milliseconds,
+     * less when the event thread is slow getting back to us (i.e. is busy painting).
+     * Only the last change to a property of a bean waiting in the queue is processed, as the earlier ones would be
+     * overwritten before the table is painted.
      */
     private class ReschedulingChangeQueue extends ChangeQueue {
-        //ArrayList used here previously tended to end up holding onto sparse arrays with 99% null elements - this was inefficient in terms of memory
-        //this is because the internal array for ArrayList never shrinks, unless you call trimToSize() - and so would remain sized for the worst case scenario
-        private LinkedList propertyQueue = new LinkedList(); 
-        private LinkedList propertyChangeQueue = new LinkedList();
+        private static final int SERVICE_DELAY = 50;
+        private static final int MAXIMUM_BUDGET = 50;
+        private static final int MINIMUM_BUDGET = 10;
+        private static final int INITIAL_CAPACITY = 64;
+
+        //pending changes are held in a ring of parallel arrays, with a null event where a change has been coalesced into a later one.
+        //the arrays are reallocated at their initial size when the queue empties, so they do not stay sized for the worst case scenario
+        private PendingProperty[] propertyQueue = new PendingProperty[INITIAL_CAPACITY];
+        private PropertyChangeEvent[] propertyChangeQueue = new PropertyChangeEvent[INITIAL_CAPACITY];
+        private int head;
+        private int headSequence;
+        private int queueSize; //including coalesced slots
+        private int pendingCount;
+        private Map pendingPropertyToSequence = new HashMap();
         private Object queueChangeLock = new Object();
         private boolean isWaitingForService = false;
 
+        private long expectedServiceTime;
+        private int budget = MAXIMUM_BUDGET;
+        private long receivedCount;
+        private long coalescedCount;
+        private long appliedCount;
+
         public void addChange(final CachedObjectGraph.CachedProperties cachedProperties, final PropertyChangeEvent event) {
-            boolean start = false;
-            //else add to queue
+            PendingProperty pendingProperty = new PendingProperty(cachedProperties, event.getPropertyName());
             synchronized (queueChangeLock) {
-                propertyQueue.add(cachedProperties);
-                propertyChangeQueue.add(event);
+                receivedCount++;
+                Integer pendingSequence = (Integer) pendingPropertyToSequence.get(pendingProperty);
+                if (pendingSequence != null) {
+                    int index = getIndex(pendingSequence.intValue());
+                    if (event instanceof CachedObjectGraph.LoadRequestPropertyChangeEvent) {
+                        //processed after the pending change, it would be ignored anyway
+                        coalescedCount++;
+                        return;
+                    }
+                    propertyChangeQueue[index] = null;
+                    propertyQueue[index] = null;
+                    pendingCount--;
+                    coalescedCount++;
+                }
+
+                //append at the tail, so surviving changes are processed in the order they were received
+                if (queueSize == propertyQueue.length) resize(propertyQueue.length * 2);
+                int sequence = headSequence + queueSize;
+                int index = getIndex(sequence);
+                propertyQueue[index] = pendingProperty;
+                propertyChangeQueue[index] = event;
+                queueSize++;
+                pendingCount++;
+                pendingPropertyToSequence.put(pendingProperty, new Integer(sequence));
 
                 //if changed from empty, put in a service request
                 if (!isWaitingForService) {
-                    start = true;
                     isWaitingForService = true;
-                }
-                if (start) {
-                    scheduleTask(50);
+                    expectedServiceTime = System.currentTimeMillis() + SERVICE_DELAY;
+                    scheduleTask(SERVICE_DELAY);
                 }
             }
         }
 
+        private int getIndex(int sequence) {
+            return (head + (sequence - headSequence)) & (propertyQueue.length - 1);
+        }
+
+        private void resize(int capacity) {
+            PendingProperty[] newPropertyQueue = new PendingProperty[capacity];
+            PropertyChangeEvent[] newPropertyChangeQueue = new PropertyChangeEvent[capacity];
+            for (int i = 0; i < queueSize; i++) {
+                int index = (head + i) & (propertyQueue.length - 1);
+                newPropertyQueue[i] = propertyQueue[index];
+                newPropertyChangeQueue[i] = propertyChangeQueue[index];
+            }
+            propertyQueue = newPropertyQueue;
+            propertyChangeQueue = newPropertyChangeQueue;
+            head = 0;
+        }
 
         @Override
         protected void runOnEventThread() {
             try {
-                Object[] properties;
-                Object[] propertyChanges;
+                long startTime = System.currentTimeMillis();
+                int serviceBudget;
                 synchronized (queueChangeLock) {
-                    propertyChanges = propertyChangeQueue.toArray();
-                    propertyChangeQueue.clear();
-                    properties = propertyQueue.toArray();
-                    propertyQueue.clear();
+                    if (isWaitingForService) adaptBudget(startTime - expectedServiceTime);
+                    serviceBudget = budget;
                 }
 
-
-                int i = 0;
                 synchronized (objectCache.getChangeLock()) {
-                    long time = System.currentTimeMillis();
-                    while (i < propertyChanges.length && (System.currentTimeMillis() - time < 50)) {
-                        CachedObjectGraph.CachedProperties property = (CachedObjectGraph.CachedProperties) properties[i];
-                        PropertyChangeEvent event = (PropertyChangeEvent) propertyChanges[i];
+                    while (System.currentTimeMillis() - startTime < serviceBudget) {
+                        PendingProperty property = null;
+                        PropertyChangeEvent event = null;
+                        synchronized (queueChangeLock) {
+                            while (event == null && queueSize > 0) {
+                                property = propertyQueue[head];
+                                event = propertyChangeQueue[head];
+                                propertyQueue[head] = null;
+                                propertyChangeQueue[head] = null;
+                                head = (head + 1) & (propertyQueue.length - 1);
+                                headSequence++;
+                                queueSize--;
+                            }
+                            if (event == null) break;
+                            pendingPropertyToSequence.remove(property);
+                            pendingCount--;
+                            appliedCount++;
+                        }
+
                         try {
-                            objectCache.processPropertyChange(property, event);
+                            objectCache.processPropertyChange(property.cachedProperties, event);
                         } catch (Exception e) {
                             log.error("Object cache could not process property change event due to exception, event: " + event, e);
                         }
-                        i++;
                     }
                 }
-                synchronized (queueChangeLock) {
-                    if (i < propertyChanges.length) {
-                        //oops, we have blocked the awt thread for 1/5 seconds, reschedule the rest for later
-                        requeueChanges(i, propertyChanges, properties);
-                    }
 
-                    if (!propertyChangeQueue.isEmpty()) {
-                        scheduleTask(50);
+                synchronized (queueChangeLock) {
+                    if (pendingCount > 0) {
+                        //oops, we have used up our time on the awt thread, reschedule the rest for later
+                        if (log.isDebug()) log.debug("Took too long processing events, rescheduling " + pendingCount + " for later");
+                        expectedServiceTime = System.currentTimeMillis() + SERVICE_DELAY;
+                        scheduleTask(SERVICE_DELAY);
                     } else {
+                        if (propertyQueue.length > INITIAL_CAPACITY) {
+                            propertyQueue = new PendingProperty[INITIAL_CAPACITY];
+                            propertyChangeQueue = new PropertyChangeEvent[INITIAL_CAPACITY];
+                        }
+                        head = 0;
+                        queueSize = 0;
                         isWaitingForService = false;
                         // If anyone is waiting for all pending events to end, then notify
                         queueChangeLock.notify();
@@ -1064,17 +1134,68 @@ public class BeanCollectionTableModel implements KeyedColumnTableModel, TabularB
             }
         }
 
-        private void requeueChanges(int i, Object[] propertyChanges, Object[] properties) {
-            int pendingSize = propertyChanges.length - i;
-            if (log.isDebug()) log.debug("Took too long processing events, rescheduling " + pendingSize + " for later");
+        /**
+         * The time the event thread took to get round to servicing us beyond the delay we asked for is time it spent
+         * on other work, such as painting.  Halve our budget when that is longer than the budget, so that the table
+         * keeps repainting, and win it back gradually as the event thread catches up.
+         */
+        private void adaptBudget(long lateness) {
+            if (lateness > budget) {
+                budget = Math.max(MINIMUM_BUDGET, budget / 2);
+            } else {
+                budget = Math.min(MAXIMUM_BUDGET, budget + MINIMUM_BUDGET / 2);
+            }
+        }
+    }
+
+    /**
+     * Identifies a property of the bean whose CachedProperties receives the change, for coalescing changes.
+     */
+    private static class PendingProperty {
+        private final CachedObjectGraph.CachedProperties cachedProperties;
+        private final String propertyName;
+
+        public PendingProperty(CachedObjectGraph.CachedProperties cachedProperties, String propertyName) {
+            this.cachedProperties = cachedProperties;
+            this.propertyName = propertyName;
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof PendingProperty)) return false;
+            PendingProperty other = (PendingProperty) o;
+            return cachedProperties == other.cachedProperties && Utilities.equals(propertyName, other.propertyName);
+        }
 
-            Object[] pendingChanges = new Object[pendingSize];
-            Object[] pendingProperties = new Object[pendingSize];
-            System.arraycopy(propertyChanges, i, pendingChanges, 0, pendingSize);
-            System.arraycopy(properties, i, pendingProperties, 0, pendingSize);
+        public int hashCode() {
+            return 31 * System.identityHashCode(cachedProperties) + (propertyName == null ? 0 : propertyName.hashCode());
+        }
+    }
 
-            propertyChangeQueue.addAll(0, Arrays.asList(pendingChanges));
-            propertyQueue.addAll(0, Arrays.asList(pendingProperties));
+    /**
+     * Property changes received from beans since the table model was created.
+     */
+    public long getReceivedChangeCount() {
+        synchronized (reschedulingChangeQueue.queueChangeLock) {
+            return reschedulingChangeQueue.receivedCount;
+        }
+    }
+
+    /**
+     * Property changes dropped because a later change to the same property of the same bean was waiting to be processed.
+     */
+    public long getCoalescedChangeCount() {
+        synchronized (reschedulingChangeQueue.queueChangeLock) {
+            return reschedulingChangeQueue.coalescedCount;
+        }
+    }
+
+    /**
+     * Property changes processed into the table model.
+     */
+    public long getAppliedChangeCount() {
+        synchronized (reschedulingChangeQueue.queueChangeLock) {
+            return reschedulingChangeQueue.appliedCount;
         }
     }
 
@@ -1088,7 +1209,7 @@ public class BeanCollectionTableModel implements KeyedColumnTableModel, TabularB
 
     public final void waitForEventsToClear() throws InterruptedException {
             synchronized (reschedulingChangeQueue.queueChangeLock) {
-                if (reschedulingChangeQueue.propertyQueue.size() > 0) {
+                if (reschedulingChangeQueue.pendingCount > 0) {
                     reschedulingChangeQueue.queueChangeLock.wait();
                 }
         }
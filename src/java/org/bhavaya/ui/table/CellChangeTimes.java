@@ -0,0 +1,171 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+package org.bhavaya.ui.table;
+
+import gnu.trove.TLongIntHashMap;
+
+/**
+ * The recently changed cells of a table, with the time of each change and the colour it should be flashed with.
+ * <p/>
+ * Each change is a slot in parallel primitive arrays, found from its model row and column through a TLongIntHashMap,
+ * so recording a change or looking one up while painting does not allocate.  The slots are kept dense: the changes
+ * can be visited by slot from 0 to size() - 1, and removing a slot moves the last slot into its place.
+ * <p/>
+ * Not thread-safe, it is only used on the event dispatch thread.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+class CellChangeTimes {
+    static final byte NEUTRAL = 0;
+    static final byte POSITIVE = 1;
+    static final byte NEGATIVE = 2;
+
+    private TLongIntHashMap cellToSlot = new TLongIntHashMap();  //slot + 1, as a missing key gets 0
+    private int[] rows;
+    private int[] columns;
+    private long[] times;
+    private byte[] directions;
+    private float[] strengths;
+    private int size;
+
+    public CellChangeTimes() {
+        this(16);
+    }
+
+    public CellChangeTimes(int capacity) {
+        rows = new int[capacity];
+        columns = new int[capacity];
+        times = new long[capacity];
+        directions = new byte[capacity];
+        strengths = new float[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the slot of the change to the cell, or -1 if it has not changed.
+     */
+    public int indexOf(int row, int column) {
+        return cellToSlot.get(getKey(row, column)) - 1;
+    }
+
+    /**
+     * Records a change to the cell, replacing any earlier change to it.
+     *
+     * @param direction one of NEUTRAL, POSITIVE or NEGATIVE
+     * @param strength  between 0 and 1, how strongly the cell is coloured when the change is new
+     */
+    public void put(int row, int column, long time, byte direction, float strength) {
+        int slot = indexOf(row, column);
+        if (slot == -1) {
+            if (size == rows.length) grow();
+            slot = size++;
+            rows[slot] = row;
+            columns[slot] = column;
+            cellToSlot.put(getKey(row, column), slot + 1);
+        }
+        times[slot] = time;
+        directions[slot] = direction;
+        strengths[slot] = strength;
+    }
+
+    public void remove(int row, int column) {
+        int slot = indexOf(row, column);
+        if (slot != -1) remove(slot);
+    }
+
+    /**
+     * Removes the change in slot, moving the change in the last slot into it.
+     */
+    public void remove(int slot) {
+        cellToSlot.remove(getKey(rows[slot], columns[slot]));
+        int last = --size;
+        if (slot != last) {
+            rows[slot] = rows[last];
+            columns[slot] = columns[last];
+            times[slot] = times[last];
+            directions[slot] = directions[last];
+            strengths[slot] = strengths[last];
+            cellToSlot.put(getKey(rows[slot], columns[slot]), slot + 1);
+        }
+    }
+
+    public void clear() {
+        size = 0;
+        cellToSlot.clear();
+    }
+
+    public int getRow(int slot) {
+        return rows[slot];
+    }
+
+    public int getColumn(int slot) {
+        return columns[slot];
+    }
+
+    public long getTime(int slot) {
+        return times[slot];
+    }
+
+    public byte getDirection(int slot) {
+        return directions[slot];
+    }
+
+    public float getStrength(int slot) {
+        return strengths[slot];
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, rows.length * 2);
+        int[] newRows = new int[capacity];
+        int[] newColumns = new int[capacity];
+        long[] newTimes = new long[capacity];
+        byte[] newDirections = new byte[capacity];
+        float[] newStrengths = new float[capacity];
+        System.arraycopy(rows, 0, newRows, 0, size);
+        System.arraycopy(columns, 0, newColumns, 0, size);
+        System.arraycopy(times, 0, newTimes, 0, size);
+        System.arraycopy(directions, 0, newDirections, 0, size);
+        System.arraycopy(strengths, 0, newStrengths, 0, size);
+        rows = newRows;
+        columns = newColumns;
+        times = newTimes;
+        directions = newDirections;
+        strengths = newStrengths;
+    }
+
+    private static long getKey(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+}
@@ -36,9 +36,33 @@ package org.bhavaya.ui.table;
  * @author Daniel van Enckevort
  * @version $Revision: 1.2 $
  */
-public class DoubleAverageBucket extends AverageBucket {
+public class DoubleAverageBucket extends AverageBucket implements GroupedRowManager.DoubleValueBucket {
+    private DoubleSumBucket doubleSum;
+
     public DoubleAverageBucket() {
-        super(new DoubleSumBucket());
+        this(new DoubleSumBucket());
+    }
+
+    private DoubleAverageBucket(DoubleSumBucket doubleSum) {
+        super(doubleSum);
+        this.doubleSum = doubleSum;
+    }
+
+    public void insert(double value) {
+        doubleSum.insert(value);
+        sumChanged(1);
+    }
+
+    public boolean update(double oldValue, double newValue) {
+        boolean b = doubleSum.update(oldValue, newValue);
+        sumChanged(0);
+        return b;
+    }
+
+    public boolean delete(double value) {
+        boolean b = doubleSum.delete(value);
+        sumChanged(-1);
+        return b;
     }
 
     public Object calculateAverage(Object sum) {
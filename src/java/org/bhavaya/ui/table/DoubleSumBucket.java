@@ -29,64 +29,78 @@
 
 package org.bhavaya.ui.table;
 
+import org.bhavaya.util.CompensatedSum;
 
 /**
- * Created by IntelliJ IDEA.
+ * Sums Double values, and PartialBucketValues from buckets beneath it.  NaN and infinite values are counted apart from
+ * the sum of the finite values, so no insert, update or delete needs the bucket to be recalculated, and the sum is
+ * compensated so it does not drift over a long run of updates.  The output is only created when it is asked for.
  *
  * @author Daniel van Enckevort
  * @version $Revision: 1.4 $
  */
-public class DoubleSumBucket implements GroupedRowManager.ValueBucket {
+public class DoubleSumBucket implements GroupedRowManager.DoubleValueBucket {
     private Object currentOutput = null;    //the actual output. Could be null, one of the possible NaN values, real number or PartialBucketValue
-    private double sum = 0;         // sum including NaNs
-    private double nonNaNSum = 0;   //keeps track of the actual sum, but we exclude all NaN's (because they are contagious)
-                                    //this prevents us doing a full bucket recalc if a number goes to NaN and back again
-    private int nanCount = 0;
-    private int count = 0;
+    private boolean outputChanged = false;
+    private CompensatedSum sum = new CompensatedSum();  //finite values summed, NaNs and infinities counted (because they are contagious)
+                                                        //this prevents us doing a full bucket recalc if a number goes to NaN and back again
+    private int partialCount = 0;
+    private int count = 0;    //of the non null values summed
 
     public Object getOutput() {
+        if (outputChanged) {
+            outputChanged = false;
+            if (count == 0) {
+                currentOutput = null;    //as if no value was ever inserted, e.g. a pivot cell whose rows have moved column
+            } else if (sum.getNonFiniteCount() == 0 && partialCount == 0) {
+                currentOutput = new Double(sum.getFiniteSum());
+            } else if (count == 1) {
+                currentOutput = new Double(sum.getSum());
+            } else {
+                currentOutput = new PartialBucketValue(new Double(sum.getFiniteSum()), new Double(sum.getSum()), count);
+            }
+        }
         return currentOutput;
     }
 
-    private void setOutputValue() {
-        if (nanCount == 0) {
-            currentOutput = new Double(nonNaNSum);
-        } else if (count == 1) {
-            currentOutput = new Double(sum);
-        } else {
-            currentOutput = new PartialBucketValue(new Double(nonNaNSum), new Double(sum), count);
-        }
+    public void insert(double value) {
+        count += 1;
+        sum.add(value);
+        outputChanged = true;
+    }
+
+    public boolean update(double oldValue, double newValue) {
+        sum.subtract(oldValue);
+        sum.add(newValue);
+        outputChanged = true;
+        return true;
+    }
+
+    public boolean delete(double value) {
+        count -= 1;
+        sum.subtract(value);
+        outputChanged = true;
+        return true;
     }
 
     public void insert(Object value) {
         if (value == null) return; //no effect
         insertInternal(value);
-        setOutputValue();
+        outputChanged = true;
     }
 
     private void insertInternal(Object value) {
         if (value == null) return;  //no effect
 
         if (value instanceof PartialBucketValue) {
-            nanCount += 1;
+            partialCount += 1;
             PartialBucketValue partialValue = (PartialBucketValue) value;
-            sum += ((Double) partialValue.getFullValue()).doubleValue();
-            nonNaNSum += ((Double) partialValue.getPartialValue()).doubleValue();
+            sum.add(((Double) partialValue.getPartialValue()).doubleValue());
+            addNonFinite(((Double) partialValue.getFullValue()).doubleValue());
             count += partialValue.getBucketValueCount();
         } else {
             count += 1;
-            Double aDouble = (Double) value;
-            if (!aDouble.isNaN() && !aDouble.isInfinite()) {
-                nonNaNSum += aDouble.doubleValue();
-            } else {
-                nanCount += 1;
-            }
-
-            if (nanCount == 0) {
-                sum = nonNaNSum;
-            } else {
-                sum += ((Double) value).doubleValue();
-            }
+            sum.add(((Double) value).doubleValue());
         }
     }
 
@@ -94,14 +108,14 @@ public class DoubleSumBucket implements GroupedRowManager.ValueBucket {
         if (oldValue == null && newValue == null) return true;
         deleteInternal(oldValue);
         insertInternal(newValue);
-        setOutputValue();
+        outputChanged = true;
         return true;
     }
 
     public boolean delete(Object value) {
         if (value == null) return true; //no effect
         boolean result = deleteInternal(value);
-        setOutputValue();
+        outputChanged = true;
         return result;
     }
 
@@ -109,33 +123,29 @@ public class DoubleSumBucket implements GroupedRowManager.ValueBucket {
         if (value == null) return true; //no effect
 
         if (value instanceof PartialBucketValue) {
-            nanCount -= 1;
+            partialCount -= 1;
             PartialBucketValue partialValue = (PartialBucketValue) value;
-            nonNaNSum -= ((Double) partialValue.getPartialValue()).doubleValue();
-            if (nanCount == 0) {
-                sum = nonNaNSum;
-            } else {
-                sum -= ((Double) partialValue.getFullValue()).doubleValue();
-            }
+            sum.subtract(((Double) partialValue.getPartialValue()).doubleValue());
+            subtractNonFinite(((Double) partialValue.getFullValue()).doubleValue());
             count -= partialValue.getBucketValueCount();
         } else {
             count -= 1;
-            Double aDouble = (Double) value;
-            if (!aDouble.isNaN() && !aDouble.isInfinite()) {
-                nonNaNSum -= aDouble.doubleValue();
-            } else {
-                nanCount -= 1;
-            }
-
-            if (nanCount == 0) {
-                sum = nonNaNSum;
-            } else {
-                sum -= ((Double) value).doubleValue();
-            }
+            sum.subtract(((Double) value).doubleValue());
         }
         return true;
     }
 
+    /**
+     * the full value of a partial value is only NaN or infinite, its finite part is already in its partial value
+     */
+    private void addNonFinite(double fullValue) {
+        if (Double.isNaN(fullValue) || Double.isInfinite(fullValue)) sum.add(fullValue);
+    }
+
+    private void subtractNonFinite(double fullValue) {
+        if (Double.isNaN(fullValue) || Double.isInfinite(fullValue)) sum.subtract(fullValue);
+    }
+
     public String toString() {
         return "Total";
     }
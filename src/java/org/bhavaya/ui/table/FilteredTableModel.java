@@ -1,27 +1,41 @@
 package org.bhavaya.ui.table;
 
+import gnu.trove.TIntHashSet;
+import org.bhavaya.collection.RankedBitSet;
 import org.bhavaya.util.Log;
+import org.bhavaya.util.NamedExecutors;
 
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
 import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * A TableModel which can filter rows based on column values
- * Needs some more work to makes sure event firing is efficient before possibly integrating into AnalyticsTableModel
+ * The source rows that pass the filters are the set bits of a RankedBitSet, so the source row of a row in this model
+ * is found by selecting the set bit of that rank. Inserts, deletes and updates in the source model only evaluate the
+ * filters for the rows they change, updates only if they change a column the filters read, and are passed on as events
+ * for just the visible rows they affect.
  */
 public class FilteredTableModel extends AbstractTableModel implements KeyedColumnTableModel {
 
     private static final Log log = Log.getCategory(FilteredTableModel.class);
+    private static final int PARALLEL_REFRESH_CHUNK_SIZE = 16384;
+
+    private static ExecutorService refreshExecutor;
 
     private KeyedColumnTableModel sourceModel;
-    private TreeSet<RowIndex> visibleIndices = new TreeSet<RowIndex>();
+    private RankedBitSet visibleRows = new RankedBitSet();  //a bit per row in the source model, set if the row passes the filters
     private Set<TableModelFilter> filters = new HashSet<TableModelFilter>();
-    private int[] rowMap = new int[0];  //maps rows in filtered model to row index in source model
+    private boolean parallelRefresh = false;
 
     public FilteredTableModel( KeyedColumnTableModel sourceModel ) {
         this.sourceModel = sourceModel;
@@ -30,6 +44,18 @@ public class FilteredTableModel extends AbstractTableModel implements KeyedColum
         addSourceModelListener();
     }
 
+    public boolean isParallelRefresh() {
+        return parallelRefresh;
+    }
+
+    /**
+     * Evaluate the filters over large source models in chunks on several threads, when all the rows are filtered again.
+     * Only turn this on if the source model and the filters can be read from threads other than the event thread.
+     */
+    public void setParallelRefresh(boolean parallelRefresh) {
+        this.parallelRefresh = parallelRefresh;
+    }
+
     private void refreshAndFireDataChanged() {
         refresh();
         fireTableDataChanged();
@@ -37,14 +63,67 @@ public class FilteredTableModel extends AbstractTableModel implements KeyedColum
 
     //reapply filter to all rows in source model, prepareFilters must have been called b
     private void refresh() {
-        visibleIndices.clear();
+        visibleRows = evaluateAllRows();
+    }
 
-        for ( int row = 0; row < sourceModel.getRowCount(); row ++ ) {
+    private RankedBitSet evaluateAllRows() {
+        int rowCount = sourceModel.getRowCount();
+        RankedBitSet passed = new RankedBitSet(rowCount);
+        if ( parallelRefresh && rowCount > PARALLEL_REFRESH_CHUNK_SIZE ) {
+            try {
+                evaluateRowsInParallel(passed);
+                return passed;
+            } catch (Exception e) {
+                log.error("Could not filter rows in parallel, filtering them on this thread", e);
+                passed = new RankedBitSet(rowCount);
+            }
+        }
+        for ( int row = 0; row < rowCount; row ++ ) {
             if ( passesFilters(row)) {
-                visibleIndices.add(new RowIndex(row));
+                passed.set(row, true);
+            }
+        }
+        return passed;
+    }
+
+    private void evaluateRowsInParallel(RankedBitSet passed) throws Exception {
+        List<Future<BitSet>> chunks = new ArrayList<Future<BitSet>>();
+        for ( int firstRow = 0; firstRow < passed.size(); firstRow += PARALLEL_REFRESH_CHUNK_SIZE ) {
+            final int chunkStart = firstRow;
+            final int chunkEnd = Math.min(firstRow + PARALLEL_REFRESH_CHUNK_SIZE, passed.size());
+            chunks.add(getRefreshExecutor().submit(new Callable<BitSet>() {
+                public BitSet call() throws Exception {
+                    BitSet chunkPassed = new BitSet(chunkEnd - chunkStart);
+                    for ( int row = chunkStart; row < chunkEnd; row ++ ) {
+                        if ( passesFilters(row)) {
+                            chunkPassed.set(row - chunkStart);
+                        }
+                    }
+                    return chunkPassed;
+                }
+            }));
+        }
+
+        try {
+            for ( int i = 0; i < chunks.size(); i ++ ) {
+                BitSet chunkPassed = chunks.get(i).get();
+                int chunkStart = i * PARALLEL_REFRESH_CHUNK_SIZE;
+                for ( int bit = chunkPassed.nextSetBit(0); bit >= 0; bit = chunkPassed.nextSetBit(bit + 1)) {
+                    passed.set(chunkStart + bit, true);
+                }
+            }
+        } finally {
+            for ( Future<BitSet> chunk : chunks ) {
+                chunk.cancel(true);
             }
         }
-        recalcRowMap();
+    }
+
+    private static synchronized ExecutorService getRefreshExecutor() {
+        if (refreshExecutor == null) {
+            refreshExecutor = NamedExecutors.newFixedThreadPool("FilteredTableModelRefresh", Runtime.getRuntime().availableProcessors(), NamedExecutors.DAEMON_THREAD_CONFIGURER);
+        }
+        return refreshExecutor;
     }
 
     //each filter must find its column index
@@ -59,9 +138,12 @@ public class FilteredTableModel extends AbstractTableModel implements KeyedColum
             public void tableChanged(TableModelEvent e) {
 
                 if ( e.getFirstRow() == TableModelEvent.HEADER_ROW) {
-                    prepareFilters();
-                    refresh();
-                    fireTableStructureChanged();
+                    handleColumnChange(e);
+                } else if ( e instanceof CellsInColumnUpdatedEvent || e instanceof MultipleColumnChangeEvent) {
+                    //these have a last row of Integer.MAX_VALUE when they change several rows
+                    handleUpdate(e);
+                } else if ( e.getLastRow() == Integer.MAX_VALUE || e.getLastRow() < e.getFirstRow()) {
+                    refreshAndFireDataChanged();
                 } else if (e.getType() == TableModelEvent.INSERT) {
                     handleInsert(e);
                 } else if ( e.getType() == TableModelEvent.DELETE) {
@@ -74,56 +156,157 @@ public class FilteredTableModel extends AbstractTableModel implements KeyedColum
         });
     }
 
-    private void handleDelete(TableModelEvent e) {
-        for ( int deletedrow = e.getFirstRow(); deletedrow <= e.getLastRow() ; deletedrow ++ ) {
-            visibleIndices.remove(new RowIndex(deletedrow));
+    private void handleColumnChange(TableModelEvent e) {
+        prepareFilters();
+        RankedBitSet oldVisibleRows = visibleRows;
+        refresh();
+        if ( e.getColumn() != TableModelEvent.ALL_COLUMNS && visibleRows.equals(oldVisibleRows)) {
+            //a single column was inserted, deleted or changed without changing the rows that pass the filters
+            fireTableChanged(new TableModelEvent(this, TableModelEvent.HEADER_ROW, TableModelEvent.HEADER_ROW, e.getColumn(), e.getType()));
+        } else {
+            fireTableStructureChanged();
         }
+    }
 
-        Set<RowIndex> tailSet = visibleIndices.tailSet(new RowIndex(e.getLastRow()));
-        for ( RowIndex row : tailSet ) {
-            row.row = row.row - (1 + (e.getLastRow() - e.getFirstRow()));
+    private void handleDelete(TableModelEvent e) {
+        if ( e.getLastRow() >= visibleRows.size()) {
+            refreshAndFireDataChanged();
+            return;
         }
+        int firstVisibleRow = visibleRows.rank(e.getFirstRow());
+        int deletedVisibleRows = visibleRows.rank(e.getLastRow() + 1) - firstVisibleRow;
+        visibleRows.remove(e.getFirstRow(), 1 + (e.getLastRow() - e.getFirstRow()));
 
-        recalcRowMap();
-        fireTableDataChanged();
+        if ( deletedVisibleRows > 0 ) {
+            fireTableRowsDeleted(firstVisibleRow, firstVisibleRow + deletedVisibleRows - 1);
+        }
     }
 
     private void handleInsert(TableModelEvent e) {
-
-        Set<RowIndex> tailSet = visibleIndices.tailSet(new RowIndex(e.getFirstRow()));
-        int newRows = 1 + (e.getLastRow() - e.getFirstRow());
-        for ( RowIndex row : tailSet ) {
-            row.row = row.row + newRows;
+        if ( e.getFirstRow() > visibleRows.size()) {
+            refreshAndFireDataChanged();
+            return;
         }
+        visibleRows.insert(e.getFirstRow(), 1 + (e.getLastRow() - e.getFirstRow()));
 
+        int insertedVisibleRows = 0;
         for ( int insertedrow = e.getFirstRow(); insertedrow <= e.getLastRow() ; insertedrow ++ ) {
             if ( passesFilters(insertedrow)) {
-                visibleIndices.add(new RowIndex(insertedrow));
+                visibleRows.set(insertedrow, true);
+                insertedVisibleRows++;
             }
         }
 
-        recalcRowMap();
-        //TODO limit the event to the affected rows
-        fireTableDataChanged();
-
+        //the inserted rows that passed are next to each other in this model
+        if ( insertedVisibleRows > 0 ) {
+            int firstVisibleRow = visibleRows.rank(e.getFirstRow());
+            fireTableRowsInserted(firstVisibleRow, firstVisibleRow + insertedVisibleRows - 1);
+        }
     }
 
+    /**
+     * updates may cause either deletions or additions depending on whether new row values pass the filters.
+     * The filters are only evaluated again for the changed rows, if a column they read changed. The changes to the rows
+     * that were visible are passed on as updates, before the insert or delete events for rows that changed visibility.
+     */
     private void handleUpdate(TableModelEvent e) {
-        //updates may cause either deletions or additions depending on whether new row values
-        //pass the filters. Even if no additions or deletions occur we still need to pass on update
-        //events if any rows which are visible in the filtered view are affected.
-        //It will require some work to handle this in an optimal way -
-        //I will leave this for another days since the deadline looms, like a giant dark looming thing
-        refreshAndFireDataChanged();
+        if ( !(e instanceof CellsInColumnUpdatedEvent || e instanceof MultipleColumnChangeEvent) && e.getLastRow() >= visibleRows.size()) {
+            refreshAndFireDataChanged();
+            return;
+        }
+        TableModelEvent[] columnEvents = (e instanceof MultipleColumnChangeEvent) ? ((MultipleColumnChangeEvent) e).getColumnChanges() : new TableModelEvent[]{e};
+
+        TIntHashSet rowsToFilter = new TIntHashSet();
+        for ( TableModelEvent columnEvent : columnEvents ) {
+            if ( isFilteredColumn(columnEvent.getColumn())) {
+                rowsToFilter.addAll(getRows(columnEvent));
+            }
+        }
+
+        //listeners see every visible row with its new values before any row is hidden or shown
+        fireUpdatesForVisibleRows(e, columnEvents);
+
+        int[] rows = rowsToFilter.toArray();
+        Arrays.sort(rows);
+        for ( int row : rows ) {
+            boolean passes = passesFilters(row);
+            if ( passes != visibleRows.get(row)) {
+                visibleRows.set(row, passes);
+                int visibleRow = visibleRows.rank(row);
+                if ( passes ) {
+                    fireTableRowsInserted(visibleRow, visibleRow);
+                } else {
+                    fireTableRowsDeleted(visibleRow, visibleRow);
+                }
+            }
+        }
+    }
+
+    private void fireUpdatesForVisibleRows(TableModelEvent e, TableModelEvent[] columnEvents) {
+        if ( !(columnEvents[0] instanceof CellsInColumnUpdatedEvent)) {
+            int firstVisibleRow = visibleRows.rank(e.getFirstRow());
+            int lastVisibleRow = visibleRows.rank(e.getLastRow() + 1) - 1;
+            if ( lastVisibleRow >= firstVisibleRow ) {
+                fireTableChanged(new TableModelEvent(this, firstVisibleRow, lastVisibleRow, e.getColumn()));
+            }
+            return;
+        }
+
+        List<CellsInColumnUpdatedEvent> visibleEvents = new ArrayList<CellsInColumnUpdatedEvent>(columnEvents.length);
+        for ( TableModelEvent columnEvent : columnEvents ) {
+            CellsInColumnUpdatedEvent cellsEvent = (CellsInColumnUpdatedEvent) columnEvent;
+            int[] visibleRowIndexes = new int[cellsEvent.getRowCount()];
+            int visibleRowCount = 0;
+            for ( int i = 0; i < cellsEvent.getRowCount(); i ++ ) {
+                int row = cellsEvent.getRowIndex(i);
+                if ( visibleRows.get(row)) {
+                    visibleRowIndexes[visibleRowCount++] = visibleRows.rank(row);
+                }
+            }
+            if ( visibleRowCount > 0 ) {
+                if ( visibleRowCount < visibleRowIndexes.length ) {
+                    int[] rows = new int[visibleRowCount];
+                    System.arraycopy(visibleRowIndexes, 0, rows, 0, visibleRowCount);
+                    visibleRowIndexes = rows;
+                }
+                visibleEvents.add(new CellsInColumnUpdatedEvent(this, visibleRowIndexes, cellsEvent.getColumn(), cellsEvent));
+            }
+        }
+
+        if ( visibleEvents.size() == 1 ) {
+            fireTableChanged(visibleEvents.get(0));
+        } else if ( visibleEvents.size() > 1 ) {
+            CellsInColumnUpdatedEvent[] events = visibleEvents.toArray(new CellsInColumnUpdatedEvent[visibleEvents.size()]);
+            boolean sameRowsForEachColumn = true;
+            for ( int i = 1; i < events.length; i ++ ) {
+                sameRowsForEachColumn &= Arrays.equals(events[0].getRows(), events[i].getRows());
+            }
+            fireTableChanged(new MultipleColumnChangeEvent(this, events, sameRowsForEachColumn));
+        }
     }
 
+    private static int[] getRows(TableModelEvent e) {
+        if ( e instanceof CellsInColumnUpdatedEvent ) {
+            return ((CellsInColumnUpdatedEvent) e).getRows();
+        }
+        int[] rows = new int[1 + (e.getLastRow() - e.getFirstRow())];
+        for ( int i = 0; i < rows.length; i ++ ) {
+            rows[i] = e.getFirstRow() + i;
+        }
+        return rows;
+    }
 
-    private void recalcRowMap() {
-        rowMap = new int[visibleIndices.size()];
-        int row = 0;
-        for ( RowIndex r : visibleIndices)  {
-            rowMap[row++] = r.row;
+    /**
+     * @return true if a change to the column could change whether a row passes the filters
+     */
+    private boolean isFilteredColumn(int column) {
+        for ( TableModelFilter filter : filters ) {
+            if ( column == TableModelEvent.ALL_COLUMNS || !(filter instanceof ColumnDependentFilter) ||
+                    ((ColumnDependentFilter) filter).isDependentOnColumn(column)) {
+                return true;
+            }
         }
+        return false;
     }
 
     private boolean passesFilters(int row) {
@@ -174,7 +357,7 @@ public class FilteredTableModel extends AbstractTableModel implements KeyedColum
     }
 
     public int getRowCount() {
-        return rowMap.length;
+        return visibleRows.cardinality();
     }
 
     public int getColumnCount() {
@@ -190,48 +373,22 @@ public class FilteredTableModel extends AbstractTableModel implements KeyedColum
     }
 
     public boolean isCellEditable(int rowIndex, int columnIndex) {
-        return sourceModel.isCellEditable(rowMap[rowIndex], columnIndex);
+        return sourceModel.isCellEditable(visibleRows.select(rowIndex), columnIndex);
     }
 
     public Object getValueAt(int rowIndex, int columnIndex) {
-        return sourceModel.getValueAt(rowMap[rowIndex], columnIndex);
+        return sourceModel.getValueAt(visibleRows.select(rowIndex), columnIndex);
     }
 
     public void setValueAt(Object aValue, int rowIndex, int columnIndex) {
-        sourceModel.setValueAt(aValue, rowMap[rowIndex], columnIndex);
+        sourceModel.setValueAt(aValue, visibleRows.select(rowIndex), columnIndex);
     }
 
     protected int getSourceModelRow(int row) {
-        return rowMap[row];
+        return visibleRows.select(row);
     }
 
-    private static class RowIndex implements Comparable<RowIndex> {
-        private int row;
-
-        public RowIndex(int row) {
-            this.row = row;
-        }
-
-        public int hashCode() {
-            return row;
-        }
-
-        public boolean equals(Object o) {
-            boolean result = false;
-            if ( o instanceof RowIndex) {
-                if ( ((RowIndex)o).row == row ) {
-                    result = true;
-                }
-            }
-            return result;
-        }
-
-        public int compareTo(RowIndex o) {
-            return (this.row<o.row ? -1 : (this.row==o.row ? 0 : 1));
-        }
-    }
-
-    public static class ColumnValueFilter implements TableModelFilter {
+    public static class ColumnValueFilter implements ColumnDependentFilter {
 
         private String columnName;
         private Object value;
@@ -269,6 +426,10 @@ public class FilteredTableModel extends AbstractTableModel implements KeyedColum
             return result;
         }
 
+        public boolean isDependentOnColumn(int column) {
+            return column == colIndex;
+        }
+
         private boolean testValue(Object o) {
             return ( o == value || ( value != null && value.equals(o)));
         }
@@ -284,4 +445,15 @@ public class FilteredTableModel extends AbstractTableModel implements KeyedColum
          */
         boolean evaluate( KeyedColumnTableModel tableModel, int rowIndex);
     }
+
+    /**
+     * A filter that only reads some columns, so that changes to other columns do not need the filter evaluated again
+     */
+    public static interface ColumnDependentFilter extends TableModelFilter {
+
+        /**
+         * @return true, if the result of evaluate may depend on the value in the column
+         */
+        boolean isDependentOnColumn(int column);
+    }
 }
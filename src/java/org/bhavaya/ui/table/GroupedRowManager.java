@@ -29,6 +29,8 @@
 
 package org.bhavaya.ui.table;
 
+import org.bhavaya.collection.OrderStatisticTree;
+import org.bhavaya.collection.TreeIndexedSet;
 import org.bhavaya.ui.diagnostics.ApplicationDiagnostics;
 import org.bhavaya.util.Log;
 import org.bhavaya.util.Utilities;
@@ -43,24 +45,30 @@ import java.util.*;
  * it sits ontop of a table model, and is told which rows belong to which groups.
  * It starts off with a "ColumnClassBucketFactory" (which basically builds aggregate buckets based on the column class -
  * e.g. IntegerSumBucket for all Integer columns, etc). You can change the bucket factory to your own via setBucketFactory.
+ * <p/>
+ * Source rows are held as nodes of an OrderStatisticTree, valued with the GroupedRow they belong to, so inserting or
+ * removing a source row, and finding the source row index of a member of a group, is O(log n) rather than a renumbering
+ * of every later row.  Between beginBatch and endBatch, cell changes are collected and sent once per cell.
  *
  * @author Daniel van Enckevort
  * @version $Revision: 1.13 $
  */
 public class GroupedRowManager {
     private static final Log log = Log.getCategory(GroupedRowManager.class);
+    private static final Object UNCHANGED = new Object();
 
     private CellChangeListener listener;
     private KeyedColumnTableModel tableModel;
 
-    private Map sourceRowIndexToGroupedRow = new HashMap();
-    private List sourceRowIndexes = new ArrayList();    //array of SourceRowIndex objects to easily maintain row indexing
-    private boolean sourceRowIndexesEmpty = true;
-    //after inserting or deleting source rows
+    private OrderStatisticTree sourceRows = new OrderStatisticTree();    //a node per source row, valued with its GroupedRow
+    private boolean sourceRowsEmpty = true;
 
     private ArrayList groupedRows = new ArrayList();
     private BucketFactory bucketFactory;
 
+    private int batchDepth;
+    private Map pendingCellChanges;    //GroupedRow to the old values of its changed cells, while in a batch
+
 
     public GroupedRowManager(KeyedColumnTableModel tableModel, CellChangeListener listener) {
         this.tableModel = tableModel;
@@ -86,6 +94,7 @@ public class GroupedRowManager {
     }
 
     public void columnInserted(int insertColumn) {
+        if (pendingCellChanges != null) pendingCellChanges.clear();
         for (Iterator iterator = groupedRows.iterator(); iterator.hasNext();) {
             GroupedRow groupedRow = (GroupedRow) iterator.next();
             groupedRow.columnInserted(insertColumn);
@@ -93,6 +102,7 @@ public class GroupedRowManager {
     }
 
     public void columnRemoved(int removeColumn) {
+        if (pendingCellChanges != null) pendingCellChanges.clear();
         for (Iterator iterator = groupedRows.iterator(); iterator.hasNext();) {
             GroupedRow groupedRow = (GroupedRow) iterator.next();
             groupedRow.columnRemoved(removeColumn);
@@ -121,15 +131,17 @@ public class GroupedRowManager {
      * @param insertPoint
      */
     public void sourceRowInserted(int insertPoint) {
-        List sourceRowIndexes = getSourceRowIndexes();
-        if (insertPoint < sourceRowIndexes.size()) {
-            for (int i = insertPoint; i < sourceRowIndexes.size(); i++) {
-                SourceRowIndex sourceRowIndex = (SourceRowIndex) sourceRowIndexes.get(i);
-                sourceRowIndex.index = i + 1;
-            }
+        sourceRowsInserted(insertPoint, insertPoint);
+    }
+
+    /**
+     * as sourceRowInserted, for the source rows firstRow to lastRow inclusive
+     */
+    public void sourceRowsInserted(int firstRow, int lastRow) {
+        if (sourceRowsEmpty) return;    //the inserted rows are included when the source rows are first read
+        for (int row = firstRow; row <= lastRow; row++) {
+            sourceRows.add(row, null);
         }
-        SourceRowIndex sourceRowIndex = new SourceRowIndex(insertPoint);
-        sourceRowIndexes.add(insertPoint, sourceRowIndex);
     }
 
     /**
@@ -140,42 +152,128 @@ public class GroupedRowManager {
      * @param removedRow
      */
     public void sourceRowRemoved(int removedRow) {
-        List sourceRowIndexes = getSourceRowIndexes();
-        SourceRowIndex removedSourceRowIndex = (SourceRowIndex) sourceRowIndexes.get(removedRow);
+        sourceRowsRemoved(removedRow, removedRow);
+    }
+
+    /**
+     * as sourceRowRemoved, for the source rows firstRow to lastRow inclusive.  Each group that loses rows recalculates
+     * its buckets once, however many of its rows were removed.
+     *
+     * @return the GroupedRows that lost rows, some of which may now be empty
+     */
+    public Collection sourceRowsRemoved(int firstRow, int lastRow) {
+        if (sourceRowsEmpty) return Collections.EMPTY_SET;
+
+        Set changedGroupedRows = new LinkedHashSet();
+        for (int row = lastRow; row >= firstRow; row--) {
+            OrderStatisticTree.Node sourceRow = sourceRows.getNode(row);
+            sourceRows.remove(sourceRow);
+            GroupedRow groupedRow = (GroupedRow) sourceRow.getValue();
+            if (groupedRow != null) {
+                groupedRow.sourceRows.remove(sourceRow);
+                changedGroupedRows.add(groupedRow);
+            }
+        }
+
+        //don't know the values that have been removed, so the next best thing is to recalculate. Expensive.
+        recalcBuckets(changedGroupedRows, true);
+        return changedGroupedRows;
+    }
 
-        if (removedRow < sourceRowIndexes.size()) {
-            for (int i = removedRow; i < sourceRowIndexes.size(); i++) {
-                SourceRowIndex sourceRowIndex = (SourceRowIndex) sourceRowIndexes.get(i);
-                sourceRowIndex.index = i - 1;
+    /**
+     * recalc every cell of groupedRows, finding the source rows of each group once for all its columns
+     */
+    private void recalcBuckets(Collection groupedRows, boolean sendEvents) {
+        Map sourceRowIndexesByGroupedRow = getSourceRowIndexes(groupedRows);
+        for (Iterator iterator = groupedRows.iterator(); iterator.hasNext();) {
+            GroupedRow groupedRow = (GroupedRow) iterator.next();
+            int[] sourceRowIndexes = (int[]) sourceRowIndexesByGroupedRow.get(groupedRow);
+            if (sourceRowIndexes == null) sourceRowIndexes = groupedRow.getSourceRowIndexes();
+            for (int column = 0; column < groupedRow.rowBuckets.size(); column++) {
+                groupedRow.recalcBucket(column, sourceRowIndexes, sendEvents);
             }
         }
-        sourceRowIndexes.remove(removedRow);
+    }
+
+    /**
+     * finding the index of each source row of a group is O(log n), so when the groups hold more than n / log n rows
+     * between them it is cheaper to find their indexes in one pass over all the source rows.
+     *
+     * @return the source row indexes of each of groupedRows, in source row order, or an empty map if the groups are
+     *         small enough to find their own indexes
+     */
+    private Map getSourceRowIndexes(Collection groupedRows) {
+        int sourceRowCount = sourceRows.size();
+        int groupedSourceRowCount = 0;
+        for (Iterator iterator = groupedRows.iterator(); iterator.hasNext();) {
+            groupedSourceRowCount += ((GroupedRow) iterator.next()).getSourceRowCount();
+        }
+        int log = 32 - Integer.numberOfLeadingZeros(sourceRowCount);
+        if ((long) groupedSourceRowCount * log <= sourceRowCount) return Collections.EMPTY_MAP;
+
+        Map sourceRowIndexesByGroupedRow = new HashMap(groupedRows.size() * 2);
+        Map counts = new HashMap(groupedRows.size() * 2);
+        for (Iterator iterator = groupedRows.iterator(); iterator.hasNext();) {
+            GroupedRow groupedRow = (GroupedRow) iterator.next();
+            sourceRowIndexesByGroupedRow.put(groupedRow, new int[groupedRow.getSourceRowCount()]);
+            counts.put(groupedRow, new int[1]);
+        }
+        int sourceRow = 0;
+        for (OrderStatisticTree.Node node = sourceRows.first(); node != null; node = OrderStatisticTree.next(node), sourceRow++) {
+            Object groupedRow = node.getValue();
+            if (groupedRow == null) continue;
+            int[] count = (int[]) counts.get(groupedRow);
+            if (count != null) ((int[]) sourceRowIndexesByGroupedRow.get(groupedRow))[count[0]++] = sourceRow;
+        }
+        return sourceRowIndexesByGroupedRow;
+    }
+
+    /**
+     * until the matching endBatch, cell changes are collected rather than sent to the CellChangeListener.
+     * Batches may be nested.
+     */
+    public void beginBatch() {
+        if (batchDepth++ == 0) pendingCellChanges = new LinkedHashMap();
+    }
 
-        GroupedRow groupedRow = (GroupedRow) sourceRowIndexToGroupedRow.remove(removedSourceRowIndex);
-        if (groupedRow != null) {
-            groupedRow.removeRow(removedSourceRowIndex, null, true);
+    /**
+     * sends one cellChanged for each cell changed since beginBatch, from its value when it was first changed to its
+     * current value.
+     */
+    public void endBatch() {
+        if (--batchDepth > 0) return;
+        Map cellChanges = pendingCellChanges;
+        pendingCellChanges = null;
+        for (Iterator iterator = cellChanges.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry entry = (Map.Entry) iterator.next();
+            GroupedRow groupedRow = (GroupedRow) entry.getKey();
+            Object[] oldValues = (Object[]) entry.getValue();
+            for (int column = 0; column < oldValues.length; column++) {
+                if (oldValues[column] != UNCHANGED) {
+                    getListener().cellChanged(groupedRow, column, oldValues[column], groupedRow.getCellValue(column));
+                }
+            }
         }
     }
 
     public void addSourceRowToGroup(GroupedRow row, int sourceRow, boolean sendEvents) {
-        SourceRowIndex sourceRowIndex = getSourceRowIndex(sourceRow);
-        row.addRow(sourceRowIndex, sendEvents);
-        sourceRowIndexToGroupedRow.put(sourceRowIndex, row);
+        OrderStatisticTree.Node sourceRowNode = getSourceRowNode(sourceRow);
+        row.addRow(sourceRowNode, sourceRow, sendEvents);
+        sourceRowNode.setValue(row);
     }
 
     public void removeSourceRowFromGroup(GroupedRow groupedRow, int sourceRow, OldValuesAccessor oldValues, boolean sendEvents) {
-        SourceRowIndex sourceRowIndex = getSourceRowIndex(sourceRow);
-        groupedRow.removeRow(sourceRowIndex, oldValues, sendEvents);
-        sourceRowIndexToGroupedRow.remove(sourceRowIndex);
+        OrderStatisticTree.Node sourceRowNode = getSourceRowNode(sourceRow);
+        sourceRowNode.setValue(null);    //before removeRow, whose recalc may walk the source rows looking for the group
+        groupedRow.removeRow(sourceRowNode, oldValues, sendEvents);
     }
 
     public GroupedRow getGroupedRowForSourceRow(int sourceRow) {
-        SourceRowIndex sourceRowIndex = getSourceRowIndex(sourceRow);
-        return (GroupedRow) sourceRowIndexToGroupedRow.get(sourceRowIndex);
+        return (GroupedRow) getSourceRowNode(sourceRow).getValue();
     }
 
-    private SourceRowIndex getSourceRowIndex(int sourceRow) {
-        return (SourceRowIndex) getSourceRowIndexes().get(sourceRow);
+    private OrderStatisticTree.Node getSourceRowNode(int sourceRow) {
+        return getSourceRows().getNode(sourceRow);
     }
 
     protected GroupedRowManager.ValueBucket createValueBucket(int column) {
@@ -201,12 +299,12 @@ public class GroupedRowManager {
     }
 
     public void deleteGroupedRow(GroupedRow groupedRow) {
-        for (int i = 0; i < groupedRow.getSourceRowCount(); i++) {
-            int rowNum = groupedRow.getSourceRowIndex(i);
-            SourceRowIndex sourceRowIndex = getSourceRowIndex(rowNum);
-            sourceRowIndexToGroupedRow.remove(sourceRowIndex);
+        for (Iterator iterator = groupedRow.sourceRows.iterator(); iterator.hasNext();) {
+            OrderStatisticTree.Node sourceRowNode = (OrderStatisticTree.Node) iterator.next();
+            sourceRowNode.setValue(null);
         }
         groupedRows.remove(groupedRow);
+        if (pendingCellChanges != null) pendingCellChanges.remove(groupedRow);
 
         //update row indexes
         for (int i = groupedRow.getRowNumber(); i < groupedRows.size(); i++) {
@@ -216,23 +314,21 @@ public class GroupedRowManager {
     }
 
     public void clearAll() {
-        sourceRowIndexToGroupedRow.clear();
-        sourceRowIndexes.clear();
-        sourceRowIndexesEmpty = true;
+        sourceRows.clear();
+        sourceRowsEmpty = true;
         groupedRows.clear();
+        if (pendingCellChanges != null) pendingCellChanges.clear();
     }
 
-    private List getSourceRowIndexes() {
-        if (sourceRowIndexesEmpty) {
-            sourceRowIndexesEmpty = false;
+    private OrderStatisticTree getSourceRows() {
+        if (sourceRowsEmpty) {
+            sourceRowsEmpty = false;
             TableModel sourceModel = getSourceModel();
             if (sourceModel != null) {
-                for (int row = 0; row < sourceModel.getRowCount(); row++) {
-                    sourceRowInserted(row);
-                }
+                sourceRows.setValues(new Object[sourceModel.getRowCount()]);
             }
         }
-        return sourceRowIndexes;
+        return sourceRows;
     }
 
     protected CellChangeListener getListener() {
@@ -240,7 +336,7 @@ public class GroupedRowManager {
     }
 
     public class GroupedRow {
-        private ArrayList sourceRowIndexes = new ArrayList();
+        private TreeIndexedSet sourceRows = new TreeIndexedSet();    //nodes of the source rows in this group
         private List rowBuckets;  //a list of ValueBuckets
         private int rowNumber;
 
@@ -281,6 +377,10 @@ public class GroupedRowManager {
          * @param sendEvents
          */
         private void recalcBucket(int column, boolean sendEvents) {
+            recalcBucket(column, getSourceRowIndexes(), sendEvents);
+        }
+
+        private void recalcBucket(int column, int[] sourceRowIndexes, boolean sendEvents) {
             Object oldValue = null;
             if (sendEvents) {
                 oldValue = getCellValue(column);
@@ -288,15 +388,15 @@ public class GroupedRowManager {
 
             rowBuckets.set(column, createValueBucket(column));
 
-            for (int i = 0; i < getSourceRowCount(); i++) {
-                int sourceRow = getSourceRowIndex(i);
-                Object value = getSourceModel().getValueAt(sourceRow, column);
+            TableModel sourceModel = getSourceModel();
+            for (int i = 0; i < sourceRowIndexes.length; i++) {
+                Object value = sourceModel.getValueAt(sourceRowIndexes[i], column);
                 addValueToBucket(column, value);
             }
 
             if (sendEvents) {
                 Object newValue = getCellValue(column);
-                getListener().cellChanged(this, column, oldValue, newValue);
+                fireCellChanged(column, oldValue, newValue);
             }
         }
 
@@ -309,14 +409,14 @@ public class GroupedRowManager {
         }
 
         /**
-         * include the sourceRowIndex in the set that this groupedRow represents
+         * include the source row in the set that this groupedRow represents
          *
-         * @param sourceRowIndex
+         * @param sourceRowNode
+         * @param sourceRow the current index of sourceRowNode
          * @param sendEvents
          */
-        private void addRow(SourceRowIndex sourceRowIndex, boolean sendEvents) {
-            sourceRowIndexes.add(sourceRowIndex);
-            int sourceRow = sourceRowIndex.index;
+        private void addRow(OrderStatisticTree.Node sourceRowNode, int sourceRow, boolean sendEvents) {
+            sourceRows.add(sourceRowNode);
             TableModel sourceModel = getSourceModel();
             //iterate new rows cells, and add them to our current cell buckets for this grouping
             for (int col = 0; col < sourceModel.getColumnCount(); col++) {
@@ -331,34 +431,34 @@ public class GroupedRowManager {
 
                 if (sendEvents) {
                     Object newValue = getCellValue(col);
-                    getListener().cellChanged(this, col, oldValue, newValue);
+                    fireCellChanged(col, oldValue, newValue);
                 }
             }
         }
 
-        private void removeRow(SourceRowIndex sourceRowIndex, OldValuesAccessor oldValues, boolean sendEvents) {
-            sourceRowIndexes.remove(sourceRowIndex);
+        private void removeRow(OrderStatisticTree.Node sourceRowNode, OldValuesAccessor oldValues, boolean sendEvents) {
+            sourceRows.remove(sourceRowNode);
+            if (oldValues == null) {
+                //don't know the value that has been removed, so the next best thing is to recalculate. Expensive.
+                GroupedRowManager.this.recalcBuckets(Collections.singleton(this), sendEvents);
+                return;
+            }
             for (int column = 0; column < rowBuckets.size(); column++) {
-                if (oldValues == null) {
-                    //don't know the value that has been removed, so the next best thing is to recalculate. Expensive.
-                    recalcBucket(column, sendEvents);
-                } else {
-                    Object removedCellValue = oldValues.getOldValue(column);
+                Object removedCellValue = oldValues.getOldValue(column);
 
-                    Object oldValue = null;
+                Object oldValue = null;
 
-                    if (sendEvents) {
-                        oldValue = getCellValue(column);
-                    }
-                    boolean success = removeValueFromBucket(column, removedCellValue);
-                    if (!success) {
-                        recalcBucket(column);
-                    }
+                if (sendEvents) {
+                    oldValue = getCellValue(column);
+                }
+                boolean success = removeValueFromBucket(column, removedCellValue);
+                if (!success) {
+                    recalcBucket(column);
+                }
 
-                    if (sendEvents) {
-                        Object newValue = getCellValue(column);
-                        getListener().cellChanged(this, column, oldValue, newValue);
-                    }
+                if (sendEvents) {
+                    Object newValue = getCellValue(column);
+                    fireCellChanged(column, oldValue, newValue);
                 }
             }
         }
@@ -398,15 +498,35 @@ public class GroupedRowManager {
                     if (!success) return false;
                     changeUnreadyCount(columnIndex, +1);
                 } else {
-                    boolean success = getBucket(columnIndex).update(oldValue, newValue);
+                    ValueBucket bucket = getBucket(columnIndex);
+                    boolean success;
+                    if (oldValue instanceof Double && newValue instanceof Double && bucket instanceof DoubleValueBucket) {
+                        success = ((DoubleValueBucket) bucket).update(((Double) oldValue).doubleValue(), ((Double) newValue).doubleValue());
+                    } else {
+                        success = bucket.update(oldValue, newValue);
+                    }
                     if (!success) return false;
                 }
             }
             newBucketValue = getCellValue(columnIndex);
-            getListener().cellChanged(this, columnIndex, oldBucketValue, newBucketValue);
+            fireCellChanged(columnIndex, oldBucketValue, newBucketValue);
             return true;
         }
 
+        private void fireCellChanged(int column, Object oldValue, Object newValue) {
+            if (pendingCellChanges == null) {
+                getListener().cellChanged(this, column, oldValue, newValue);
+                return;
+            }
+            Object[] oldValues = (Object[]) pendingCellChanges.get(this);
+            if (oldValues == null) {
+                oldValues = new Object[rowBuckets.size()];
+                Arrays.fill(oldValues, UNCHANGED);
+                pendingCellChanges.put(this, oldValues);
+            }
+            if (column < oldValues.length && oldValues[column] == UNCHANGED) oldValues[column] = oldValue;
+        }
+
         private void changeUnreadyCount(int columnIndex, int delta) {
             Object cell = rowBuckets.get(columnIndex);
             if (!(cell instanceof UnreadyData)) {
@@ -432,7 +552,11 @@ public class GroupedRowManager {
                 changeUnreadyCount(col, +1);
             } else {
                 ValueBucket currentValue = getBucket(col);
-                currentValue.insert(value);
+                if (value instanceof Double && currentValue instanceof DoubleValueBucket) {
+                    ((DoubleValueBucket) currentValue).insert(((Double) value).doubleValue());
+                } else {
+                    currentValue.insert(value);
+                }
             }
         }
 
@@ -449,6 +573,8 @@ public class GroupedRowManager {
             if (value == CachedObjectGraph.DATA_NOT_READY) {
                 changeUnreadyCount(col, -1);
                 return true;
+            } else if (value instanceof Double && currentValue instanceof DoubleValueBucket) {
+                return ((DoubleValueBucket) currentValue).delete(((Double) value).doubleValue());
             } else {
                 return currentValue.delete(value);
             }
@@ -469,28 +595,27 @@ public class GroupedRowManager {
          * @param groupIndex ranges between 0 and getSourceRowCount()-1
          */
         public int getSourceRowIndex(int groupIndex) {
-            SourceRowIndex sourceRowIndex = (SourceRowIndex) sourceRowIndexes.get(groupIndex);
-            return sourceRowIndex.index;
+            OrderStatisticTree.Node sourceRowNode = (OrderStatisticTree.Node) sourceRows.get(groupIndex);
+            return GroupedRowManager.this.sourceRows.indexOf(sourceRowNode);
         }
 
         public int getSourceRowCount() {
-            return sourceRowIndexes.size();
+            return sourceRows.size();
         }
 
-        public TableModel getSourceModel() {
-            return GroupedRowManager.this.getSourceModel();
+        private int[] getSourceRowIndexes() {
+            int[] sourceRowIndexes = new int[getSourceRowCount()];
+            for (int i = 0; i < sourceRowIndexes.length; i++) {
+                sourceRowIndexes[i] = getSourceRowIndex(i);
+            }
+            return sourceRowIndexes;
         }
-    }
 
-    private static class SourceRowIndex {
-        public int index;
-
-        public SourceRowIndex(int index) {
-            this.index = index;
+        public TableModel getSourceModel() {
+            return GroupedRowManager.this.getSourceModel();
         }
     }
 
-
     public interface ValueBucket {
         public void insert(Object value);
 
@@ -512,6 +637,18 @@ public class GroupedRowManager {
         public Object getOutput();
     }
 
+    /**
+     * A ValueBucket of doubles.  GroupedRowManager passes Double values to it as doubles, and it need not create its
+     * output until getOutput is called.
+     */
+    public interface DoubleValueBucket extends ValueBucket {
+        public void insert(double value);
+
+        public boolean update(double oldValue, double newValue);
+
+        public boolean delete(double value);
+    }
+
     public interface CellChangeListener {
         public void cellChanged(GroupedRow row, int column, Object oldValue, Object newValue);
     }
@@ -355,10 +355,19 @@ public class GroupedTableModel extends AbstractTableModel implements TabularBean
 
             // If table columns changed, need to regroup
             if (firstRow == TableModelEvent.HEADER_ROW) {
-                //todo: would be quite trivial to handle this more specifically, but do not want to cause any bugs at the moment
-                //todo: will do this if people end up complaining about how long it takes to add or remove columns while grouped.
-                setUncalculated();
-                fireTableStructureChanged();
+                if (isBucketColumnCountChange(eventColumn, type)) {
+                    //e.g. a pivot column, only each group's buckets for the column need adding or removing
+                    beansForLocationCache = null;
+                    if (type == TableModelEvent.INSERT) {
+                        getGroupedRowManager().columnInserted(eventColumn);
+                    } else {
+                        getGroupedRowManager().columnRemoved(eventColumn);
+                    }
+                    fireTableChanged(new TableModelEvent(GroupedTableModel.this, TableModelEvent.HEADER_ROW, TableModelEvent.HEADER_ROW, eventColumn, type));
+                } else {
+                    setUncalculated();
+                    fireTableStructureChanged();
+                }
             } else { //not the header row
                 if (isUncalculated()) {
                     beansForLocationCache = null;
@@ -366,14 +375,14 @@ public class GroupedTableModel extends AbstractTableModel implements TabularBean
                 } else {
                     //data changed
                     if (type == TableModelEvent.INSERT || type == TableModelEvent.DELETE) {
-                        if (firstRow == lastRow) {
+                        if (firstRow == lastRow || isIncrementalChange(firstRow, lastRow)) {
                             beansForLocationCache = null;
                             switch (type) {
                                 case TableModelEvent.INSERT:
-                                    handleInsert(firstRow);
+                                    handleInsert(firstRow, lastRow);
                                     break;
                                 case TableModelEvent.DELETE:
-                                    handleRemove(firstRow);
+                                    handleRemove(firstRow, lastRow);
                                     break;
                             }
                         } else {
@@ -398,17 +407,59 @@ public class GroupedTableModel extends AbstractTableModel implements TabularBean
             }
         }
 
-        private void handleRemove(int firstRow) {
-            GroupedRowManager.GroupedRow groupedRow = getGroupedRowManager().getGroupedRowForSourceRow(firstRow);
-            getGroupedRowManager().sourceRowRemoved(firstRow);
-            if (groupedRow.getSourceRowCount() == 0) {
-                removeGroupedRow(groupedRow);
+        /**
+         * @return true if a column that is not part of the group key was inserted or removed, which leaves the groups as they are
+         */
+        private boolean isBucketColumnCountChange(int column, int type) {
+            if (isUncalculated() || column == TableModelEvent.ALL_COLUMNS || keyToGroupedRow.isEmpty()) return false;
+            if (type == TableModelEvent.INSERT) {
+                return !getGroupedKeyDefinition().isGroupKeyColumn(getColumnKey(column));
+            } else if (type == TableModelEvent.DELETE) {
+                //the removed column has gone from the source, but a key column would leave the keys longer than the key columns
+                int keyColumnCount = 0;
+                for (int i = 0; i < getColumnCount(); i++) {
+                    if (getGroupedKeyDefinition().isGroupKeyColumn(getColumnKey(i))) keyColumnCount++;
+                }
+                List groupKey = (List) keyToGroupedRow.keySet().iterator().next();
+                return groupKey.size() == keyColumnCount;
+            }
+            return false;
+        }
+
+        /**
+         * inserting or removing more than half the rows is cheaper to handle by grouping them all again
+         */
+        private boolean isIncrementalChange(int firstRow, int lastRow) {
+            return lastRow != Integer.MAX_VALUE && (lastRow - firstRow + 1) * 2 <= getSourceModel().getRowCount();
+        }
+
+        private void handleRemove(int firstRow, int lastRow) {
+            GroupedRowManager groupedRowManager = getGroupedRowManager();
+            groupedRowManager.beginBatch();
+            try {
+                Collection changedGroupedRows = groupedRowManager.sourceRowsRemoved(firstRow, lastRow);
+                for (Iterator iterator = changedGroupedRows.iterator(); iterator.hasNext();) {
+                    GroupedRowManager.GroupedRow groupedRow = (GroupedRowManager.GroupedRow) iterator.next();
+                    if (groupedRow.getSourceRowCount() == 0) {
+                        removeGroupedRow(groupedRow);
+                    }
+                }
+            } finally {
+                groupedRowManager.endBatch();
             }
         }
 
-        private void handleInsert(int firstRow) {
-            getGroupedRowManager().sourceRowInserted(firstRow);
-            addRowToGroup(firstRow, true);
+        private void handleInsert(int firstRow, int lastRow) {
+            GroupedRowManager groupedRowManager = getGroupedRowManager();
+            groupedRowManager.sourceRowsInserted(firstRow, lastRow);
+            groupedRowManager.beginBatch();
+            try {
+                for (int row = firstRow; row <= lastRow; row++) {
+                    addRowToGroup(row, true);
+                }
+            } finally {
+                groupedRowManager.endBatch();
+            }
         }
 
         private void updateBucketValues(TableModelEvent e) {
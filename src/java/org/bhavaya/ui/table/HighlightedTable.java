@@ -30,8 +30,8 @@
 package org.bhavaya.ui.table;
 
 import gnu.trove.TIntLongHashMap;
-import gnu.trove.TIntObjectHashMap;
 import gnu.trove.TIntProcedure;
+import gnu.trove.TLongObjectHashMap;
 import org.bhavaya.ui.ToolTipFactory;
 import org.bhavaya.ui.UIUtilities;
 import org.bhavaya.ui.VariableDelaySwingTask;
@@ -64,13 +64,22 @@ public class HighlightedTable extends TrackViewportJTable {
     private static final Color NEUTRAL_COLOR_CHANGE = new Color(54, 210, 255);
     private static final Color POSITIVE_COLOR_CHANGE = Color.GREEN;
     private static final Color NEGATIVE_COLOR_CHANGE = Color.RED;
+    private static final byte NO_CHANGE = -1;   //a direction for a change not to flash, such as NaN to NaN
 
     /**
      * Determines the behaviour on enter when on last row of the table (by default the selection moves on the first row)
      */
     private static boolean cycleTableOnEnter = true;
 
-    private TIntObjectHashMap cellUpdateTimes = new TIntObjectHashMap();
+    private static final long CELL_CHANGE_DURATION = 2000;
+    private static final int FADE_STEPS = 32;
+    private static final int MAX_FADE_RAMPS = 256;
+    private static final int REPAINT_BUDGET_PERCENT = 20;
+
+    private CellChangeTimes cellChangeTimes = new CellChangeTimes();
+    private TLongObjectHashMap fadeRamps = new TLongObjectHashMap();   //Color[FADE_STEPS] from a background to a change colour
+    private int[] dirtyColumnMinRows = new int[0];
+    private int[] dirtyColumnMaxRows = new int[0];
     private TIntLongHashMap rowToInsertTime = new TIntLongHashMap();
 
     private int[] columnModelIdxToViewIdx = null;
@@ -141,23 +150,16 @@ public class HighlightedTable extends TrackViewportJTable {
         try {
             if (!isShowing()) return;
 
-            int delay = repaintTask.getDelay();
-
-            if (delay < maxDelay && CpuLoad.getInstance().getLoad() > 0.50) {
-                repaintTask.setDelay(delay + 100);
-            }
-            if (delay > minDelay && CpuLoad.getInstance().getLoad() > 0.30) {
-                repaintTask.setDelay(delay - 100);
-            }
-
             long currentTime = System.currentTimeMillis();
             if (currentTime - lastFullRepaint > FULL_REPAINT_DELAY) {
                 // This is done so logic dependant highlights, e.g. where a cell highlight is dependant on the value
                 // of another, are refreshed, i.e. decide if the highlight change
                 lastFullRepaint = currentTime;
-                repaint();
+                repaint(getVisibleRect());
             } else if(isAnimated()){
+                long startTime = System.nanoTime();
                 paintAllChanged();
+                adjustRepaintDelay((System.nanoTime() - startTime) / 1000000);
             }
         } catch (Exception e) {
             log.error("Exception while painting updated cells", e);
@@ -171,8 +173,9 @@ public class HighlightedTable extends TrackViewportJTable {
 
         // All of this is superstituous garbage collection voodoo.  createDefaultRenderers will flush out
         // all of the assigned class->tableCellRenderer mappings.
-        cellUpdateTimes.clear();
-        cellUpdateTimes = null;
+        cellChangeTimes.clear();
+        cellChangeTimes = null;
+        fadeRamps.clear();
         rowToInsertTime.clear();
         rowToInsertTime = null;
         createDefaultRenderers();
@@ -329,73 +332,56 @@ public class HighlightedTable extends TrackViewportJTable {
         this.autoCreateColumnsOnInsert = autoCreateColumns;
     }
 
+    /**
+     * Repaints the changed cells that are in the viewport, and forgets the changes that have finished fading.
+     */
     private void paintAllChanged() {
-        TableModelEvent event;
+        if (cellChangeTimes.size() > 0) {
+            boolean useColumnStrategy = getModel() instanceof AnalyticsTableModel
+                    && !(((AnalyticsTableModel) getModel()).isGrouped() || ((AnalyticsTableModel) getModel()).isPivoted());
 
-        boolean[] dirtyColumns = null;
-        int[] minRows = null;
-        int[] maxRows = null;
-        Rectangle visibleRect;
-        int firstVisibleRow = -1;
-        int firstVisibleColumn = -1;
-        int lastVisibleRow = -1;
-        int lastVisibleColumn = -1;
-
-        boolean useColumnStrategy = getModel() instanceof AnalyticsTableModel
-                && !(((AnalyticsTableModel) getModel()).isGrouped() || ((AnalyticsTableModel) getModel()).isPivoted());
-
-        if (useColumnStrategy && getParent() instanceof JViewport) {
+            int rowCount = getRowCount();
             int columnCount = getColumnCount();
-            dirtyColumns = new boolean[columnCount];
-            minRows = new int[columnCount];
-            maxRows = new int[columnCount];
-            Arrays.fill(minRows, Integer.MAX_VALUE);
-            JViewport parent = (JViewport) getParent();
-            visibleRect = parent.getViewRect();
-            Point p = visibleRect.getLocation();
-            firstVisibleRow = rowAtPoint(p);
-            firstVisibleColumn = columnAtPoint(p);
-            p.translate(visibleRect.width, visibleRect.height);
-            lastVisibleRow = rowAtPoint(p);
-            lastVisibleColumn = columnAtPoint(p);
-
-            firstVisibleRow = firstVisibleRow == -1 ? 0 : firstVisibleRow;
-            firstVisibleColumn = firstVisibleColumn == -1 ? 0 : firstVisibleColumn;
-            lastVisibleRow = lastVisibleRow == -1 ? getRowCount() - 1 : lastVisibleRow;
-            lastVisibleColumn = lastVisibleColumn == -1 ? getColumnCount() - 1 : lastVisibleColumn;
-        }
-
-        Object[] colorCellChanges = cellUpdateTimes.getValues();
-        for (int i = 0; i < colorCellChanges.length; i++) {
-            ColorCellChange colorCellChange = (ColorCellChange) colorCellChanges[i];
-            event = colorCellChange.getCause();
-            int viewColumn = convertColumnIndexToView(event.getColumn());
-            if (colorCellChange.hasExpired()) {
-                cellUpdateTimes.remove(getCellId(event.getFirstRow(), viewColumn));
-            }
+            int modelColumnCount = getModel().getColumnCount();
             if (useColumnStrategy) {
-                if (viewColumn >= firstVisibleColumn && viewColumn <= lastVisibleColumn) {
-                    int viewRow = event.getFirstRow();
-                    if (viewRow >= firstVisibleRow && viewRow <= lastVisibleRow) {
-                        dirtyColumns[viewColumn] = true;
-                        minRows[viewColumn] = Math.min(minRows[viewColumn], viewRow);
-                        maxRows[viewColumn] = Math.max(maxRows[viewColumn], event.getFirstRow());
-                        if (maxRows[viewColumn] > 8) {
-                            System.currentTimeMillis();
-                        }
+                if (dirtyColumnMinRows.length != columnCount) {
+                    dirtyColumnMinRows = new int[columnCount];
+                    dirtyColumnMaxRows = new int[columnCount];
+                }
+                Arrays.fill(dirtyColumnMinRows, Integer.MAX_VALUE);
+                Arrays.fill(dirtyColumnMaxRows, -1);
+            }
+
+            Rectangle visibleRect = getVisibleRect();
+            long expiryTime = System.currentTimeMillis() - CELL_CHANGE_DURATION;
+            //visiting the slots from the end, so removing a slot only moves a visited slot into its place
+            for (int slot = cellChangeTimes.size() - 1; slot >= 0; slot--) {
+                int row = cellChangeTimes.getRow(slot);
+                int modelColumn = cellChangeTimes.getColumn(slot);
+                int viewColumn = modelColumn < modelColumnCount ? convertColumnIndexToView(modelColumn) : -1;
+                if (row < rowCount && viewColumn != -1) {
+                    if (useColumnStrategy) {
+                        dirtyColumnMinRows[viewColumn] = Math.min(dirtyColumnMinRows[viewColumn], row);
+                        dirtyColumnMaxRows[viewColumn] = Math.max(dirtyColumnMaxRows[viewColumn], row);
+                    } else {
+                        Rectangle cellRect = getCellRect(row, viewColumn, false);
+                        if (cellRect.intersects(visibleRect)) paintImmediately(cellRect);
                     }
                 }
-            } else {
-                paintImmediately(getCellRect(event.getFirstRow(), viewColumn, false));
+                if (cellChangeTimes.getTime(slot) < expiryTime) {
+                    cellChangeTimes.remove(slot);
+                }
             }
-        }
 
-        if (useColumnStrategy) {
-            for (int i = 0; i < dirtyColumns.length; i++) {
-                if (dirtyColumns[i]) {
-                    Rectangle firstCellRect = getCellRect(minRows[i], i, false);
-                    Rectangle lastCellRect = getCellRect(maxRows[i], i, false);
-                    paintImmediately(SwingUtilities.computeUnion(firstCellRect.x, firstCellRect.y, firstCellRect.width, firstCellRect.height, lastCellRect));
+            if (useColumnStrategy) {
+                for (int i = 0; i < columnCount; i++) {
+                    if (dirtyColumnMaxRows[i] >= 0) {
+                        Rectangle firstCellRect = getCellRect(dirtyColumnMinRows[i], i, false);
+                        Rectangle lastCellRect = getCellRect(dirtyColumnMaxRows[i], i, false);
+                        Rectangle dirtyRect = SwingUtilities.computeUnion(firstCellRect.x, firstCellRect.y, firstCellRect.width, firstCellRect.height, lastCellRect)
+                                .intersection(visibleRect);
+                        if (!dirtyRect.isEmpty()) paintImmediately(dirtyRect);
+                    }
                 }
             }
         }
@@ -403,6 +389,20 @@ public class HighlightedTable extends TrackViewportJTable {
         rowToInsertTime.forEachKey(rowToInsertTimeFireEventProcedure);
     }
 
+    /**
+     * Keeps the time spent painting changed cells to about REPAINT_BUDGET_PERCENT of the event thread, by repainting
+     * less often when painting takes longer.
+     */
+    private void adjustRepaintDelay(long paintMillis) {
+        int delay = repaintTask.getDelay();
+        long budget = delay * REPAINT_BUDGET_PERCENT / 100;
+        if (paintMillis > budget && delay < maxDelay) {
+            repaintTask.setDelay(delay + 100);
+        } else if (paintMillis < budget / 2 && delay > minDelay) {
+            repaintTask.setDelay(delay - 100);
+        }
+    }
+
     public int getFontSize() {
         return getFont().getSize();
     }
@@ -458,25 +458,89 @@ public class HighlightedTable extends TrackViewportJTable {
 
         if (viewCol == -1) return;
 
+        //changes outside the viewport are not flashed, the cells are painted with their new values when scrolled to
+        Rectangle visibleRect = getVisibleRect();
+        Rectangle columnRect = getCellRect(0, viewCol, true);
+        if (visibleRect.isEmpty() || columnRect.x >= visibleRect.x + visibleRect.width || columnRect.x + columnRect.width <= visibleRect.x) {
+            return;
+        }
+        int firstVisibleRow = rowAtPoint(new Point(visibleRect.x, visibleRect.y));
+        if (firstVisibleRow == -1) return;
+        int lastVisibleRow = rowAtPoint(new Point(visibleRect.x, visibleRect.y + visibleRect.height - 1));
+        if (lastVisibleRow == -1) lastVisibleRow = getRowCount() - 1;
+
+        if (profileCellFading) logChangeTime(e);
+
+        Object newValue = e.getNewValue();
+        byte direction = CellChangeTimes.NEUTRAL;
+        float strength = 1f;
+        if (hasMagnitude(newValue)) {
+            double nv = doubleValue(newValue);
+            double ov = doubleValue(e.getOldValue());
+            if (Double.isNaN(nv) && Double.isNaN(ov)) {
+                direction = NO_CHANGE;
+            } else {
+                // Work out the delta as a percentage.
+                double r = Math.abs(nv / ov - 1d) * 100d;
+                // If NAN then just use the neutral colour.  Don't know if this is right.
+                if (!Double.isNaN(r)) {
+                    direction = (nv < ov) ? CellChangeTimes.NEGATIVE : CellChangeTimes.POSITIVE;
+                    strength = limit((float) Math.log10(r), 0.5f, 1.0f); // deltas of a 10% or more will be rendered in full colour.
+                }
+            }
+        }
+
+        long time = System.currentTimeMillis();
         int rowCount = e.getRowCount();
         int row;
         for (int i = 0; i < rowCount; i++) {
             row = e.getRowIndex(i);
-            int cellId = getCellId(row, viewCol);
-
-            ColorCellChange change = (ColorCellChange) cellUpdateTimes.get(cellId);
-            if (change == null) {
-                if (fading) {
-                    change = profileCellFading ? new ProfiledFadingCellChange(e, 2000) : new FadingCellChange(e, 2000);
+            if (row >= firstVisibleRow && row <= lastVisibleRow) {
+                if (direction == NO_CHANGE) {
+                    cellChangeTimes.remove(row, modelCol);
                 } else {
-                    change = new ColorCellChange(e, 2000);
+                    cellChangeTimes.put(row, modelCol, time, direction, strength);
                 }
+            }
+        }
+    }
 
-                cellUpdateTimes.put(cellId, change);
-            } else {
-                change.reUseForEvent(e);
+    private void logChangeTime(CellsInColumnUpdatedEvent e) {
+        Object propertyChange = e.getEventCause();
+        if (propertyChange instanceof TimedPathPropertyChangeEvent) {
+            long causeTime = ((TimedPathPropertyChangeEvent) propertyChange).getTime();
+            if (log.isDebug()) log.debug("bean->table time=" + (System.currentTimeMillis() - causeTime));
+        }
+    }
+
+    private Color getCellChangeColor(int slot, Color background, long age) {
+        byte direction = cellChangeTimes.getDirection(slot);
+        Color start = direction == CellChangeTimes.POSITIVE ? POSITIVE_COLOR_CHANGE : direction == CellChangeTimes.NEGATIVE ? NEGATIVE_COLOR_CHANGE : NEUTRAL_COLOR_CHANGE;
+        if (!fading) return start;
+
+        float a = limit(cellChangeTimes.getStrength(slot) * (1 - ((float) age / (float) CELL_CHANGE_DURATION)), 0f, 1f);
+        return getFadeRamp(start, background)[Math.round(a * (FADE_STEPS - 1))];
+    }
+
+    /**
+     * @return the colours from background (at 0) to start (at FADE_STEPS - 1), so fading a cell does not create colours.
+     */
+    private Color[] getFadeRamp(Color start, Color background) {
+        long key = ((long) start.getRGB() << 32) | (background.getRGB() & 0xFFFFFFFFL);
+        Color[] ramp = (Color[]) fadeRamps.get(key);
+        if (ramp == null) {
+            if (fadeRamps.size() >= MAX_FADE_RAMPS) fadeRamps.clear();
+            ramp = new Color[FADE_STEPS];
+            for (int i = 0; i < FADE_STEPS; i++) {
+                ramp[i] = UIUtilities.blend(start, background, (float) i / (FADE_STEPS - 1));
             }
+            fadeRamps.put(key, ramp);
         }
+        return ramp;
+    }
+
+    private static float limit(float x, float min, float max) {
+        return Math.max(min, Math.min(max, x));
     }
 
     /**
@@ -496,8 +560,8 @@ public class HighlightedTable extends TrackViewportJTable {
 // find out how, and behave appropriately
         if (row == TableModelEvent.HEADER_ROW) {
 //changes to the structure should blow away animation
-            if (cellUpdateTimes != null) {
-                cellUpdateTimes.clear();
+            if (cellChangeTimes != null) {
+                cellChangeTimes.clear();
             }
 
 
@@ -811,28 +875,16 @@ public class HighlightedTable extends TrackViewportJTable {
 
         public Color getHighlightForCell(int row, int viewCol, HighlightedTable table) {
             if (isAnimated()) {
-                int cellId = getCellId(row, viewCol);
-
-                ColorCellChange change = (ColorCellChange) cellUpdateTimes.get(cellId);
-                if (change != null) {
-                    // Check that the view column is as expected
-                    int modelCol = change.getCause().getColumn();
-                    int changeViewCol = convertColumnIndexToView(modelCol);
-                    if (changeViewCol == viewCol) {
-                        Color originalBg = super.getHighlightForCell(row, viewCol, table);
-                        if (change.hasExpired()) {
-                            cellUpdateTimes.remove(cellId);
-                            return originalBg;
-                        }
-                        if (originalBg == null) {
-                            originalBg = HighlightedTable.super.getBackground();
-                        }
-                        return change.getColor(originalBg);
-                    } else {
-                        // The view column of the original change has moved (thus invalidating the CellId)
-                        cellUpdateTimes.remove(cellId);
-                        cellUpdateTimes.put(getCellId(row, changeViewCol), change);
+                int slot = cellChangeTimes.indexOf(row, convertColumnIndexToModel(viewCol));
+                if (slot != -1) {
+                    Color originalBg = super.getHighlightForCell(row, viewCol, table);
+                    long age = System.currentTimeMillis() - cellChangeTimes.getTime(slot);
+                    //paintAllChanged forgets the change, removing it here would move slots it has yet to visit
+                    if (age > CELL_CHANGE_DURATION) return originalBg;
+                    if (originalBg == null) {
+                        originalBg = HighlightedTable.super.getBackground();
                     }
+                    return getCellChangeColor(slot, originalBg, age);
                 }
             }
             return super.getHighlightForCell(row, viewCol, table);
@@ -946,166 +998,35 @@ public class HighlightedTable extends TrackViewportJTable {
         }
     }
 
-
-    private static int getCellId(int row, int viewCol) {
-        return (row * 1000) + viewCol;
-    }
-
-    private static class ProfiledFadingCellChange extends FadingCellChange {
-        private boolean firstCall = true;
-
-        public ProfiledFadingCellChange(CellsInColumnUpdatedEvent e, long durationMillis) {
-            super(e, durationMillis);
-        }
-
-        public Color getColor(Color currentBg) {
-            long t = System.currentTimeMillis() - time;
-            if (firstCall) {
-                Object propertyChange = cause.getEventCause();
-                if (propertyChange instanceof TimedPathPropertyChangeEvent) {
-                    long causeTime = ((TimedPathPropertyChangeEvent) propertyChange).getTime();
-                    if (log.isDebug())
-                        log.debug("bean->screen time=" + (System.currentTimeMillis() - causeTime) + " table->screen = " + t);
-                }
-                firstCall = false;
-            }
-
-            return super.getColor(currentBg);
+    private static double doubleValue(Object value) {
+        // will leave this one in as it uses amount and not scaled amount
+        if (value instanceof ScalableNumber) {
+            return ((ScalableNumber) value).getAmount();
         }
-
-        public void reUseForEvent(CellsInColumnUpdatedEvent e) {
-            firstCall = true;
-            super.reUseForEvent(e);
+        if (value instanceof Numeric) {
+            return ((Numeric)value).doubleValue();
         }
-    }
-
-    private static class FadingCellChange extends ColorCellChange {
-        private FadingCellChange(CellsInColumnUpdatedEvent e, long durationMillis) {
-            super(e, durationMillis);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
         }
-
-        private float limit(float x, float min, float max) {
-            return Math.max(min, Math.min(max, x));
+        if (value instanceof Date) {
+            return (double) ((Date) value).getTime();
         }
-
-        private float log10(float x) {
-            return (float) (Math.log(x) / Math.log(10));
+        if (value instanceof Boolean) {
+            return ((Boolean) value).booleanValue() ? 1.0 : 0.0;
         }
-
-        public Color getColor(Color currentBg) {
-            long t = System.currentTimeMillis() - time;
-            if (!hasMagnitude(cause.getNewValue())) {
-                return UIUtilities.blend(NEUTRAL_COLOR_CHANGE, currentBg, limit((1 - ((float) t / (float) duration)), 0f, 1f));
-            }
-
-            double nv = doubleValue(cause.getNewValue());
-            double ov = doubleValue(cause.getOldValue());
-            if (Double.isNaN(nv) && Double.isNaN(ov)) {
-                return currentBg;
-            }
-
-            // Work out the delta as a percentage.
-            double r = Math.abs(nv / ov - 1d) * 100d;
-
-            // If NAN then just return the same colour.  Don't know if this is right.
-            if (Double.isNaN(r)) {
-                return UIUtilities.blend(NEUTRAL_COLOR_CHANGE, currentBg, limit((1 - ((float) t / (float) duration)), 0f, 1f));
-            }
-
-            float a = 0.0f;
-
-            if (t <= duration) {
-                a = log10((float) r); // deltas of a 10% or more will be rendered in full colour.
-                a = limit(limit(a, 0.5f, 1.0f) * (1 - ((float) t / (float) duration)), 0.0f, 1.0f);
-            }
-
-            Color start = (nv < ov) ? NEGATIVE_COLOR_CHANGE : POSITIVE_COLOR_CHANGE;
-            return UIUtilities.blend(start, currentBg, a);
+        if (value instanceof PartialBucketValue) {
+            return ((Number) ((PartialBucketValue) value).getPartialValue()).doubleValue();
         }
+        return Double.NaN;
     }
 
-    private static class ColorCellChange {
-        protected long time;
-        protected CellsInColumnUpdatedEvent cause;
-        protected long duration;
-
-        private ColorCellChange(CellsInColumnUpdatedEvent e, long durationMillis) {
-            this.time = System.currentTimeMillis();
-            this.cause = e;
-            this.duration = durationMillis;
-        }
-
-        public long getTime() {
-            return time;
-        }
-
-        public CellsInColumnUpdatedEvent getCause() {
-            return cause;
-        }
-
-        public long getDuration() {
-            return duration;
-        }
-
-        public void reUseForEvent(CellsInColumnUpdatedEvent e) {
-            this.time = System.currentTimeMillis();
-            this.cause = e;
-        }
-
-        public Color getColor(Color currentBg) {
-            if (!hasMagnitude(cause.getNewValue())) {
-                return NEUTRAL_COLOR_CHANGE;
-            }
-
-            double nv = doubleValue(cause.getNewValue());
-            double ov = doubleValue(cause.getOldValue());
-            if (Double.isNaN(nv) && Double.isNaN(ov)) {
-                return currentBg;
-            }
-
-            // If NAN then just return the same colour.  Don't know if this is right.
-            if (Double.isNaN(Math.abs(nv / ov - 1d) * 100d)) {
-                return NEUTRAL_COLOR_CHANGE;
-            }
-
-            return (nv < ov) ? NEGATIVE_COLOR_CHANGE : POSITIVE_COLOR_CHANGE;
-        }
-
-        public boolean hasExpired() {
-            long t = System.currentTimeMillis() - time;
-            return t > duration;
-        }
-
-        protected static double doubleValue(Object value) {
-            // will leave this one in as it uses amount and not scaled amount
-            if (value instanceof ScalableNumber) {
-                return ((ScalableNumber) value).getAmount();
-            }
-            if (value instanceof Numeric) {
-                return ((Numeric)value).doubleValue();
-            }
-            if (value instanceof Number) {
-                return ((Number) value).doubleValue();
-            }
-            if (value instanceof Date) {
-                return (double) ((Date) value).getTime();
-            }
-            if (value instanceof Boolean) {
-                return ((Boolean) value).booleanValue() ? 1.0 : 0.0;
-            }
-            if (value instanceof PartialBucketValue) {
-                return ((Number) ((PartialBucketValue) value).getPartialValue()).doubleValue();
-            }
-            return Double.NaN;
-        }
-
-        protected static boolean hasMagnitude(Object value) {
-            return value instanceof Numeric
-                    || value instanceof Number
-                    || value instanceof Date
-                    || value instanceof Boolean
-                    || value instanceof PartialBucketValue;
-        }
+    private static boolean hasMagnitude(Object value) {
+        return value instanceof Numeric
+                || value instanceof Number
+                || value instanceof Date
+                || value instanceof Boolean
+                || value instanceof PartialBucketValue;
     }
 
     public String getToolTipText(MouseEvent event) {
@@ -1153,7 +1074,7 @@ public class HighlightedTable extends TrackViewportJTable {
         this.animated = animated;
         if (animated) {
             rowToInsertTime.clear();
-            cellUpdateTimes.clear();
+            cellChangeTimes.clear();
         }
     }
 
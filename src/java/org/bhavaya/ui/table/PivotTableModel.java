@@ -29,6 +29,8 @@
 
 package org.bhavaya.ui.table;
 
+import gnu.trove.TIntArrayList;
+import gnu.trove.TIntObjectHashMap;
 import org.bhavaya.util.*;
 
 import javax.swing.event.TableModelEvent;
@@ -715,21 +717,17 @@ public class PivotTableModel extends AbstractTableModel implements TabularBeanAs
                 } else {
                     //an update
                     //possible actions:
-                    //update affects pivot column => either fire some cell changes, or maybe a column addition or removal
+                    //update affects pivot column => fire some cell changes, then any column additions or removals
                     //else => map column indexes and refire
 
                     //if plain event
                     if (!(e instanceof CellsInColumnUpdatedEvent) && !(e instanceof MultipleColumnChangeEvent)) {
-                        //
-                        if (e.getColumn() == TableModelEvent.ALL_COLUMNS) {
-                            setModelInvalid();
-                            fireTableStructureChanged();
-                        } else if (e.getColumn() == getPivotColumnIndex()) {
-                            setModelInvalid();
-                            fireTableStructureChanged();
+                        if (e.getColumn() == TableModelEvent.ALL_COLUMNS || e.getColumn() == getPivotColumnIndex()) {
+                            updatePivotValues(e.getFirstRow(), e.getLastRow());
                         } else if (e.getColumn() == getDataColumnIndex()) {
+                            //the changed data moves between generated columns row by row, so update whole rows
                             updateTotalColumn(e);
-                            fireTableDataChanged();
+                            fireTableChanged(new TableModelEvent(PivotTableModel.this, e.getFirstRow(), e.getLastRow()));
                         } else {
                             int newColIndex = mapUnderlyingToModel(e.getColumn());
                             TableModelEvent newEvent = new TableModelEvent(PivotTableModel.this, e.getFirstRow(), e.getLastRow(), newColIndex);
@@ -737,73 +735,53 @@ public class PivotTableModel extends AbstractTableModel implements TabularBeanAs
                         }
                         return;
                     }
-                    boolean sameRowsForEachColumn = true;
-                    if (e instanceof MultipleColumnChangeEvent) {
-                        sameRowsForEachColumn = ((MultipleColumnChangeEvent) e).isChangedRowsSameForEachColumn();
-                    }
 
                     ColumnEventIterator iterator = new ColumnEventIterator(e);
-
-                    boolean updatedDataColumn = false;
-                    boolean updatedPivotColumn = false;
+                    CellsInColumnUpdatedEvent pivotEvent = null;
+                    CellsInColumnUpdatedEvent dataEvent = null;
 
                     ArrayList dataChangeEvents = new ArrayList(iterator.size() + 10);
-                    ArrayList columnsToAdd = new ArrayList();
-                    ArrayList columnsToRemove = new ArrayList();
                     while (iterator.hasNext()) {
                         CellsInColumnUpdatedEvent cellsEvent = (CellsInColumnUpdatedEvent) iterator.next();
                         if (cellsEvent.getColumn() == getPivotColumnIndex()) {
-                            //if there is only one CellsInColumnChangedEvent, then it is safe to simply
-                            //add the new column and fire a column insert event - otherwise recalculate
-                            recalculateIfInvalid();
-                            if (iterator.size() > 1 && ! pivotValues.contains(cellsEvent.getNewValue())) {
-                                if (log.isDebug())log.debug("firing structure change due to new column");
-                                setModelInvalid();
-                                fireTableStructureChanged();
-                                return;
-                            } else if (hasValidDataColumn()) {
-                                if (updatedDataColumn) {
-                                    //both data and pivot changed, abort
-                                    setModelInvalid();
-                                    fireTableStructureChanged();
-                                    return;
-                                }
-                                updatedPivotColumn = true;
-                                boolean success = generateEventsForPivotChange(cellsEvent, dataChangeEvents, columnsToAdd, columnsToRemove);
-                                if (!success) {
-//could not represent as simple CellsChangedEvent per column, do all data changed
-                                    setModelInvalid();
-                                    fireTableStructureChanged();
-                                    return;
-                                }
-                            }
+                            pivotEvent = cellsEvent;
                         } else if (cellsEvent.getColumn() == getDataColumnIndex()) {
-                            if (hasValidPivotColumn()) {
-                                updateTotalColumn(cellsEvent);
-                                if (updatedPivotColumn) {
-                                    //both data and pivot changed, fire data change because we will not be able to represent as single CellsChangedEvent per column
-                                    fireTableDataChanged();
-                                    return;
-                                }
-                                updatedDataColumn = true;
-                                boolean success = generateEventsForDataChange(cellsEvent, dataChangeEvents);
-                                if (!success) {//could not represent as simple CellsChangedEvents, do full monty
-                                    fireTableDataChanged();
-                                    return;
-                                }
-                            }
+                            dataEvent = cellsEvent;
                         } else {
                             int mappedIndex = mapUnderlyingToModel(cellsEvent.getColumn());
                             dataChangeEvents.add(new CellsInColumnUpdatedEvent(PivotTableModel.this, cellsEvent.getRows(), mappedIndex, cellsEvent));
                         }
                     }
-                    fireDataChangeEvents(dataChangeEvents, sameRowsForEachColumn);
+
+                    //new columns are added after the cell events are fired, so that the indexes of the cell events stay valid
+                    Map columnsToAdd = new LinkedHashMap();
+                    Collection columnsToRemove = new LinkedHashSet();
+                    boolean representable = true;
+                    if (pivotEvent != null) {
+                        representable = generateEventsForPivotChange(pivotEvent, dataChangeEvents, columnsToAdd, columnsToRemove);
+                    }
+                    if (dataEvent != null) {
+                        updateTotalColumn(dataEvent);
+                        if (pivotEvent != null) {
+                            //both data and pivot changed, cannot represent as a single CellsChangedEvent per column
+                            representable = false;
+                        } else {
+                            generateEventsForDataChange(dataEvent, dataChangeEvents);
+                        }
+                    }
+
+                    if (representable) {
+                        fireDataChangeEvents(dataChangeEvents);
+                    } else {
+                        fireRowsUpdated(e);
+                    }
+                    addColsAndFireEvent(columnsToAdd);
                     removeColsAndFireEvent(columnsToRemove);
                 }
             }
         }
 
-        private void fireDataChangeEvents(ArrayList dataChangeEvents, boolean sameRowsForEachColumn) {
+        private void fireDataChangeEvents(ArrayList dataChangeEvents) {
             TableModelEvent newEvent;
             if (dataChangeEvents.size() == 0) {
                 return;
@@ -812,89 +790,137 @@ public class PivotTableModel extends AbstractTableModel implements TabularBeanAs
             } else {
                 CellsInColumnUpdatedEvent[] newEvents = new CellsInColumnUpdatedEvent[dataChangeEvents.size()];
                 dataChangeEvents.toArray(newEvents);
-                newEvent = new MultipleColumnChangeEvent(PivotTableModel.this, newEvents, sameRowsForEachColumn);
+                newEvent = new MultipleColumnChangeEvent(PivotTableModel.this, newEvents, isSameRowsForEachColumn(newEvents));
             }
             fireTableChanged(newEvent);
         }
 
-        private boolean generateEventsForDataChange(CellsInColumnUpdatedEvent cellsEvent, List generatedEvents) {
-            if (cellsEvent.getRowCount() > 1) {
-                return false;
-            } else {
-                int rowIndex = cellsEvent.getRowIndex(0);
-                Object pivotKey = getSourceModel().getValueAt(rowIndex, getPivotColumnIndex());
-                int mappedColumnIndex = getColumnIndexForPivotKey(pivotKey);
-                generatedEvents.add(new CellsInColumnUpdatedEvent(PivotTableModel.this, rowIndex, mappedColumnIndex, cellsEvent));
-                int totalColumnIndex = getTotalColumnIndex();
-                if (totalColumnIndex >= 0) {
-                    generatedEvents.add(new CellsInColumnUpdatedEvent(PivotTableModel.this, rowIndex, totalColumnIndex, cellsEvent));
-                }
+        private boolean isSameRowsForEachColumn(CellsInColumnUpdatedEvent[] events) {
+            int[] rows = events[0].getRows();
+            for (int i = 1; i < events.length; i++) {
+                if (!Arrays.equals(rows, events[i].getRows())) return false;
             }
             return true;
         }
 
         /**
-         * Handles change of the pivoted column's data.
-         * First applies changes to the model and only at the end fires the events.
-         *
-         * @param cellsEvent
-         * @return null if cannot represent as simple CellsChangedEvents, otherwise
+         * fires an update of every row touched by the given event, for changes too complex for CellsChangedEvents
          */
-        private boolean generateEventsForPivotChange(CellsInColumnUpdatedEvent cellsEvent, List dataChangeEvents, List columnsToAdd, List columnsToRemove) {
-            if (hasValidDataColumn()) {
-                //fire a value change to null in the old pivot column, and a value change from null in the new pivot column
-                int rowIndex = cellsEvent.getRowIndex(0);
-                int rowCount = cellsEvent.getRowCount();
-                Object oldPivot = cellsEvent.getOldValue();
-                Object newPivot = cellsEvent.getNewValue();
-                int[] rows = cellsEvent.getRows();
-
-                // add missing pivot column value
-                recalculateIfInvalid();
-                if (!pivotValues.contains(newPivot)) {
-                    if (dataChangeEvents.size() > 0 || columnsToAdd.size() > 0) {
-                        // adding a column would cause these events in dataChangeEvents to have invalid column indices
-                        // currently only adding single column is supported through this method
-                        return false;
-                    }
-                    columnsToAdd.add(newPivot);
-                    addColsAndFireEvent(columnsToAdd);
+        private void fireRowsUpdated(TableModelEvent e) {
+            int firstRow = Integer.MAX_VALUE;
+            int lastRow = -1;
+            ColumnEventIterator iterator = new ColumnEventIterator(e);
+            while (iterator.hasNext()) {
+                int[] rows = ((CellsInColumnUpdatedEvent) iterator.next()).getRows();
+                for (int i = 0; i < rows.length; i++) {
+                    firstRow = Math.min(firstRow, rows[i]);
+                    lastRow = Math.max(lastRow, rows[i]);
                 }
-                changeUsageCount(newPivot, rowCount);
-
-                pivotValuePerRow.set(rowIndex, newPivot); // first set only the first row value - rest is set in the loop bellow
+            }
+            if (lastRow >= 0) fireTableRowsUpdated(firstRow, lastRow);
+        }
 
-                // remove unused pivot column value
-                int oldUsageCount = changeUsageCount(oldPivot, -rowCount);
-                if (oldUsageCount <= 0) {
-                    columnsToRemove.add(oldPivot);
+        /**
+         * the rows of a data change are split between the generated columns of their pivot values
+         */
+        private void generateEventsForDataChange(CellsInColumnUpdatedEvent cellsEvent, List generatedEvents) {
+            TIntObjectHashMap columnToRows = new TIntObjectHashMap();
+            for (int i = 0; i < cellsEvent.getRowCount(); i++) {
+                int rowIndex = cellsEvent.getRowIndex(i);
+                int mappedColumnIndex = getColumnIndexForPivotKey(pivotValuePerRow.get(rowIndex));
+                if (mappedColumnIndex < 0) continue;
+                TIntArrayList rows = (TIntArrayList) columnToRows.get(mappedColumnIndex);
+                if (rows == null) {
+                    rows = new TIntArrayList();
+                    columnToRows.put(mappedColumnIndex, rows);
                 }
+                rows.add(rowIndex);
+            }
 
-                Object dataPoint = getSourceModel().getValueAt(rowIndex, getDataColumnIndex());
-                //check that all other rows experiencing this change have the same data values, otherwise the resulting events would be
-                //too complex to represent with our existing event structures.
-                boolean sharedChanges = true;
-                for (int i = 1; i < rows.length; i++) {
-                    rowIndex = rows[i];
-                    Object oldStoredPivot = pivotValuePerRow.set(rowIndex, newPivot);
-                    assert (Utilities.equals(oldStoredPivot, oldPivot)) : "Bug, old stored pivot value did not match value given by event";
-
-                    Object value = getSourceModel().getValueAt(rowIndex, getDataColumnIndex());
-                    if (sharedChanges && !Utilities.equals(value, dataPoint)) {
-                        sharedChanges = false;
-                    }
+            int[] columns = columnToRows.keys();
+            Arrays.sort(columns);
+            for (int i = 0; i < columns.length; i++) {
+                int[] rows = ((TIntArrayList) columnToRows.get(columns[i])).toNativeArray();
+                generatedEvents.add(new CellsInColumnUpdatedEvent(PivotTableModel.this, rows, columns[i], cellsEvent));
+            }
+            int totalColumnIndex = getTotalColumnIndex();
+            if (totalColumnIndex >= 0) {
+                generatedEvents.add(new CellsInColumnUpdatedEvent(PivotTableModel.this, cellsEvent.getRows(), totalColumnIndex, cellsEvent));
+            }
+        }
+
+        /**
+         * Handles change of the pivoted column's data.
+         * Applies the changes to the model, leaving the addition and removal of generated columns to the caller.
+         *
+         * @return false if the change cannot be represented as simple CellsChangedEvents
+         */
+        private boolean generateEventsForPivotChange(CellsInColumnUpdatedEvent cellsEvent, List dataChangeEvents, Map columnsToAdd, Collection columnsToRemove) {
+            Object newPivot = cellsEvent.getNewValue();
+            int[] rows = cellsEvent.getRows();
+
+            Object oldPivot = pivotValuePerRow.get(rows[0]);
+            boolean sameOldPivot = true;
+            for (int i = 0; i < rows.length; i++) {
+                Object oldStoredPivot = pivotValuePerRow.set(rows[i], newPivot);
+                if (sameOldPivot && !Utilities.equals(oldStoredPivot, oldPivot)) {
+                    sameOldPivot = false;
                 }
-                if (!sharedChanges) return false;
+                removeUsage(oldStoredPivot, 1, columnsToAdd, columnsToRemove);
+            }
+            addUsage(newPivot, rows.length, columnsToAdd);
+
+            if (!hasValidDataColumn()) return true;
+            if (!sameOldPivot) return false;
+
+            int oldColumnIndex = getColumnIndexForPivotKey(oldPivot);
+            int newColumnIndex = getColumnIndexForPivotKey(newPivot);
+            if (oldColumnIndex == newColumnIndex) return true;
+
+            //fire a value change to null in the old pivot column, and a value change from null in the new pivot column
+            //check that all rows experiencing this change have the same data values, otherwise the resulting events would be
+            //too complex to represent with our existing event structures.
+            Object dataPoint = getSourceModel().getValueAt(rows[0], getDataColumnIndex());
+            for (int i = 1; i < rows.length; i++) {
+                Object value = getSourceModel().getValueAt(rows[i], getDataColumnIndex());
+                if (!Utilities.equals(value, dataPoint)) return false;
+            }
 
-                int oldColumnIndex = getColumnIndexForPivotKey(oldPivot);
-                int newColumnIndex = getColumnIndexForPivotKey(newPivot);
+            if (oldColumnIndex >= 0) {
                 dataChangeEvents.add(new CellsInColumnUpdatedEvent(PivotTableModel.this, rows, oldColumnIndex, dataPoint, null));
+            }
+            if (newColumnIndex >= 0) {
+                //a new pivot value has no column yet, its column insert event covers these cells
                 dataChangeEvents.add(new CellsInColumnUpdatedEvent(PivotTableModel.this, rows, newColumnIndex, null, dataPoint));
             }
-
             return true;
         }
 
+        /**
+         * rereads the pivot values of the given rows, then fires a row update followed by any column additions or removals
+         */
+        private void updatePivotValues(int firstRow, int lastRow) {
+            if (lastRow == Integer.MAX_VALUE) {
+                recalculateAndFireChanges();
+                return;
+            }
+            Map columnsToAdd = new LinkedHashMap();
+            Collection columnsToRemove = new LinkedHashSet();
+            KeyedColumnTableModel sourceModel = getSourceModel();
+            for (int row = firstRow; row <= lastRow; row++) {
+                Object newPivot = sourceModel.getValueAt(row, getPivotColumnIndex());
+                Object oldPivot = pivotValuePerRow.set(row, newPivot);
+                removeUsage(oldPivot, 1, columnsToAdd, columnsToRemove);
+                addUsage(newPivot, 1, columnsToAdd);
+                if (isColumnTotallingEnabled()) {
+                    totalColumn.set(row, getRowTotal(row));
+                }
+            }
+            fireTableRowsUpdated(firstRow, lastRow);
+            addColsAndFireEvent(columnsToAdd);
+            removeColsAndFireEvent(columnsToRemove);
+        }
+
         private void updateTotalColumn(TableModelEvent e) {
             if (isColumnTotallingEnabled()) {
                 int dataColumnIndex = getDataColumnIndex();
@@ -909,8 +935,8 @@ public class PivotTableModel extends AbstractTableModel implements TabularBeanAs
                         totalColumn.set(index, value);
                     }
                 } else {
-                    int last = Math.min(e.getLastRow(), getRowCount());
-                    for (int i = e.getFirstRow(); i < last; i++) {
+                    int last = Math.min(e.getLastRow(), getRowCount() - 1);
+                    for (int i = e.getFirstRow(); i <= last; i++) {
                         Object value = getSourceModel().getValueAt(i, dataColumnIndex);
                         totalColumn.set(i, value);
                     }
@@ -919,59 +945,99 @@ public class PivotTableModel extends AbstractTableModel implements TabularBeanAs
         }
 
         private void handleRowChange(TableModelEvent evt) {
-            int eventRow = evt.getFirstRow();
-            if (evt.getLastRow() != eventRow) {
-                //not a one-row change, could have multiple new generated columns
-                setModelInvalid();
-                fireTableStructureChanged();
+            int firstRow = evt.getFirstRow();
+            int lastRow = evt.getLastRow();
+            if (lastRow == Integer.MAX_VALUE || lastRow < firstRow) {
+                recalculateAndFireChanges();
+                return;
+            }
+
+            if (evt.getType() == TableModelEvent.INSERT) {
+                //rows with a new pivot value show no data until its column is added, after the rows are inserted
+                Map columnsToAdd = new LinkedHashMap();
+                KeyedColumnTableModel sourceModel = getSourceModel();
+                int rowCount = lastRow - firstRow + 1;
+                Object[] pivotKeys = new Object[rowCount];
+                Object[] rowTotals = new Object[rowCount];
+                for (int i = 0; i < rowCount; i++) {
+                    pivotKeys[i] = sourceModel.getValueAt(firstRow + i, getPivotColumnIndex());
+                    addUsage(pivotKeys[i], 1, columnsToAdd);
+                    if (isColumnTotallingEnabled()) rowTotals[i] = getRowTotal(firstRow + i);
+                }
+                pivotValuePerRow.addAll(firstRow, Arrays.asList(pivotKeys));
+                if (isColumnTotallingEnabled()) {
+                    totalColumn.addAll(firstRow, Arrays.asList(rowTotals));
+                }
+                fireTableRowsInserted(firstRow, lastRow);
+                addColsAndFireEvent(columnsToAdd);
             } else {
-                recalculateIfInvalid();
-                if (evt.getType() == TableModelEvent.INSERT) {
-                    Object pivotKey = getSourceModel().getValueAt(eventRow, getPivotColumnIndex());
-                    if (!pivotValues.contains(pivotKey)) {
-                        //new pivot column, therefore fire structure changed
-                        setModelInvalid();
-                        fireTableStructureChanged();
-                        return;
-                    }
-                    changeUsageCount(pivotKey, +1);
-                    pivotValuePerRow.add(eventRow, pivotKey);
-                } else if (evt.getType() == TableModelEvent.DELETE) {
-                    Object oldKey = pivotValuePerRow.remove(eventRow);
-                    int usageCount = changeUsageCount(oldKey, -1);
-                    if (isColumnTotallingEnabled()) {
-                        totalColumn.remove(eventRow);
-                    }
-                    fireTableChanged(evt);
-
-                    if (usageCount <= 0) {
-                        //deleted a row and a column, fire stucture change. Can make this better if required
-                        int nonGeneratedColumnCount = getNonGeneratedColumnCount();
-                        int columnToRemoveIndex = removePivotColumnForValue(oldKey);
-                        int unusedColumnIdx = nonGeneratedColumnCount + columnToRemoveIndex;
-                        TableModelEvent event = new TableModelEvent(PivotTableModel.this, -1, -1, unusedColumnIdx, TableModelEvent.DELETE);
-                        fireTableChanged(event);
-                    }
-                    return;
+                Collection columnsToRemove = new LinkedHashSet();
+                List deletedPivotKeys = pivotValuePerRow.subList(firstRow, lastRow + 1);
+                for (int i = 0; i < deletedPivotKeys.size(); i++) {
+                    removeUsage(deletedPivotKeys.get(i), 1, null, columnsToRemove);
                 }
-
-                //update the total column and pass the event on
+                deletedPivotKeys.clear();
                 if (isColumnTotallingEnabled()) {
-                    if (evt.getType() == TableModelEvent.DELETE) {
-                        totalColumn.remove(eventRow);
-                    } else {
-                        Object newColumnTotalValue = null;
-                        if (hasValidDataColumn())   {
-                            newColumnTotalValue = getSourceModel().getValueAt(eventRow, getDataColumnIndex());
-                        }
-                        totalColumn.add(eventRow, newColumnTotalValue);
-                    }
+                    totalColumn.subList(firstRow, lastRow + 1).clear();
                 }
-                fireTableChanged(evt);
+                fireTableRowsDeleted(firstRow, lastRow);
+                removeColsAndFireEvent(columnsToRemove);
+            }
+        }
+    }
+
+    private Object getRowTotal(int row) {
+        return hasValidDataColumn() ? getSourceModel().getValueAt(row, getDataColumnIndex()) : null;
+    }
+
+    /**
+     * Rebuilds the model, firing a structure change only if the generated columns changed.
+     */
+    private void recalculateAndFireChanges() {
+        List oldGeneratedColumnKeys = new ArrayList(generatedColumnKeys);
+        setModelInvalid();
+        recalculateIfInvalid();
+        if (oldGeneratedColumnKeys.equals(generatedColumnKeys)) {
+            fireTableChanged(new TableModelEvent(this));
+        } else {
+            fireTableStructureChanged();
+        }
+    }
+
+    /**
+     * @param columnsToAdd the usage counts of pivot values that do not have a column yet, their columns are added by
+     *                     addColsAndFireEvent
+     */
+    private void addUsage(Object pivotValue, int count, Map columnsToAdd) {
+        if (pivotValues.contains(pivotValue)) {
+            changeUsageCount(pivotValue, count);
+        } else {
+            MutableInteger usageCount = (MutableInteger) columnsToAdd.get(pivotValue);
+            if (usageCount == null) {
+                usageCount = new MutableInteger(0);
+                columnsToAdd.put(pivotValue, usageCount);
             }
+            usageCount.value += count;
         }
     }
 
+    /**
+     * @param columnsToRemove collects pivot values that are no longer used, their columns are removed by
+     *                        removeColsAndFireEvent unless they are locked or used again
+     */
+    private void removeUsage(Object pivotValue, int count, Map columnsToAdd, Collection columnsToRemove) {
+        if (pivotValues.contains(pivotValue)) {
+            if (changeUsageCount(pivotValue, -count) <= 0) {
+                columnsToRemove.add(pivotValue);
+            }
+        } else if (columnsToAdd != null) {
+            MutableInteger usageCount = (MutableInteger) columnsToAdd.get(pivotValue);
+            if (usageCount != null) {
+                usageCount.value -= count;
+                if (usageCount.value <= 0) columnsToAdd.remove(pivotValue);
+            }
+        }
+    }
 
     private boolean removeUnlockedColumns(List columnsToRemove) {
         boolean structureChanged = false;
@@ -984,22 +1050,36 @@ public class PivotTableModel extends AbstractTableModel implements TabularBeanAs
         return structureChanged;
     }
 
-    private void addColsAndFireEvent(List columnsToAdd) {
-        if (columnsToAdd.size() == 0) return;
-        for ( Object value : columnsToAdd) {
-            addPivotColumnForValue(value);
+    /**
+     * adds a generated column for each new pivot value, firing a column insert event for each
+     */
+    private void addColsAndFireEvent(Map columnsToAdd) {
+        for (Iterator iterator = columnsToAdd.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry entry = (Map.Entry) iterator.next();
+            Object value = entry.getKey();
+            boolean newColumn = !pivotValues.contains(value);
+            if (newColumn) {
+                addPivotColumnForValue(value);
+            }
+            changeUsageCount(value, ((MutableInteger) entry.getValue()).value);
+            if (newColumn) {
+                int columnIndex = getColumnIndexForPivotKey(value);
+                fireTableChanged(new TableModelEvent(this, TableModelEvent.HEADER_ROW, TableModelEvent.HEADER_ROW, columnIndex, TableModelEvent.INSERT));
+            }
         }
-        recalculateIfInvalid();
-        fireTableStructureChanged();
     }
 
-    private void removeColsAndFireEvent(List columnsToRemove) {
-         if (columnsToRemove.size() == 0) return;
-         boolean structureChanged = removeUnlockedColumns(columnsToRemove);
-         if ( structureChanged ) {
-             recalculateIfInvalid();
-             fireTableStructureChanged();
-         }
+    /**
+     * removes the generated columns of pivot values that are unused and unlocked, firing a column delete event for each
+     */
+    private void removeColsAndFireEvent(Collection columnsToRemove) {
+        for (Iterator iterator = columnsToRemove.iterator(); iterator.hasNext();) {
+            Object value = iterator.next();
+            if (pivotValues.contains(value) && pivotValues.getUsageCount(value).value <= 0 && !pivotValues.isLockedPivotValue(value)) {
+                int columnIndex = getNonGeneratedColumnCount() + removePivotColumnForValue(value);
+                fireTableChanged(new TableModelEvent(this, TableModelEvent.HEADER_ROW, TableModelEvent.HEADER_ROW, columnIndex, TableModelEvent.DELETE));
+            }
+        }
     }
 
     /**
@@ -29,22 +29,25 @@
 
 package org.bhavaya.ui.table;
 
-import gnu.trove.TDoubleArrayList;
 import gnu.trove.TIntArrayList;
-import gnu.trove.TIntObjectHashMap;
-import gnu.trove.TIntProcedure;
-import org.bhavaya.ui.diagnostics.ApplicationDiagnostics;
+import org.bhavaya.collection.OrderStatisticTree;
 import org.bhavaya.ui.series.Series;
+import org.bhavaya.util.MutableInteger;
 import org.bhavaya.util.Quantity;
+import org.bhavaya.util.Utilities;
 
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.TableModel;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * This class used to be nice, but now it is really nasty. All of that weird split buckets stuff has been hacked in horribly.
@@ -88,9 +91,6 @@ public class SeriesTableModel extends AbstractTableModel implements TabularBeanA
 
     private boolean uncalculated = true;
 
-    private List categoryValues = new ArrayList();
-    private HashSet missingCategories = new HashSet();
-
     private boolean useFullSeries = false;
     private TableModelEventHandler eventHandler;
 
@@ -99,13 +99,15 @@ public class SeriesTableModel extends AbstractTableModel implements TabularBeanA
 
     private Series series = null;
 
-    private TIntObjectHashMap splitCellColumns = new TIntObjectHashMap();   //Column number to (List of cell values, one per row)
-    private TDoubleArrayList splitCoefficients = new TDoubleArrayList();
+    //the Series.SeriesValue[] of each underlying row, null if the row has no series value, weighted by its number of model rows
+    private OrderStatisticTree underlyingRows = new OrderStatisticTree();
+    private boolean[] splitColumns = new boolean[0];
 
-    private int generatedRowsStartIndex = -1;
+    private List generatedCategoryValues = new ArrayList();   //values of the full series that no underlying row maps to
+    private Set fullSeriesValues;
+    private Map categoryCounts;     //category to MutableInteger count of model rows, only kept if using the full series
+    private Set changedCategories = new LinkedHashSet();
 
-    private TIntArrayList modelRowToUnderlyingRow = new TIntArrayList();
-    private TIntArrayList underlyingRowToFirstModelRow = new TIntArrayList();
     private boolean splittingValues = false;
 
     public SeriesTableModel() {
@@ -136,27 +138,27 @@ public class SeriesTableModel extends AbstractTableModel implements TabularBeanA
 
     public Object getValueAt(int row, int column) {
         if (hasValidSeriesColumn()) {
-            List seriesValues = getSeriesValues();
+            calculateIfRequired();
+            if (row >= getGeneratedRowsStartIndex()) {
+                return column == getSeriesColumnIndex() ? generatedCategoryValues.get(row - getGeneratedRowsStartIndex()) : null;
+            }
+            int underlyingRow = getUnderlyingRowForModel(row);
             if (column == getSeriesColumnIndex()) {
-                return seriesValues.get(row);
-            } else if (row >= getGeneratedRowsStartIndex()) {
-                return null;
+                return getSeriesValue(row, underlyingRow).getSeries();
             } else if (isSplitColumn(column)) {
-                List columnValues = (List) splitCellColumns.get(column);
-                return columnValues.get(row);
+                return applyCoefficient(getSeriesValue(row, underlyingRow).getCoefficient(), getSourceModel().getValueAt(underlyingRow, column));
             }
+            return getSourceModel().getValueAt(underlyingRow, column);
         }
-        TableModel sourceModel = getSourceModel();
-        int underlyingRow = hasValidSeriesColumn() ? getUnderlyingRowForModel(row) : row;
-        return sourceModel.getValueAt(underlyingRow, column);
+        return getSourceModel().getValueAt(row, column);
     }
 
     private boolean isSplitColumn(int column) {
-        return isSplittingValues() && splitCellColumns.containsKey(column);
+        return isSplittingValues() && column >= 0 && column < splitColumns.length && splitColumns[column];
     }
 
     private int getGeneratedRowsStartIndex() {
-        return generatedRowsStartIndex;
+        return underlyingRows.getTotalWeight();
     }
 
     private boolean isUncalculated() {
@@ -167,71 +169,127 @@ public class SeriesTableModel extends AbstractTableModel implements TabularBeanA
         this.uncalculated = true;
     }
 
-    private List getSeriesValues() {
+    private void calculateIfRequired() {
         if (isUncalculated()) {
             recalculate();
         }
-        return categoryValues;
     }
 
     private void recalculate() {
         uncalculated = false;
-        categoryValues.clear();
-        splitCoefficients.clear();
-        splitCellColumns.clear();
-
-        underlyingRowToFirstModelRow.clear();
-        modelRowToUnderlyingRow.clear();
-        missingCategories.clear();
-        TableModel sourceModel = getSourceModel();
+        underlyingRows.clear();
+        generatedCategoryValues.clear();
+        changedCategories.clear();
+        fullSeriesValues = null;
+        categoryCounts = null;
 
-        int rowCount = sourceModel.getRowCount();
         if (hasValidSeriesColumn()) {
-            missingCategories.addAll(getSeries().getFullSeriesValues());
+            TableModel sourceModel = getSourceModel();
+            splitColumns = new boolean[sourceModel.getColumnCount()];
             if (isSplittingValues()) {
-                for (int column = 0; column < sourceModel.getColumnCount(); column++) {
-                    if (isSplittable(sourceModel.getColumnClass(column))) {
-                        List columnValues = new ArrayList();
-                        splitCellColumns.put(column, columnValues);
-                    }
+                for (int column = 0; column < splitColumns.length; column++) {
+                    splitColumns[column] = isSplittable(sourceModel.getColumnClass(column));
                 }
+                splitColumns[getSeriesColumnIndex()] = false;
+            }
+            if (isUseFullSeries()) {
+                fullSeriesValues = new HashSet(getSeries().getFullSeriesValues());
+                categoryCounts = new HashMap();
             }
 
-            for (int row = 0; row < rowCount; row++) {
-                int seriesColumn = getSeriesColumnIndex();
-                Object value;
-                underlyingRowToFirstModelRow.add(categoryValues.size());
-                value = sourceModel.getValueAt(row, seriesColumn);
-                Series.SeriesValue[] values;
-                if (value == CachedObjectGraph.DATA_NOT_READY) {
-                    values = DATA_NOT_READY_SERIES_VALUE;
-                } else {
-                    values = getSeries().getSeriesValues(value, isSplittingValues());
+            addUnderlyingRows(0, getSeriesValuesForRows(0, sourceModel.getRowCount()));
+
+            if (isUseFullSeries()) {
+                for (Iterator iterator = getSeries().getFullSeriesValues().iterator(); iterator.hasNext();) {
+                    Object value = iterator.next();
+                    if (!categoryCounts.containsKey(value) && !generatedCategoryValues.contains(value)) generatedCategoryValues.add(value);
                 }
-                if (values != null) {
-                    for (int i = 0; i < values.length; i++) {
-                        Series.SeriesValue seriesValue = values[i];
-                        Object series = seriesValue.getSeries();
+            }
+            changedCategories.clear();
+        }
+    }
 
-                        modelRowToUnderlyingRow.add(row);
+    private Series.SeriesValue[][] getSeriesValuesForRows(int firstRow, int rowCount) {
+        int seriesColumn = getSeriesColumnIndex();
+        Series.SeriesValue[][] seriesValues = new Series.SeriesValue[rowCount][];
+        for (int i = 0; i < rowCount; i++) {
+            seriesValues[i] = getSeriesValuesForValue(getSourceModel().getValueAt(firstRow + i, seriesColumn));
+        }
+        return seriesValues;
+    }
 
-                        if (isSplittingValues()) {
-                            double coefficient = seriesValue.getCoefficient();
-                            splitCoefficients.add(coefficient);
-                            applyCoefficientToRow(categoryValues.size());
-                        }
+    private Series.SeriesValue[] getSeriesValuesForValue(Object value) {
+        if (value == CachedObjectGraph.DATA_NOT_READY) return DATA_NOT_READY_SERIES_VALUE;
+        return getSeries().getSeriesValues(value, isSplittingValues());
+    }
 
-                        categoryValues.add(series);
-                        missingCategories.remove(series);
-                    }
-                }
+    private static int getLength(Series.SeriesValue[] seriesValues) {
+        return seriesValues == null ? 0 : seriesValues.length;
+    }
+
+    /**
+     * Inserts underlying rows with seriesValues at firstRow, and counts the categories they map to.
+     *
+     * @return the number of model rows inserted
+     */
+    private int addUnderlyingRows(int firstRow, Series.SeriesValue[][] seriesValues) {
+        int[] modelRowCounts = new int[seriesValues.length];
+        int modelRowCount = 0;
+        for (int i = 0; i < seriesValues.length; i++) {
+            modelRowCounts[i] = getLength(seriesValues[i]);
+            modelRowCount += modelRowCounts[i];
+            countCategories(seriesValues[i], 1);
+        }
+        underlyingRows.addAll(firstRow, seriesValues, modelRowCounts);
+        return modelRowCount;
+    }
+
+    private Series.SeriesValue[] getSeriesValues(int underlyingRow) {
+        return (Series.SeriesValue[]) underlyingRows.get(underlyingRow);
+    }
+
+    /**
+     * @return the series value of model row, one of those of underlyingRow
+     */
+    private Series.SeriesValue getSeriesValue(int row, int underlyingRow) {
+        return getSeriesValues(underlyingRow)[row - getFirstModelRow(underlyingRow)];
+    }
+
+    private void countCategories(Series.SeriesValue[] seriesValues, int delta) {
+        if (categoryCounts == null || seriesValues == null) return;
+        for (int i = 0; i < seriesValues.length; i++) {
+            Object category = seriesValues[i].getSeries();
+            MutableInteger count = (MutableInteger) categoryCounts.get(category);
+            if (count == null) {
+                count = new MutableInteger(0);
+                categoryCounts.put(category, count);
             }
-            generatedRowsStartIndex = categoryValues.size();
-            if (isUseFullSeries()) {
-                for (Iterator iterator = missingCategories.iterator(); iterator.hasNext();) {
-                    Object value = iterator.next();
-                    categoryValues.add(value);
+            count.value += delta;
+            if (count.value == 0) categoryCounts.remove(category);
+            changedCategories.add(category);
+        }
+    }
+
+    /**
+     * Removes the generated rows of categories that model rows now map to, and generates rows for categories of the full
+     * series that no model row maps to any more.  Called after the events for changes to other rows have been fired.
+     */
+    private void fireGeneratedRowChanges() {
+        if (changedCategories.isEmpty()) return;
+        Object[] categories = changedCategories.toArray();
+        changedCategories.clear();
+        for (int i = 0; i < categories.length; i++) {
+            Object category = categories[i];
+            int generatedIndex = generatedCategoryValues.indexOf(category);
+            if (categoryCounts.containsKey(category)) {
+                if (generatedIndex >= 0) {
+                    generatedCategoryValues.remove(generatedIndex);
+                    fireTableRowsDeleted(getGeneratedRowsStartIndex() + generatedIndex, getGeneratedRowsStartIndex() + generatedIndex);
                 }
+            } else if (generatedIndex < 0 && fullSeriesValues.contains(category)) {
+                generatedCategoryValues.add(category);
+                int row = getGeneratedRowsStartIndex() + generatedCategoryValues.size() - 1;
+                fireTableRowsInserted(row, row);
             }
         }
     }
@@ -249,31 +307,6 @@ public class SeriesTableModel extends AbstractTableModel implements TabularBeanA
         invalidateAndFireTableDataChanged();
     }
 
-    private void applyCoefficientToRow(final int row) {
-        splitCellColumns.forEachKey(new TIntProcedure() {
-            public boolean execute(int i) {
-                updateSplitCell(row, i);
-                return true;
-            }
-        });
-    }
-
-    private Object updateSplitCell(int row, int column) {
-        double coefficient = splitCoefficients.get(row);
-        int sourceRow = getUnderlyingRowForModel(row);
-        Object value = getSourceModel().getValueAt(sourceRow, column);
-        Object newValue = applyCoefficient(coefficient, value);
-
-        List columnValues = (List) splitCellColumns.get(column);
-        if (row == columnValues.size()) {
-            columnValues.add(newValue);
-        } else {
-            columnValues.set(row, newValue);
-        }
-
-        return newValue;
-    }
-
     private Object applyCoefficient(double coefficient, Object value) {
         if (value == CachedObjectGraph.DATA_NOT_READY) return CachedObjectGraph.DATA_NOT_READY;
 
@@ -285,33 +318,19 @@ public class SeriesTableModel extends AbstractTableModel implements TabularBeanA
         return null;
     }
 
+    /**
+     * @return the last underlying row whose model rows start at or before row. Rows with no series value have no model
+     * rows, and share their first model row with the next row.
+     */
     private int getUnderlyingRowForModel(int row) {
-        return modelRowToUnderlyingRow.get(row);
-    }
-
-    private IntRange getRowsForUnderlying(int underlyingRow) {
-        if (!hasValidSeriesColumn()) {
-            return new IntRange(underlyingRow, underlyingRow + 1);
-        }
-
-        final int firstRowIndex = underlyingRowToFirstModelRow.get(underlyingRow);
-
-        int stopIndex = generatedRowsStartIndex;
-        if ((underlyingRow + 1) < underlyingRowToFirstModelRow.size()) {
-            stopIndex = underlyingRowToFirstModelRow.get(underlyingRow + 1);
-        }
-
-        return new IntRange(firstRowIndex, stopIndex);
+        return underlyingRows.indexOfWeight(row);
     }
 
-    private static class IntRange {
-        public int start;
-        public int end;
-
-        public IntRange(int start, int end) {
-            this.start = start;
-            this.end = end;
-        }
+    /**
+     * @return the first model row of underlyingRow, or the end of the model rows if underlyingRow is the row count
+     */
+    private int getFirstModelRow(int underlyingRow) {
+        return underlyingRows.getWeightBefore(underlyingRow);
     }
 
     public Series getSeries() {
@@ -385,7 +404,10 @@ public class SeriesTableModel extends AbstractTableModel implements TabularBeanA
     }
 
     public int getRowCount() {
-        if (hasValidSeriesColumn()) return getSeriesValues().size();
+        if (hasValidSeriesColumn()) {
+            calculateIfRequired();
+            return getGeneratedRowsStartIndex() + generatedCategoryValues.size();
+        }
         return getSourceModel().getRowCount();
     }
 
@@ -402,6 +424,7 @@ public class SeriesTableModel extends AbstractTableModel implements TabularBeanA
         if (tableModel instanceof TabularBeanAssociation) {
             int underlyingRow = row;
             if (hasValidSeriesColumn()) {
+                calculateIfRequired();
                 if (row < getGeneratedRowsStartIndex()) {
                     underlyingRow = getUnderlyingRowForModel(row);
                 } else {
@@ -439,9 +462,12 @@ public class SeriesTableModel extends AbstractTableModel implements TabularBeanA
             return false;
         } else if (isSplitColumn(columnIndex)){
             return false;
+        } else if (hasValidSeriesColumn()) {
+            calculateIfRequired();
+            if (rowIndex >= getGeneratedRowsStartIndex()) return false;
+            return getSourceModel().isCellEditable(getUnderlyingRowForModel(rowIndex), columnIndex);
         } else {
-            int underlyingRow = hasValidSeriesColumn() ? getUnderlyingRowForModel(rowIndex) : rowIndex;
-            return getSourceModel().isCellEditable(underlyingRow, columnIndex);
+            return getSourceModel().isCellEditable(rowIndex, columnIndex);
         }
     }
 
@@ -454,6 +480,10 @@ public class SeriesTableModel extends AbstractTableModel implements TabularBeanA
         fireTableDataChanged();
     }
 
+    /**
+     * Keeps the series values of each underlying row, so that only the rows in an event are split again, and only if
+     * their series column may have changed.  Inserted and deleted rows shift the first model row of the rows after them.
+     */
     private class TableModelEventHandler implements TableModelListener {
         public void tableChanged(TableModelEvent e) {
             if (!hasValidSeriesColumn()) {
@@ -469,123 +499,182 @@ public class SeriesTableModel extends AbstractTableModel implements TabularBeanA
                 invalidateSeriesColumnIndex();
                 setUncalculated();
                 fireTableStructureChanged();    //both the data changed and columns changed = structure change
-            } else { //not the header row
-                if (isUncalculated()) {
-                    invalidateAndFireTableDataChanged();
+            } else if (isUncalculated()) {
+                invalidateAndFireTableDataChanged();
+            } else if (e instanceof MultipleColumnChangeEvent) {
+                //multi-row cell events report a last row of Integer.MAX_VALUE, so are handled before the range checks
+                MultipleColumnChangeEvent multiEvent = (MultipleColumnChangeEvent) e;
+                handleValueChanges(multiEvent.getColumnChanges(), multiEvent.isChangedRowsSameForEachColumn());
+            } else if (e instanceof CellsInColumnUpdatedEvent) {
+                handleValueChanges(new CellsInColumnUpdatedEvent[]{(CellsInColumnUpdatedEvent) e}, true);
+            } else if (!isKnownRows(e)) {
+                invalidateAndFireTableDataChanged();
+            } else if (e.getType() == TableModelEvent.INSERT) {
+                insertRows(e.getFirstRow(), e.getLastRow());
+                fireGeneratedRowChanges();
+            } else if (e.getType() == TableModelEvent.DELETE) {
+                deleteRows(e.getFirstRow(), e.getLastRow());
+                fireGeneratedRowChanges();
+            } else {
+                handleRowsUpdated(e.getFirstRow(), e.getLastRow(), e.getColumn());
+            }
+        }
+
+        /**
+         * @return true if the rows of the event can be handled against the underlying rows this model knows about
+         */
+        private boolean isKnownRows(TableModelEvent e) {
+            int underlyingRowCount = underlyingRows.size();
+            if (e.getFirstRow() < 0 || e.getLastRow() < e.getFirstRow() || e.getLastRow() == Integer.MAX_VALUE) return false;
+            if (e.getType() == TableModelEvent.INSERT) {
+                return e.getFirstRow() <= underlyingRowCount && underlyingRowCount + e.getLastRow() - e.getFirstRow() + 1 == getSourceModel().getRowCount();
+            }
+            return e.getLastRow() < underlyingRowCount;
+        }
+
+        private void insertRows(int firstRow, int lastRow) {
+            int firstModelRow = getFirstModelRow(firstRow);
+            int modelRowCount = addUnderlyingRows(firstRow, getSeriesValuesForRows(firstRow, lastRow - firstRow + 1));
+            if (modelRowCount > 0) fireTableRowsInserted(firstModelRow, firstModelRow + modelRowCount - 1);
+        }
+
+        private void deleteRows(int firstRow, int lastRow) {
+            int firstModelRow = getFirstModelRow(firstRow);
+            int modelRowCount = getFirstModelRow(lastRow + 1) - firstModelRow;
+            for (int row = firstRow; row <= lastRow; row++) {
+                countCategories(getSeriesValues(row), -1);
+            }
+            underlyingRows.remove(firstRow, lastRow - firstRow + 1);
+
+            if (modelRowCount > 0) fireTableRowsDeleted(firstModelRow, firstModelRow + modelRowCount - 1);
+        }
+
+        /**
+         * The underlying row now has seriesValues. If it splits into the same number of model rows as before, the
+         * categories of those rows are counted again, else the model rows are deleted and inserted again.
+         *
+         * @return false if the model rows were deleted and inserted
+         */
+        private boolean updateSeriesValues(int underlyingRow, Series.SeriesValue[] seriesValues) {
+            Series.SeriesValue[] oldSeriesValues = getSeriesValues(underlyingRow);
+            if (getLength(oldSeriesValues) != getLength(seriesValues)) {
+                replaceModelRows(underlyingRow, null);
+                replaceModelRows(underlyingRow, seriesValues);
+                return false;
+            }
+            if (oldSeriesValues != seriesValues) {
+                countCategories(seriesValues, 1);
+                countCategories(oldSeriesValues, -1);
+                underlyingRows.set(underlyingRow, seriesValues, getLength(seriesValues));
+            }
+            return true;
+        }
+
+        /**
+         * Replaces the model rows of the underlying row with rows for seriesValues, and fires their deletion or insertion.
+         * Only one of the old and new series values may have model rows.
+         */
+        private void replaceModelRows(int underlyingRow, Series.SeriesValue[] seriesValues) {
+            Series.SeriesValue[] oldSeriesValues = getSeriesValues(underlyingRow);
+            int firstModelRow = getFirstModelRow(underlyingRow);
+            int oldModelRowCount = getLength(oldSeriesValues);
+            int modelRowCount = getLength(seriesValues);
+
+            countCategories(oldSeriesValues, -1);
+            countCategories(seriesValues, 1);
+            underlyingRows.set(underlyingRow, seriesValues, modelRowCount);
+
+            if (oldModelRowCount > 0) fireTableRowsDeleted(firstModelRow, firstModelRow + oldModelRowCount - 1);
+            if (modelRowCount > 0) fireTableRowsInserted(firstModelRow, firstModelRow + modelRowCount - 1);
+        }
+
+        private void handleRowsUpdated(int firstRow, int lastRow, int column) {
+            if (column != TableModelEvent.ALL_COLUMNS && column != getSeriesColumnIndex()) {
+                fireRowsUpdated(firstRow, lastRow, column);
+                return;
+            }
+
+            //rows that split into a different number of model rows are replaced after the update event for the rest
+            Series.SeriesValue[][] seriesValues = getSeriesValuesForRows(firstRow, lastRow - firstRow + 1);
+            TIntArrayList replacedRows = new TIntArrayList();
+            for (int row = firstRow; row <= lastRow; row++) {
+                Series.SeriesValue[] rowSeriesValues = seriesValues[row - firstRow];
+                if (getLength(rowSeriesValues) == getLength(getSeriesValues(row))) {
+                    updateSeriesValues(row, rowSeriesValues);
                 } else {
-                    if (e.getType() != TableModelEvent.UPDATE) {
-                        invalidateAndFireTableDataChanged();
-                    } else {
-                        //handle the update
-                        if (!(e instanceof CellsInColumnUpdatedEvent) && !(e instanceof MultipleColumnChangeEvent)) {
-                            invalidateAndFireTableDataChanged();
-                            return;
-                        } else {
-                            boolean sharedRows = true;
-                            CellsInColumnUpdatedEvent[] changes;
-                            if (e instanceof MultipleColumnChangeEvent) {
-                                MultipleColumnChangeEvent multiEvent = (MultipleColumnChangeEvent) e;
-                                sharedRows = multiEvent.isChangedRowsSameForEachColumn();
-                                changes = multiEvent.getColumnChanges();
-                            } else {
-                                changes = new CellsInColumnUpdatedEvent[]{(CellsInColumnUpdatedEvent) e};
-                            }
-                            handleValueChanges(changes, sharedRows);
-                        }
-                    }
+                    replacedRows.add(row);
                 }
             }
+            fireRowsUpdated(firstRow, lastRow, column);
+            for (int i = 0; i < replacedRows.size(); i++) {
+                int row = replacedRows.get(i);
+                updateSeriesValues(row, seriesValues[row - firstRow]);
+            }
+            fireGeneratedRowChanges();
         }
 
+        private void fireRowsUpdated(int firstRow, int lastRow, int column) {
+            int firstModelRow = getFirstModelRow(firstRow);
+            int lastModelRow = getFirstModelRow(lastRow + 1) - 1;
+            if (lastModelRow >= firstModelRow) {
+                fireTableChanged(new TableModelEvent(SeriesTableModel.this, firstModelRow, lastModelRow, column));
+            }
+        }
+
+        /**
+         * Changes to columns other than the series column are passed on first, mapped to the model rows of the changed
+         * rows, with the coefficients of split columns applied. Then the rows with a changed series column get their new
+         * series values, and events for their series column and split columns.
+         */
         private void handleValueChanges(CellsInColumnUpdatedEvent[] changes, boolean sharedRows) {
             CellsInColumnUpdatedEvent[] remappedChanges = new CellsInColumnUpdatedEvent[changes.length];
             int remappedCount = 0;
             int[] remappedRows = null;
-            TIntObjectHashMap splitChanges = null;
             CellsInColumnUpdatedEvent seriesChange = null;
+            List splitChanges = null;
 
-            //first we need to fire the changes for cells that are retrieved from the parent model (i.e. not the series column or a split value column
             for (int i = 0; i < changes.length; i++) {
                 CellsInColumnUpdatedEvent change = changes[i];
-
                 int column = change.getColumn();
-                if (isSplittingValues()) {
-                    if (column == getSeriesColumnIndex()) {
-                        seriesChange = change;
-                        change = null;
-                    } else if (isSplitColumn(column)) {
-                        if (splitChanges == null) splitChanges = new TIntObjectHashMap(changes.length);
-                        Object obj = splitChanges.put(column, change);
-                        ApplicationDiagnostics.getInstance().productionAssert(obj == null, "Dan, you have a bug in the SeriesModel. Multiple changes for a given column not handled correctly.");
-                        change = null;
-                    } else {
-                        if (remappedRows == null || !sharedRows) {
-                            remappedRows = remapRows(change.getRows());
-                        }
-                        change = new CellsInColumnUpdatedEvent(SeriesTableModel.this, remappedRows, column, change);
-                    }
+                if (column == getSeriesColumnIndex()) {
+                    seriesChange = change;
+                } else if (isSplitColumn(column)) {
+                    if (splitChanges == null) splitChanges = new ArrayList(changes.length);
+                    splitChanges.add(change);
                 } else {
-                    if (change.getColumn() == getSeriesColumnIndex()) {
-                        Object oldValue = updateCategoryValues(change);
-                        Object newValue = categoryValues.get(change.getRowIndex(0));
-                        change = new CellsInColumnUpdatedEvent(SeriesTableModel.this, change.getRows(), column, oldValue, newValue);
+                    if (remappedRows == null || !sharedRows) {
+                        remappedRows = remapRows(change.getRows());
+                    }
+                    if (remappedRows.length > 0) {
+                        remappedChanges[remappedCount++] = new CellsInColumnUpdatedEvent(SeriesTableModel.this, remappedRows, column, change);
                     }
-                }
-
-                if (change != null) {
-                    remappedChanges[remappedCount++] = change;
                 }
             }
+
             //send those remapped changes
-            if (remappedCount != 0) {
-                if (remappedCount == 1) {
-                    fireTableChanged(remappedChanges[0]);
-                } else {
-                    if (remappedCount != remappedChanges.length) {
-                        //drop null elements
-                        CellsInColumnUpdatedEvent[] tmp = new CellsInColumnUpdatedEvent[remappedCount];
-                        System.arraycopy(remappedChanges, 0, tmp, 0, remappedCount);
-                        remappedChanges = tmp;
-                    }
-                    MultipleColumnChangeEvent newEvent = new MultipleColumnChangeEvent(SeriesTableModel.this, remappedChanges, sharedRows);
-                    fireTableChanged(newEvent);
+            if (remappedCount == 1) {
+                fireTableChanged(remappedChanges[0]);
+            } else if (remappedCount > 1) {
+                if (remappedCount != remappedChanges.length) {
+                    //drop null elements
+                    CellsInColumnUpdatedEvent[] tmp = new CellsInColumnUpdatedEvent[remappedCount];
+                    System.arraycopy(remappedChanges, 0, tmp, 0, remappedCount);
+                    remappedChanges = tmp;
                 }
+                fireTableChanged(new MultipleColumnChangeEvent(SeriesTableModel.this, remappedChanges, sharedRows));
             }
 
-            //if some changes got deferred for later...
-            if (remappedCount != remappedChanges.length) {
-                //now do the series column
-                int[] updatedSplitColumnIndexes;
-                if (seriesChange != null) {
-                    updateAndFireSeriesColumn(seriesChange);
-                    //if that invalidated things, then abort
-                    if (isUncalculated()) {
-                        return;
-                    }
-                    updatedSplitColumnIndexes = splitCellColumns.keys();
-                } else {
-                    updatedSplitColumnIndexes = splitChanges.keys();
+            //split values differ for each model row, so split columns get an event per model row
+            if (splitChanges != null) {
+                for (int i = 0; i < splitChanges.size(); i++) {
+                    CellsInColumnUpdatedEvent splitChange = (CellsInColumnUpdatedEvent) splitChanges.get(i);
+                    fireSplitColumnChanges(splitChange.getRows(), splitChange.getColumn(), splitChange.getOldValue());
                 }
+            }
 
-                //finally update the splitColumns
-                if (sharedRows) {
-                    updateAndFireForSplitColumns(updatedSplitColumnIndexes, changes[0].getRows());
-                } else {
-                    //each column has different rows updated, we need to handle each updated column individually
-                    for (int i = 0; i < updatedSplitColumnIndexes.length; i++) {
-                        int updatedSplitColumnIndex = updatedSplitColumnIndexes[i];
-
-                        //some rows may have been updated by a change to the series column
-                        if (seriesChange != null) {
-                            updateAndFireForSplitColumns(new int[]{updatedSplitColumnIndex}, seriesChange.getRows());
-                        }
-                        //and others may have been updated directly
-                        CellsInColumnUpdatedEvent columnChange = ((CellsInColumnUpdatedEvent) splitChanges.get(updatedSplitColumnIndex));
-                        if (columnChange != null) {
-                            updateAndFireForSplitColumns(new int[]{updatedSplitColumnIndex}, columnChange.getRows());
-                        }
-                    }
-                }
+            if (seriesChange != null) {
+                updateAndFireSeriesColumn(seriesChange);
+                fireGeneratedRowChanges();
             }
         }
 
@@ -593,124 +682,84 @@ public class SeriesTableModel extends AbstractTableModel implements TabularBeanA
             TIntArrayList mappedRows = new TIntArrayList(rows.length * 2);
             for (int i = 0; i < rows.length; i++) {
                 int row = rows[i];
-                IntRange rowsForUnderlying = getRowsForUnderlying(row);
-                for (int mappedRow = rowsForUnderlying.start; mappedRow < rowsForUnderlying.end; mappedRow++) {
+                for (int mappedRow = getFirstModelRow(row); mappedRow < getFirstModelRow(row + 1); mappedRow++) {
                     mappedRows.add(mappedRow);
                 }
             }
             return mappedRows.toNativeArray();
         }
 
-        private void updateAndFireForSplitColumns(int[] splitColumnIndexes, int[] rows) {
-            assert (isSplittingValues()) : "Should be splitting values if we are here";
+        private void fireSplitColumnChanges(int[] rows, int column, Object oldSourceValue) {
             for (int i = 0; i < rows.length; i++) {
                 int sourceRow = rows[i];
-                IntRange rowsForUnderlying = getRowsForUnderlying(sourceRow);
-                double coefficientSanityCheck = 0;
-
-                for (int mappedRow = rowsForUnderlying.start; mappedRow < rowsForUnderlying.end; mappedRow++) {
-                    double coefficient = splitCoefficients.get(mappedRow);
-                    coefficientSanityCheck += coefficient;
-
-                    CellsInColumnUpdatedEvent[] newEvents = new CellsInColumnUpdatedEvent[splitColumnIndexes.length];
-                    int newEventIndex = 0;
-                    for (int j = 0; j < splitColumnIndexes.length; j++) {
-                        int splitColumnIndex = splitColumnIndexes[j];
-                        List columnValues = (List) splitCellColumns.get(splitColumnIndex);
-                        Object oldValue = columnValues.get(mappedRow);
-
-                        Object value = getSourceModel().getValueAt(sourceRow, splitColumnIndex);
-                        Object newValue = applyCoefficient(coefficient, value);
-                        columnValues.set(mappedRow, newValue);
-
-                        CellsInColumnUpdatedEvent newEvent = new CellsInColumnUpdatedEvent(SeriesTableModel.this, mappedRow, splitColumnIndex, oldValue, newValue);
-                        newEvents[newEventIndex++] = newEvent;
-                    }
-                    if (newEvents.length == 1) {
-                        fireTableChanged(newEvents[0]);
-                    } else {
-                        fireTableChanged(new MultipleColumnChangeEvent(SeriesTableModel.this, newEvents, true));
-                    }
+                Object sourceValue = getSourceModel().getValueAt(sourceRow, column);
+                Series.SeriesValue[] seriesValues = getSeriesValues(sourceRow);
+                int firstModelRow = getFirstModelRow(sourceRow);
+                for (int seriesIndex = 0; seriesIndex < getLength(seriesValues); seriesIndex++) {
+                    int mappedRow = firstModelRow + seriesIndex;
+                    double coefficient = seriesValues[seriesIndex].getCoefficient();
+                    fireTableChanged(new CellsInColumnUpdatedEvent(SeriesTableModel.this, mappedRow, column, applyCoefficient(coefficient, oldSourceValue), applyCoefficient(coefficient, sourceValue)));
                 }
-                ApplicationDiagnostics.getInstance().productionAssert(coefficientSanityCheck == 1.0, "Major issue: Coefficients of split rows do not add up to 1.0!");
             }
         }
 
         private void updateAndFireSeriesColumn(CellsInColumnUpdatedEvent seriesChange) {
-            Series.SeriesValue[] seriesValues;
-            Series.SeriesValue[] oldSeriesValues;
-            if (seriesChange.getNewValue() == CachedObjectGraph.DATA_NOT_READY) {
-                seriesValues = DATA_NOT_READY_SERIES_VALUE;
-            } else {
-                seriesValues = getSeries().getSeriesValues(seriesChange.getNewValue(), true);
-            }
-            if (seriesChange.getOldValue() == CachedObjectGraph.DATA_NOT_READY) {
-                oldSeriesValues = DATA_NOT_READY_SERIES_VALUE;
-            } else {
-                oldSeriesValues = getSeries().getSeriesValues(seriesChange.getOldValue(), true);
-            }
+            //the rows share their old and new value, so they split into the same series values
+            Series.SeriesValue[] seriesValues = getSeriesValuesForValue(seriesChange.getNewValue());
+            int[] rows = seriesChange.getRows();
+            if (rows.length == 0) return;
+            Series.SeriesValue[] oldSeriesValues = getSeriesValues(rows[0]);
 
-            if (oldSeriesValues.length != seriesValues.length) {
-                //rows will be added or removed. for simplicity, invalidate and abort. Will make this better if needed
-                invalidateAndFireTableDataChanged();
-                return;
+            boolean sameModelRows = true;
+            for (int i = 0; i < rows.length; i++) {
+                sameModelRows &= updateSeriesValues(rows[i], seriesValues);
             }
-            for (int seriesIndex = 0; seriesIndex < seriesValues.length; seriesIndex++) {
+            //if rows were added or removed, the replaced model rows were inserted with their new values
+            if (!sameModelRows) return;
+
+            int seriesColumn = getSeriesColumnIndex();
+            int[] splitColumnIndexes = getSplitColumnIndexes();
+            for (int seriesIndex = 0; seriesIndex < getLength(seriesValues); seriesIndex++) {
                 Object newSeriesValue = seriesValues[seriesIndex].getSeries();
                 Object oldSeriesValue = oldSeriesValues[seriesIndex].getSeries();
-                int[] mappedRows = new int[seriesChange.getRowCount()];
-                for (int i = 0; i < seriesChange.getRowCount(); i++) {
-                    int mappedRow = underlyingRowToFirstModelRow.get(seriesChange.getRowIndex(i)) + seriesIndex;
-                    mappedRows[i] = mappedRow;
-                    categoryValues.set(mappedRow, newSeriesValue);
+                int[] mappedRows = new int[rows.length];
+                for (int i = 0; i < rows.length; i++) {
+                    mappedRows[i] = getFirstModelRow(rows[i]) + seriesIndex;
+                }
+                if (!Utilities.equals(oldSeriesValue, newSeriesValue)) {
+                    fireTableChanged(new CellsInColumnUpdatedEvent(SeriesTableModel.this, mappedRows, seriesColumn, oldSeriesValue, newSeriesValue));
+                }
+
+                double oldCoefficient = oldSeriesValues[seriesIndex].getCoefficient();
+                double coefficient = seriesValues[seriesIndex].getCoefficient();
+                if (splitColumnIndexes.length > 0 && oldCoefficient != coefficient) {
+                    for (int i = 0; i < rows.length; i++) {
+                        fireSplitCellsChanged(rows[i], mappedRows[i], splitColumnIndexes, oldCoefficient, coefficient);
+                    }
                 }
-                CellsInColumnUpdatedEvent newEvent = new CellsInColumnUpdatedEvent(SeriesTableModel.this, mappedRows, getSeriesColumnIndex(), oldSeriesValue, newSeriesValue);
-                fireTableChanged(newEvent);
             }
-            return;
         }
 
-        /**
-         * @return the old series value
-         */
-        private Object updateCategoryValues(CellsInColumnUpdatedEvent change) {
-            Object newValue = change.getNewValue();
-            if (newValue != CachedObjectGraph.DATA_NOT_READY) {
-                Series.SeriesValue[] seriesValues = getSeries().getSeriesValues(newValue, isSplittingValues());
-                newValue = seriesValues[0].getSeries();
+        private void fireSplitCellsChanged(int sourceRow, int mappedRow, int[] splitColumnIndexes, double oldCoefficient, double coefficient) {
+            CellsInColumnUpdatedEvent[] newEvents = new CellsInColumnUpdatedEvent[splitColumnIndexes.length];
+            for (int j = 0; j < splitColumnIndexes.length; j++) {
+                int splitColumnIndex = splitColumnIndexes[j];
+                Object value = getSourceModel().getValueAt(sourceRow, splitColumnIndex);
+                newEvents[j] = new CellsInColumnUpdatedEvent(SeriesTableModel.this, mappedRow, splitColumnIndex, applyCoefficient(oldCoefficient, value), applyCoefficient(coefficient, value));
             }
-
-            Object oldValue = null;
-            for (int i = 0; i < change.getRowCount(); i++) {
-                int row = change.getRowIndex(i);
-                oldValue = categoryValues.set(row, newValue);
+            if (newEvents.length == 1) {
+                fireTableChanged(newEvents[0]);
+            } else {
+                fireTableChanged(new MultipleColumnChangeEvent(SeriesTableModel.this, newEvents, true));
             }
-            return oldValue;
         }
 
-        private boolean isEventAffectsSplitValues(TableModelEvent e) {
-            if (!isSplittingValues()) return false;
-
-            int column = e.getColumn();
-            if (column == TableModelEvent.ALL_COLUMNS) {
-                if (e instanceof MultipleColumnChangeEvent) {
-                    CellsInColumnUpdatedEvent[] columnChanges = ((MultipleColumnChangeEvent) e).getColumnChanges();
-                    for (int i = 0; i < columnChanges.length; i++) {
-                        CellsInColumnUpdatedEvent change = columnChanges[i];
-                        column = change.getColumn();
-                        if (isSplitColumn(column)) return true;
-                        if (getSeriesColumnIndex() == column) return true;
-                    }
-                    return false;
-                } else {
-                    return true;
-                }
+        private int[] getSplitColumnIndexes() {
+            TIntArrayList splitColumnIndexes = new TIntArrayList();
+            for (int column = 0; column < splitColumns.length; column++) {
+                if (isSplitColumn(column)) splitColumnIndexes.add(column);
             }
-
-            if (isSplitColumn(column)) return true;
-            if (getSeriesColumnIndex() == column) return true;
-
-            return false;
+            return splitColumnIndexes.toNativeArray();
         }
     }
 }
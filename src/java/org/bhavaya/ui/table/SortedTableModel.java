@@ -29,6 +29,7 @@
 
 package org.bhavaya.ui.table;
 
+import org.bhavaya.collection.OrderStatisticTree;
 import org.bhavaya.ui.series.DateSeriesNew;
 import org.bhavaya.ui.table.formula.FormulaResult;
 import org.bhavaya.ui.table.formula.FormulaSumBucket;
@@ -49,13 +50,16 @@ import java.util.*;
 /**
  * A sorter for TableModels. The sorter has a model (conforming to TableModel)
  * and itself implements TableModel. SortedTableModel does not store or copy
- * the data in the TableModel, instead it maintains an array of
- * integers which it keeps the same size as the number of modelToRows in its
- * model. When the model changes it notifies the sorter that something
- * has changed so that its internal array of integers can be reallocated
- * and the modelToRows can be resorted. As requests are made of the sorter (like
+ * the data in the TableModel, instead it maintains a Row for each row in its
+ * model, held in two OrderStatisticTrees: one in sorted order and one in the
+ * order of the model, so a Row's index in either is found in O(log n).
+ * When the model changes it notifies the sorter that something has changed,
+ * and the changed rows are removed and re-inserted in sorted order, firing
+ * events for the ranges of sorted rows affected.  Only when too many rows
+ * change at once, or the change cannot be pinned to rows, are the Rows
+ * reallocated and resorted. As requests are made of the sorter (like
  * getValueAt(row, col) it redirects them to its model via the mapping
- * array. That way the SortedTableModel appears to hold another copy of the table
+ * trees. That way the SortedTableModel appears to hold another copy of the table
  * with the modelToRows in a different order.
  *
  * @author Philip Milne
@@ -85,9 +89,18 @@ public class SortedTableModel extends AbstractTableModel implements TabularBeanA
     //the same as tableModel or null if our wrapped tableModel doesn't implements FilterFindTableModel, to prevent multiple instanceof/casts
     private FilterFindTableModel filterFindTableModel;
 
+    // a batch changing more than this fraction of the rows is re-sorted in full, rather than moving rows one by one
+    private static final int FULL_RESORT_DIVISOR = 4;
+
     private boolean modelValid = false;
-    private ArrayList modelToRows = new ArrayList();
-    private ArrayList underlyingToRows = new ArrayList();
+    private OrderStatisticTree modelToRows = new OrderStatisticTree();
+    private OrderStatisticTree underlyingToRows = new OrderStatisticTree();
+    private final Comparator rowOrder = new RowOrderComparator();
+    private boolean incrementalResort = true;
+
+    // tables read a row a cell at a time, so remember the last row mapped
+    private int lastMappedModelIndex = -1;
+    private int lastMappedUnderlyingIndex;
 
     private TableModelListener tableModelListener;
     private LinkedHashMap sortingColumns = new LinkedHashMap();
@@ -276,9 +289,21 @@ public class SortedTableModel extends AbstractTableModel implements TabularBeanA
         modelValid = false;
         modelToRows.clear();
         underlyingToRows.clear();
+        lastMappedModelIndex = -1;
         totalRowManager.clearAll();
     }
 
+    /**
+     * When false, any change to more than one row re-sorts the whole model.  For comparing against incremental resorting.
+     */
+    void setIncrementalResort(boolean incrementalResort) {
+        this.incrementalResort = incrementalResort;
+    }
+
+    private boolean isIncremental(int changedRowCount) {
+        return changedRowCount == 1 || (incrementalResort && changedRowCount <= underlyingToRows.size() / FULL_RESORT_DIVISOR);
+    }
+
     public boolean isExclusionColumnKey(Object columnKey) {
         return columnKey instanceof String &&
                 ( exclusionColumns.contains(columnKey) ||
@@ -304,17 +329,30 @@ public class SortedTableModel extends AbstractTableModel implements TabularBeanA
     private final void reallocateRows() {
         int tableModelRowCount = tableModel.getRowCount();
 
-        modelToRows.clear();
-        modelToRows.ensureCapacity(tableModelRowCount);
         totalRowManager.clearAll();
 
         totalRow = totalRowManager.createGroupedRow();
+        Row[] rows = new Row[tableModelRowCount];
         for (int row = 0; row < tableModelRowCount; row++) {
-            modelToRows.add(new Row(row));
+            rows[row] = new Row(row);
             if (isRowTotallingEnabled()) {
                 totalRowManager.addSourceRowToGroup(totalRow, row, false);
             }
         }
+
+        Row[] sortedRows = rows;
+        if (isSorting()) {
+            sortedRows = (Row[]) rows.clone();
+            Arrays.sort(sortedRows); // stable, so equal rows stay in underlying order, as RowOrderComparator expects
+        }
+
+        OrderStatisticTree.Node[] underlyingNodes = underlyingToRows.setValues(rows);
+        OrderStatisticTree.Node[] modelNodes = modelToRows.setValues(sortedRows);
+        for (int i = 0; i < tableModelRowCount; i++) {
+            rows[i].underlyingNode = underlyingNodes[i];
+            sortedRows[i].modelNode = modelNodes[i];
+        }
+        lastMappedModelIndex = -1;
     }
 
     private final void sort() {
@@ -325,20 +363,6 @@ public class SortedTableModel extends AbstractTableModel implements TabularBeanA
                 return;
             }
             reallocateRows();
-
-            if (isSorting()) {
-                Utilities.sort(modelToRows);
-            }
-
-            Object[] underlyingRowsArray = new Row[modelToRows.size()];
-            for (int i = 0; i < modelToRows.size(); i++) {
-                Row row = (Row) modelToRows.get(i);
-                row.setModelIndex(i);
-                underlyingRowsArray[row.getUnderlyingIndex()] = row;
-            }
-            underlyingToRows.clear();
-            underlyingToRows.addAll(Arrays.asList(underlyingRowsArray));
-//        fireTableRowsUpdated(0, modelToRows.size() - 1);
         }
     }
 
@@ -347,12 +371,12 @@ public class SortedTableModel extends AbstractTableModel implements TabularBeanA
     }
 
 
-    private ArrayList getModelToRows() {
+    private OrderStatisticTree getModelToRows() {
         sort();
         return modelToRows;
     }
 
-    private ArrayList getUnderlyingToRows() {
+    private OrderStatisticTree getUnderlyingToRows() {
         assert (isModelValid()) : "It should not be possible tot call getInverse modelToRows while the model is invalid";
         return underlyingToRows;
     }
@@ -437,7 +461,11 @@ public class SortedTableModel extends AbstractTableModel implements TabularBeanA
 
     public int mapModelToUnderlying(int rowIndex) {
         sort();
-        return ((Row) getModelToRows().get(rowIndex)).getUnderlyingIndex();
+        if (rowIndex != lastMappedModelIndex) {
+            lastMappedUnderlyingIndex = ((Row) getModelToRows().get(rowIndex)).getUnderlyingIndex();
+            lastMappedModelIndex = rowIndex;
+        }
+        return lastMappedUnderlyingIndex;
     }
 
     public int mapUnderlyingToModel(int rowIndex) {
@@ -480,32 +508,28 @@ public class SortedTableModel extends AbstractTableModel implements TabularBeanA
     }
 
     private class Row implements Comparable {
-        private int underlyingIndex;
-        private int modelIndex = -1;
+        private int initialUnderlyingIndex;
+        private OrderStatisticTree.Node modelNode;
+        private OrderStatisticTree.Node underlyingNode;
 
+        /**
+         * The row's position in underlyingToRows, or the index it was created with until it is added there.
+         */
         public int getUnderlyingIndex() {
-            return underlyingIndex;
-        }
-
-        public void setUnderlyingIndex(int underlyingIndex) {
-            this.underlyingIndex = underlyingIndex;
+            return underlyingNode == null ? initialUnderlyingIndex : underlyingToRows.indexOf(underlyingNode);
         }
 
         public int getModelIndex() {
-            return modelIndex;
-        }
-
-        public void setModelIndex(int modelIndex) {
-            this.modelIndex = modelIndex;
+            return modelToRows.indexOf(modelNode);
         }
 
         public Row(int underyingIndex) {
-            this.underlyingIndex = underyingIndex;
+            this.initialUnderlyingIndex = underyingIndex;
         }
 
         public int compareTo(Object o) {
-            int row1 = underlyingIndex;
-            int row2 = ((Row) o).underlyingIndex;
+            int row1 = getUnderlyingIndex();
+            int row2 = ((Row) o).getUnderlyingIndex();
 
             for (Iterator iterator = sortingColumns.entrySet().iterator(); iterator.hasNext();) {
                 Map.Entry entry = (Map.Entry) iterator.next();
@@ -534,9 +558,22 @@ public class SortedTableModel extends AbstractTableModel implements TabularBeanA
 
     }
 
+    /**
+     * Orders rows as the stable sort in reallocateRows does, by the sorting columns and then by underlying index, so a
+     * row inserted into modelToRows goes where a full resort would put it.
+     */
+    private class RowOrderComparator implements Comparator {
+        public int compare(Object o1, Object o2) {
+            Row row1 = (Row) o1;
+            Row row2 = (Row) o2;
+            int comparison = row1.compareTo(row2);
+            if (comparison != 0) return comparison;
+            return row1.getUnderlyingIndex() - row2.getUnderlyingIndex();
+        }
+    }
+
     private class TableUpdateHandler implements TableModelListener {
         private int[] ALL_ROWS = new int[0];
-        private final ModelIndexRowComparator MODEL_INDEX_ROW_COMPARATOR = new ModelIndexRowComparator();
 
         public void tableChanged(TableModelEvent e) {
             int firstRow = e.getFirstRow();
@@ -588,17 +625,21 @@ public class SortedTableModel extends AbstractTableModel implements TabularBeanA
             } else {
                 //data changed
                 if (type == TableModelEvent.INSERT || type == TableModelEvent.DELETE) {
-                    if (firstRow == lastRow) {
-                        switch (type) {
-                            case TableModelEvent.INSERT:
-                                handleInsert(firstRow);
-                                break;
-                            case TableModelEvent.DELETE:
-                                handleDelete(firstRow);
-                                break;
+                    if (firstRow < 0 || lastRow < firstRow || !isIncremental(lastRow - firstRow + 1)) {
+                        forceUpdate();
+                    } else if (type == TableModelEvent.INSERT) {
+                        if (firstRow > underlyingToRows.size() || lastRow >= tableModel.getRowCount()) {
+                            log.error("Insert of rows " + firstRow + " to " + lastRow + " does not fit the underlying row count: " + tableModel.getRowCount() + ", sorted row count: " + underlyingToRows.size(), new RuntimeException());
+                            forceUpdate();
+                        } else {
+                            handleInsert(firstRow, lastRow);
                         }
                     } else {
-                        forceUpdate();
+                        if (lastRow >= underlyingToRows.size()) {
+                            forceUpdate();
+                        } else {
+                            handleDelete(firstRow, lastRow);
+                        }
                     }
                 } else {
                     //an update
@@ -606,13 +647,13 @@ public class SortedTableModel extends AbstractTableModel implements TabularBeanA
                     //update affects column that is sorted => remove affected rows + re-add them
                     //else => map new row indexes and refire
                     int[] rows = getRowsNeedingResort(e);
-                    if (rows == ALL_ROWS) {
+                    if (rows == ALL_ROWS || (rows != null && !isIncremental(rows.length))) {
                         forceUpdate();
                         return;
                     } else if (rows == null) {
                         refireChange(e);
                     } else {
-                        rowsNeedMoving(rows);
+                        rowsNeedMoving(rows, e);
                     }
                     updateTotalRow(e);
 
@@ -654,30 +695,36 @@ public class SortedTableModel extends AbstractTableModel implements TabularBeanA
             }
         }
 
+        /**
+         * Returns the distinct underlying rows whose position may have changed, null if none, or ALL_ROWS if the
+         * change cannot be pinned to rows.
+         */
         private int[] getRowsNeedingResort(TableModelEvent e) {
             if (e.getColumn() == TableModelEvent.ALL_COLUMNS) {
                 if (e instanceof MultipleColumnChangeEvent) {
                     MultipleColumnChangeEvent event = (MultipleColumnChangeEvent) e;
                     CellsInColumnUpdatedEvent[] columnChanges = event.getColumnChanges();
+                    int[] rows = null;
                     for (int i = 0; i < columnChanges.length; i++) {
                         if (isSortingColumn(getColumnKey(columnChanges[i].getColumn()))) {
                             //get rows
-                            if (event.isChangedRowsSameForEachColumn() || sortingColumns.size() == 1) {
-                                return columnChanges[0].getRows();
-                            } else {
-                                //todo: maybe we should efficiently find the set of rows that are effected?
-                                return ALL_ROWS;
+                            if (event.isChangedRowsSameForEachColumn()) {
+                                return getDistinctRows(columnChanges[i].getRows());
                             }
+                            rows = union(rows, columnChanges[i].getRows());
                         }
                     }
+                    return rows == null ? null : getDistinctRows(rows);
+                } else if (e.getLastRow() != Integer.MAX_VALUE) {
+                    return getRowRange(e.getFirstRow(), e.getLastRow());
                 } else {
                     return ALL_ROWS;
                 }
             } else if (isSortingColumn(getColumnKey(e.getColumn()))) {
                 if (e instanceof CellsInColumnUpdatedEvent) {
-                    return ((CellsInColumnUpdatedEvent) e).getRows();
-                } else if (e.getFirstRow() == e.getLastRow()) {
-                    return new int[]{e.getFirstRow()};
+                    return getDistinctRows(((CellsInColumnUpdatedEvent) e).getRows());
+                } else if (e.getLastRow() != Integer.MAX_VALUE) {
+                    return getRowRange(e.getFirstRow(), e.getLastRow());
                 } else {
                     return ALL_ROWS;
                 }
@@ -685,6 +732,38 @@ public class SortedTableModel extends AbstractTableModel implements TabularBeanA
             return null;
         }
 
+        private int[] union(int[] rows1, int[] rows2) {
+            if (rows1 == null) return rows2;
+            int[] union = new int[rows1.length + rows2.length];
+            System.arraycopy(rows1, 0, union, 0, rows1.length);
+            System.arraycopy(rows2, 0, union, rows1.length, rows2.length);
+            return union;
+        }
+
+        private int[] getDistinctRows(int[] rows) {
+            int[] sortedRows = (int[]) rows.clone();
+            Arrays.sort(sortedRows);
+            int distinctCount = 0;
+            for (int i = 0; i < sortedRows.length; i++) {
+                if (i == 0 || sortedRows[i] != sortedRows[i - 1]) sortedRows[distinctCount++] = sortedRows[i];
+            }
+            if (distinctCount == 0) return null;
+            if (sortedRows[0] < 0 || sortedRows[distinctCount - 1] >= underlyingToRows.size()) return ALL_ROWS;
+            if (distinctCount == sortedRows.length) return sortedRows;
+            int[] distinctRows = new int[distinctCount];
+            System.arraycopy(sortedRows, 0, distinctRows, 0, distinctCount);
+            return distinctRows;
+        }
+
+        private int[] getRowRange(int firstRow, int lastRow) {
+            if (firstRow < 0 || lastRow < firstRow || lastRow >= underlyingToRows.size()) return ALL_ROWS;
+            int[] rows = new int[lastRow - firstRow + 1];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = firstRow + i;
+            }
+            return rows;
+        }
+
         private int[] mapRows(int[] rows) {
             int[] mapped = new int[rows.length];
             for (int i = 0; i < rows.length; i++) {
@@ -725,7 +804,7 @@ public class SortedTableModel extends AbstractTableModel implements TabularBeanA
             int[] mappedRows = null;
             for (int i = 0; i < columnChanges.length; i++) {
                 CellsInColumnUpdatedEvent columnChange = columnChanges[i];
-                if (sharedRows || i == 0) {
+                if (!sharedRows || i == 0) {
                     mappedRows = mapRows(columnChange.getRows());
                 }
                 CellsInColumnUpdatedEvent newColumnChange;
@@ -743,105 +822,131 @@ public class SortedTableModel extends AbstractTableModel implements TabularBeanA
             return newEvent;
         }
 
-        private void handleDelete(int row) {
-            ArrayList underlyingToRows1 = getUnderlyingToRows();
-            Row deletedRow = (Row) underlyingToRows1.remove(row);
-            for (int i = row; i < underlyingToRows1.size(); i++) {
-                Row row1 = (Row) underlyingToRows1.get(i);
-                row1.setUnderlyingIndex(i);
+        private void handleDelete(int firstRow, int lastRow) {
+            Row[] deletedRows = new Row[lastRow - firstRow + 1];
+            int[] modelIndexes = new int[deletedRows.length];
+            OrderStatisticTree.Node node = getUnderlyingToRows().getNode(firstRow);
+            for (int i = 0; i < deletedRows.length; i++) {
+                deletedRows[i] = (Row) node.getValue();
+                modelIndexes[i] = deletedRows[i].getModelIndex();
+                node = OrderStatisticTree.next(node);
             }
 
-            int modelIndex = deletedRow.getModelIndex();
-            modelToRows.remove(modelIndex);
-            for (int i = modelIndex; i < modelToRows.size(); i++) {
-                Row row1 = (Row) modelToRows.get(i);
-                row1.setModelIndex(i);
+            for (int i = 0; i < deletedRows.length; i++) {
+                modelToRows.remove(deletedRows[i].modelNode);
+                underlyingToRows.remove(deletedRows[i].underlyingNode);
             }
-            fireTableRowsDeleted(modelIndex, modelIndex);
+            lastMappedModelIndex = -1;
+
+            fireRowRanges(modelIndexes, TableModelEvent.DELETE);
             if (isRowTotallingEnabled()) {
-                totalRowManager.sourceRowRemoved(row);
+                totalRowManager.beginBatch();
+                try {
+                    totalRowManager.sourceRowsRemoved(firstRow, lastRow);
+                } finally {
+                    totalRowManager.endBatch();
+                }
             }
         }
 
-        private void handleInsert(int rowIndex) {
+        private void handleInsert(int firstRow, int lastRow) {
             if (isRowTotallingEnabled()) {
-                totalRowManager.sourceRowInserted(rowIndex);
+                totalRowManager.sourceRowsInserted(firstRow, lastRow);
             }
-            Row newRow = new Row(rowIndex);
 
-            int insertPoint = rowIndex;
-            if (isSorting()) {
-                insertPoint = Collections.binarySearch(modelToRows, newRow);
-                if (insertPoint < 0) insertPoint = (-insertPoint) - 1;
+            // all the rows must be in underlyingToRows before any are compared
+            Row[] insertedRows = new Row[lastRow - firstRow + 1];
+            for (int i = 0; i < insertedRows.length; i++) {
+                Row newRow = new Row(firstRow + i);
+                newRow.underlyingNode = getUnderlyingToRows().add(firstRow + i, newRow);
+                insertedRows[i] = newRow;
             }
-            newRow.setModelIndex(insertPoint);
 
-            if (insertPoint > modelToRows.size()) {
-                log.error("This is parwy's phantom bug: Underlying column count:" + getSourceModel().getColumnCount() + " row count: " + getSourceModel().getRowCount() + " isSorted:" + isSorting() + " insertPoint " + insertPoint + " modelToRows: " + modelToRows.size(), new RuntimeException());
-                forceUpdate();
-                return;
-            }
-            modelToRows.add(insertPoint, newRow);
-            for (int i = insertPoint + 1; i < modelToRows.size(); i++) {
-                Row row = (Row) modelToRows.get(i);
-                row.setModelIndex(i);
+            for (int i = 0; i < insertedRows.length; i++) {
+                Row newRow = insertedRows[i];
+                newRow.modelNode = isSorting() ? modelToRows.add(newRow, rowOrder) : modelToRows.add(firstRow + i, newRow);
             }
+            lastMappedModelIndex = -1;
 
-            ArrayList underlyingToRows = getUnderlyingToRows();
-            underlyingToRows.add(rowIndex, newRow);
-            for (int i = rowIndex + 1; i < underlyingToRows.size(); i++) {
-                Row row = (Row) underlyingToRows.get(i);
-                row.setUnderlyingIndex(i);
+            int[] modelIndexes = new int[insertedRows.length];
+            for (int i = 0; i < insertedRows.length; i++) {
+                modelIndexes[i] = insertedRows[i].getModelIndex();
             }
-
-            fireTableRowsInserted(insertPoint, insertPoint);
+            fireRowRanges(modelIndexes, TableModelEvent.INSERT);
 
             if (isRowTotallingEnabled()) {
-                totalRowManager.addSourceRowToGroup(totalRow, rowIndex, true);
+                totalRowManager.beginBatch();
+                try {
+                    for (int row = firstRow; row <= lastRow; row++) {
+                        totalRowManager.addSourceRowToGroup(totalRow, row, true);
+                    }
+                } finally {
+                    totalRowManager.endBatch();
+                }
+            }
+        }
+
+        /**
+         * Fires an event for each run of consecutive model indexes.  Inserts are fired in ascending order, so each
+         * event's rows are those of the model after all the inserts; deletes in descending order, so each event's rows
+         * are those of the model before any of the deletes.
+         */
+        private void fireRowRanges(int[] modelIndexes, int type) {
+            Arrays.sort(modelIndexes);
+            if (type == TableModelEvent.INSERT) {
+                int runStart = 0;
+                for (int i = 1; i <= modelIndexes.length; i++) {
+                    if (i == modelIndexes.length || modelIndexes[i] != modelIndexes[i - 1] + 1) {
+                        fireTableRowsInserted(modelIndexes[runStart], modelIndexes[i - 1]);
+                        runStart = i;
+                    }
+                }
+            } else {
+                int runEnd = modelIndexes.length - 1;
+                for (int i = modelIndexes.length - 2; i >= -1; i--) {
+                    if (i < 0 || modelIndexes[i] != modelIndexes[i + 1] - 1) {
+                        fireTableRowsDeleted(modelIndexes[i + 1], modelIndexes[runEnd]);
+                        runEnd = i;
+                    }
+                }
             }
         }
 
-        private void rowsNeedMoving(int[] rows) {
+        /**
+         * Moves the distinct underlying rows to their new sorted positions, firing an update for the range of sorted
+         * rows between their old and new positions, then refires e for their new positions.
+         */
+        private void rowsNeedMoving(int[] rows, TableModelEvent e) {
             if (isSorting()) {
                 Row[] changedRows = new Row[rows.length];
+                int[] oldModelIndexes = new int[rows.length];
+                int firstChangedRow = Integer.MAX_VALUE;
+                int lastChangedRow = -1;
                 for (int i = 0; i < rows.length; i++) {
-                    int underlyingIndex = rows[i];
-                    changedRows[i] = (Row) underlyingToRows.get(underlyingIndex);
+                    changedRows[i] = (Row) underlyingToRows.get(rows[i]);
+                    oldModelIndexes[i] = changedRows[i].getModelIndex();
                 }
 
-                Arrays.sort(changedRows, MODEL_INDEX_ROW_COMPARATOR);
-                int firstChangedRow = changedRows[0].getModelIndex();
-                int firstUntouchedRow = changedRows[changedRows.length - 1].getModelIndex() + 1 - changedRows.length;
-
-                //remove all changed rows (must do this in reverse order to preserve validity of model indexes
-                for (int i = changedRows.length - 1; i >= 0; i--) {
-                    Row changedRow = changedRows[i];
-                    modelToRows.remove(changedRow.getModelIndex());
+                //remove all changed rows before adding any back, so the rows they are compared with are in order
+                for (int i = 0; i < changedRows.length; i++) {
+                    modelToRows.remove(changedRows[i].modelNode);
                 }
-
-                //now add them back in the right place
                 for (int i = 0; i < changedRows.length; i++) {
-                    Row changedRow = changedRows[i];
-                    int newIndex = Collections.binarySearch(modelToRows, changedRow);
-                    if (newIndex < 0) newIndex = (-newIndex) - 1;
-
-                    modelToRows.add(newIndex, changedRow);
-                    firstChangedRow = Math.min(newIndex, firstChangedRow);
-                    if (newIndex <= firstUntouchedRow) {
-                        firstUntouchedRow++;
-                    } else {
-                        firstUntouchedRow = newIndex + 1;
-                    }
+                    changedRows[i].modelNode = modelToRows.add(changedRows[i], rowOrder);
                 }
+                lastMappedModelIndex = -1;
 
-                //now upate the row indexes in the range that was changed
-                for (int i = firstChangedRow; i < firstUntouchedRow; i++) {
-                    Row row = (Row) modelToRows.get(i);
-                    row.setModelIndex(i);
+                boolean moved = false;
+                for (int i = 0; i < changedRows.length; i++) {
+                    int newModelIndex = changedRows[i].getModelIndex();
+                    if (newModelIndex != oldModelIndexes[i]) moved = true;
+                    firstChangedRow = Math.min(firstChangedRow, Math.min(newModelIndex, oldModelIndexes[i]));
+                    lastChangedRow = Math.max(lastChangedRow, Math.max(newModelIndex, oldModelIndexes[i]));
                 }
 
-                if ((firstUntouchedRow - firstChangedRow) > 0) fireTableDataChanged();
+                if (moved) fireTableRowsUpdated(firstChangedRow, lastChangedRow);
             }
+            refireChange(e);
         }
 
         private void columnRemoved() {
@@ -854,12 +959,6 @@ public class SortedTableModel extends AbstractTableModel implements TabularBeanA
                 }
             }
         }
-
-        private class ModelIndexRowComparator implements Comparator {
-            public int compare(Object o1, Object o2) {
-                return ((Row) o1).getModelIndex() - ((Row) o2).getModelIndex();
-            }
-        }
     }
 
     private class SortableHeaderRenderer extends DefaultTableCellRenderer {
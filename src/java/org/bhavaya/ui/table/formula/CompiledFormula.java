@@ -0,0 +1,104 @@
+package org.bhavaya.ui.table.formula;
+
+import org.bhavaya.ui.table.CachedObjectGraph;
+import org.bhavaya.util.Attribute;
+import org.bhavaya.util.Generic;
+import org.bhavaya.util.Log;
+import org.bhavaya.util.Utilities;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A Formula prepared for evaluation against many root objects, from any number of threads.
+ * The symbols of the formula are resolved once into slots holding the bean path of each symbol, and the copies of the
+ * formula that hold the symbol values while evaluating are pooled, so the expression is parsed once per thread that
+ * evaluates it rather than once per root object.
+ */
+class CompiledFormula {
+    private static final Log log = Log.getCategory(CompiledFormula.class);
+
+    /**
+     * Returned by evaluate if a symbol value is not available yet.
+     */
+    static final Object NOT_EVALUATED = new Object();
+
+    private final Formula formula;
+    private final String expression;
+    private final String columnLocator;
+    private final String[] symbols;
+    private final String[] beanPaths;
+    private final String[][] beanPathArrays;
+    private final Queue<Formula> evaluators = new ConcurrentLinkedQueue<Formula>();
+
+    CompiledFormula(Formula formula, FormulaManager formulaManager) throws FormulaException {
+        this.formula = formula;
+        this.expression = formula.getExpression();
+        this.columnLocator = FormulaUtils.getColumnLocator(formula);
+
+        Formula evaluator = formula.copy();
+        List<String> symbolList = evaluator.getSymbols();
+        symbols = symbolList.toArray(new String[symbolList.size()]);
+        beanPaths = new String[symbols.length];
+        beanPathArrays = new String[symbols.length][];
+        for (int i = 0; i < symbols.length; i++) {
+            beanPaths[i] = formulaManager.getBeanPathForSymbol(symbols[i]);
+            beanPathArrays[i] = Generic.beanPathStringToArray(beanPaths[i]);
+        }
+        evaluators.offer(evaluator);
+    }
+
+    Formula getFormula() {
+        return formula;
+    }
+
+    String getColumnLocator() {
+        return columnLocator;
+    }
+
+    String[] getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * @return false if the formula's expression or the bean paths of its symbols have changed since it was compiled.
+     */
+    boolean isCurrent(Formula formula, FormulaManager formulaManager) {
+        if (formula != this.formula || !Utilities.equals(expression, formula.getExpression())) return false;
+        for (int i = 0; i < symbols.length; i++) {
+            if (!Utilities.equals(beanPaths[i], formulaManager.getBeanPathForSymbol(symbols[i]))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the value of the formula for root, or NOT_EVALUATED if a symbol value is not ready.
+     */
+    Object evaluate(Object root) throws FormulaException {
+        Formula evaluator = evaluators.poll();
+        if (evaluator == null) evaluator = formula.copy();
+        try {
+            for (int i = 0; i < symbols.length; i++) {
+                Object value = Generic.get(root, beanPathArrays[i], 0, true);
+                if (value == null) {
+                    try {
+                        Attribute attribute = Generic.getAttribute(root, beanPathArrays[i], true);
+                        evaluator.setEmptySymbolValue(symbols[i], attribute.getType());
+                    } catch (Exception e) {
+                        log.error("Exception setting empty symbol value - ignoring", e);
+                        return NOT_EVALUATED;
+                    }
+                } else if (value != CachedObjectGraph.DATA_NOT_READY) {
+                    evaluator.setSymbolValue(symbols[i], value);
+                } else {
+                    return NOT_EVALUATED;
+                }
+            }
+            return evaluator.evaluate();
+        } finally {
+            // every symbol is set before each evaluation, so values left from this root do not matter
+            evaluators.offer(evaluator);
+        }
+    }
+}
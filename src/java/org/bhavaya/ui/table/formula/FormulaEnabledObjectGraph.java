@@ -8,9 +8,7 @@ import org.bhavaya.util.*;
 
 import java.beans.PropertyChangeEvent;
 import java.util.*;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 
 /**
  * Queued cached object graph that deals with formula
@@ -25,6 +23,8 @@ public class FormulaEnabledObjectGraph extends QueuedCachedObjectGraph {
             FormulaUtils.getFormulaRecalcThreadPoolSize()
     );
     private static final Log log = Log.getCategory(FormulaEnabledObjectGraph.class);
+    // fewer roots than this are recalculated on the calling thread
+    private static final int MIN_ROOTS_PER_BATCH = 500;
 
     private FormulaManager formulaManager = new FormulaManager();
 
@@ -34,6 +34,8 @@ public class FormulaEnabledObjectGraph extends QueuedCachedObjectGraph {
 
     private Map<String, Set<GraphChangeListener>> listenerMap = new HashMap<String, Set<GraphChangeListener>>();
 
+    private volatile CompiledFormulas compiledFormulas;
+
     public FormulaEnabledObjectGraph(Class beanType, boolean asynchronous, String name,
                                      BeanCollectionTableModel beanCollectionTableModel) {
         super(beanType, asynchronous, name, beanCollectionTableModel);
@@ -88,7 +90,7 @@ public class FormulaEnabledObjectGraph extends QueuedCachedObjectGraph {
         super.addRootObject(obj);
         if(FormulaUtils.formulasEnabled()) {
             //initialise formula value for this object
-            for(Formula formula : formulaManager.getAllFormulas()) {
+            for(CompiledFormula formula : getCompiledFormulas().formulas) {
                 recalculateFormulaForObject(formula, obj);
             }
         }
@@ -99,7 +101,8 @@ public class FormulaEnabledObjectGraph extends QueuedCachedObjectGraph {
             return;
         }
         List<Formula> oldFormulas = oldFormulaManager == null ? Collections.<Formula>emptyList() : oldFormulaManager.getAllFormulas();
-        List<Formula> newFormulas = formulaManager.getAllFormulas();
+        CompiledFormulas compiledFormulas = getCompiledFormulas();
+        List<Formula> newFormulas = compiledFormulas.formulaList;
         Set<Formula> toIgnore = new HashSet<Formula>();
         for(Formula oldFormula : oldFormulas) {
             if(oldFormula.isEnabled()) {
@@ -127,42 +130,40 @@ public class FormulaEnabledObjectGraph extends QueuedCachedObjectGraph {
             }
         }
 
-        for(Formula newFormula : newFormulas) {
+        List<CompiledFormula> toRecalculate = new ArrayList<CompiledFormula>();
+        for(int i = 0; i < newFormulas.size(); i++) {
+            Formula newFormula = newFormulas.get(i);
             if(newFormula.isEnabled() && !toIgnore.contains(newFormula)) {
                 String locator = FormulaUtils.getColumnLocator(newFormula);
                 if(!beanCollectionTableModel.isColumnVisible(locator)) {
                     //new column has been added
                     beanCollectionTableModel.addColumnLocator(locator);
                 }
-                //update this formulas values for all objects
-                Iterator objects = getRootObjects();
-                while(objects.hasNext()) {
-                    Object root = objects.next();
-                    recalculateFormulaForObject(newFormula, root);
-                }
+                toRecalculate.add(compiledFormulas.formulas[i]);
             }
         }
+
+        if(!toRecalculate.isEmpty()) {
+            //update these formulas values for all objects
+            List<Object> roots = new ArrayList<Object>();
+            Iterator objects = getRootObjects();
+            while(objects.hasNext()) {
+                roots.add(objects.next());
+            }
+            recalculate(roots.toArray(), toRecalculate.toArray(new CompiledFormula[toRecalculate.size()]), null, null);
+        }
     }
 
     private void updateCache()  {
         try {
-            List<Formula> formulas = formulaManager.getAllFormulas();
-            if(!formulas.isEmpty()) {
+            CompiledFormulas compiledFormulas = getCompiledFormulas();
+            if(compiledFormulas.formulas.length > 0) {
                 long start = System.currentTimeMillis();
-                int updateCount = 0;
                 //These are the symbol values that have been updated by object
                 Map<Object, Set<String>> updatedSymbolsByObject = symbolsToUpdate.getUpdated();
+                int updateCount = recalculate(updatedSymbolsByObject.keySet().toArray(), compiledFormulas.formulas,
+                        compiledFormulas, updatedSymbolsByObject);
 
-                for(Object root : updatedSymbolsByObject.keySet()) {
-                    Set<String> symbolsChangedForRoot = updatedSymbolsByObject.get(root);
-                    for(Formula formula : formulas) {
-                        if(formulaDependsOnSymbols(formula, symbolsChangedForRoot)) {
-                            //At least one value that this formula depends on has changed for this object, so recalculate
-                            recalculateFormulaForObject(formula, root);
-                            updateCount++;
-                        }
-                    }
-                }
                 long time = System.currentTimeMillis()-start;
                 FormulaMonitor monitor = FormulaUtils.getFormulaMonitorInstance();
                 if(monitor != null) {
@@ -174,47 +175,113 @@ public class FormulaEnabledObjectGraph extends QueuedCachedObjectGraph {
         }
     }
 
-    private boolean formulaDependsOnSymbols(Formula formula, Set<String> symbols) {
-        //does this formula depend on any of these symbols?
-        for(String symbol : symbols) {
-            if(formula.dependsOnSymbol(symbol)) {
-                return true;
+    /**
+     * Compiles the formulas of the formula manager, unless they have not changed since they were last compiled.
+     */
+    private CompiledFormulas getCompiledFormulas() {
+        FormulaManager formulaManager = this.formulaManager;
+        CompiledFormulas compiledFormulas = this.compiledFormulas;
+        if(compiledFormulas == null || !compiledFormulas.isCurrent(formulaManager)) {
+            try {
+                compiledFormulas = new CompiledFormulas(formulaManager);
+            } catch (FormulaException e) {
+                throw new RuntimeException("Error compiling formula", e);
             }
+            this.compiledFormulas = compiledFormulas;
         }
-        return false;
+        return compiledFormulas;
     }
 
-    private void recalculateFormulaForObject(Formula formula, Object obj) {
+    /**
+     * Recalculates formulas for each of roots, splitting the roots into batches that are recalculated in parallel.
+     * If updatedSymbolsByObject is null every formula is recalculated, otherwise only those that depend on the symbols
+     * updated for each root.
+     *
+     * @return the number of formula values recalculated
+     */
+    private int recalculate(final Object[] roots, final CompiledFormula[] formulas, final CompiledFormulas compiledFormulas,
+                            final Map<Object, Set<String>> updatedSymbolsByObject) {
+        int batchCount = Math.min(roots.length / MIN_ROOTS_PER_BATCH, RecalcExecutor.THREAD_COUNT + 1);
+        if(batchCount <= 1) {
+            return recalculate(roots, 0, roots.length, formulas, compiledFormulas, updatedSymbolsByObject);
+        }
+
+        //the calling thread recalculates the first batch while the executor recalculates the rest
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>(batchCount - 1);
+        int batchSize = (roots.length + batchCount - 1) / batchCount;
+        for(int start = batchSize; start < roots.length; start += batchSize) {
+            final int batchStart = start;
+            final int batchEnd = Math.min(start + batchSize, roots.length);
+            futures.add(RecalcExecutor.EXECUTOR.submit(new Callable<Integer>() {
+                public Integer call() {
+                    return recalculate(roots, batchStart, batchEnd, formulas, compiledFormulas, updatedSymbolsByObject);
+                }
+            }));
+        }
+
+        int updateCount = 0;
+        RuntimeException exception = null;
         try {
-            //copy this formula to be safe
-            Formula formulaCopy = formula.copy();
-            boolean dataReady = true;
-            for(String symbol : formulaCopy.getSymbols()) {
-                String locator = formulaManager.getBeanPathForSymbol(symbol);
-                Object value = Generic.getBeanValueIfExists(obj, locator);
-                if(value == null) {
-                    try {
-                        Attribute attribute = Generic.getAttribute(obj, Generic.beanPathStringToArray(locator), true);
-                        formulaCopy.setEmptySymbolValue(symbol, attribute.getType());
-                    } catch (Exception e) {
-                        log.error("Exception setting empty symbol value - ignoring", e);
-                        dataReady = false;
-                        break;
-                    }                } else if (value != DATA_NOT_READY) {
-                    formulaCopy.setSymbolValue(symbol, value);
-                } else {
-                    dataReady = false;
-                    break;
+            updateCount += recalculate(roots, 0, batchSize, formulas, compiledFormulas, updatedSymbolsByObject);
+        } catch (RuntimeException e) {
+            exception = e;
+        }
+        //wait for every batch, even if one has failed, so that no batch is still running when this returns
+        for(Future<Integer> future : futures) {
+            try {
+                updateCount += future.get();
+            } catch (ExecutionException e) {
+                if(exception == null) exception = new RuntimeException("Error recalculating formulas", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if(exception == null) exception = new RuntimeException("Interrupted recalculating formulas", e);
+            }
+        }
+        if(exception != null) throw exception;
+        return updateCount;
+    }
+
+    private int recalculate(Object[] roots, int start, int end, CompiledFormula[] formulas, CompiledFormulas compiledFormulas,
+                            Map<Object, Set<String>> updatedSymbolsByObject) {
+        int updateCount = 0;
+        boolean[] dependentFormulas = updatedSymbolsByObject == null ? null : new boolean[formulas.length];
+        for(int i = start; i < end; i++) {
+            Object root = roots[i];
+            if(dependentFormulas == null) {
+                for(CompiledFormula formula : formulas) {
+                    recalculateFormulaForObject(formula, root);
+                    updateCount++;
+                }
+            } else {
+                //find the formulas depending on at least one value that has changed for this object, and recalculate them in order
+                for(String symbol : updatedSymbolsByObject.get(root)) {
+                    int[] formulaIndexes = compiledFormulas.getFormulaIndexesForSymbol(symbol);
+                    for(int formulaIndex : formulaIndexes) {
+                        dependentFormulas[formulaIndex] = true;
+                    }
+                }
+                for(int j = 0; j < dependentFormulas.length; j++) {
+                    if(dependentFormulas[j]) {
+                        dependentFormulas[j] = false;
+                        recalculateFormulaForObject(formulas[j], root);
+                        updateCount++;
+                    }
                 }
             }
-            if(dataReady) {
+        }
+        return updateCount;
+    }
+
+    private void recalculateFormulaForObject(CompiledFormula formula, Object obj) {
+        try {
+            Object newValue = formula.evaluate(obj);
+            if(newValue != CompiledFormula.NOT_EVALUATED) {
                 //update the new calculate value
-                Object newValue = formulaCopy.evaluate();
                 FormulaCachedProperties cachedProperties = (FormulaCachedProperties) getCachedProperties(obj);
-                Object oldValue = cachedProperties.getFormulaValue(formulaCopy);
+                Object oldValue = cachedProperties.getFormulaValue(formula.getFormula());
                 if(!Utilities.equals(oldValue, newValue)) {
                     //Just fire change event - processPropertyChange will actually do the update, and ensure in correct thread
-                    cachedProperties.propertyChange(new PropertyChangeEvent(obj, FormulaUtils.getColumnLocator(formula), oldValue, newValue));
+                    cachedProperties.propertyChange(new PropertyChangeEvent(obj, formula.getColumnLocator(), oldValue, newValue));
                 }
             }
         } catch (FormulaException e) {
@@ -336,4 +403,65 @@ public class FormulaEnabledObjectGraph extends QueuedCachedObjectGraph {
             return formulaProperties.get(formula);
         }
     }
+
+    /**
+     * The compiled formulas of a FormulaManager, in the order of the manager, with an index from each symbol to the
+     * formulas that depend on it.
+     */
+    private static class CompiledFormulas {
+        private static final int[] NO_FORMULAS = new int[0];
+
+        private final FormulaManager formulaManager;
+        private final List<Formula> formulaList;
+        private final CompiledFormula[] formulas;
+        private final Map<String, int[]> symbolToFormulaIndexes = new HashMap<String, int[]>();
+
+        public CompiledFormulas(FormulaManager formulaManager) throws FormulaException {
+            this.formulaManager = formulaManager;
+            this.formulaList = new ArrayList<Formula>(formulaManager.getAllFormulas());
+            this.formulas = new CompiledFormula[formulaList.size()];
+
+            Map<String, List<Integer>> symbolToFormulaIndexList = new HashMap<String, List<Integer>>();
+            for(int i = 0; i < formulas.length; i++) {
+                formulas[i] = new CompiledFormula(formulaList.get(i), formulaManager);
+                for(String symbol : new LinkedHashSet<String>(Arrays.asList(formulas[i].getSymbols()))) {
+                    List<Integer> formulaIndexes = symbolToFormulaIndexList.get(symbol);
+                    if(formulaIndexes == null) {
+                        formulaIndexes = new ArrayList<Integer>(2);
+                        symbolToFormulaIndexList.put(symbol, formulaIndexes);
+                    }
+                    formulaIndexes.add(i);
+                }
+            }
+            for(Map.Entry<String, List<Integer>> entry : symbolToFormulaIndexList.entrySet()) {
+                List<Integer> formulaIndexList = entry.getValue();
+                int[] formulaIndexes = new int[formulaIndexList.size()];
+                for(int i = 0; i < formulaIndexes.length; i++) {
+                    formulaIndexes[i] = formulaIndexList.get(i);
+                }
+                symbolToFormulaIndexes.put(entry.getKey(), formulaIndexes);
+            }
+        }
+
+        public boolean isCurrent(FormulaManager formulaManager) {
+            if(formulaManager != this.formulaManager) return false;
+            List<Formula> formulaList = formulaManager.getAllFormulas();
+            if(formulaList.size() != formulas.length) return false;
+            for(int i = 0; i < formulas.length; i++) {
+                if(!formulas[i].isCurrent(formulaList.get(i), formulaManager)) return false;
+            }
+            return true;
+        }
+
+        public int[] getFormulaIndexesForSymbol(String symbol) {
+            int[] formulaIndexes = symbolToFormulaIndexes.get(symbol);
+            return formulaIndexes == null ? NO_FORMULAS : formulaIndexes;
+        }
+    }
+
+    private static class RecalcExecutor {
+        private static final int THREAD_COUNT = Math.max(1, FormulaUtils.getFormulaRecalcThreadPoolSize());
+        private static final ExecutorService EXECUTOR = NamedExecutors.newFixedThreadPool("FormulaRecalcExecutor",
+                THREAD_COUNT, NamedExecutors.DAEMON_THREAD_CONFIGURER);
+    }
 }
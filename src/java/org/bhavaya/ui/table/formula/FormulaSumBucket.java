@@ -44,7 +44,7 @@ import org.bhavaya.util.Numeric;
  */
 public class FormulaSumBucket implements GroupedRowManager.ValueBucket {
     private GroupedRowManager.ValueBucket defaultDelegate = new GroupedRowManager.UnmergeableDataBucket();
-    private GroupedRowManager.ValueBucket doubleDelegate = new DoubleSumBucket();
+    private DoubleSumBucket doubleDelegate = new DoubleSumBucket();
 
     public Object getOutput() {
         Object output = doubleDelegate.getOutput();
@@ -59,7 +59,7 @@ public class FormulaSumBucket implements GroupedRowManager.ValueBucket {
         if(value != null) {
             Double d = getDoubleValue(value);
             if(d != null) {
-                doubleDelegate.insert(d);
+                doubleDelegate.insert(d.doubleValue());
             } else {
                 getDefaultDelegate().insert(value);
             }
@@ -88,7 +88,8 @@ public class FormulaSumBucket implements GroupedRowManager.ValueBucket {
             Double oldDouble = getDoubleValue(oldValue);
             if(oldDouble != null) {
                 Double newDouble = getDoubleValue(newValue);
-                return doubleDelegate.update(oldDouble, newDouble);
+                if (newDouble == null) return doubleDelegate.delete(oldDouble.doubleValue());
+                return doubleDelegate.update(oldDouble.doubleValue(), newDouble.doubleValue());
             }
             return getDefaultDelegate().update(oldValue, newValue);
         }
@@ -99,7 +100,7 @@ public class FormulaSumBucket implements GroupedRowManager.ValueBucket {
         if(value != null) {
             Double d = getDoubleValue(value);
             if(d != null) {
-                return doubleDelegate.delete(d);
+                return doubleDelegate.delete(d.doubleValue());
             }
             return getDefaultDelegate().delete(value);
         }
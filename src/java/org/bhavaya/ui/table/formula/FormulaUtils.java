@@ -93,6 +93,13 @@ public class FormulaUtils {
         return factoryInstance;
     }
 
+    //a hook to enable formulas for testing, using the default recalc interval and thread pool size if none are configured
+    static synchronized void setFactoryInstance(FormulaFactory factory) {
+        factoryInstance = factory;
+        if(formulaRecalcInterval <= 0) formulaRecalcInterval = DEFAULT_FORMULA_RECALC_INTERVAL;
+        if(formulaRecalcThreadPoolSize <= 0) formulaRecalcThreadPoolSize = DEFAULT_FORMULA_RECALC_THREAD_POOL_SIZE;
+    }
+
     public static FormulaMonitor getFormulaMonitorInstance() {
         return formulaMonitorInstance;
     }
@@ -2,11 +2,12 @@ package org.bhavaya.util;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
- * Description
+ * Holds the listeners of a bean.  A single listener is held as itself and several as an array, both for the generic
+ * listeners and for the listeners to each property, and the listeners to each property are held in one array of
+ * property names and their listeners.  Listeners are added and removed by copying these, so firing an event only
+ * reads them, without locking, and allocates nothing if no one listens to the property.
  *
  * @author Brendon McLean
  * @version $Revision: 1.2 $
@@ -15,8 +16,8 @@ public class BeanPropertyChangeSupport {
     private static final PropertyChangeListener[] EMPTY_LISTENER_ARRAY = new PropertyChangeListener[0];
 
     private Object source;
-    private Map namedListeners;
-    private Object genericListener; //can either be a single or a list of listeners
+    private volatile Object[] namedListeners; //property names, each followed by a single or an array of listeners
+    private volatile Object genericListener; //can either be a single or a list of listeners
     public static boolean logEventTime = false;
     public static boolean safe = false;
 
@@ -39,56 +40,85 @@ public class BeanPropertyChangeSupport {
     public void addPropertyChangeListener(String propertyName, PropertyChangeListener l) {
         synchronized (this) {
             assert (Generic.getType(source).attributeExists(propertyName)) : "Tried to add listener for property " + propertyName + " on instanceof " + source.getClass();
-            Object singleOrArray = getNamedListeners().get(propertyName);
-            Object newSingleOrArray = addListener(singleOrArray, l);
-            getNamedListeners().put(propertyName, newSingleOrArray);
+            Object[] oldNamedListeners = namedListeners;
+            int index = indexOfProperty(oldNamedListeners, propertyName);
+            Object[] newNamedListeners;
+            if (index == -1) {
+                int length = oldNamedListeners == null ? 0 : oldNamedListeners.length;
+                newNamedListeners = new Object[length + 2];
+                if (length > 0) System.arraycopy(oldNamedListeners, 0, newNamedListeners, 0, length);
+                newNamedListeners[length] = propertyName;
+                newNamedListeners[length + 1] = l;
+                assert (l != null) : "Trying to add a null listener";
+            } else {
+                newNamedListeners = (Object[]) oldNamedListeners.clone();
+                newNamedListeners[index + 1] = addListener(oldNamedListeners[index + 1], l);
+            }
+            namedListeners = newNamedListeners;
         }
     }
 
     public void removePropertyChangeListener(String propertyName, PropertyChangeListener l) {
         synchronized (this) {
-            Object singleOrArray = getNamedListeners().get(propertyName);
-            Object newSingleOrArray = removeListener(singleOrArray, l);
+            Object[] oldNamedListeners = namedListeners;
+            int index = indexOfProperty(oldNamedListeners, propertyName);
+            Object newSingleOrArray = removeListener(index == -1 ? null : oldNamedListeners[index + 1], l);
+            if (index == -1) return;
+
             if (newSingleOrArray == null) {
-                getNamedListeners().remove(propertyName);
+                if (oldNamedListeners.length == 2) {
+                    namedListeners = null;
+                } else {
+                    Object[] newNamedListeners = new Object[oldNamedListeners.length - 2];
+                    System.arraycopy(oldNamedListeners, 0, newNamedListeners, 0, index);
+                    System.arraycopy(oldNamedListeners, index + 2, newNamedListeners, index, oldNamedListeners.length - index - 2);
+                    namedListeners = newNamedListeners;
+                }
             } else {
-                getNamedListeners().put(propertyName, newSingleOrArray);
+                Object[] newNamedListeners = (Object[]) oldNamedListeners.clone();
+                newNamedListeners[index + 1] = newSingleOrArray;
+                namedListeners = newNamedListeners;
             }
         }
     }
 
-    private Map getNamedListeners() {
-        synchronized (this) {
-            if (namedListeners == null) {
-                namedListeners = new HashMap(8);
-            }
-            return namedListeners;
+    /**
+     * @return the index of propertyName in namedListeners, its listeners being at the next index, or -1
+     */
+    private static int indexOfProperty(Object[] namedListeners, String propertyName) {
+        if (namedListeners == null) return -1;
+        for (int i = 0; i < namedListeners.length; i += 2) {
+            Object name = namedListeners[i];
+            if (name == propertyName || name.equals(propertyName)) return i;
         }
+        return -1;
+    }
+
+    private static Object getNamedListener(Object[] namedListeners, String propertyName) {
+        int index = indexOfProperty(namedListeners, propertyName);
+        return index == -1 ? null : namedListeners[index + 1];
     }
 
     public void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
-        if (Utilities.equals(oldValue, newValue)) {
+        Object genericListenerCopy = genericListener;
+        Object namedListenerCopy = getNamedListener(namedListeners, propertyName);
+
+        if (genericListenerCopy == null && namedListenerCopy == null) {
             return;
         }
 
-        Object genericListenerCopy = null;
-        Object namedListenerCopy = null;
-
-        synchronized (this) {
-            genericListenerCopy = genericListener;
-            namedListenerCopy = (namedListeners != null) ? namedListeners.get(propertyName) : null;
+        if (Utilities.equals(oldValue, newValue)) {
+            return;
         }
 
-        if (genericListenerCopy != null || namedListenerCopy != null) {
-            PropertyChangeEvent evt;
-            if (logEventTime) {
-                evt = new TimedPropertyChangeEvent(source, propertyName, oldValue, newValue);
-            } else {
-                evt = new PropertyChangeEvent(source, propertyName, oldValue, newValue);
-            }
-            fireEventOnListeners(evt, genericListenerCopy);
-            fireEventOnListeners(evt, namedListenerCopy);
+        PropertyChangeEvent evt;
+        if (logEventTime) {
+            evt = new TimedPropertyChangeEvent(source, propertyName, oldValue, newValue);
+        } else {
+            evt = new PropertyChangeEvent(source, propertyName, oldValue, newValue);
         }
+        fireEventOnListeners(evt, genericListenerCopy);
+        fireEventOnListeners(evt, namedListenerCopy);
     }
 
     private void fireEventOnListeners(PropertyChangeEvent evt, Object singleOrArraylisteners) {
@@ -173,32 +203,22 @@ public class BeanPropertyChangeSupport {
         return null;
     }
 
-    private static void handleError(String message) {
+    static void handleError(String message) {
         RuntimeException t = new RuntimeException(message);
         Log.getCategory(DefaultObservable.class).error(t);
         if (safe) throw t;
     }
 
     public boolean isObserved(String propertyName) {
-        synchronized (this) {
-            return genericListener != null || ((namedListeners != null) ? namedListeners.get(propertyName) : null) != null;
-        }
+        return genericListener != null || getNamedListener(namedListeners, propertyName) != null;
     }
 
     public PropertyChangeListener[] getPropertyChangeListeners() {
-        Object singleOrArray;
-        synchronized (this) {
-            singleOrArray = genericListener;
-        }
-        return toListenerArray(singleOrArray);
+        return toListenerArray(genericListener);
     }
 
     public PropertyChangeListener[] getPropertyChangeListeners(String propertyName) {
-        Object singleOrArray;
-        synchronized (this) {
-            singleOrArray = namedListeners != null ? namedListeners.get(propertyName) : namedListeners;
-        }
-        return toListenerArray(singleOrArray);
+        return toListenerArray(getNamedListener(namedListeners, propertyName));
     }
 
     private static PropertyChangeListener[] toListenerArray(Object singleOrArray) {
@@ -0,0 +1,121 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+package org.bhavaya.util;
+
+/**
+ * A running sum of doubles that values can be added to and taken from in any order without the result drifting.
+ * Finite values are summed with Neumaier's compensation, so the rounding error of each addition is kept and added back,
+ * and the sum of a long series of inserts and deletes stays as exact as summing the remaining values once.
+ * NaN and infinite values are counted rather than summed, so that removing the last of them restores the finite sum
+ * rather than leaving it NaN.
+ * <p/>
+ * Not thread-safe.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class CompensatedSum {
+    private double sum;
+    private double compensation;
+    private int nanCount;
+    private int positiveInfinityCount;
+    private int negativeInfinityCount;
+
+    public void add(double value) {
+        if (value != value) {
+            nanCount++;
+        } else if (value == Double.POSITIVE_INFINITY) {
+            positiveInfinityCount++;
+        } else if (value == Double.NEGATIVE_INFINITY) {
+            negativeInfinityCount++;
+        } else {
+            addFinite(value);
+        }
+    }
+
+    public void subtract(double value) {
+        if (value != value) {
+            nanCount--;
+        } else if (value == Double.POSITIVE_INFINITY) {
+            positiveInfinityCount--;
+        } else if (value == Double.NEGATIVE_INFINITY) {
+            negativeInfinityCount--;
+        } else {
+            addFinite(-value);
+        }
+    }
+
+    private void addFinite(double value) {
+        double t = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            compensation += (sum - t) + value;
+        } else {
+            compensation += (value - t) + sum;
+        }
+        sum = t;
+    }
+
+    /**
+     * @return the sum of the finite values
+     */
+    public double getFiniteSum() {
+        return sum + compensation;
+    }
+
+    /**
+     * @return the sum of all the values, which is NaN if there is a NaN or both infinities, otherwise infinite if there
+     *         is an infinity
+     */
+    public double getSum() {
+        if (nanCount > 0 || (positiveInfinityCount > 0 && negativeInfinityCount > 0)) return Double.NaN;
+        if (positiveInfinityCount > 0) return Double.POSITIVE_INFINITY;
+        if (negativeInfinityCount > 0) return Double.NEGATIVE_INFINITY;
+        return getFiniteSum();
+    }
+
+    /**
+     * @return the number of NaN and infinite values
+     */
+    public int getNonFiniteCount() {
+        return nanCount + positiveInfinityCount + negativeInfinityCount;
+    }
+
+    public void clear() {
+        sum = 0;
+        compensation = 0;
+        nanCount = 0;
+        positiveInfinityCount = 0;
+        negativeInfinityCount = 0;
+    }
+
+    public String toString() {
+        return getSum() + " (" + getNonFiniteCount() + " non-finite)";
+    }
+}
@@ -33,15 +33,18 @@ import java.beans.PropertyChangeListener;
 
 /**
  * Description.
+ * The BeanPropertyChangeSupport is only created when the first listener is added, so beans that are never observed
+ * hold no more than a null reference for it, and firing a property change on them returns straight away.
  *
  * @author Daniel Van Enckevort
  * @version $Revision: 1.7 $
  */
 public class DefaultObservable implements Observable {
-    private transient BeanPropertyChangeSupport propertyChangeSupport;
+    private static final PropertyChangeListener[] EMPTY_LISTENER_ARRAY = new PropertyChangeListener[0];
+
+    private transient volatile BeanPropertyChangeSupport propertyChangeSupport;
 
     public DefaultObservable() {
-        propertyChangeSupport = new BeanPropertyChangeSupport(this);
     }
 
     protected Object clone() {
@@ -52,51 +55,72 @@ public class DefaultObservable implements Observable {
             throw new RuntimeException("Error cloning bean", e);
         }
 
-        clone.propertyChangeSupport = new BeanPropertyChangeSupport(clone);
+        clone.propertyChangeSupport = null;
 
         return clone;
     }
 
     public void addPropertyChangeListener(PropertyChangeListener propertyChangeListener) {
-        propertyChangeSupport.addPropertyChangeListener(propertyChangeListener);
+        getPropertyChangeSupport().addPropertyChangeListener(propertyChangeListener);
     }
 
     public void addPropertyChangeListener(String propertyName, PropertyChangeListener propertyChangeListener) {
-        propertyChangeSupport.addPropertyChangeListener(propertyName, propertyChangeListener);
+        getPropertyChangeSupport().addPropertyChangeListener(propertyName, propertyChangeListener);
     }
 
     public void removePropertyChangeListener(PropertyChangeListener propertyChangeListener) {
+        BeanPropertyChangeSupport propertyChangeSupport = this.propertyChangeSupport;
+        if (propertyChangeSupport == null) {
+            // nothing was ever added, report it as the support would without creating one
+            BeanPropertyChangeSupport.handleError("Trying to remove a generic listener that was never added: " + propertyChangeListener);
+            return;
+        }
         propertyChangeSupport.removePropertyChangeListener(propertyChangeListener);
     }
 
     public void removePropertyChangeListener(String propertyName, PropertyChangeListener propertyChangeListener) {
+        BeanPropertyChangeSupport propertyChangeSupport = this.propertyChangeSupport;
+        if (propertyChangeSupport == null) {
+            // nothing was ever added, report it as the support would without creating one
+            BeanPropertyChangeSupport.handleError("Trying to remove a listener for " + propertyName + " that was never added: " + propertyChangeListener);
+            return;
+        }
         propertyChangeSupport.removePropertyChangeListener(propertyName, propertyChangeListener);
     }
 
     public PropertyChangeListener[] getPropertyChangeListeners() {
+        BeanPropertyChangeSupport propertyChangeSupport = this.propertyChangeSupport;
+        if (propertyChangeSupport == null) return EMPTY_LISTENER_ARRAY;
         return propertyChangeSupport.getPropertyChangeListeners();
     }
 
     public PropertyChangeListener[] getPropertyChangeListeners(String propertyName) {
+        BeanPropertyChangeSupport propertyChangeSupport = this.propertyChangeSupport;
+        if (propertyChangeSupport == null) return EMPTY_LISTENER_ARRAY;
         return propertyChangeSupport.getPropertyChangeListeners(propertyName);
     }
 
     protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+        BeanPropertyChangeSupport propertyChangeSupport = this.propertyChangeSupport;
+        if (propertyChangeSupport == null) return;
         propertyChangeSupport.firePropertyChange(propertyName, oldValue, newValue);
     }
 
     protected void firePropertyChange(String propertyName, int oldValue, int newValue) {
-        if (!propertyChangeSupport.isObserved(propertyName)) return; // do this check, even though there is code to do this later to avoid object creation (converting primitive to object)
+        BeanPropertyChangeSupport propertyChangeSupport = this.propertyChangeSupport;
+        if (propertyChangeSupport == null || !propertyChangeSupport.isObserved(propertyName)) return; // do this check, even though there is code to do this later to avoid object creation (converting primitive to object)
         propertyChangeSupport.firePropertyChange(propertyName, oldValue, newValue);
     }
 
     protected void firePropertyChange(String propertyName, double oldValue, double newValue) {
-        if (!propertyChangeSupport.isObserved(propertyName)) return; // do this check, even though there is code to do this later to avoid object creation (converting primitive to object)
+        BeanPropertyChangeSupport propertyChangeSupport = this.propertyChangeSupport;
+        if (propertyChangeSupport == null || !propertyChangeSupport.isObserved(propertyName)) return; // do this check, even though there is code to do this later to avoid object creation (converting primitive to object)
         propertyChangeSupport.firePropertyChange(propertyName, oldValue, newValue);
     }
 
     protected void firePropertyChange(String propertyName, boolean oldValue, boolean newValue) {
-        if (!propertyChangeSupport.isObserved(propertyName)) return; // do this check, even though there is code to do this later to avoid object creation (converting primitive to object)
+        BeanPropertyChangeSupport propertyChangeSupport = this.propertyChangeSupport;
+        if (propertyChangeSupport == null || !propertyChangeSupport.isObserved(propertyName)) return; // do this check, even though there is code to do this later to avoid object creation (converting primitive to object)
         propertyChangeSupport.firePropertyChange(propertyName, oldValue, newValue);
     }
 
@@ -107,31 +131,46 @@ public class DefaultObservable implements Observable {
     // in the generator we will just state all fire methods for
     // primitives explicity.
     protected void firePropertyChange(String propertyName, long oldValue, long newValue) {
-        if (!propertyChangeSupport.isObserved(propertyName)) return; // do this check, even though there is code to do this later to avoid object creation (converting primitive to object)
+        BeanPropertyChangeSupport propertyChangeSupport = this.propertyChangeSupport;
+        if (propertyChangeSupport == null || !propertyChangeSupport.isObserved(propertyName)) return; // do this check, even though there is code to do this later to avoid object creation (converting primitive to object)
         propertyChangeSupport.firePropertyChange(propertyName, oldValue, newValue);
     }
 
     protected void firePropertyChange(String propertyName, short oldValue, short newValue) {
-        if (!propertyChangeSupport.isObserved(propertyName)) return; // do this check, even though there is code to do this later to avoid object creation (converting primitive to object)
+        BeanPropertyChangeSupport propertyChangeSupport = this.propertyChangeSupport;
+        if (propertyChangeSupport == null || !propertyChangeSupport.isObserved(propertyName)) return; // do this check, even though there is code to do this later to avoid object creation (converting primitive to object)
         propertyChangeSupport.firePropertyChange(propertyName, oldValue, newValue);
     }
 
     protected void firePropertyChange(String propertyName, char oldValue, char newValue) {
-        if (!propertyChangeSupport.isObserved(propertyName)) return; // do this check, even though there is code to do this later to avoid object creation (converting primitive to object)
+        BeanPropertyChangeSupport propertyChangeSupport = this.propertyChangeSupport;
+        if (propertyChangeSupport == null || !propertyChangeSupport.isObserved(propertyName)) return; // do this check, even though there is code to do this later to avoid object creation (converting primitive to object)
         propertyChangeSupport.firePropertyChange(propertyName, oldValue, newValue);
     }
 
     protected void firePropertyChange(String propertyName, byte oldValue, byte newValue) {
-        if (!propertyChangeSupport.isObserved(propertyName)) return; // do this check, even though there is code to do this later to avoid object creation (converting primitive to object)
+        BeanPropertyChangeSupport propertyChangeSupport = this.propertyChangeSupport;
+        if (propertyChangeSupport == null || !propertyChangeSupport.isObserved(propertyName)) return; // do this check, even though there is code to do this later to avoid object creation (converting primitive to object)
         propertyChangeSupport.firePropertyChange(propertyName, oldValue, newValue);
     }
 
     protected void firePropertyChange(String propertyName, float oldValue, float newValue) {
-        if (!propertyChangeSupport.isObserved(propertyName)) return; // do this check, even though there is code to do this later to avoid object creation (converting primitive to object)
+        BeanPropertyChangeSupport propertyChangeSupport = this.propertyChangeSupport;
+        if (propertyChangeSupport == null || !propertyChangeSupport.isObserved(propertyName)) return; // do this check, even though there is code to do this later to avoid object creation (converting primitive to object)
         propertyChangeSupport.firePropertyChange(propertyName, oldValue, newValue);
     }
 
     protected BeanPropertyChangeSupport getPropertyChangeSupport() {
+        BeanPropertyChangeSupport propertyChangeSupport = this.propertyChangeSupport;
+        if (propertyChangeSupport == null) {
+            synchronized (this) {
+                propertyChangeSupport = this.propertyChangeSupport;
+                if (propertyChangeSupport == null) {
+                    propertyChangeSupport = new BeanPropertyChangeSupport(this);
+                    this.propertyChangeSupport = propertyChangeSupport;
+                }
+            }
+        }
         return propertyChangeSupport;
     }
 }
@@ -30,6 +30,8 @@
 package org.bhavaya.util;
 
 import EDU.oswego.cs.dl.util.concurrent.ConcurrentReaderHashMap;
+import org.bhavaya.beans.generator.PropertyAccessor;
+import org.bhavaya.beans.generator.PropertyAccessorGenerator;
 import com.sun.org.apache.xml.internal.utils.FastStringBuffer;
 
 import java.beans.Introspector;
@@ -232,7 +234,7 @@ public class Generic {
 
                 for (PropertyDescriptor pd : propertyDescriptors) {
                     if (pd.getPropertyType() != null) { // The type of indexed properties is null, ignore them.
-                        attributesList.add(new PropertyDescriptorAttribute(pd));
+                        attributesList.add(new PropertyDescriptorAttribute(c, pd));
                     }
                 }
             } catch (Throwable e) {
@@ -274,10 +276,12 @@ public class Generic {
 
     private static class PropertyDescriptorAttribute implements GenericAttribute {
         private PropertyDescriptor propertyDescriptor;
+        private PropertyMethods propertyMethods;
         private boolean primitive;
 
-        public PropertyDescriptorAttribute(PropertyDescriptor pd) {
+        public PropertyDescriptorAttribute(Class beanType, PropertyDescriptor pd) {
             propertyDescriptor = pd;
+            propertyMethods = new PropertyMethods(beanType, pd.getName(), pd.getReadMethod(), pd.getWriteMethod());
             // cache primitive as each invocation of getParameterTypes() creates a Class[], allow set to be called many times without creating much garbage
             primitive = propertyDescriptor.getWriteMethod() != null && propertyDescriptor.getWriteMethod().getParameterTypes()[0].isPrimitive();
         }
@@ -303,7 +307,7 @@ public class Generic {
         }
 
         public final Object get(Object instance) {
-            return read(propertyDescriptor.getReadMethod(), instance);
+            return propertyMethods.read(instance);
         }
 
         public final void set(Object instance, Object value) {
@@ -319,52 +323,132 @@ public class Generic {
                     return;
                 }
             }
-            write(propertyDescriptor.getWriteMethod(), instance, value);
+            propertyMethods.write(instance, value);
         }
     }
 
-    private static Object read(Method readMethod, Object instance) {
-        if (readMethod != null) {
+    /**
+     * Calls the read and write methods of a property.  Once the property has been used ACCESSOR_THRESHOLD times, it
+     * is called through a PropertyAccessor generated to call the methods directly, rather than through Method.invoke,
+     * for the methods and values the accessor can take.
+     */
+    private static class PropertyMethods {
+        private static final int ACCESSOR_THRESHOLD = 16;
+
+        private final Class beanType;
+        private final String name;
+        private final Method readMethod;
+        private final Method writeMethod;
+        private final Class parameterType;
+        private int useCount;
+        private volatile PropertyAccessor accessor;
+        private volatile boolean directRead;
+        private volatile boolean directWrite;
+
+        public PropertyMethods(Class beanType, String name, Method readMethod, Method writeMethod) {
+            this.beanType = beanType;
+            this.name = name;
+            this.readMethod = readMethod;
+            this.writeMethod = writeMethod;
+            this.parameterType = writeMethod != null && writeMethod.getParameterTypes().length == 1 ? writeMethod.getParameterTypes()[0] : null;
+        }
+
+        public Object read(Object instance) {
+            if (readMethod == null) return null;
+
+            PropertyAccessor accessor = getAccessor();
+            if (accessor != null && directRead) {
+                try {
+                    return accessor.get(instance);
+                } catch (IllegalAccessError e) {
+                    disableAccessor(e);
+                } catch (Exception e) {
+                    logReadError(readMethod, e);
+                    return null;
+                }
+            }
+
             try {
                 return readMethod.invoke(instance, null);
             } catch (Exception e) {
-                log.error("Calling: " + readMethod.getDeclaringClass().getName() + "." + readMethod.getName(), e);
+                logReadError(readMethod, e);
             }
+            return null;
         }
-        return null;
-    }
 
-    private static void write(Method writeMethod, Object instance, Object value) {
-        if (writeMethod != null) {
+        public void write(Object instance, Object value) {
+            if (writeMethod == null) return;
+
+            PropertyAccessor accessor = getAccessor();
+            if (accessor != null && directWrite && PropertyAccessorGenerator.canSetDirectly(parameterType, value)) {
+                try {
+                    accessor.set(instance, value);
+                    return;
+                } catch (IllegalAccessError e) {
+                    disableAccessor(e);
+                } catch (Exception e) {
+                    logWriteError(writeMethod, instance, value, e);
+                    return;
+                }
+            }
+
             try {
                 writeMethod.invoke(instance, value);
             } catch (Exception e) {
-                log.error("Calling: " + writeMethod.getDeclaringClass().getName() + "." + writeMethod.getName() + " on instance of: " + instance.getClass().getName() + " with parameter of type: " + (value == null ? "null" : value.getClass().getName()), e);
+                logWriteError(writeMethod, instance, value, e);
+            }
+        }
+
+        private PropertyAccessor getAccessor() {
+            PropertyAccessor accessor = this.accessor;
+            if (accessor == null && useCount < ACCESSOR_THRESHOLD && ++useCount == ACCESSOR_THRESHOLD) {
+                synchronized (this) {
+                    if (this.accessor == null) {
+                        directRead = PropertyAccessorGenerator.canRead(beanType, readMethod);
+                        directWrite = PropertyAccessorGenerator.canWrite(beanType, writeMethod);
+                        accessor = PropertyAccessorGenerator.generate(beanType, name, readMethod, writeMethod);
+                        this.accessor = accessor;
+                    }
+                }
             }
+            return accessor;
+        }
+
+        private void disableAccessor(IllegalAccessError e) {
+            // e.g. the class is not accessible to the accessor's class loader, use reflection from now on
+            log.warn("Cannot use generated accessor for: " + beanType.getName() + "." + name, e);
+            directRead = false;
+            directWrite = false;
+        }
+
+        private static void logReadError(Method readMethod, Exception e) {
+            log.error("Calling: " + readMethod.getDeclaringClass().getName() + "." + readMethod.getName(), e);
+        }
+
+        private static void logWriteError(Method writeMethod, Object instance, Object value, Exception e) {
+            log.error("Calling: " + writeMethod.getDeclaringClass().getName() + "." + writeMethod.getName() + " on instance of: " + instance.getClass().getName() + " with parameter of type: " + (value == null ? "null" : value.getClass().getName()), e);
         }
     }
 
     private static class DefaultGenericAttribute extends DefaultAttribute implements GenericAttribute {
-        private Method readMethod;
-        private Method writeMethod;
+        private PropertyMethods propertyMethods;
         private boolean primitive;
 
-        public DefaultGenericAttribute(String name, Class<?> type, Method readMethod, Method writeMethod) {
+        public DefaultGenericAttribute(Class beanType, String name, Class<?> type, Method readMethod, Method writeMethod) {
             super(name, type, readMethod != null, writeMethod != null);
-            this.readMethod = readMethod;
-            this.writeMethod = writeMethod;
+            this.propertyMethods = new PropertyMethods(beanType, name, readMethod, writeMethod);
             // cache primitive as each invocation of getParameterTypes() creates a Class[], allow set to be called many times without creating much garbage
             primitive = writeMethod != null && writeMethod.getParameterTypes()[0].isPrimitive();
         }
 
         public final Object get(Object instance) {
-            return read(readMethod, instance);
+            return propertyMethods.read(instance);
         }
 
         public final void set(Object instance, Object value) {
             // do not set a null primitive
             if (value == null && primitive) return;
-            write(writeMethod, instance, value);
+            propertyMethods.write(instance, value);
         }
     }
 
@@ -401,7 +485,7 @@ public class Generic {
                             writeMethod = c.getMethod("set" + Utilities.capitalise(propertyName), returnType);
                         } catch (Exception e) {
                         }
-                        attributesList.add(new DefaultGenericAttribute(propertyName, returnType, readMethod, writeMethod));
+                        attributesList.add(new DefaultGenericAttribute(c, propertyName, returnType, readMethod, writeMethod));
                     }
                 }
             }
@@ -8,6 +8,9 @@ import org.bhavaya.ui.table.TableTestSuite;
 import org.bhavaya.db.DBTestSuite;
 import org.bhavaya.util.UtilTestSuite;
 import org.bhavaya.collection.CollectionTestSuite;
+import org.bhavaya.coms.ComsTestSuite;
+import org.bhavaya.beans.criterion.CriterionTestSuite;
+import org.bhavaya.beans.generator.GeneratorTestSuite;
 
 import java.util.Enumeration;
 
@@ -25,6 +28,9 @@ public class AllTestSuite extends TestSuite {
         addAll(new UITestSuite());
         addAll(new CollectionTestSuite());
         addAll(new TableTestSuite());
+        addAll(new ComsTestSuite());
+        addAll(new CriterionTestSuite());
+        addAll(new GeneratorTestSuite());
     }
 
     /**
@@ -0,0 +1,215 @@
+package org.bhavaya.beans.criterion;
+
+import junit.framework.TestCase;
+import org.bhavaya.collection.MapEvent;
+import org.bhavaya.util.PropertyGroup;
+
+import java.util.*;
+
+/**
+ * Checks that CriteriaIndex dispatches map events to the same synchronisables, with the same results, as evaluating
+ * every CriterionGroup against every event.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class CriteriaIndexTest extends TestCase {
+    private static final String ROOT = "criteriaIndexTest";
+    private static final String[] BOOKS = {"A", "B", "C", "D", "E", "F", "G", "H"};
+    private static final String[] OPERATORS = {"=", ">", ">=", "<", "<=", "<>"};
+    private static final int COLLECTIONS = 300;
+    private static final int EVENTS = 20000;
+    private static final int KEYS = 500;
+
+    private static boolean criteriaRegistered;
+
+    public CriteriaIndexTest(String s) {
+        super(s);
+    }
+
+    protected void setUp() throws Exception {
+        registerCriteria();
+    }
+
+    public void testIndexedDispatchMatchesEvaluation() {
+        Random random = new Random(3);
+        CriteriaIndex index = new CriteriaIndex();
+        IndexedCollection[] collections = new IndexedCollection[COLLECTIONS];
+        for (int i = 0; i < collections.length; i++) {
+            collections[i] = new IndexedCollection(new CriterionGroup("group" + i, createCriteria(random)));
+            index.add(collections[i]);
+        }
+        assertEquals(COLLECTIONS, index.size());
+
+        // move some collections to different buckets
+        for (int i = 0; i < 20; i++) {
+            collections[i].getCriteria().setCriteria(new Criterion[]{createCriterion("Book", "=", "A")});
+            index.reindex(collections[i]);
+        }
+
+        Set[] expected = new Set[collections.length];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = new HashSet();
+        }
+
+        for (int e = 0; e < EVENTS; e++) {
+            Integer key = new Integer(random.nextInt(KEYS));
+            Tick tick = new Tick(random.nextInt(100) + (random.nextBoolean() ? 0 : 0.5), BOOKS[random.nextInt(BOOKS.length)],
+                    random.nextInt(10) == 0 ? null : Boolean.valueOf(random.nextBoolean()));
+            int type = random.nextInt(3) == 0 ? MapEvent.INSERT : MapEvent.UPDATE;
+            index.mapChanged(new MapEvent(new HashMap(), type, key, tick));
+
+            for (int i = 0; i < collections.length; i++) {
+                boolean accepted = collections[i].getCriteria().evaluate(tick);
+                if (accepted) {
+                    expected[i].add(key);
+                } else if (type == MapEvent.UPDATE) {
+                    expected[i].remove(key);
+                }
+            }
+            if (e % 1000 == 999) {
+                for (int i = 0; i < collections.length; i++) {
+                    assertEquals("group" + i + " after event " + e, expected[i], collections[i].contents);
+                }
+            }
+        }
+
+        long evaluations = 0;
+        for (int i = 0; i < collections.length; i++) {
+            evaluations += collections[i].evaluations;
+        }
+        assertTrue("indexed dispatch made " + evaluations + " evaluations", evaluations < (long) EVENTS * COLLECTIONS / 2);
+    }
+
+    public void testRemovedCollectionIsNotNotified() {
+        CriteriaIndex index = new CriteriaIndex();
+        IndexedCollection books = new IndexedCollection(new CriterionGroup("books", new Criterion[]{createCriterion("Book", "=", "A")}));
+        IndexedCollection prices = new IndexedCollection(new CriterionGroup("prices", new Criterion[]{createCriterion("Price", ">", new Double(10))}));
+        index.add(books);
+        index.add(prices);
+
+        index.mapChanged(new MapEvent(new HashMap(), MapEvent.INSERT, new Integer(1), new Tick(20, "A", Boolean.TRUE)));
+        assertEquals(Collections.singleton(new Integer(1)), books.contents);
+        assertEquals(Collections.singleton(new Integer(1)), prices.contents);
+
+        index.remove(books);
+        assertEquals(1, index.size());
+        index.mapChanged(new MapEvent(new HashMap(), MapEvent.INSERT, new Integer(2), new Tick(20, "A", Boolean.TRUE)));
+        assertEquals(Collections.singleton(new Integer(1)), books.contents);
+        assertEquals(2, prices.contents.size());
+    }
+
+    private static Criterion[] createCriteria(Random random) {
+        switch (random.nextInt(5)) {
+            case 0:
+                return new Criterion[]{createCriterion("Book", "=", BOOKS[random.nextInt(BOOKS.length)])};
+            case 1:
+                return new Criterion[]{createCriterion("Price", OPERATORS[random.nextInt(OPERATORS.length)], new Double(random.nextInt(100)))};
+            case 2:
+                return new Criterion[]{createCriterion("Price", ">", new Integer(random.nextInt(100))),
+                                       createCriterion("Book", "=", BOOKS[random.nextInt(BOOKS.length)])};
+            case 3:
+                return new Criterion[]{createCriterion("Side", "=", Boolean.valueOf(random.nextBoolean()))};
+            default:
+                return new Criterion[]{createCriterion("Price", "=", new Integer(random.nextInt(100)))};
+        }
+    }
+
+    private static Criterion createCriterion(String name, String operator, Object rightOperand) {
+        return new BasicCriterion(ROOT + "." + name, operator, rightOperand);
+    }
+
+    private static synchronized void registerCriteria() {
+        if (criteriaRegistered) return;
+        PropertyGroup criterionPropertyGroup = CriterionFactory.getCriterionPropertyGroup();
+        PropertyGroup root = new PropertyGroup(criterionPropertyGroup, ROOT);
+        root.addPropertyGroup("Price", createCriterionPropertyGroup(root, "Price", "double", "price"));
+        root.addPropertyGroup("Book", createCriterionPropertyGroup(root, "Book", "java.lang.String", "book"));
+        root.addPropertyGroup("Side", createCriterionPropertyGroup(root, "Side", "java.lang.Boolean", "side"));
+        criterionPropertyGroup.addPropertyGroup(ROOT, root);
+        criteriaRegistered = true;
+    }
+
+    private static PropertyGroup createCriterionPropertyGroup(PropertyGroup root, String name, String toBeanType, String beanPath) {
+        PropertyGroup criterion = new PropertyGroup(root, name);
+        criterion.addProperty("type", BasicCriterion.BASIC);
+        criterion.addProperty("name", name);
+        criterion.addProperty("toBeanType", toBeanType);
+
+        PropertyGroup beanTypes = new PropertyGroup(criterion, "beanTypes");
+        PropertyGroup beanType = new PropertyGroup(beanTypes, "beanType");
+        beanType.addProperty("beanType", Tick.class.getName());
+        beanType.addProperty("beanPath", beanPath);
+        beanTypes.addPropertyGroup("beanType", beanType);
+        criterion.addPropertyGroup("beanTypes", beanTypes);
+        return criterion;
+    }
+
+    private static class IndexedCollection implements CriteriaIndex.IndexedSynchronisable {
+        private CriterionGroup criteria;
+        private Set contents = new HashSet();
+        private int evaluations;
+
+        public IndexedCollection(CriterionGroup criteria) {
+            this.criteria = criteria;
+        }
+
+        public CriterionGroup getCriteria() {
+            return criteria;
+        }
+
+        public void onAllRows() {
+        }
+
+        public void onCommit() {
+        }
+
+        public void onInsert(Object key, Object bean) {
+            contents.add(key);
+        }
+
+        public void onUpdate(Object key, Object bean) {
+        }
+
+        public boolean onDelete(Object key, Object bean) {
+            return contents.remove(key);
+        }
+
+        public boolean contains(Object key, Object bean) {
+            return contents.contains(key);
+        }
+
+        public boolean evaluate(Object key, Object bean) {
+            evaluations++;
+            return criteria.evaluate(bean);
+        }
+
+        public String getLogPrefix() {
+            return criteria.getName() + ": ";
+        }
+    }
+
+    public static class Tick {
+        private double price;
+        private String book;
+        private Boolean side;
+
+        public Tick(double price, String book, Boolean side) {
+            this.price = price;
+            this.book = book;
+            this.side = side;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public String getBook() {
+            return book;
+        }
+
+        public Boolean getSide() {
+            return side;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+
+package org.bhavaya.beans.criterion;
+
+import org.bhavaya.util.Log;
+import org.bhavaya.util.PropertyGroup;
+
+import java.util.Random;
+
+/**
+ * Evaluates a set of CriterionGroups against generated beans, once by calling Criterion.evaluate on each criterion in
+ * turn, as CriterionGroup used to, and once through CriterionGroup.evaluate, which compiles the criteria.  The results
+ * of the two are compared, so this also checks that compiling a criterion does not change what it accepts.
+ * <p/>
+ * The criteria are registered under the "criterionBenchmark" root, so no criterion.xml entries are needed.  Arguments
+ * are: bean count, iteration count.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class CriterionEvaluationBenchmark {
+    private static final Log log = Log.getCategory(CriterionGroup.class);
+
+    private static final String ROOT = "criterionBenchmark";
+    private static final String[] BOOKS = {"Rates", "Credit", "Emerging", "Govts", "Swaps", "Repo"};
+    private static final String[] OPERATORS = {"=", "<>", ">", "<", ">=", "<="};
+
+    public static void main(String[] args) {
+        int beanCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        registerCriteria();
+
+        Random random = new Random(1);
+        Trade[] trades = new Trade[beanCount];
+        Book[] books = new Book[BOOKS.length];
+        for (int i = 0; i < books.length; i++) {
+            books[i] = new Book(BOOKS[i]);
+        }
+        for (int i = 0; i < beanCount; i++) {
+            Book book = random.nextInt(20) == 0 ? null : books[random.nextInt(books.length)];
+            Boolean buy = random.nextInt(10) == 0 ? null : Boolean.valueOf(random.nextBoolean());
+            trades[i] = new Trade(random.nextInt(2000) / 10.0, random.nextInt(100) * 1000, book, buy);
+        }
+
+        CriterionGroup[] groups = createGroups(random, 50);
+
+        int mismatches = 0;
+        for (int i = 0; i < groups.length; i++) {
+            for (int j = 0; j < trades.length; j++) {
+                if (evaluateEachCriterion(groups[i], trades[j]) != groups[i].evaluate(trades[j])) mismatches++;
+            }
+        }
+        System.out.println(mismatches + " mismatches");
+
+        // warm up both paths
+        run(groups, trades, false);
+        run(groups, trades, true);
+
+        long eachCriterionTime = 0;
+        long compiledTime = 0;
+        int accepted = 0;
+        for (int i = 0; i < iterations; i++) {
+            long startTime = System.nanoTime();
+            accepted += run(groups, trades, false);
+            eachCriterionTime += System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            accepted -= run(groups, trades, true);
+            compiledTime += System.nanoTime() - startTime;
+        }
+        if (accepted != 0) System.out.println("Accepted counts differ: " + accepted);
+
+        double evaluations = (double) iterations * groups.length * trades.length;
+        System.out.println("Criterion.evaluate: " + (eachCriterionTime / evaluations) + " nanos per group evaluation");
+        System.out.println("compiled: " + (compiledTime / evaluations) + " nanos per group evaluation");
+    }
+
+    private static int run(CriterionGroup[] groups, Trade[] trades, boolean compiled) {
+        int accepted = 0;
+        for (int i = 0; i < groups.length; i++) {
+            CriterionGroup group = groups[i];
+            for (int j = 0; j < trades.length; j++) {
+                boolean result = compiled ? group.evaluate(trades[j]) : evaluateEachCriterion(group, trades[j]);
+                if (result) accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * CriterionGroup.evaluate as it was before criteria were compiled.
+     */
+    private static boolean evaluateEachCriterion(CriterionGroup group, Object bean) {
+        if (log.isDebug()) log.debug("CriterionGroup: " + group.getName() + " is evaluating bean");
+
+        Criterion[] criteria = group.criteria;
+        for (int i = 0; i < criteria.length; i++) {
+            if (!criteria[i].evaluate(bean)) {
+                if (log.isDebug()) log.debug("Failed test: " + criteria[i].getName());
+                return false;
+            }
+        }
+
+        if (log.isDebug()) log.debug("Passed all " + criteria.length + " tests");
+        return true;
+    }
+
+    private static CriterionGroup[] createGroups(Random random, int count) {
+        CriterionGroup[] groups = new CriterionGroup[count];
+        for (int i = 0; i < count; i++) {
+            Criterion price = new BasicCriterion(ROOT + ".Price", OPERATORS[random.nextInt(OPERATORS.length)], new Double(random.nextInt(200)));
+            Criterion quantity = new BasicCriterion(ROOT + ".Quantity", ">=", new Integer(random.nextInt(100) * 1000));
+            Criterion book = new BasicCriterion(ROOT + ".Book", random.nextBoolean() ? "=" : "<>", BOOKS[random.nextInt(BOOKS.length)]);
+            Criterion buy = new BasicCriterion(ROOT + ".Buy", "=", Boolean.valueOf(random.nextBoolean()));
+
+            switch (i % 4) {
+                case 0:
+                    groups[i] = new CriterionGroup("group" + i, price);
+                    break;
+                case 1:
+                    groups[i] = new CriterionGroup("group" + i, book, price);
+                    break;
+                case 2:
+                    groups[i] = new CriterionGroup("group" + i, quantity, book, buy);
+                    break;
+                default:
+                    groups[i] = new CriterionGroup("group" + i, price, quantity, book, buy);
+            }
+        }
+        return groups;
+    }
+
+    private static void registerCriteria() {
+        PropertyGroup criterionPropertyGroup = CriterionFactory.getCriterionPropertyGroup();
+        PropertyGroup root = new PropertyGroup(criterionPropertyGroup, ROOT);
+        root.addPropertyGroup("Price", createCriterion(root, "Price", "double", "price"));
+        root.addPropertyGroup("Quantity", createCriterion(root, "Quantity", "int", "quantity"));
+        root.addPropertyGroup("Book", createCriterion(root, "Book", "java.lang.String", "book.name"));
+        root.addPropertyGroup("Buy", createCriterion(root, "Buy", "java.lang.Boolean", "buy"));
+        criterionPropertyGroup.addPropertyGroup(ROOT, root);
+    }
+
+    private static PropertyGroup createCriterion(PropertyGroup root, String name, String toBeanType, String beanPath) {
+        PropertyGroup criterion = new PropertyGroup(root, name);
+        criterion.addProperty("type", BasicCriterion.BASIC);
+        criterion.addProperty("name", name);
+        criterion.addProperty("toBeanType", toBeanType);
+
+        PropertyGroup beanTypes = new PropertyGroup(criterion, "beanTypes");
+        PropertyGroup beanType = new PropertyGroup(beanTypes, "beanType");
+        beanType.addProperty("beanType", Trade.class.getName());
+        beanType.addProperty("beanPath", beanPath);
+        beanTypes.addPropertyGroup("beanType", beanType);
+        criterion.addPropertyGroup("beanTypes", beanTypes);
+        return criterion;
+    }
+
+    public static class Book {
+        private String name;
+
+        public Book(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static class Trade {
+        private double price;
+        private int quantity;
+        private Book book;
+        private Boolean buy;
+
+        public Trade(double price, int quantity, Book book, Boolean buy) {
+            this.price = price;
+            this.quantity = quantity;
+            this.book = book;
+            this.buy = buy;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public Book getBook() {
+            return book;
+        }
+
+        public Boolean getBuy() {
+            return buy;
+        }
+    }
+}
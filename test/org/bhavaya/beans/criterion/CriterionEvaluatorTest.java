@@ -0,0 +1,239 @@
+package org.bhavaya.beans.criterion;
+
+import junit.framework.TestCase;
+import org.bhavaya.util.PropertyGroup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that the compiled evaluation of CriterionGroup gives the same result as Criterion.evaluate, for each kind
+ * of criterion CriterionEvaluator compiles and for beans with null values and array values.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class CriterionEvaluatorTest extends TestCase {
+    private static final String ROOT = "criterionEvaluatorTest";
+    private static final String[] BOOKS = {"Rates", "Credit", "Emerging", "Govts"};
+    private static final String[] OPERATORS = {"=", "<>", ">", "<", ">=", "<="};
+    private static final int TRADES = 2000;
+
+    private static boolean criteriaRegistered;
+
+    public CriterionEvaluatorTest(String s) {
+        super(s);
+    }
+
+    protected void setUp() throws Exception {
+        registerCriteria();
+    }
+
+    public void testBasicCriteria() {
+        Random random = new Random(7);
+        List criteria = new ArrayList();
+        for (int i = 0; i < OPERATORS.length; i++) {
+            criteria.add(createCriterion("Price", OPERATORS[i], new Double(random.nextInt(200) / 2.0)));
+            criteria.add(createCriterion("Quantity", OPERATORS[i], new Integer(random.nextInt(100) * 1000)));
+            criteria.add(createCriterion("Book", OPERATORS[i], BOOKS[random.nextInt(BOOKS.length)]));
+            criteria.add(createCriterion("Tag", OPERATORS[i], "tag" + random.nextInt(5)));
+        }
+        criteria.add(createCriterion("Buy", "=", Boolean.TRUE));
+        criteria.add(createCriterion("Buy", "<>", Boolean.FALSE));
+        criteria.add(createCriterion("Side", "=", Side.SELL));
+        criteria.add(createCriterion("Side", "<>", Side.BUY));
+        criteria.add(createCriterion("Book", "=", null));
+        criteria.add(createCriterion("Book", "<>", null));
+
+        assertCompiledMatchesInterpreted((Criterion[]) criteria.toArray(new Criterion[criteria.size()]), true);
+    }
+
+    public void testEnumerationCriteria() {
+        Criterion[] criteria = {
+            createEnumerationCriterion("BookEnum", EnumerationCriterion.ENUM_IN_OPERATION, new Object[]{"Rates", "Govts"}),
+            createEnumerationCriterion("BookEnum", EnumerationCriterion.ENUM_NOT_IN_OPERATION, new Object[]{"Credit"}),
+            createEnumerationCriterion("BookEnum", EnumerationCriterion.ENUM_IN_OPERATION, new Object[0]),
+            createEnumerationCriterion("BookEnum", EnumerationCriterion.ENUM_NOT_IN_OPERATION, new Object[0]),
+            createEnumerationCriterion("TagEnum", EnumerationCriterion.ENUM_IN_OPERATION, new Object[]{"tag1", "tag3"}),
+            createEnumerationCriterion("TagEnum", EnumerationCriterion.ENUM_NOT_IN_OPERATION, new Object[]{"tag0", "tag2"}),
+            createEnumerationCriterion("SideEnum", EnumerationCriterion.ENUM_IN_OPERATION, new Object[]{Side.BUY}),
+            createEnumerationCriterion("SideEnum", EnumerationCriterion.ENUM_NOT_IN_OPERATION, new Object[]{Side.SELL})
+        };
+        assertCompiledMatchesInterpreted(criteria, true);
+    }
+
+    public void testDelegatedCriteria() {
+        Criterion[] criteria = {
+            new OrCriterion(new BasicCriterion[]{(BasicCriterion) createCriterion("Price", "<", new Double(20)),
+                                                 (BasicCriterion) createCriterion("Book", "=", "Rates")})
+        };
+        assertCompiledMatchesInterpreted(criteria, false);
+    }
+
+    public void testGroups() {
+        Random random = new Random(11);
+        Trade[] trades = createTrades(random);
+        for (int i = 0; i < 50; i++) {
+            CriterionGroup group = new CriterionGroup("group" + i, new Criterion[]{
+                createCriterion("Price", OPERATORS[random.nextInt(OPERATORS.length)], new Double(random.nextInt(100))),
+                createCriterion("Book", random.nextBoolean() ? "=" : "<>", BOOKS[random.nextInt(BOOKS.length)]),
+                createEnumerationCriterion("TagEnum", EnumerationCriterion.ENUM_IN_OPERATION, new Object[]{"tag" + random.nextInt(5)})
+            });
+            for (int j = 0; j < trades.length; j++) {
+                assertEquals(group.getName() + " for " + trades[j], evaluateEachCriterion(group.getCriteria(), trades[j]), group.evaluate(trades[j]));
+            }
+
+            // replacing the criteria compiles them again
+            Criterion[] replacement = {createCriterion("Quantity", ">=", new Integer(random.nextInt(100) * 1000))};
+            group.setCriteria(replacement);
+            for (int j = 0; j < trades.length; j++) {
+                assertEquals(group.getName() + " for " + trades[j], replacement[0].evaluate(trades[j]), group.evaluate(trades[j]));
+            }
+        }
+    }
+
+    private static void assertCompiledMatchesInterpreted(Criterion[] criteria, boolean compiled) {
+        Trade[] trades = createTrades(new Random(3));
+        for (int i = 0; i < criteria.length; i++) {
+            CriterionEvaluator evaluator = CriterionEvaluator.compile(criteria[i]);
+            assertEquals(criteria[i].toString(), compiled, !evaluator.getClass().getName().endsWith("DelegatingEvaluator"));
+            for (int j = 0; j < trades.length; j++) {
+                assertEquals(criteria[i] + " for " + trades[j], criteria[i].evaluate(trades[j]), evaluator.evaluate(trades[j]));
+            }
+        }
+    }
+
+    private static boolean evaluateEachCriterion(Criterion[] criteria, Object bean) {
+        for (int i = 0; i < criteria.length; i++) {
+            if (!criteria[i].evaluate(bean)) return false;
+        }
+        return true;
+    }
+
+    private static Trade[] createTrades(Random random) {
+        Trade[] trades = new Trade[TRADES];
+        for (int i = 0; i < trades.length; i++) {
+            Book book = random.nextInt(10) == 0 ? null : new Book(random.nextInt(10) == 0 ? null : BOOKS[random.nextInt(BOOKS.length)]);
+            Boolean buy = random.nextInt(10) == 0 ? null : Boolean.valueOf(random.nextBoolean());
+            Side side = random.nextInt(10) == 0 ? null : Side.values()[random.nextInt(Side.values().length)];
+            String[] tags = new String[random.nextInt(3)];
+            for (int j = 0; j < tags.length; j++) {
+                tags[j] = "tag" + random.nextInt(5);
+            }
+            trades[i] = new Trade(random.nextInt(200) / 2.0, random.nextInt(100) * 1000, book, buy, side, random.nextInt(10) == 0 ? null : tags);
+        }
+        return trades;
+    }
+
+    private static Criterion createCriterion(String name, String operator, Object rightOperand) {
+        return new BasicCriterion(ROOT + "." + name, operator, rightOperand);
+    }
+
+    private static Criterion createEnumerationCriterion(String name, String operator, Object[] ids) {
+        EnumerationCriterion.EnumElement[] elements = new EnumerationCriterion.EnumElement[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            elements[i] = new EnumerationCriterion.EnumElement(ids[i], String.valueOf(ids[i]));
+        }
+        return new EnumerationCriterion(ROOT + "." + name, operator, elements);
+    }
+
+    private static synchronized void registerCriteria() {
+        if (criteriaRegistered) return;
+        PropertyGroup criterionPropertyGroup = CriterionFactory.getCriterionPropertyGroup();
+        PropertyGroup root = new PropertyGroup(criterionPropertyGroup, ROOT);
+        root.addPropertyGroup("Price", createCriterionPropertyGroup(root, "Price", BasicCriterion.BASIC, "double", "price"));
+        root.addPropertyGroup("Quantity", createCriterionPropertyGroup(root, "Quantity", BasicCriterion.BASIC, "int", "quantity"));
+        root.addPropertyGroup("Book", createCriterionPropertyGroup(root, "Book", BasicCriterion.BASIC, "java.lang.String", "book.name"));
+        root.addPropertyGroup("Buy", createCriterionPropertyGroup(root, "Buy", BasicCriterion.BASIC, "java.lang.Boolean", "buy"));
+        root.addPropertyGroup("Side", createCriterionPropertyGroup(root, "Side", BasicCriterion.BASIC, Side.class.getName(), "side"));
+        root.addPropertyGroup("Tag", createCriterionPropertyGroup(root, "Tag", BasicCriterion.BASIC, "java.lang.String", "tags"));
+        root.addPropertyGroup("BookEnum", createCriterionPropertyGroup(root, "BookEnum", BasicCriterion.ENUMERATION, "java.lang.String", "book.name"));
+        root.addPropertyGroup("TagEnum", createCriterionPropertyGroup(root, "TagEnum", BasicCriterion.ENUMERATION, "java.lang.String", "tags"));
+        root.addPropertyGroup("SideEnum", createCriterionPropertyGroup(root, "SideEnum", BasicCriterion.ENUMERATION, Side.class.getName(), "side"));
+        criterionPropertyGroup.addPropertyGroup(ROOT, root);
+        criteriaRegistered = true;
+    }
+
+    private static PropertyGroup createCriterionPropertyGroup(PropertyGroup root, String name, String type, String toBeanType, String beanPath) {
+        PropertyGroup criterion = new PropertyGroup(root, name);
+        criterion.addProperty("type", type);
+        criterion.addProperty("name", name);
+        criterion.addProperty("toBeanType", toBeanType);
+        if (type.equals(BasicCriterion.ENUMERATION)) {
+            criterion.addProperty("keyColumn", "ID");
+            criterion.addProperty("descriptionColumn", "DESCRIPTION");
+        }
+
+        PropertyGroup beanTypes = new PropertyGroup(criterion, "beanTypes");
+        PropertyGroup beanType = new PropertyGroup(beanTypes, "beanType");
+        beanType.addProperty("beanType", Trade.class.getName());
+        beanType.addProperty("beanPath", beanPath);
+        beanTypes.addPropertyGroup("beanType", beanType);
+        criterion.addPropertyGroup("beanTypes", beanTypes);
+        return criterion;
+    }
+
+    public static enum Side {
+        BUY, SELL, SHORT
+    }
+
+    public static class Book {
+        private String name;
+
+        public Book(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static class Trade {
+        private double price;
+        private int quantity;
+        private Book book;
+        private Boolean buy;
+        private Side side;
+        private String[] tags;
+
+        public Trade(double price, int quantity, Book book, Boolean buy, Side side, String[] tags) {
+            this.price = price;
+            this.quantity = quantity;
+            this.book = book;
+            this.buy = buy;
+            this.side = side;
+            this.tags = tags;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public Book getBook() {
+            return book;
+        }
+
+        public Boolean getBuy() {
+            return buy;
+        }
+
+        public Side getSide() {
+            return side;
+        }
+
+        public String[] getTags() {
+            return tags;
+        }
+
+        public String toString() {
+            return price + " " + quantity + " " + (book == null ? null : book.getName()) + " " + buy + " " + side + " " + (tags == null ? null : Arrays.asList(tags));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.bhavaya.beans.criterion;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Description
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class CriterionTestSuite extends TestSuite {
+
+    public CriterionTestSuite() {
+        addTestSuite(CriteriaIndexTest.class);
+        addTestSuite(CriterionEvaluatorTest.class);
+    }
+
+    public static Test suite() {
+        return new CriterionTestSuite();
+    }
+
+    public static void main(String[] args) {
+        junit.swingui.TestRunner.run(CriterionTestSuite.class);
+    }
+}
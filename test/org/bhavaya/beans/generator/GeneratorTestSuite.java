@@ -0,0 +1,25 @@
+package org.bhavaya.beans.generator;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Description
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class GeneratorTestSuite extends TestSuite {
+
+    public GeneratorTestSuite() {
+        addTestSuite(PropertyAccessorGeneratorTest.class);
+    }
+
+    public static Test suite() {
+        return new GeneratorTestSuite();
+    }
+
+    public static void main(String[] args) {
+        junit.swingui.TestRunner.run(GeneratorTestSuite.class);
+    }
+}
@@ -0,0 +1,143 @@
+package org.bhavaya.beans.generator;
+
+import junit.framework.TestCase;
+
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+
+/**
+ * Description
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class PropertyAccessorGeneratorTest extends TestCase {
+
+    public PropertyAccessorGeneratorTest(String s) {
+        super(s);
+    }
+
+    public void testGetMatchesReflection() throws Exception {
+        Position position = new Position("Rates", 1500, 99.5, true, new Integer(3));
+        PropertyDescriptor[] properties = Introspector.getBeanInfo(Position.class, Object.class).getPropertyDescriptors();
+        assertEquals(6, properties.length);
+        for (int i = 0; i < properties.length; i++) {
+            Method readMethod = properties[i].getReadMethod();
+            PropertyAccessor accessor = generate(properties[i]);
+            assertEquals(properties[i].getName(), readMethod.invoke(position), accessor.get(position));
+        }
+    }
+
+    public void testSetMatchesReflection() throws Exception {
+        Position generated = new Position("Rates", 1500, 99.5, true, new Integer(3));
+        Position reflected = new Position("Rates", 1500, 99.5, true, new Integer(3));
+        Object[] values = {"Credit", new Long(-20), new Double(101.25), Boolean.FALSE, null};
+        String[] names = {"book", "quantity", "price", "buy", "version"};
+
+        for (int i = 0; i < names.length; i++) {
+            PropertyDescriptor property = new PropertyDescriptor(names[i], Position.class);
+            assertTrue(names[i], PropertyAccessorGenerator.canSetDirectly(property.getPropertyType(), values[i]) || values[i] == null);
+            generate(property).set(generated, values[i]);
+            property.getWriteMethod().invoke(reflected, values[i]);
+            assertEquals(names[i], property.getReadMethod().invoke(reflected), property.getReadMethod().invoke(generated));
+            assertEquals(names[i], values[i], property.getReadMethod().invoke(generated));
+        }
+    }
+
+    public void testReadOnlyProperty() throws Exception {
+        Position position = new Position("Rates", 1500, 99.5, true, new Integer(3));
+        PropertyDescriptor property = new PropertyDescriptor("value", Position.class, "getValue", null);
+        PropertyAccessor accessor = generate(property);
+        assertEquals(property.getReadMethod().invoke(position), accessor.get(position));
+        try {
+            accessor.set(position, new Double(1));
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        assertEquals(new Double(1500 * 99.5), accessor.get(position));
+    }
+
+    public void testPrimitiveSetNeedsExactWrapper() {
+        assertTrue(PropertyAccessorGenerator.canSetDirectly(long.class, new Long(1)));
+        assertFalse(PropertyAccessorGenerator.canSetDirectly(long.class, new Integer(1)));
+        assertFalse(PropertyAccessorGenerator.canSetDirectly(long.class, null));
+        assertTrue(PropertyAccessorGenerator.canSetDirectly(Integer.class, null));
+    }
+
+    public void testInaccessibleMethod() throws Exception {
+        Method readMethod = Position.class.getDeclaredMethod("getSecret");
+        assertFalse(PropertyAccessorGenerator.canRead(Position.class, readMethod));
+        assertNull(PropertyAccessorGenerator.generate(Position.class, "secret", readMethod, null));
+    }
+
+    private static PropertyAccessor generate(PropertyDescriptor property) {
+        PropertyAccessor accessor = PropertyAccessorGenerator.generate(Position.class, property.getName(), property.getReadMethod(), property.getWriteMethod());
+        assertNotNull(property.getName(), accessor);
+        return accessor;
+    }
+
+    public static class Position {
+        private String book;
+        private long quantity;
+        private double price;
+        private boolean buy;
+        private Integer version;
+
+        public Position(String book, long quantity, double price, boolean buy, Integer version) {
+            this.book = book;
+            this.quantity = quantity;
+            this.price = price;
+            this.buy = buy;
+            this.version = version;
+        }
+
+        public String getBook() {
+            return book;
+        }
+
+        public void setBook(String book) {
+            this.book = book;
+        }
+
+        public long getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(long quantity) {
+            this.quantity = quantity;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice(double price) {
+            this.price = price;
+        }
+
+        public boolean isBuy() {
+            return buy;
+        }
+
+        public void setBuy(boolean buy) {
+            this.buy = buy;
+        }
+
+        public Integer getVersion() {
+            return version;
+        }
+
+        public void setVersion(Integer version) {
+            this.version = version;
+        }
+
+        public double getValue() {
+            return quantity * price;
+        }
+
+        String getSecret() {
+            return book;
+        }
+    }
+}
@@ -14,6 +14,11 @@ public class CollectionTestSuite extends TestSuite {
     public CollectionTestSuite() {
         addTestSuite(SynchronizedTransformerBeanCollectionTest.class);
         addTestSuite(IndexedSetTest.class);
+        addTestSuite(TreeIndexedSetTest.class);
+        addTestSuite(RankedBitSetTest.class);
+        addTestSuite(ConcurrentAssociationTest.class);
+        addTestSuite(PrimitiveKeyAssociationTest.class);
+        addTestSuite(OrderStatisticTreeTest.class);
     }
 
     public static Test suite() {
@@ -0,0 +1,107 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+package org.bhavaya.collection;
+
+import junit.framework.TestCase;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Description
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class ConcurrentAssociationTest extends TestCase {
+    public ConcurrentAssociationTest(String s) {
+        super(s);
+    }
+
+    public void testUnlockedReads() throws Exception {
+        LockStatistics lockStatistics = new LockStatistics();
+        Association association = new ConcurrentAssociation(new DefaultAssociation(new LinkedHashMap()), true, lockStatistics);
+        assertMapBehaviour(association);
+        assertTrue(lockStatistics.getUnlockedReads() > 0);
+        assertEquals(0, lockStatistics.getContendedWrites());
+    }
+
+    public void testLockedReads() throws Exception {
+        LockStatistics lockStatistics = new LockStatistics();
+        Association association = new ConcurrentAssociation(new DefaultAssociation(new LinkedHashMap()), false, lockStatistics);
+        assertMapBehaviour(association);
+        assertEquals(0, lockStatistics.getUnlockedReads());
+        assertTrue(lockStatistics.getLockedReads() > 0);
+    }
+
+    public void testReferenceAssociation() throws Exception {
+        Association association = new ConcurrentAssociation(ReferenceAssociation.newSoftInstance(new LinkedHashMap()), true, new LockStatistics());
+        assertMapBehaviour(association);
+    }
+
+    private void assertMapBehaviour(Association association) {
+        String a = "A";
+        String b = "B";
+        association.put("a", a);
+        association.put("b", b);
+        association.put("missing", null);
+
+        assertSame(a, association.get("a"));
+        assertSame(b, association.get("b"));
+        assertTrue(association.containsKey("a"));
+        assertTrue(association.containsKey("missing"));
+        assertNull(association.get("missing"));
+        assertFalse(association.containsKey("c"));
+        assertNull(association.get("c"));
+        assertEquals("a", association.getKeyForValue(a));
+        assertEquals(3, association.size());
+
+        String a2 = "A2";
+        assertSame(a, association.put("a", a2));
+        assertSame(a2, association.get("a"));
+
+        assertSame(b, association.remove("b"));
+        assertFalse(association.containsKey("b"));
+        assertNull(association.get("b"));
+
+        Map map = new HashMap();
+        map.put("d", "D");
+        association.putAll(map);
+        assertEquals("D", association.get("d"));
+
+        association.clear();
+        assertFalse(association.containsKey("a"));
+        assertFalse(association.containsKey("missing"));
+        assertNull(association.get("d"));
+        assertTrue(association.isEmpty());
+    }
+}
@@ -0,0 +1,106 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+package org.bhavaya.collection;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares IndexedSet with TreeIndexedSet on the operations a DefaultBeanCollection or BeanCollectionTableModel
+ * performs: appending beans, reading them by index, finding the index of a bean, and removing and inserting beans in
+ * the middle of the list.  The first argument is the number of elements, the second the number of removes and inserts
+ * made against IndexedSet, which are linear in the size of the set; TreeIndexedSet makes a hundred times as many.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class IndexedSetBenchmark {
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        Object[] values = new Object[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = new Integer(i);
+        }
+
+        for (int pass = 0; pass < 2; pass++) {
+            System.out.println((pass == 0 ? "Warm up, " : "") + n + " elements");
+            run("IndexedSet", new IndexedSet(), values, updates);
+            run("TreeIndexedSet", new TreeIndexedSet(), values, updates * 100);
+        }
+    }
+
+    private static void run(String name, List set, Object[] values, int updates) {
+        int n = values.length;
+        System.out.println("  " + name);
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            set.add(values[i]);
+        }
+        report("add", startTime, n);
+
+        startTime = System.nanoTime();
+        int hash = 0;
+        for (int i = 0; i < n; i++) {
+            hash += set.get(i).hashCode();
+        }
+        report("sequential get", startTime, n);
+
+        Random random = new Random(1);
+        startTime = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            hash += set.get(random.nextInt(n)).hashCode();
+        }
+        report("random get", startTime, n);
+
+        startTime = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            hash += set.indexOf(values[random.nextInt(n)]);
+        }
+        report("indexOf", startTime, n);
+
+        startTime = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            int index = random.nextInt(n);
+            Object value = set.remove(index);
+            set.add(random.nextInt(n - 1), value);
+        }
+        report("remove and insert", startTime, updates);
+
+        if (set.size() != n || hash == 0) throw new IllegalStateException("Size " + set.size() + " of " + n);
+    }
+
+    private static void report(String operation, long startTime, int count) {
+        long timeTaken = System.nanoTime() - startTime;
+        System.out.println("    " + operation + ": " + ((double) timeTaken / count) + " nanos per operation");
+    }
+}
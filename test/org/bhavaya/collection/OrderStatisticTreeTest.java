@@ -0,0 +1,166 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+
+package org.bhavaya.collection;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks OrderStatisticTree behaves as a List of weighted values, by applying the same random operations to
+ * both, and that the Node returned for each value keeps its index.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class OrderStatisticTreeTest extends TestCase {
+    public OrderStatisticTreeTest(String s) {
+        super(s);
+    }
+
+    public void testRandomOperations() throws Exception {
+        Random random = new Random(5);
+        OrderStatisticTree tree = new OrderStatisticTree();
+        List values = new ArrayList();
+        List weights = new ArrayList();
+        List nodes = new ArrayList();
+        List removedNodes = new ArrayList();
+        int nextValue = 0;
+
+        for (int i = 0; i < 20000; i++) {
+            int operation = random.nextInt(10);
+            if (operation < 3 || values.isEmpty()) {
+                int index = random.nextInt(values.size() + 1);
+                int weight = random.nextInt(4);
+                nodes.add(index, tree.add(index, new Integer(nextValue), weight));
+                values.add(index, new Integer(nextValue++));
+                weights.add(index, new Integer(weight));
+            } else if (operation < 5) {
+                int index = random.nextInt(values.size() + 1);
+                int count = random.nextInt(20);
+                Object[] addedValues = new Object[count];
+                int[] addedWeights = new int[count];
+                Integer[] boxedWeights = new Integer[count];
+                for (int j = 0; j < count; j++) {
+                    addedValues[j] = new Integer(nextValue++);
+                    addedWeights[j] = random.nextInt(4);
+                    boxedWeights[j] = new Integer(addedWeights[j]);
+                }
+                nodes.addAll(index, Arrays.asList(tree.addAll(index, addedValues, addedWeights)));
+                values.addAll(index, Arrays.asList(addedValues));
+                weights.addAll(index, Arrays.asList(boxedWeights));
+            } else if (operation < 7) {
+                int index = random.nextInt(values.size());
+                int count = random.nextInt(Math.min(25, values.size() - index + 1));
+                tree.remove(index, count);
+                removedNodes.addAll(nodes.subList(index, index + count));
+                nodes.subList(index, index + count).clear();
+                values.subList(index, index + count).clear();
+                weights.subList(index, index + count).clear();
+            } else {
+                int index = random.nextInt(values.size());
+                int weight = random.nextInt(4);
+                tree.set(index, new Integer(nextValue), weight);
+                values.set(index, new Integer(nextValue++));
+                weights.set(index, new Integer(weight));
+            }
+
+            if (i % 500 == 0) assertSameContents(values, weights, nodes, tree);
+        }
+        assertSameContents(values, weights, nodes, tree);
+        for (int i = 0; i < removedNodes.size(); i++) {
+            OrderStatisticTree.Node node = (OrderStatisticTree.Node) removedNodes.get(i);
+            assertFalse(node.isAttached());
+            assertEquals(-1, tree.indexOf(node));
+        }
+
+        // removing by node keeps the weights of the remaining values
+        while (values.size() > 10) {
+            int index = random.nextInt(values.size());
+            tree.remove((OrderStatisticTree.Node) nodes.remove(index));
+            values.remove(index);
+            weights.remove(index);
+        }
+        assertSameContents(values, weights, nodes, tree);
+
+        tree.clear();
+        assertTrue(tree.isEmpty());
+        assertEquals(0, tree.getTotalWeight());
+    }
+
+    public void testSetValues() throws Exception {
+        OrderStatisticTree tree = new OrderStatisticTree();
+        tree.setValues(new Object[]{"a", "b", "c", "d"}, new int[]{2, 0, 1, 3});
+        assertEquals(Arrays.asList(new Object[]{"a", "b", "c", "d"}), Arrays.asList(tree.toArray()));
+        assertEquals(6, tree.getTotalWeight());
+        assertEquals(0, tree.indexOfWeight(1));
+        assertEquals(2, tree.indexOfWeight(2));
+        assertEquals(3, tree.indexOfWeight(3));
+        assertEquals(3, tree.indexOfWeight(6));
+        assertEquals(2, tree.getWeightBefore(1));
+        assertEquals(2, tree.getWeightBefore(2));
+        assertEquals(6, tree.getWeightBefore(4));
+
+        try {
+            tree.add(0, "e", -1);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            tree.remove(2, 3);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+    }
+
+    private static void assertSameContents(List values, List weights, List nodes, OrderStatisticTree tree) {
+        assertEquals(values.size(), tree.size());
+        assertEquals(values, Arrays.asList(tree.toArray()));
+        int weightBefore = 0;
+        for (int i = 0; i < values.size(); i++) {
+            int weight = ((Integer) weights.get(i)).intValue();
+            assertEquals(values.get(i), tree.get(i));
+            assertEquals(weight, tree.getWeight(i));
+            assertEquals(i, tree.indexOf((OrderStatisticTree.Node) nodes.get(i)));
+            assertEquals(weightBefore, tree.getWeightBefore(i));
+            for (int w = weightBefore; w < weightBefore + weight; w++) {
+                assertEquals(i, tree.indexOfWeight(w));
+            }
+            weightBefore += weight;
+        }
+        assertEquals(weightBefore, tree.getTotalWeight());
+        assertEquals(weightBefore, tree.getWeightBefore(values.size()));
+    }
+}
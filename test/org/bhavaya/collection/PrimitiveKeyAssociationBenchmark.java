@@ -0,0 +1,141 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+package org.bhavaya.collection;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Compares the footprint and lookup time of PrimitiveKeyAssociation with the DefaultAssociation and
+ * ReferenceAssociation stores BeanFactory.getDefaultStore creates, for single Integer keys and compound keys of two
+ * Integers, as TRADE_ID and VERSION.  The first argument is the number of entries, the second the number of lookup
+ * passes.  Footprint is the growth in used heap after building the store, so includes the keys the store retains but not
+ * the values, which are created beforehand.  Run with a fixed heap, e.g. -Xms1g -Xmx1g, for steadier numbers.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class PrimitiveKeyAssociationBenchmark {
+    private static final int DEFAULT = 0;
+    private static final int DEFAULT_SOFT = 1;
+    private static final int PRIMITIVE = 2;
+    private static final int PRIMITIVE_SOFT = 3;
+    private static final String[] STORE_NAMES = {"DefaultAssociation", "ReferenceAssociation(soft)", "PrimitiveKeyAssociation", "PrimitiveKeyAssociation(soft)"};
+
+    private static Object[] values;
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+        int passes = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        values = new Object[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = new Object();
+        }
+
+        for (int compound = 0; compound < 2; compound++) {
+            System.out.println((compound == 1 ? "Compound (Integer, Integer)" : "Integer") + " keys, " + n + " entries");
+            for (int storeType = DEFAULT; storeType <= PRIMITIVE_SOFT; storeType++) {
+                run(storeType, compound == 1, n, passes);
+            }
+        }
+    }
+
+    private static void run(int storeType, boolean compound, int n, int passes) {
+        long usedBefore = usedMemory();
+        Association store = newStore(storeType, compound);
+        for (int i = 0; i < n; i++) {
+            store.put(newKey(i, compound), values[i]);
+        }
+        long footprint = usedMemory() - usedBefore;
+
+        // lookups use fresh keys, as a BeanFactory does when loading from a ResultSet
+        Object[] keys = new Object[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = newKey(i, compound);
+        }
+        lookup(store, keys); // warm up
+
+        long startTime = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < passes; i++) {
+            found += lookup(store, keys);
+        }
+        long timeTaken = System.nanoTime() - startTime;
+        if (found != n * passes) throw new IllegalStateException("Found " + found + " of " + (n * passes));
+
+        System.out.println("  " + STORE_NAMES[storeType] + ": " + (footprint / n) + " bytes per entry, "
+                + ((double) timeTaken / ((double) n * passes)) + " nanos per get");
+    }
+
+    private static int lookup(Association store, Object[] keys) {
+        int found = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (store.get(keys[i]) != null) found++;
+        }
+        return found;
+    }
+
+    private static Association newStore(int storeType, boolean compound) {
+        Class[] keyTypes = compound ? new Class[]{Integer.class, Integer.class} : new Class[]{Integer.class};
+        switch (storeType) {
+            case DEFAULT:
+                return new DefaultAssociation(new LinkedHashMap());
+            case DEFAULT_SOFT:
+                return ReferenceAssociation.newSoftInstance(new LinkedHashMap());
+            case PRIMITIVE:
+                return new PrimitiveKeyAssociation(PrimitiveKeyAssociation.KeyLayout.getInstance(keyTypes), PrimitiveKeyAssociation.STRONG);
+            default:
+                return new PrimitiveKeyAssociation(PrimitiveKeyAssociation.KeyLayout.getInstance(keyTypes), PrimitiveKeyAssociation.SOFT);
+        }
+    }
+
+    private static Object newKey(int i, boolean compound) {
+        if (!compound) return new Integer(i * 7);
+        List key = new EfficientArrayList(2);
+        key.add(new Integer(i * 7));
+        key.add(new Integer(i % 3));
+        return key;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
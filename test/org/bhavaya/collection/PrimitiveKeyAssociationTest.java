@@ -0,0 +1,167 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+
+package org.bhavaya.collection;
+
+import junit.framework.TestCase;
+
+import java.util.*;
+
+/**
+ * Description
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class PrimitiveKeyAssociationTest extends TestCase {
+    public PrimitiveKeyAssociationTest(String s) {
+        super(s);
+    }
+
+    public void testKeyLayout() throws Exception {
+        assertNotNull(PrimitiveKeyAssociation.KeyLayout.getInstance(new Class[]{int.class}));
+        assertNotNull(PrimitiveKeyAssociation.KeyLayout.getInstance(new Class[]{Integer.class, Integer.class}));
+        assertNotNull(PrimitiveKeyAssociation.KeyLayout.getInstance(new Class[]{Integer.class, Short.class, Byte.class, Boolean.class}));
+        assertNull(PrimitiveKeyAssociation.KeyLayout.getInstance(new Class[]{Long.class, Integer.class}));
+        assertNull(PrimitiveKeyAssociation.KeyLayout.getInstance(new Class[]{String.class}));
+
+        PrimitiveKeyAssociation.KeyLayout keyLayout = PrimitiveKeyAssociation.KeyLayout.getInstance(new Class[]{Integer.class, Short.class, Boolean.class});
+        List key = Arrays.asList(new Object[]{new Integer(-7), new Short((short) -3), Boolean.TRUE});
+        assertTrue(keyLayout.canPack(key));
+        assertEquals(key, keyLayout.unpack(keyLayout.pack(key)));
+        assertFalse(keyLayout.canPack(Arrays.asList(new Object[]{new Long(-7), new Short((short) -3), Boolean.TRUE})));
+        assertFalse(keyLayout.canPack(Arrays.asList(new Object[]{null, new Short((short) -3), Boolean.TRUE})));
+    }
+
+    public void testSingleKeys() throws Exception {
+        PrimitiveKeyAssociation association = new PrimitiveKeyAssociation(PrimitiveKeyAssociation.KeyLayout.getInstance(new Class[]{Integer.class}), PrimitiveKeyAssociation.STRONG);
+        String a = "A";
+        String b = "B";
+        association.put(new Integer(1), a);
+        association.put(new Integer(Integer.MIN_VALUE), b);
+        association.put(new Integer(3), null);
+        association.put(new Long(1), "long"); // not packable, held in the overflow
+
+        assertEquals(4, association.size());
+        assertSame(a, association.get(new Integer(1)));
+        assertSame(b, association.get(new Integer(Integer.MIN_VALUE)));
+        assertEquals("long", association.get(new Long(1)));
+        assertNull(association.get(new Integer(3)));
+        assertTrue(association.containsKey(new Integer(3)));
+        assertFalse(association.containsKey(new Integer(4)));
+        assertEquals(new Integer(Integer.MIN_VALUE), association.getKeyForValue(b));
+        assertEquals(new Long(1), association.getKeyForValue("long"));
+        assertTrue(association.containsValue(null));
+
+        assertEquals(Arrays.asList(new Object[]{new Integer(1), new Integer(Integer.MIN_VALUE), new Integer(3), new Long(1)}), new ArrayList(association.keySet()));
+
+        assertSame(a, association.put(new Integer(1), "C"));
+        assertEquals(new Integer(1), association.getKeyForValue("C"));
+        assertNull(association.getKeyForValue(a));
+
+        assertEquals("C", association.remove(new Integer(1)));
+        assertFalse(association.containsKey(new Integer(1)));
+        assertEquals(3, association.size());
+
+        association.clear();
+        assertTrue(association.isEmpty());
+        assertFalse(association.keySet().iterator().hasNext());
+    }
+
+    public void testCompoundKeys() throws Exception {
+        PrimitiveKeyAssociation association = new PrimitiveKeyAssociation(PrimitiveKeyAssociation.KeyLayout.getInstance(new Class[]{Integer.class, Integer.class}), PrimitiveKeyAssociation.STRONG);
+        for (int i = -500; i < 500; i++) {
+            association.put(compoundKey(i, i * 31), new Integer(i));
+        }
+        assertEquals(1000, association.size());
+        for (int i = -500; i < 500; i++) {
+            assertEquals(new Integer(i), association.get(compoundKey(i, i * 31)));
+            assertEquals(compoundKey(i, i * 31), association.getKeyForValue(new Integer(i)));
+        }
+        assertNull(association.get(compoundKey(1, 1)));
+
+        Map.Entry firstEntry = (Map.Entry) association.entrySet().iterator().next();
+        assertEquals(compoundKey(-500, -500 * 31), firstEntry.getKey());
+        assertEquals(new Integer(-500), firstEntry.getValue());
+    }
+
+    public void testAgainstHashMap() throws Exception {
+        PrimitiveKeyAssociation association = new PrimitiveKeyAssociation(PrimitiveKeyAssociation.KeyLayout.getInstance(new Class[]{Long.class}), PrimitiveKeyAssociation.STRONG);
+        Map map = new LinkedHashMap();
+        Random random = new Random(17);
+        for (int i = 0; i < 20000; i++) {
+            Long key = new Long(random.nextInt(2000) * 1024L);
+            if (random.nextInt(3) == 0) {
+                assertEquals(map.remove(key), association.remove(key));
+            } else {
+                Integer value = new Integer(random.nextInt(100));
+                assertEquals(map.put(key, value), association.put(key, value));
+            }
+        }
+        assertEquals(map.size(), association.size());
+        for (Iterator iterator = map.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry entry = (Map.Entry) iterator.next();
+            assertEquals(entry.getValue(), association.get(entry.getKey()));
+        }
+        assertEquals(map.keySet(), association.keySet());
+        assertEquals(new ArrayList(map.keySet()), new ArrayList(association.keySet()));
+    }
+
+    public void testWeakReferences() throws Exception {
+        PrimitiveKeyAssociation association = new PrimitiveKeyAssociation(PrimitiveKeyAssociation.KeyLayout.getInstance(new Class[]{Integer.class}), PrimitiveKeyAssociation.WEAK);
+        final List removedKeys = new ArrayList();
+        association.addReferenceRemovedListener(new MapListener() {
+            public void mapChanged(MapEvent e) {
+                removedKeys.add(e.getKey());
+            }
+        });
+
+        Object retained = new Object();
+        association.put(new Integer(1), retained);
+        association.put(new Integer(2), new Object());
+
+        for (int i = 0; i < 50 && association.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(1, association.size());
+        assertEquals(Collections.singletonList(new Integer(2)), removedKeys);
+        assertSame(retained, association.get(new Integer(1)));
+        assertEquals(new Integer(1), association.getKeyForValue(retained));
+    }
+
+    private static List compoundKey(int a, int b) {
+        List key = new EfficientArrayList(2);
+        key.add(new Integer(a));
+        key.add(new Integer(b));
+        return key;
+    }
+}
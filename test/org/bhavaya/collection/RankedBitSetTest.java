@@ -0,0 +1,143 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+package org.bhavaya.collection;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks RankedBitSet behaves as a List of Booleans, by applying the same random operations to both.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class RankedBitSetTest extends TestCase {
+    public RankedBitSetTest(String s) {
+        super(s);
+    }
+
+    public void testRankAndSelect() throws Exception {
+        RankedBitSet bits = new RankedBitSet(1100);
+        bits.set(0, true);
+        bits.set(63, true);
+        bits.set(64, true);
+        bits.set(999, true);
+        bits.set(1099, true);
+
+        assertEquals(5, bits.cardinality());
+        assertEquals(0, bits.rank(0));
+        assertEquals(1, bits.rank(63));
+        assertEquals(2, bits.rank(64));
+        assertEquals(3, bits.rank(999));
+        assertEquals(4, bits.rank(1000));
+        assertEquals(0, bits.select(0));
+        assertEquals(63, bits.select(1));
+        assertEquals(64, bits.select(2));
+        assertEquals(999, bits.select(3));
+        assertEquals(1099, bits.select(4));
+        assertEquals(999, bits.nextSetBit(65));
+        assertEquals(1099, bits.nextSetBit(1000));
+        assertEquals(-1, bits.nextSetBit(1100));
+    }
+
+    public void testInsertAndRemove() throws Exception {
+        RankedBitSet bits = new RankedBitSet(3);
+        bits.set(0, true);
+        bits.set(2, true);
+        bits.insert(1, 2);
+        assertEquals("10001", bits.toString());
+        bits.set(2, true);
+        bits.remove(0, 2);
+        assertEquals("101", bits.toString());
+        bits.insert(3, 1);
+        assertEquals("1010", bits.toString());
+    }
+
+    public void testRandomOperations() throws Exception {
+        Random random = new Random(7);
+        RankedBitSet bits = new RankedBitSet();
+        List expected = new ArrayList();
+
+        for (int i = 0; i < 5000; i++) {
+            int operation = random.nextInt(10);
+            if (operation < 2 || expected.size() == 0) {
+                int index = random.nextInt(expected.size() + 1);
+                int count = random.nextInt(random.nextBoolean() ? 5 : 700);
+                bits.insert(index, count);
+                for (int j = 0; j < count; j++) {
+                    expected.add(index, Boolean.FALSE);
+                }
+            } else if (operation < 3) {
+                int index = random.nextInt(expected.size());
+                int count = random.nextInt(Math.min(expected.size() - index, random.nextBoolean() ? 5 : 700) + 1);
+                bits.remove(index, count);
+                expected.subList(index, index + count).clear();
+            } else {
+                int index = random.nextInt(expected.size());
+                boolean value = random.nextInt(3) > 0;
+                bits.set(index, value);
+                expected.set(index, Boolean.valueOf(value));
+            }
+
+            if (i % 100 == 0) assertSame(expected, bits, random);
+        }
+        assertSame(expected, bits, random);
+    }
+
+    private void assertSame(List expected, RankedBitSet bits, Random random) {
+        assertEquals(expected.size(), bits.size());
+        int rank = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            boolean value = ((Boolean) expected.get(i)).booleanValue();
+            assertEquals(value, bits.get(i));
+            if (value) {
+                assertEquals(i, bits.select(rank));
+                rank++;
+            }
+        }
+        assertEquals(rank, bits.cardinality());
+        if (expected.size() > 0) {
+            int index = random.nextInt(expected.size());
+            int expectedRank = 0;
+            int expectedNext = -1;
+            for (int i = 0; i < expected.size(); i++) {
+                boolean value = ((Boolean) expected.get(i)).booleanValue();
+                if (i < index && value) expectedRank++;
+                if (i >= index && value && expectedNext < 0) expectedNext = i;
+            }
+            assertEquals(expectedRank, bits.rank(index));
+            assertEquals(expectedNext, bits.nextSetBit(index));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+package org.bhavaya.collection;
+
+import junit.framework.TestCase;
+import org.bhavaya.util.Utilities;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.Random;
+
+/**
+ * Checks TreeIndexedSet behaves as IndexedSet, by applying the same random operations to both.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class TreeIndexedSetTest extends TestCase {
+    public TreeIndexedSetTest(String s) {
+        super(s);
+    }
+
+    public void testNull() throws Exception {
+        TreeIndexedSet beans = new TreeIndexedSet();
+
+        beans.add("A");
+        beans.add(null);
+
+        assertEquals(0, beans.indexOf("A"));
+        assertEquals(1, beans.indexOf(null));
+        assertEquals("A", beans.get(0));
+        assertNull(beans.get(1));
+    }
+
+    public void testNoDuplicate() throws Exception {
+        TreeIndexedSet beans = new TreeIndexedSet();
+        beans.addAll(Arrays.asList(new String[]{"B", "C", "B", "E", "D"}));
+        assertFalse(beans.add("C"));
+
+        assertEquals(Arrays.asList(new String[]{"B", "C", "E", "D"}), Arrays.asList(beans.toArray()));
+        assertEquals(3, beans.indexOf("D"));
+        assertEquals(4, beans.size());
+    }
+
+    public void testAddAtIndexMovesElement() throws Exception {
+        TreeIndexedSet beans = new TreeIndexedSet(Arrays.asList(new String[]{"A", "B", "C", "D"}));
+        beans.add(1, "D");
+        assertEquals(Arrays.asList(new String[]{"A", "D", "B", "C"}), Arrays.asList(beans.toArray()));
+        assertEquals(3, beans.indexOf("C"));
+    }
+
+    public void testSort() throws Exception {
+        TreeIndexedSet beans = new TreeIndexedSet(Arrays.asList(new String[]{"C", "B", "E", "D"}));
+        Utilities.sort(beans);
+        assertEquals(Arrays.asList(new String[]{"B", "C", "D", "E"}), Arrays.asList(beans.toArray()));
+        assertEquals(2, beans.indexOf("D"));
+    }
+
+    public void testIteratorRemove() throws Exception {
+        TreeIndexedSet beans = new TreeIndexedSet(Arrays.asList(new String[]{"C", "B", "E", "D"}));
+        Iterator iterator = beans.iterator();
+        assertEquals("C", iterator.next());
+        assertEquals("B", iterator.next());
+        iterator.remove();
+        assertEquals("E", iterator.next());
+        assertEquals("D", iterator.next());
+        iterator.remove();
+        assertFalse(iterator.hasNext());
+
+        assertEquals(Arrays.asList(new String[]{"C", "E"}), Arrays.asList(beans.toArray()));
+        assertEquals(1, beans.indexOf("E"));
+    }
+
+    public void testSameAsIndexedSet() throws Exception {
+        Random random = new Random(7);
+        IndexedSet expected = new IndexedSet();
+        TreeIndexedSet actual = new TreeIndexedSet();
+
+        for (int i = 0; i < 20000; i++) {
+            Integer value = new Integer(random.nextInt(500));
+            int size = expected.size();
+            switch (random.nextInt(7)) {
+                case 0:
+                    assertEquals(expected.add(value), actual.add(value));
+                    break;
+                case 1:
+                    int index = random.nextInt(size + 1 - (expected.contains(value) ? 1 : 0));
+                    expected.add(index, value);
+                    actual.add(index, value);
+                    break;
+                case 2:
+                    assertEquals(expected.remove(value), actual.remove(value));
+                    break;
+                case 3:
+                    if (size > 0) {
+                        index = random.nextInt(size);
+                        assertEquals(expected.remove(index), actual.remove(index));
+                    }
+                    break;
+                case 4:
+                    if (size > 0 && !expected.contains(value)) {
+                        index = random.nextInt(size);
+                        assertEquals(expected.set(index, value), actual.set(index, value));
+                    }
+                    break;
+                case 5:
+                    assertEquals(expected.indexOf(value), actual.indexOf(value));
+                    break;
+                default:
+                    if (size > 0) {
+                        index = random.nextInt(size);
+                        assertEquals(expected.get(index), actual.get(index));
+                        if (index + 1 < size) assertEquals(expected.get(index + 1), actual.get(index + 1));
+                    }
+            }
+            assertEquals(expected.size(), actual.size());
+        }
+
+        assertEquals(Arrays.asList(expected.toArray()), Arrays.asList(actual.toArray()));
+        int i = 0;
+        for (ListIterator iterator = actual.listIterator(); iterator.hasNext(); i++) {
+            Object o = iterator.next();
+            assertEquals(expected.get(i), o);
+            assertEquals(i, actual.indexOf(o));
+        }
+    }
+}
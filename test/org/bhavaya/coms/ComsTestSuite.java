@@ -0,0 +1,25 @@
+package org.bhavaya.coms;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Description
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class ComsTestSuite extends TestSuite {
+
+    public ComsTestSuite() {
+        addTestSuite(SubscriberQueueTest.class);
+    }
+
+    public static Test suite() {
+        return new ComsTestSuite();
+    }
+
+    public static void main(String[] args) {
+        junit.swingui.TestRunner.run(ComsTestSuite.class);
+    }
+}
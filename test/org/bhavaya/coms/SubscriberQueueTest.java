@@ -0,0 +1,155 @@
+package org.bhavaya.coms;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Description
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class SubscriberQueueTest extends TestCase {
+    private static final int PRODUCERS = 4;
+    private static final int MESSAGES_PER_PRODUCER = 5000;
+
+    public SubscriberQueueTest(String s) {
+        super(s);
+    }
+
+    public void testFifo() throws Exception {
+        SubscriberQueue queue = new SubscriberQueue("test", 4, SubscriberQueue.OverflowPolicy.DISCONNECT, SubscriberQueue.CHAR_ARRAY_CODEC);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(message(0, i)));
+        }
+        assertEquals(4, queue.getDepth());
+
+        Object[] batch = new Object[3];
+        assertEquals(3, queue.peek(batch));
+        assertEquals("0:0", new String((char[]) batch[0]));
+        assertEquals("0:2", new String((char[]) batch[2]));
+        queue.remove(2);
+        assertEquals(2, queue.peek(batch));
+        assertEquals("0:2", new String((char[]) batch[0]));
+        queue.remove(2);
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.getQueuedBytes());
+    }
+
+    public void testDisconnectWhenFull() throws Exception {
+        SubscriberQueue queue = new SubscriberQueue("test", 2, SubscriberQueue.OverflowPolicy.DISCONNECT, SubscriberQueue.CHAR_ARRAY_CODEC);
+        assertTrue(queue.offer(message(0, 0)));
+        assertTrue(queue.offer(message(0, 1)));
+        assertFalse(queue.offer(message(0, 2)));
+        assertEquals(2, queue.getDepth());
+    }
+
+    public void testInvalidCapacity() throws Exception {
+        try {
+            new SubscriberQueue("test", 0, SubscriberQueue.OverflowPolicy.SPILL, SubscriberQueue.CHAR_ARRAY_CODEC);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testSpillReplaysInOrder() throws Exception {
+        SubscriberQueue queue = new SubscriberQueue("test", 16, SubscriberQueue.OverflowPolicy.SPILL, SubscriberQueue.CHAR_ARRAY_CODEC);
+        assertConcurrentDelivery(queue);
+        assertTrue(queue.getSpilledCount() > 0);
+        queue.close();
+    }
+
+    public void testBlockDeliversInOrder() throws Exception {
+        SubscriberQueue queue = new SubscriberQueue("test", 16, SubscriberQueue.OverflowPolicy.BLOCK, SubscriberQueue.CHAR_ARRAY_CODEC);
+        assertConcurrentDelivery(queue);
+        assertEquals(0, queue.getSpilledCount());
+        queue.close();
+    }
+
+    public void testCloseWhileReplaying() throws Exception {
+        for (int run = 0; run < 200; run++) {
+            final SubscriberQueue queue = new SubscriberQueue("test", 2, SubscriberQueue.OverflowPolicy.SPILL, SubscriberQueue.CHAR_ARRAY_CODEC);
+            for (int i = 0; i < 200; i++) {
+                queue.offer(message(0, i));
+            }
+            final Throwable[] failure = new Throwable[1];
+            Thread consumer = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        Object[] batch = new Object[8];
+                        for (int i = 0; i < 1000 && !queue.isEmpty(); i++) {
+                            queue.remove(queue.peek(batch));
+                        }
+                    } catch (Throwable t) {
+                        failure[0] = t;
+                    }
+                }
+            });
+            consumer.start();
+            while (queue.getDepth() > 100) {
+                Thread.yield();
+            }
+            queue.close();
+            consumer.join();
+            if (failure[0] != null) throw new AssertionError(failure[0]);
+        }
+    }
+
+    private void assertConcurrentDelivery(final SubscriberQueue queue) throws Exception {
+        final List failures = new ArrayList();
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int producer = p;
+            producers[p] = new Thread(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < MESSAGES_PER_PRODUCER; i++) {
+                        if (!queue.offer(message(producer, i))) {
+                            synchronized (failures) {
+                                failures.add("could not offer " + producer + ":" + i);
+                            }
+                            return;
+                        }
+                    }
+                }
+            });
+            producers[p].start();
+        }
+
+        int[] nextSequence = new int[PRODUCERS];
+        int received = 0;
+        Object[] batch = new Object[32];
+        long deadline = System.currentTimeMillis() + 60000;
+        while (received < PRODUCERS * MESSAGES_PER_PRODUCER && System.currentTimeMillis() < deadline) {
+            int count = queue.peek(batch);
+            if (count == 0) {
+                Thread.yield();
+                continue;
+            }
+            for (int i = 0; i < count; i++) {
+                String message = new String((char[]) batch[i]);
+                int separator = message.indexOf(':');
+                int producer = Integer.parseInt(message.substring(0, separator));
+                int sequence = Integer.parseInt(message.substring(separator + 1));
+                assertEquals("out of order for producer " + producer, nextSequence[producer], sequence);
+                nextSequence[producer]++;
+            }
+            queue.remove(count);
+            received += count;
+        }
+
+        for (int p = 0; p < PRODUCERS; p++) {
+            producers[p].join();
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertEquals(PRODUCERS * MESSAGES_PER_PRODUCER, received);
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.getQueuedBytes());
+        assertEquals(received, queue.getLatencyHistogram().getCount());
+    }
+
+    private static char[] message(int producer, int sequence) {
+        return (producer + ":" + sequence).toCharArray();
+    }
+}
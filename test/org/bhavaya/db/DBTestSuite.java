@@ -18,6 +18,8 @@ public class DBTestSuite extends TestSuite {
     public DBTestSuite() {
         addTestSuite(CatalogSchemaTableTest.class);
         addTestSuite(SQLTest.class);
+        addTestSuite(PreparedStatementCacheTest.class);
+        addTestSuite(PartitionedExecutorTest.class);
     }
 
     public static Test suite() {
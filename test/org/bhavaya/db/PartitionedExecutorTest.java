@@ -0,0 +1,82 @@
+package org.bhavaya.db;
+
+import junit.framework.TestCase;
+import org.bhavaya.util.Transform;
+
+import java.util.*;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class PartitionedExecutorTest extends TestCase {
+    private static final Transform FIRST_LETTER = new Transform() {
+        public Object execute(Object item) {
+            return ((String) item).substring(0, 1);
+        }
+    };
+
+    public PartitionedExecutorTest(String s) {
+        super(s);
+    }
+
+    public void testSinglePartitionRunsOnCallingThread() throws Exception {
+        PartitionedExecutor executor = new PartitionedExecutor("test", 2);
+        final List processed = new ArrayList();
+        final Thread[] processingThread = new Thread[1];
+        int partitions = executor.execute(Arrays.asList(new String[]{"a1", "a2", "a3"}), FIRST_LETTER, new PartitionedExecutor.Processor() {
+            public void process(List items) {
+                processingThread[0] = Thread.currentThread();
+                processed.addAll(items);
+            }
+        });
+        assertEquals(1, partitions);
+        assertSame(Thread.currentThread(), processingThread[0]);
+        assertEquals(Arrays.asList(new String[]{"a1", "a2", "a3"}), processed);
+    }
+
+    public void testPartitionsRunConcurrentlyInOrder() throws Exception {
+        PartitionedExecutor executor = new PartitionedExecutor("test", 3);
+        final CyclicBarrier allPartitionsStarted = new CyclicBarrier(3);
+        final Map processedByPartition = Collections.synchronizedMap(new HashMap());
+        final Set daemon = Collections.synchronizedSet(new HashSet());
+
+        List items = Arrays.asList(new String[]{"a1", "b1", "a2", "c1", "b2", "a3"});
+        int partitions = executor.execute(items, FIRST_LETTER, new PartitionedExecutor.Processor() {
+            public void process(List items) throws Exception {
+                // only returns if all three partitions are being processed at the same time
+                allPartitionsStarted.await(10, TimeUnit.SECONDS);
+                daemon.add(Boolean.valueOf(Thread.currentThread().isDaemon()));
+                processedByPartition.put(FIRST_LETTER.execute(items.get(0)), new ArrayList(items));
+            }
+        });
+
+        assertEquals(3, partitions);
+        assertEquals(Arrays.asList(new String[]{"a1", "a2", "a3"}), processedByPartition.get("a"));
+        assertEquals(Arrays.asList(new String[]{"b1", "b2"}), processedByPartition.get("b"));
+        assertEquals(Arrays.asList(new String[]{"c1"}), processedByPartition.get("c"));
+        assertEquals(Collections.singleton(Boolean.TRUE), daemon);
+    }
+
+    public void testFailureWaitsForEveryPartition() throws Exception {
+        PartitionedExecutor executor = new PartitionedExecutor("test", 2);
+        final boolean[] slowPartitionFinished = new boolean[1];
+        try {
+            executor.execute(Arrays.asList(new String[]{"a1", "b1"}), FIRST_LETTER, new PartitionedExecutor.Processor() {
+                public void process(List items) throws Exception {
+                    if (items.get(0).equals("a1")) throw new IllegalStateException("a failed");
+                    Thread.sleep(200);
+                    slowPartitionFinished[0] = true;
+                }
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("a failed", e.getMessage());
+        }
+        assertTrue(slowPartitionFinished[0]);
+    }
+}
@@ -0,0 +1,102 @@
+package org.bhavaya.db;
+
+import org.jmock.Mock;
+import org.jmock.MockObjectTestCase;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+
+public class PreparedStatementCacheTest extends MockObjectTestCase {
+
+    public void testNumericComparisonsBecomeParameters() {
+        assertParameterised("SELECT * FROM INSTRUMENT WHERE INSTRUMENT.INSTRUMENT_ID = 12 AND INSTRUMENT.COUPON >= -4.5",
+                "SELECT * FROM INSTRUMENT WHERE INSTRUMENT.INSTRUMENT_ID = ? AND INSTRUMENT.COUPON >= ?",
+                new Object[]{new Integer(12), new BigDecimal("-4.5")});
+        assertParameterised("SELECT * FROM TRADE WHERE TRADE.VERSION<>3000000000",
+                "SELECT * FROM TRADE WHERE TRADE.VERSION<>?",
+                new Object[]{new Long(3000000000L)});
+    }
+
+    public void testInListsBecomeParameters() {
+        assertParameterised("SELECT * FROM TRADE WHERE TRADE.TRADE_ID IN (1, 2,3) AND TRADE.BOOK_ID in (SELECT BOOK_ID FROM BOOK WHERE DESK = 4)",
+                "SELECT * FROM TRADE WHERE TRADE.TRADE_ID IN (?,?,?,?) AND TRADE.BOOK_ID in (SELECT BOOK_ID FROM BOOK WHERE DESK = ?)",
+                new Object[]{new Integer(1), new Integer(2), new Integer(3), new Integer(3), new Integer(4)});
+        assertParameterised("SELECT * FROM TRADE WHERE TRADE.TRADE_ID IN (7) OR TRADE.BOOK_ID IN (1, 2)",
+                "SELECT * FROM TRADE WHERE TRADE.TRADE_ID IN (?) OR TRADE.BOOK_ID IN (?,?)",
+                new Object[]{new Integer(7), new Integer(1), new Integer(2)});
+    }
+
+    public void testInListLengthsShareShapes() {
+        String shape = PreparedStatementCache.parameterise("SELECT * FROM TRADE WHERE TRADE.TRADE_ID IN (1, 2, 3, 4, 5)").getShape();
+        for (int length = 6; length <= 8; length++) {
+            assertEquals(shape, PreparedStatementCache.parameterise("SELECT * FROM TRADE WHERE TRADE.TRADE_ID IN (" + getList(length) + ")").getShape());
+        }
+        assertFalse(shape.equals(PreparedStatementCache.parameterise("SELECT * FROM TRADE WHERE TRADE.TRADE_ID IN (" + getList(9) + ")").getShape()));
+    }
+
+    public void testStatementsWithManyValuesAreNotPrepared() {
+        assertNotNull(PreparedStatementCache.parameterise("SELECT * FROM TRADE WHERE TRADE.TRADE_ID IN (" + getList(64) + ")"));
+        assertNull(PreparedStatementCache.parameterise("SELECT * FROM TRADE WHERE TRADE.TRADE_ID IN (" + getList(65) + ")"));
+
+        StringBuffer orChain = new StringBuffer("SELECT * FROM TRADE WHERE ");
+        for (int i = 0; i < 40; i++) {
+            if (i > 0) orChain.append(" OR ");
+            orChain.append("(TRADE.TRADE_ID = ").append(i).append(" AND TRADE.VERSION = 0)");
+        }
+        assertNull(PreparedStatementCache.parameterise(orChain.toString()));
+    }
+
+    public void testOtherLiteralsAreLeft() {
+        String sql = "SELECT TOP 10 CONVERT(VARCHAR(10), T.NAME), T.QTY - 5 FROM T1 T WHERE T.NAME = 'A = 1' AND T.CODE = \"X=2\" " +
+                "AND T.RATE = 1E5 AND T.FLAGS = 0x1F AND T.QTY BETWEEN 1 AND 2 -- = 3\n/* = 4 */";
+        assertParameterised(sql, sql, new Object[0]);
+        assertNull(PreparedStatementCache.parameterise("SELECT * FROM T WHERE ID = ?"));
+    }
+
+    public void testTakeAndRelease() {
+        PreparedStatementCache cache = new PreparedStatementCache(2);
+        Mock statementA = mock(PreparedStatement.class);
+        Mock statementB = mock(PreparedStatement.class);
+        Mock statementC = mock(PreparedStatement.class);
+        Mock duplicateA = mock(PreparedStatement.class);
+
+        assertNull(cache.take("A"));
+        cache.release("A", (PreparedStatement) statementA.proxy());
+        assertSame(statementA.proxy(), cache.take("A"));
+        assertNull(cache.take("A"));
+
+        //a second statement for a shape that is cached is closed
+        cache.release("A", (PreparedStatement) statementA.proxy());
+        duplicateA.expects(once()).method("close");
+        cache.release("A", (PreparedStatement) duplicateA.proxy());
+        assertEquals(1, cache.size());
+
+        //the least recently used statement is closed
+        cache.release("B", (PreparedStatement) statementB.proxy());
+        statementA.expects(once()).method("close");
+        cache.release("C", (PreparedStatement) statementC.proxy());
+        assertEquals(2, cache.size());
+        assertNull(cache.take("A"));
+
+        statementB.expects(once()).method("close");
+        statementC.expects(once()).method("close");
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    private static String getList(int length) {
+        StringBuffer list = new StringBuffer();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) list.append(", ");
+            list.append(i);
+        }
+        return list.toString();
+    }
+
+    private static void assertParameterised(String sql, String expectedShape, Object[] expectedParameters) {
+        PreparedStatementCache.ParameterisedSql parameterisedSql = PreparedStatementCache.parameterise(sql);
+        assertEquals(expectedShape, parameterisedSql.getShape());
+        assertEquals(Arrays.asList(expectedParameters), Arrays.asList(parameterisedSql.getParameters()));
+    }
+}
@@ -40,6 +40,7 @@ import org.bhavaya.util.Utilities;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Description
@@ -88,6 +89,25 @@ public class SQLTest extends TestCase {
         assertTrue(sql1.getColumnValue(table.getColumn("QUANTITY")).equals("32000000"));
     }
 
+    public void testJoinToSelectColumnValues() throws Exception {
+        Table table = Table.getInstance(CatalogSchemaTable.getInstance("TRADE", "demoDatabase"), "demoDatabase");
+
+        SQL sql1 = new SQL("UPDATE TRADE SET QUANTITY = 32000000, PRICE = 108 WHERE PRICE = 107 AND COMMENTS = 'test'");
+        Map joinToSelectColumnValues = sql1.getJoinToSelectColumnValues();
+        assertEquals(2, joinToSelectColumnValues.size());
+        assertEquals("108", joinToSelectColumnValues.get(table.getColumn("PRICE")));
+        assertEquals("'test'", joinToSelectColumnValues.get(table.getColumn("COMMENTS")));
+
+        SQL sql2 = new SQL("UPDATE TRADE SET QUANTITY = 32000000 WHERE PRICE > 107");
+        assertNull(sql2.getJoinToSelectColumnValues());
+
+        SQL sql3 = new SQL("UPDATE TRADE SET QUANTITY = 32000000 WHERE COMMENTS IS NULL");
+        assertNull(sql3.getJoinToSelectColumnValues());
+
+        SQL sql4 = new SQL("UPDATE TRADE SET QUANTITY = 32000000");
+        assertNull(sql4.getJoinToSelectColumnValues());
+    }
+
     public void testParseTransaction() throws Exception {
         String statementString = "begin transaction\nINSERT INTO COUNTERPARTY VALUES (0, 'ABN AMRO')\nINSERT INTO INSTRUMENT_RATING VALUES (1, 3)\nINSERT INTO TRADE VALUES (1, 0, 0, '2002-08-11', 0, 0, 'FOR DEMO', 2, 3000000, 102.34)\nend transaction\n";
         SQL[] sqls = SQL.parseTransaction(statementString);
@@ -98,6 +118,53 @@ public class SQLTest extends TestCase {
         assertTrue(compareStrings(sqls[2].getStatementString(), "INSERT INTO TRADE VALUES (1, 0, 0, '2002-08-11', 0, 0, 'FOR DEMO', 2, 3000000, 102.34)"));
     }
 
+    public void testParseTransactionMatchesTokenizer() throws Exception {
+        String statementString = "begin transaction\n" +
+                "INSERT INTO TRADE (TRADE_ID, VERSION, VERSION_STATUS_ID, TRADE_DATE, TRADE_TYPE_ID, INSTRUMENT_ID, COMMENTS, QUANTITY, COUNTERPARTY_ID, PRICE) VALUES (7, 0, 0, '2002-08-11', 0, 0, 'it''s for demo', 2, 3000000, 102.34)\n" +
+                "UPDATE TRADE SET QUANTITY = 32000000, COMMENTS = NULL WHERE TRADE_ID = 7 AND VERSION = 0\n" +
+                "UPDATE TRADE SET PRICE = -101.5 WHERE TRADE_ID = 7\n" +
+                "DELETE FROM TRADE WHERE TRADE_ID = 7\n" +
+                "DELETE TRADE\n" +
+                "TRUNCATE TABLE TRADE\n" +
+                "UPDATE TRADE SET QUANTITY = 1 WHERE PRICE > 107\n" +
+                "commit transaction\n";
+        SQL[] fast = SQL.parseTransaction(statementString, "demoDatabase");
+        SQL[] slow = SQL.parseTransactionFromTokens(statementString, "demoDatabase");
+
+        assertEquals(slow.length, fast.length);
+        for (int i = 0; i < slow.length; i++) {
+            assertTrue("Statement " + i, compareStrings(fast[i].getStatementString(), slow[i].getStatementString()));
+            assertEquals("Operation " + i, slow[i].getOperationType(), fast[i].getOperationType());
+            assertEquals("Tables " + i, Utilities.asString(slow[i].getTables(), ","), Utilities.asString(fast[i].getTables(), ","));
+            assertEquals("Columns " + i, slow[i].getColumns(), fast[i].getColumns());
+            assertEquals("Where clause " + i, slow[i].getWhereClause(), fast[i].getWhereClause());
+            assertEquals("Join to select " + i, slow[i].getWhereClauseForJoinToSelect(), fast[i].getWhereClauseForJoinToSelect());
+            assertEquals("Join to select values " + i, slow[i].getJoinToSelectColumnValues(), fast[i].getJoinToSelectColumnValues());
+            for (Iterator iterator = slow[i].getColumns().iterator(); iterator.hasNext();) {
+                Column column = (Column) iterator.next();
+                assertEquals("Value " + i + " " + column, slow[i].getColumnValue(column), fast[i].getColumnValue(column));
+                assertEquals("Modified " + i + " " + column, slow[i].isModified(column), fast[i].isModified(column));
+            }
+        }
+    }
+
+    public void testSelectStatementForCompoundKeys() throws Exception {
+        Table table = Table.getInstance(CatalogSchemaTable.getInstance("TRADE", "demoDatabase"), "demoDatabase");
+        Column[] keyColumns = new Column[]{table.getColumn("TRADE_ID"), table.getColumn("VERSION")};
+        List key1 = new ArrayList();
+        key1.add(new Integer(1));
+        key1.add(new Integer(0));
+        List key2 = new ArrayList();
+        key2.add(new Integer(2));
+        key2.add(new Integer(3));
+
+        SQL sql = new SQL("SELECT * FROM TRADE", "demoDatabase").getSelectStatementForKeys(keyColumns, new Object[]{key1, key2});
+        assertTrue(compareStrings(sql.getStatementString(), "SELECT * FROM TRADE WHERE (TRADE.TRADE_ID = 1 AND TRADE.VERSION = 0) OR (TRADE.TRADE_ID = 2 AND TRADE.VERSION = 3)"));
+
+        SQL singleColumnSql = new SQL("SELECT * FROM TRADE", "demoDatabase").getSelectStatementForKeys(new Column[]{keyColumns[0]}, new Object[]{new Integer(1), new Integer(2)});
+        assertTrue(compareStrings(singleColumnSql.getStatementString(), "SELECT * FROM TRADE WHERE TRADE.TRADE_ID IN ( 1, 2)"));
+    }
+
     public void testInsert() {
         List columns = new ArrayList();
         Table table = Table.getInstance(CatalogSchemaTable.getInstance("TRADE", "demoDatabase"), "demoDatabase");
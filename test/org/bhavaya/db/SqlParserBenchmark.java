@@ -0,0 +1,114 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+package org.bhavaya.db;
+
+import org.bhavaya.util.IOUtilities;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares SQL.parseTransaction against the Tokenizer2 based parse it replaces.  Runs against the demoDatabase
+ * using either a built-in sample of broadcaster output or a recorded notification log passed as the first argument,
+ * which is split into transactions after each "commit transaction" or "end transaction" line.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class SqlParserBenchmark {
+    private static final String DATASOURCE = "demoDatabase";
+    private static final String SAMPLE_TRANSACTION = "begin transaction\n" +
+            "INSERT INTO TRADE (TRADE_ID, VERSION, VERSION_STATUS_ID, TRADE_DATE, TRADE_TYPE_ID, INSTRUMENT_ID, COMMENTS, QUANTITY, COUNTERPARTY_ID, PRICE) VALUES (1, 0, 0, '2002-08-11', 0, 0, 'FOR DEMO', 2, 3000000, 102.34)\n" +
+            "UPDATE TRADE SET QUANTITY = 32000000, PRICE = 101.25, COMMENTS = 'AMENDED' WHERE TRADE_ID = 1 AND VERSION = 0\n" +
+            "UPDATE TRADE SET VERSION_STATUS_ID = 1 WHERE TRADE_ID = 1\n" +
+            "INSERT INTO TRADE (TRADE_ID, VERSION, VERSION_STATUS_ID, TRADE_DATE, TRADE_TYPE_ID, INSTRUMENT_ID, COMMENTS, QUANTITY, COUNTERPARTY_ID, PRICE) VALUES (2, 0, 0, '2002-08-12', 1, 0, NULL, 2, -5000000, 99.5)\n" +
+            "DELETE FROM TRADE WHERE TRADE_ID = 2\n" +
+            "commit transaction\n";
+
+    public static void main(String[] args) throws Exception {
+        DBUtilities.executeUpdateScript(DATASOURCE, "destroyDemo.sql", false);
+        DBUtilities.executeUpdateScript(DATASOURCE, "createDemo.sql", true);
+
+        String[] transactions = args.length > 0 ? readTransactions(args[0]) : new String[]{SAMPLE_TRANSACTION};
+        int n = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+
+        // warm up both paths, including the table lookups
+        run(transactions, n / 10, false);
+        run(transactions, n / 10, true);
+
+        report("Tokenizer2", transactions, n, run(transactions, n, false));
+        report("NotificationSqlParser", transactions, n, run(transactions, n, true));
+    }
+
+    private static long run(String[] transactions, int n, boolean fast) {
+        long startTime = System.nanoTime();
+        int statements = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < transactions.length; j++) {
+                SQL[] sqls = fast ? SQL.parseTransaction(transactions[j], DATASOURCE) : SQL.parseTransactionFromTokens(transactions[j], DATASOURCE);
+                // touch what SqlBeanFactory's notification listener reads, so the lazy rendering is included
+                for (int k = 0; k < sqls.length; k++) {
+                    statements += sqls[k].getColumnCount();
+                    sqls[k].getWhereClauseForJoinToSelect();
+                }
+            }
+        }
+        long timeTaken = System.nanoTime() - startTime;
+        if (statements < 0) System.out.println(statements);
+        return timeTaken;
+    }
+
+    private static void report(String name, String[] transactions, int n, long timeTaken) {
+        System.out.println(((double) timeTaken / 1000) / ((double) n * transactions.length) + " micros per transaction for " + name);
+    }
+
+    private static String[] readTransactions(String fileName) throws Exception {
+        List transactions = new ArrayList();
+        BufferedReader reader = new BufferedReader(new FileReader(fileName));
+        try {
+            StringBuffer transaction = new StringBuffer();
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                transaction.append(line).append('\n');
+                String trimmed = line.trim().toLowerCase();
+                if (trimmed.equals("commit transaction") || trimmed.equals("end transaction")) {
+                    transactions.add(transaction.toString());
+                    transaction.setLength(0);
+                }
+            }
+            if (transaction.length() > 0) transactions.add(transaction.toString());
+        } finally {
+            IOUtilities.closeReader(reader);
+        }
+        return (String[]) transactions.toArray(new String[transactions.size()]);
+    }
+}
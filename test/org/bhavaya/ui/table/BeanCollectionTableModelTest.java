@@ -37,6 +37,7 @@ import org.bhavaya.util.Log;
 
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
+import java.awt.EventQueue;
 import java.util.ArrayList;
 
 /**
@@ -81,6 +82,31 @@ public class BeanCollectionTableModelTest extends TestCase {
         beanCollectionTableModel.addColumnLocator("b.c.d.i");
     }
 
+    public void testCoalescedChanges() throws Exception {
+        BeanA a1 = new BeanA();
+        BeanCollection beanACollection = new DefaultBeanCollection(BeanA.class);
+        beanACollection.add(a1);
+
+        BeanCollectionTableModel beanCollectionTableModel = new BeanCollectionTableModel(beanACollection, false);
+        beanCollectionTableModel.addColumnLocator("someDouble");
+        assertEquals(new Double(Double.MAX_VALUE), beanCollectionTableModel.getValueAt(0, 0));
+
+        long receivedBefore = beanCollectionTableModel.getReceivedChangeCount();
+        for (int i = 1; i <= 50; i++) {
+            a1.setSomeDouble(i);
+        }
+        beanCollectionTableModel.waitForEventsToClear();
+        EventQueue.invokeAndWait(new Runnable() {
+            public void run() {
+            }
+        });
+
+        assertEquals(new Double(50), beanCollectionTableModel.getValueAt(0, 0));
+        assertEquals(50, beanCollectionTableModel.getReceivedChangeCount() - receivedBefore);
+        assertTrue("Changes to the same property should be coalesced", beanCollectionTableModel.getCoalescedChangeCount() > 0);
+        assertEquals(beanCollectionTableModel.getReceivedChangeCount(), beanCollectionTableModel.getCoalescedChangeCount() + beanCollectionTableModel.getAppliedChangeCount());
+    }
+
     private static class TableModelObserver implements TableModelListener {
         private ArrayList history = new ArrayList();
         private TableModelEvent lastEvent;
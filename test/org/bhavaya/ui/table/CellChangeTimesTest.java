@@ -0,0 +1,68 @@
+package org.bhavaya.ui.table;
+
+import junit.framework.TestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class CellChangeTimesTest extends TestCase {
+
+    public void testPutAndRemove() {
+        CellChangeTimes times = new CellChangeTimes(2);
+        times.put(5, 1, 100, CellChangeTimes.POSITIVE, 0.5f);
+        times.put(0, 0, 200, CellChangeTimes.NEGATIVE, 1f);
+        times.put(7, 3, 300, CellChangeTimes.NEUTRAL, 1f);
+        assertEquals(3, times.size());
+        assertEquals(-1, times.indexOf(1, 5));
+
+        int slot = times.indexOf(5, 1);
+        assertEquals(100, times.getTime(slot));
+        assertEquals(CellChangeTimes.POSITIVE, times.getDirection(slot));
+        assertEquals(0.5f, times.getStrength(slot), 0f);
+
+        //a second change to a cell replaces the first
+        times.put(5, 1, 400, CellChangeTimes.NEGATIVE, 1f);
+        assertEquals(3, times.size());
+        assertEquals(slot, times.indexOf(5, 1));
+        assertEquals(400, times.getTime(slot));
+
+        //removing moves the last slot into the removed one
+        times.remove(times.indexOf(5, 1));
+        assertEquals(2, times.size());
+        assertEquals(-1, times.indexOf(5, 1));
+        int movedSlot = times.indexOf(7, 3);
+        assertEquals(7, times.getRow(movedSlot));
+        assertEquals(3, times.getColumn(movedSlot));
+        assertEquals(300, times.getTime(movedSlot));
+
+        times.clear();
+        assertEquals(0, times.size());
+        assertEquals(-1, times.indexOf(0, 0));
+    }
+
+    public void testRandomChanges() {
+        CellChangeTimes times = new CellChangeTimes();
+        Map expected = new HashMap();
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            int row = random.nextInt(200);
+            int column = random.nextInt(10);
+            Long key = new Long(((long) row << 32) | column);
+            if (random.nextInt(3) == 0) {
+                times.remove(row, column);
+                expected.remove(key);
+            } else {
+                times.put(row, column, i, CellChangeTimes.NEUTRAL, 1f);
+                expected.put(key, new Long(i));
+            }
+        }
+
+        assertEquals(expected.size(), times.size());
+        for (int slot = 0; slot < times.size(); slot++) {
+            Long key = new Long(((long) times.getRow(slot) << 32) | times.getColumn(slot));
+            assertEquals(expected.get(key), new Long(times.getTime(slot)));
+            assertEquals(slot, times.indexOf(times.getRow(slot), times.getColumn(slot)));
+        }
+    }
+}
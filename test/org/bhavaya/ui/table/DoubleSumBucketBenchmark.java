@@ -0,0 +1,87 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+package org.bhavaya.ui.table;
+
+import java.util.Random;
+
+/**
+ * Times a DoubleSumBucket recalculating a large group, as GroupedRowManager does after rows are removed, and then
+ * taking a stream of updates to the group, as a P&L column does, and reports how far the sum has drifted from the sum
+ * of the final values.  Arguments are: group size, update count.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class DoubleSumBucketBenchmark {
+    public static void main(String[] args) {
+        int groupSize = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int updateCount = args.length > 1 ? Integer.parseInt(args[1]) : 10000000;
+
+        Random random = new Random(1);
+        Double[] values = new Double[groupSize];
+        for (int i = 0; i < groupSize; i++) {
+            values[i] = new Double((random.nextDouble() - 0.5) * 1e7);
+        }
+
+        for (int pass = 0; pass < 3; pass++) {
+            long startTime = System.nanoTime();
+            DoubleSumBucket bucket = new DoubleSumBucket();
+            for (int i = 0; i < groupSize; i++) {
+                bucket.insert(values[i]);
+            }
+            Object output = bucket.getOutput();
+            long recalcTime = System.nanoTime() - startTime;
+
+            Double[] currentValues = (Double[]) values.clone();
+            startTime = System.nanoTime();
+            for (int i = 0; i < updateCount; i++) {
+                int index = random.nextInt(groupSize);
+                Double newValue = new Double((random.nextDouble() - 0.5) * 1e7);
+                bucket.update(currentValues[index], newValue);
+                currentValues[index] = newValue;
+                if (i % 100 == 0) output = bucket.getOutput(); // as a table repainting the cell now and then
+            }
+            output = bucket.getOutput();
+            long updateTime = System.nanoTime() - startTime;
+
+            double expected = 0;
+            double compensation = 0;
+            for (int i = 0; i < groupSize; i++) {
+                double t = expected + currentValues[i].doubleValue();
+                compensation += Math.abs(expected) >= Math.abs(currentValues[i].doubleValue()) ? (expected - t) + currentValues[i].doubleValue() : (currentValues[i].doubleValue() - t) + expected;
+                expected = t;
+            }
+            expected += compensation;
+
+            System.out.println("recalc of " + groupSize + ": " + (recalcTime / 1000000d) + " ms, "
+                    + ((double) updateTime / updateCount) + " nanos per update, drift " + Math.abs(((Double) output).doubleValue() - expected));
+        }
+    }
+}
@@ -52,4 +52,48 @@ public class DoubleSumBucketTest extends TestCase {
         bucket.update(new PartialBucketValue(new Double(3), new Double(Double.NaN), 2), new Double(5));
         assertEquals(new Double(11), bucket.getOutput());
     }
+
+    public void testInfinitiesAreCounted() {
+        DoubleSumBucket bucket = new DoubleSumBucket();
+        bucket.insert(2);
+        bucket.insert(Double.POSITIVE_INFINITY);
+        bucket.insert(Double.POSITIVE_INFINITY);
+        assertEquals(new PartialBucketValue(new Double(2), new Double(Double.POSITIVE_INFINITY), 3), bucket.getOutput());
+        bucket.delete(Double.POSITIVE_INFINITY);
+        assertEquals(new PartialBucketValue(new Double(2), new Double(Double.POSITIVE_INFINITY), 2), bucket.getOutput());
+        bucket.insert(Double.NEGATIVE_INFINITY);
+        assertEquals(new PartialBucketValue(new Double(2), new Double(Double.NaN), 3), bucket.getOutput());
+        bucket.update(Double.NEGATIVE_INFINITY, 5);
+        bucket.update(Double.POSITIVE_INFINITY, Double.NaN);
+        assertEquals(new PartialBucketValue(new Double(7), new Double(Double.NaN), 3), bucket.getOutput());
+        assertTrue(bucket.update(Double.NaN, 1));
+        assertEquals(new Double(8), bucket.getOutput());
+    }
+
+    public void testSumDoesNotDrift() {
+        DoubleSumBucket bucket = new DoubleSumBucket();
+        bucket.insert(1e16);
+        for (int i = 0; i < 1000; i++) {
+            bucket.insert(1);
+        }
+        assertEquals(new Double(1e16 + 1000), bucket.getOutput());
+
+        double[] values = new double[100];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 0.1 * i;
+            bucket.insert(values[i]);
+        }
+        for (int i = 0; i < 100000; i++) {
+            int index = i % values.length;
+            double newValue = values[index] + 0.01;
+            bucket.update(values[index], newValue);
+            values[index] = newValue;
+        }
+        bucket.delete(1e16);
+        double expected = 1000;
+        for (int i = 0; i < values.length; i++) {
+            expected += values[i];
+        }
+        assertEquals(expected, ((Double) bucket.getOutput()).doubleValue(), 1e-9);
+    }
 }
@@ -139,7 +139,7 @@ public class EventAndStateVerifier implements TableModelListener {
                 TestCase.assertEquals("Unknown event type", TableModelEvent.UPDATE, e.getType());
 
                 int firstCol = e.getColumn();
-                int lastCol = e.getColumn();
+                int lastCol = e.getColumn() + 1;
                 if (e.getColumn() == TableModelEvent.ALL_COLUMNS) {
                     if (e.getFirstRow() == TableModelEvent.HEADER_ROW) {//structure change
                         refresh();
@@ -0,0 +1,107 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+package org.bhavaya.ui.table;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A copy of a table's rows, updated only from the rows the table's events say have changed.  Unlike
+ * EventAndStateVerifier, it does not compare itself with the table after each event, so a test can apply many changes
+ * and compare once.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class EventReplica implements TableModelListener {
+    private TableModel tableModel;
+    private List rows = new ArrayList();
+
+    public EventReplica(TableModel tableModel) {
+        this.tableModel = tableModel;
+        reload();
+    }
+
+    public void reload() {
+        rows.clear();
+        for (int i = 0; i < tableModel.getRowCount(); i++) {
+            rows.add(getRow(i));
+        }
+    }
+
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    public Object getValueAt(int row, int column) {
+        return ((Object[]) rows.get(row))[column];
+    }
+
+    private Object[] getRow(int row) {
+        Object[] values = new Object[tableModel.getColumnCount()];
+        for (int column = 0; column < values.length; column++) {
+            values[column] = tableModel.getValueAt(row, column);
+        }
+        return values;
+    }
+
+    public void tableChanged(TableModelEvent e) {
+        if (e instanceof MultipleColumnChangeEvent) {
+            CellsInColumnUpdatedEvent[] columnChanges = ((MultipleColumnChangeEvent) e).getColumnChanges();
+            for (int i = 0; i < columnChanges.length; i++) {
+                tableChanged(columnChanges[i]);
+            }
+        } else if (e instanceof CellsInColumnUpdatedEvent) {
+            // an event may not carry the new value of each of its rows, so read the changed cells from the table
+            CellsInColumnUpdatedEvent cellsEvent = (CellsInColumnUpdatedEvent) e;
+            for (int i = 0; i < cellsEvent.getRowCount(); i++) {
+                int row = cellsEvent.getRowIndex(i);
+                ((Object[]) rows.get(row))[cellsEvent.getColumn()] = tableModel.getValueAt(row, cellsEvent.getColumn());
+            }
+        } else if (e.getFirstRow() < 0 || e.getLastRow() == Integer.MAX_VALUE) {
+            reload();
+        } else if (e.getType() == TableModelEvent.INSERT) {
+            for (int row = e.getFirstRow(); row <= e.getLastRow(); row++) {
+                rows.add(row, getRow(row));
+            }
+        } else if (e.getType() == TableModelEvent.DELETE) {
+            for (int row = e.getLastRow(); row >= e.getFirstRow(); row--) {
+                rows.remove(row);
+            }
+        } else {
+            for (int row = e.getFirstRow(); row <= e.getLastRow(); row++) {
+                rows.set(row, getRow(row));
+            }
+        }
+    }
+}
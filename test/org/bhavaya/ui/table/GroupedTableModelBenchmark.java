@@ -0,0 +1,214 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+package org.bhavaya.ui.table;
+
+import org.bhavaya.util.IOUtilities;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.StringTokenizer;
+import java.util.Vector;
+
+/**
+ * Replays a stream of ticks against a GroupedTableModel over rows like those of TableGrouperTest, grouped on the two
+ * string columns with the two double columns summed, reading the first grouped rows after each tick as a table
+ * repainting its viewport would.
+ * <p/>
+ * Arguments are: tick file, row count, tick count.  A tick file that exists is replayed, otherwise a stream is
+ * generated and written to it, so that later runs replay the same ticks.  Each line of the file is one tick, either
+ * "U row:value row:value ...", value1 changes fired as one event per row, "I row count", count new rows inserted at row,
+ * or "D row count", count rows deleted from row.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class GroupedTableModelBenchmark {
+    private static final String[] STRING1 = {"Bond", "Future", "Swap", "Option", "Repo"};
+    private static final String[] STRING2 = {"USD", "GBP", "EUR", "JPY", "CHF", "AUD", "CAD", "SEK"};
+    private static final int VALUE1 = 2;
+    private static final int VISIBLE_ROWS = 50;
+
+    public static void main(String[] args) throws Exception {
+        String tickFileName = args.length > 0 ? args[0] : null;
+        int rowCount = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        int tickCount = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        String[] ticks;
+        if (tickFileName != null && new File(tickFileName).exists()) {
+            ticks = readTicks(tickFileName);
+        } else {
+            ticks = generateTicks(rowCount, tickCount, new Random(1));
+            if (tickFileName != null) writeTicks(tickFileName, ticks);
+        }
+
+        run(rowCount, ticks); // warm up
+        long timeTaken = run(rowCount, ticks);
+        System.out.println(((double) timeTaken / 1000) / ticks.length + " micros per tick");
+    }
+
+    private static long run(int rowCount, String[] ticks) {
+        Random random = new Random(2);
+        Vector colNames = new Vector();
+        colNames.add("String1");
+        colNames.add("String2");
+        colNames.add("Value1");
+        colNames.add("Value2");
+        Vector data = new Vector(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            data.add(newRow(random));
+        }
+        TestFilteredTableModel.KeyedDefaultTableModel sourceModel = new TestFilteredTableModel.KeyedDefaultTableModel(data, colNames) {
+            public Class getColumnClass(int columnIndex) {
+                return columnIndex >= VALUE1 ? Double.class : String.class;
+            }
+        };
+
+        GroupedTableModel groupedTableModel = new GroupedTableModel(sourceModel);
+        EventCounter eventCounter = new EventCounter();
+        groupedTableModel.addTableModelListener(eventCounter);
+        paint(groupedTableModel);
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < ticks.length; i++) {
+            StringTokenizer tokens = new StringTokenizer(ticks[i]);
+            String type = tokens.nextToken();
+            if (type.equals("U")) {
+                while (tokens.hasMoreTokens()) {
+                    String change = tokens.nextToken();
+                    int separator = change.indexOf(':');
+                    int row = Integer.parseInt(change.substring(0, separator));
+                    if (row >= data.size()) continue;
+                    Vector rowData = (Vector) data.get(row);
+                    Object oldValue = rowData.get(VALUE1);
+                    Object newValue = new Double(change.substring(separator + 1));
+                    rowData.set(VALUE1, newValue);
+                    sourceModel.fireTableChanged(new CellsInColumnUpdatedEvent(sourceModel, row, VALUE1, oldValue, newValue));
+                }
+            } else {
+                int row = Math.min(Integer.parseInt(tokens.nextToken()), data.size());
+                int count = Integer.parseInt(tokens.nextToken());
+                if (type.equals("I")) {
+                    for (int j = 0; j < count; j++) {
+                        data.add(row + j, newRow(random));
+                    }
+                    sourceModel.fireTableRowsInserted(row, row + count - 1);
+                } else {
+                    count = Math.min(count, data.size() - row);
+                    if (count == 0) continue;
+                    for (int j = 0; j < count; j++) {
+                        data.remove(row);
+                    }
+                    sourceModel.fireTableRowsDeleted(row, row + count - 1);
+                }
+            }
+            paint(groupedTableModel);
+        }
+        long timeTaken = System.nanoTime() - startTime;
+        System.out.println(eventCounter.eventCount + " events fired for " + groupedTableModel.getRowCount() + " grouped rows");
+        return timeTaken;
+    }
+
+    private static Vector newRow(Random random) {
+        Vector row = new Vector(4);
+        row.add(STRING1[random.nextInt(STRING1.length)]);
+        row.add(STRING2[random.nextInt(STRING2.length)]);
+        row.add(new Double(random.nextInt(100)));
+        row.add(new Double(random.nextInt(1000) * 1000));
+        return row;
+    }
+
+    private static void paint(GroupedTableModel groupedTableModel) {
+        int rowCount = Math.min(VISIBLE_ROWS, groupedTableModel.getRowCount());
+        for (int row = 0; row < rowCount; row++) {
+            for (int column = 0; column < groupedTableModel.getColumnCount(); column++) {
+                groupedTableModel.getValueAt(row, column);
+            }
+        }
+    }
+
+    private static String[] generateTicks(int rowCount, int tickCount, Random random) {
+        String[] ticks = new String[tickCount];
+        for (int i = 0; i < tickCount; i++) {
+            int tickType = random.nextInt(4);
+            if (tickType == 0) {
+                ticks[i] = "I " + random.nextInt(rowCount) + " " + (1 + random.nextInt(20));
+            } else if (tickType == 1) {
+                ticks[i] = "D " + random.nextInt(rowCount - 20) + " " + (1 + random.nextInt(20));
+            } else {
+                StringBuffer tick = new StringBuffer("U");
+                int changeCount = 1 + random.nextInt(50);
+                for (int j = 0; j < changeCount; j++) {
+                    tick.append(' ').append(random.nextInt(rowCount - 20)).append(':').append(random.nextInt(100));
+                }
+                ticks[i] = tick.toString();
+            }
+        }
+        return ticks;
+    }
+    private static String[] readTicks(String fileName) throws Exception {
+        List ticks = new ArrayList();
+        BufferedReader reader = new BufferedReader(new FileReader(fileName));
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.trim().length() > 0) ticks.add(line.trim());
+            }
+        } finally {
+            IOUtilities.closeReader(reader);
+        }
+        return (String[]) ticks.toArray(new String[ticks.size()]);
+    }
+
+    private static void writeTicks(String fileName, String[] ticks) throws Exception {
+        PrintWriter writer = new PrintWriter(new FileWriter(fileName));
+        try {
+            for (int i = 0; i < ticks.length; i++) {
+                writer.println(ticks[i]);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static class EventCounter implements TableModelListener {
+        private int eventCount;
+
+        public void tableChanged(TableModelEvent e) {
+            eventCount++;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.bhavaya.ui.table;
+
+import junit.framework.TestCase;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.Vector;
+
+public class GroupedTableModelTest extends TestCase {
+    private static final int BOOK = 0;
+    private static final int QUANTITY = 1;
+
+    private TestFilteredTableModel.KeyedDefaultTableModel sourceModel;
+    private GroupedTableModel groupedTableModel;
+    private EventReplica replica;
+    private Random random;
+
+    public void setUp() {
+        Vector colNames = new Vector();
+        colNames.add("Book");
+        colNames.add("Quantity");
+        sourceModel = new TestFilteredTableModel.KeyedDefaultTableModel(new Vector(), colNames) {
+            public Class getColumnClass(int columnIndex) {
+                return columnIndex == QUANTITY ? Double.class : String.class;
+            }
+        };
+        random = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            sourceModel.addRow(newRow());
+        }
+
+        groupedTableModel = new GroupedTableModel(sourceModel);
+        replica = new EventReplica(groupedTableModel);
+        groupedTableModel.addTableModelListener(replica);
+    }
+
+    public void testSingleRowChanges() {
+        for (int i = 0; i < 500; i++) {
+            applyRandomChange(1);
+            assertGrouped();
+        }
+    }
+
+    public void testBatchedChanges() {
+        for (int i = 0; i < 500; i++) {
+            applyRandomChange(1 + random.nextInt(20));
+            assertGrouped();
+        }
+    }
+
+    public void testBatchSendsOneEventPerCell() {
+        final List cellEvents = new ArrayList();
+        groupedTableModel.addTableModelListener(new TableModelListener() {
+            public void tableChanged(TableModelEvent e) {
+                if (e instanceof CellsInColumnUpdatedEvent) cellEvents.add(e);
+            }
+        });
+
+        Vector data = sourceModel.getDataVector();
+        for (int i = 0; i < 20; i++) {
+            data.add(0, new Vector(Arrays.asList(new Object[]{"Book" + (i % 2), new Double(1)})));
+        }
+        sourceModel.fireTableRowsInserted(0, 19);
+        assertGrouped();
+        assertEquals(2, cellEvents.size());
+
+        cellEvents.clear();
+        for (int i = 0; i < 20; i++) {
+            data.remove(0);
+        }
+        sourceModel.fireTableRowsDeleted(0, 19);
+        assertGrouped();
+        assertEquals(2, cellEvents.size());
+    }
+
+    private Object[] newRow() {
+        return new Object[]{"Book" + random.nextInt(30), new Double(random.nextInt(100))};
+    }
+
+    private void applyRandomChange(int rowCount) {
+        int sourceRowCount = sourceModel.getRowCount();
+        boolean insert = sourceRowCount < 100 || random.nextBoolean();
+        rowCount = Math.min(rowCount, sourceRowCount);
+        Vector data = sourceModel.getDataVector();
+
+        if (insert) {
+            int firstRow = random.nextInt(sourceRowCount + 1);
+            for (int i = 0; i < rowCount; i++) {
+                data.add(firstRow + i, new Vector(Arrays.asList(newRow())));
+            }
+            sourceModel.fireTableRowsInserted(firstRow, firstRow + rowCount - 1);
+        } else {
+            int firstRow = random.nextInt(sourceRowCount - rowCount + 1);
+            for (int i = 0; i < rowCount; i++) {
+                data.remove(firstRow);
+            }
+            sourceModel.fireTableRowsDeleted(firstRow, firstRow + rowCount - 1);
+        }
+    }
+
+    private void assertGrouped() {
+        Map expectedQuantities = new HashMap();
+        Map expectedSourceRows = new HashMap();
+        for (int row = 0; row < sourceModel.getRowCount(); row++) {
+            Object book = sourceModel.getValueAt(row, BOOK);
+            Double quantity = (Double) expectedQuantities.get(book);
+            double total = (quantity == null ? 0 : quantity.doubleValue()) + ((Double) sourceModel.getValueAt(row, QUANTITY)).doubleValue();
+            expectedQuantities.put(book, new Double(total));
+            Set sourceRows = (Set) expectedSourceRows.get(book);
+            if (sourceRows == null) {
+                sourceRows = new HashSet();
+                expectedSourceRows.put(book, sourceRows);
+            }
+            sourceRows.add(new Integer(row));
+        }
+
+        assertEquals(expectedQuantities.size(), groupedTableModel.getRowCount());
+        assertEquals(expectedQuantities.size(), replica.getRowCount());
+        for (int row = 0; row < groupedTableModel.getRowCount(); row++) {
+            Object book = groupedTableModel.getValueAt(row, BOOK);
+            assertEquals(expectedQuantities.get(book), groupedTableModel.getValueAt(row, QUANTITY));
+            assertEquals(book, replica.getValueAt(row, BOOK));
+            assertEquals(expectedQuantities.get(book), replica.getValueAt(row, QUANTITY));
+
+            Set sourceRows = new HashSet();
+            for (int i = 0; i < groupedTableModel.getUnderlyingRowCount(row); i++) {
+                int sourceRow = groupedTableModel.getUnderlyingRowIndex(row, i);
+                sourceRows.add(new Integer(sourceRow));
+                assertEquals(row, groupedTableModel.getRowContainingUnderlyingRow(sourceRow));
+            }
+            assertEquals(expectedSourceRows.get(book), sourceRows);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.bhavaya.ui.table;
+
+import junit.framework.TestCase;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Vector;
+
+public class PivotTableModelTest extends TestCase {
+    private static final int CURRENCY = 0;
+    private static final int TENOR = 1;
+    private static final int AMOUNT = 2;
+
+    private TestFilteredTableModel.KeyedDefaultTableModel sourceModel;
+    private PivotTableModel pivotTableModel;
+    private StructureChangeCounter structureChanges;
+    private Random random;
+
+    public void setUp() {
+        Vector colNames = new Vector();
+        colNames.add("Currency");
+        colNames.add("Tenor");
+        colNames.add("Amount");
+        sourceModel = new TestFilteredTableModel.KeyedDefaultTableModel(new Vector(), colNames) {
+            public Class getColumnClass(int columnIndex) {
+                return columnIndex == AMOUNT ? Double.class : String.class;
+            }
+        };
+        random = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            sourceModel.addRow(newRow(4));
+        }
+
+        pivotTableModel = new PivotTableModel(sourceModel);
+        pivotTableModel.setPivotColumnKey("Tenor");
+        pivotTableModel.setDataColumnKey("Amount");
+        pivotTableModel.setColumnTotallingEnabled(true);
+        structureChanges = new StructureChangeCounter();
+        pivotTableModel.addTableModelListener(structureChanges);
+        pivotTableModel.addTableModelListener(new EventAndStateVerifier(pivotTableModel));
+    }
+
+    public void testNewPivotValueInsertsColumn() {
+        int columnCount = pivotTableModel.getColumnCount();
+        final List columnInserts = new ArrayList();
+        pivotTableModel.addTableModelListener(new TableModelListener() {
+            public void tableChanged(TableModelEvent e) {
+                if (e.getFirstRow() == TableModelEvent.HEADER_ROW && e.getType() == TableModelEvent.INSERT) columnInserts.add(e);
+            }
+        });
+
+        sourceModel.addRow(new Object[]{"GBP", "Tenor99", new Double(5)});
+        assertEquals(columnCount + 1, pivotTableModel.getColumnCount());
+        assertEquals(1, columnInserts.size());
+        assertEquals(0, structureChanges.count);
+
+        sourceModel.removeRow(sourceModel.getRowCount() - 1);
+        assertEquals(columnCount, pivotTableModel.getColumnCount());
+        assertEquals(0, structureChanges.count);
+        assertPivoted(pivotTableModel);
+    }
+
+    public void testRandomChanges() {
+        for (int i = 0; i < 500; i++) {
+            applyRandomChange();
+        }
+        assertEquals(0, structureChanges.count);
+        assertPivoted(pivotTableModel);
+    }
+
+    public void testGroupedPivot() {
+        GroupedTableModel groupedTableModel = new GroupedTableModel(pivotTableModel);
+        groupedTableModel.getRowCount();
+        StructureChangeCounter groupedStructureChanges = new StructureChangeCounter();
+        groupedTableModel.addTableModelListener(groupedStructureChanges);
+        groupedTableModel.addTableModelListener(new EventAndStateVerifier(groupedTableModel));
+
+        for (int i = 0; i < 200; i++) {
+            applyRandomChange();
+        }
+        assertEquals(0, groupedStructureChanges.count);
+
+        PivotTableModel expectedPivot = new PivotTableModel(sourceModel);
+        expectedPivot.setPivotColumnKey("Tenor");
+        expectedPivot.setDataColumnKey("Amount");
+        expectedPivot.setColumnTotallingEnabled(true);
+        GroupedTableModel expected = new GroupedTableModel(expectedPivot);
+        assertEquals(expected.getColumnCount(), groupedTableModel.getColumnCount());
+        assertEquals(expected.getRowCount(), groupedTableModel.getRowCount());
+
+        //groups may be in a different order
+        Map expectedRows = new HashMap();
+        for (int row = 0; row < expected.getRowCount(); row++) {
+            expectedRows.put(expected.getValueAt(row, CURRENCY), getRow(expected, row));
+        }
+        for (int row = 0; row < groupedTableModel.getRowCount(); row++) {
+            assertEquals(expectedRows.get(groupedTableModel.getValueAt(row, CURRENCY)), getRow(groupedTableModel, row));
+        }
+    }
+
+    private Object[] newRow(int tenorCount) {
+        return new Object[]{"CCY" + random.nextInt(3), "Tenor" + random.nextInt(tenorCount), new Double(random.nextInt(10))};
+    }
+
+    private void applyRandomChange() {
+        int rowCount = sourceModel.getRowCount();
+        Vector data = sourceModel.getDataVector();
+        int changeRowCount = 1 + random.nextInt(5);
+        switch (random.nextInt(rowCount < 50 ? 1 : 5)) {
+            case 0:
+                int firstRow = random.nextInt(rowCount + 1);
+                for (int i = 0; i < changeRowCount; i++) {
+                    data.add(firstRow + i, new Vector(Arrays.asList(newRow(12))));
+                }
+                sourceModel.fireTableRowsInserted(firstRow, firstRow + changeRowCount - 1);
+                break;
+            case 1:
+                firstRow = random.nextInt(rowCount - changeRowCount + 1);
+                for (int i = 0; i < changeRowCount; i++) {
+                    data.remove(firstRow);
+                }
+                sourceModel.fireTableRowsDeleted(firstRow, firstRow + changeRowCount - 1);
+                break;
+            case 2:
+                CellsInColumnUpdatedEvent tenorChange = changeCells(TENOR, "Tenor" + random.nextInt(12), changeRowCount);
+                sourceModel.fireTableChanged(tenorChange);
+                break;
+            case 3:
+                CellsInColumnUpdatedEvent amountChange = changeCells(AMOUNT, new Double(random.nextInt(10)), changeRowCount);
+                sourceModel.fireTableChanged(amountChange);
+                break;
+            default:
+                int row = random.nextInt(rowCount);
+                CellsInColumnUpdatedEvent[] changes = new CellsInColumnUpdatedEvent[]{
+                        changeCell(row, TENOR, "Tenor" + random.nextInt(12)),
+                        changeCell(row, AMOUNT, new Double(random.nextInt(10)))
+                };
+                sourceModel.fireTableChanged(new MultipleColumnChangeEvent(sourceModel, changes, true));
+        }
+    }
+
+    /**
+     * changes up to maxRowCount rows sharing the value of a random row
+     */
+    private CellsInColumnUpdatedEvent changeCells(int column, Object newValue, int maxRowCount) {
+        Vector data = sourceModel.getDataVector();
+        Object oldValue = sourceModel.getValueAt(random.nextInt(data.size()), column);
+        List rows = new ArrayList();
+        for (int row = 0; row < data.size() && rows.size() < maxRowCount; row++) {
+            if (oldValue.equals(sourceModel.getValueAt(row, column))) {
+                ((Vector) data.get(row)).set(column, newValue);
+                rows.add(new Integer(row));
+            }
+        }
+        int[] rowIndexes = new int[rows.size()];
+        for (int i = 0; i < rowIndexes.length; i++) {
+            rowIndexes[i] = ((Integer) rows.get(i)).intValue();
+        }
+        return new CellsInColumnUpdatedEvent(sourceModel, rowIndexes, column, oldValue, newValue);
+    }
+
+    private CellsInColumnUpdatedEvent changeCell(int row, int column, Object newValue) {
+        Object oldValue = sourceModel.getValueAt(row, column);
+        ((Vector) sourceModel.getDataVector().get(row)).set(column, newValue);
+        return new CellsInColumnUpdatedEvent(sourceModel, row, column, oldValue, newValue);
+    }
+
+    private void assertPivoted(PivotTableModel pivotTableModel) {
+        PivotTableModel expected = new PivotTableModel(sourceModel);
+        expected.setPivotColumnKey("Tenor");
+        expected.setDataColumnKey("Amount");
+        expected.setColumnTotallingEnabled(true);
+        assertSameData(expected, pivotTableModel);
+    }
+
+    private void assertSameData(KeyedColumnTableModel expected, KeyedColumnTableModel actual) {
+        assertEquals(expected.getColumnCount(), actual.getColumnCount());
+        assertEquals(expected.getRowCount(), actual.getRowCount());
+        for (int column = 0; column < expected.getColumnCount(); column++) {
+            assertEquals(expected.getColumnKey(column), actual.getColumnKey(column));
+        }
+        for (int row = 0; row < expected.getRowCount(); row++) {
+            for (int column = 0; column < expected.getColumnCount(); column++) {
+                assertEquals("row: " + row + " col: " + column, expected.getValueAt(row, column), actual.getValueAt(row, column));
+            }
+        }
+    }
+
+    private List getRow(KeyedColumnTableModel tableModel, int row) {
+        List values = new ArrayList();
+        for (int column = 0; column < tableModel.getColumnCount(); column++) {
+            values.add(tableModel.getColumnKey(column));
+            values.add(tableModel.getValueAt(row, column));
+        }
+        return values;
+    }
+
+    private static class StructureChangeCounter implements TableModelListener {
+        private int count;
+
+        public void tableChanged(TableModelEvent e) {
+            if (TableUtilities.isFullStructureChange(e)) count++;
+        }
+    }
+}
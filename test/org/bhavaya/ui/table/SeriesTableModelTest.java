@@ -0,0 +1,221 @@
+package org.bhavaya.ui.table;
+
+import junit.framework.TestCase;
+import org.bhavaya.ui.series.Series;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Vector;
+
+public class SeriesTableModelTest extends TestCase {
+    private static final int MATURITY = 0;
+    private static final int NAME = 1;
+    private static final int AMOUNT = 2;
+
+    private TestFilteredTableModel.KeyedDefaultTableModel sourceModel;
+    private Random random;
+    private List dataChanges = new ArrayList();
+
+    public void setUp() {
+        Vector colNames = new Vector();
+        colNames.add("Maturity");
+        colNames.add("Name");
+        colNames.add("Amount");
+        sourceModel = new TestFilteredTableModel.KeyedDefaultTableModel(new Vector(), colNames) {
+            public Class getColumnClass(int columnIndex) {
+                return columnIndex == NAME ? String.class : Double.class;
+            }
+        };
+        random = new Random(42);
+        for (int i = 0; i < 50; i++) {
+            sourceModel.addRow(newRow(i));
+        }
+    }
+
+    public void testSplitRows() {
+        SeriesTableModel seriesTableModel = createSeriesTableModel(true, false);
+        sourceModel.setRowCount(0);
+        sourceModel.addRow(new Object[]{new Double(8.75), "a", new Double(2)});
+        sourceModel.addRow(new Object[]{new Double(1), "b", new Double(4)});
+
+        assertEquals(3, seriesTableModel.getRowCount());
+        assertEquals("Bucket1", seriesTableModel.getValueAt(0, MATURITY));
+        assertEquals("Bucket2", seriesTableModel.getValueAt(1, MATURITY));
+        assertEquals(new Double(0.5), seriesTableModel.getValueAt(0, AMOUNT));
+        assertEquals(new Double(1.5), seriesTableModel.getValueAt(1, AMOUNT));
+        assertEquals("a", seriesTableModel.getValueAt(1, NAME));
+        assertEquals("Bucket0", seriesTableModel.getValueAt(2, MATURITY));
+        assertEquals(new Double(4), seriesTableModel.getValueAt(2, AMOUNT));
+        assertTrue(dataChanges.isEmpty());
+    }
+
+    public void testRandomChanges() {
+        checkRandomChanges(false, false);
+    }
+
+    public void testRandomChangesSplittingValues() {
+        checkRandomChanges(true, false);
+    }
+
+    public void testRandomChangesWithFullSeries() {
+        checkRandomChanges(true, true);
+    }
+
+    private void checkRandomChanges(boolean splittingValues, boolean useFullSeries) {
+        SeriesTableModel seriesTableModel = createSeriesTableModel(splittingValues, useFullSeries);
+        for (int i = 0; i < 500; i++) {
+            applyRandomChange(i);
+        }
+        assertTrue(dataChanges.isEmpty());
+        assertSameData(createSeriesTableModel(splittingValues, useFullSeries), seriesTableModel);
+    }
+
+    private SeriesTableModel createSeriesTableModel(boolean splittingValues, boolean useFullSeries) {
+        SeriesTableModel seriesTableModel = new SeriesTableModel(sourceModel);
+        seriesTableModel.setSeries(new BucketSeries());
+        seriesTableModel.setSeriesColumnKey("Maturity");
+        seriesTableModel.setSplittingValues(splittingValues);
+        seriesTableModel.setUseFullSeries(useFullSeries);
+        seriesTableModel.getRowCount();
+        seriesTableModel.addTableModelListener(new EventAndStateVerifier(seriesTableModel));
+        seriesTableModel.addTableModelListener(new TableModelListener() {
+            public void tableChanged(TableModelEvent e) {
+                if (TableUtilities.isAllDataChanged(e)) dataChanges.add(e);
+            }
+        });
+        return seriesTableModel;
+    }
+
+    private Object[] newRow(int i) {
+        return new Object[]{newMaturity(), "Bond" + i, new Double(random.nextInt(100))};
+    }
+
+    private Double newMaturity() {
+        return new Double(random.nextInt(60) / 2.0);
+    }
+
+    private void applyRandomChange(int i) {
+        int rowCount = sourceModel.getRowCount();
+        Vector data = sourceModel.getDataVector();
+        int changeRowCount = 1 + random.nextInt(3);
+        switch (random.nextInt(rowCount < 20 ? 1 : 6)) {
+            case 0:
+                int firstRow = random.nextInt(rowCount + 1);
+                for (int j = 0; j < changeRowCount; j++) {
+                    data.add(firstRow + j, new Vector(Arrays.asList(newRow(i))));
+                }
+                sourceModel.fireTableRowsInserted(firstRow, firstRow + changeRowCount - 1);
+                break;
+            case 1:
+                firstRow = random.nextInt(rowCount - changeRowCount + 1);
+                for (int j = 0; j < changeRowCount; j++) {
+                    data.remove(firstRow);
+                }
+                sourceModel.fireTableRowsDeleted(firstRow, firstRow + changeRowCount - 1);
+                break;
+            case 2:
+                sourceModel.fireTableChanged(changeCells(MATURITY, newMaturity(), changeRowCount));
+                break;
+            case 3:
+                sourceModel.fireTableChanged(changeCells(AMOUNT, new Double(random.nextInt(100)), changeRowCount));
+                break;
+            case 4:
+                int row = random.nextInt(rowCount);
+                CellsInColumnUpdatedEvent[] changes = new CellsInColumnUpdatedEvent[]{
+                        changeCell(row, AMOUNT, new Double(random.nextInt(100))),
+                        changeCell(row, NAME, "Bond" + i),
+                        changeCell(row, MATURITY, newMaturity())
+                };
+                sourceModel.fireTableChanged(new MultipleColumnChangeEvent(sourceModel, changes, true));
+                break;
+            default:
+                firstRow = random.nextInt(rowCount - changeRowCount + 1);
+                for (int j = firstRow; j < firstRow + changeRowCount; j++) {
+                    ((Vector) data.get(j)).set(MATURITY, newMaturity());
+                    ((Vector) data.get(j)).set(AMOUNT, new Double(random.nextInt(100)));
+                }
+                sourceModel.fireTableRowsUpdated(firstRow, firstRow + changeRowCount - 1);
+        }
+    }
+
+    /**
+     * changes up to maxRowCount rows sharing the value of a random row
+     */
+    private CellsInColumnUpdatedEvent changeCells(int column, Object newValue, int maxRowCount) {
+        Vector data = sourceModel.getDataVector();
+        Object oldValue = sourceModel.getValueAt(random.nextInt(data.size()), column);
+        List rows = new ArrayList();
+        for (int row = 0; row < data.size() && rows.size() < maxRowCount; row++) {
+            if (oldValue.equals(sourceModel.getValueAt(row, column))) {
+                ((Vector) data.get(row)).set(column, newValue);
+                rows.add(new Integer(row));
+            }
+        }
+        int[] rowIndexes = new int[rows.size()];
+        for (int i = 0; i < rowIndexes.length; i++) {
+            rowIndexes[i] = ((Integer) rows.get(i)).intValue();
+        }
+        return new CellsInColumnUpdatedEvent(sourceModel, rowIndexes, column, oldValue, newValue);
+    }
+
+    private CellsInColumnUpdatedEvent changeCell(int row, int column, Object newValue) {
+        Object oldValue = sourceModel.getValueAt(row, column);
+        ((Vector) sourceModel.getDataVector().get(row)).set(column, newValue);
+        return new CellsInColumnUpdatedEvent(sourceModel, row, column, oldValue, newValue);
+    }
+
+    private void assertSameData(SeriesTableModel expected, SeriesTableModel actual) {
+        assertEquals(expected.getRowCount(), actual.getRowCount());
+        int generatedRowCount = 0;
+        HashSet expectedGenerated = new HashSet();
+        HashSet actualGenerated = new HashSet();
+        for (int row = 0; row < expected.getRowCount(); row++) {
+            //generated rows of the full series are at the end, in any order
+            if (expected.getValueAt(row, NAME) == null) {
+                generatedRowCount++;
+                expectedGenerated.add(expected.getValueAt(row, MATURITY));
+                actualGenerated.add(actual.getValueAt(row, MATURITY));
+                continue;
+            }
+            for (int column = 0; column < expected.getColumnCount(); column++) {
+                assertEquals("row: " + row + " col: " + column, expected.getValueAt(row, column), actual.getValueAt(row, column));
+            }
+        }
+        assertEquals(expectedGenerated, actualGenerated);
+        assertEquals(generatedRowCount, actualGenerated.size());
+    }
+
+    /**
+     * Maps a number to a bucket 5 wide.  When splitting, a number in the second half of a bucket is split between it
+     * and the next bucket.
+     */
+    private static class BucketSeries implements Series {
+        public SeriesValue[] getSeriesValues(Object value, boolean useSeriesSplitting) {
+            double number = ((Double) value).doubleValue();
+            int bucket = (int) (number / 5);
+            double offset = (number - bucket * 5) / 5;
+            if (!useSeriesSplitting || offset <= 0.5) {
+                return new SeriesValue[]{new SeriesValue("Bucket" + bucket, 1.0)};
+            }
+            return new SeriesValue[]{new SeriesValue("Bucket" + bucket, 1.0 - offset), new SeriesValue("Bucket" + (bucket + 1), offset)};
+        }
+
+        public Collection getFullSeriesValues() {
+            List values = new ArrayList();
+            for (int bucket = 0; bucket < 10; bucket++) {
+                values.add("Bucket" + bucket);
+            }
+            return values;
+        }
+
+        public Class getSeriesValueClass() {
+            return String.class;
+        }
+    }
+}
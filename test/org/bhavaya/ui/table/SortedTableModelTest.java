@@ -0,0 +1,166 @@
+package org.bhavaya.ui.table;
+
+import junit.framework.TestCase;
+
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Vector;
+
+/**
+ * Applies random batches of inserts, deletes and updates to a sorted table, and checks that the sorted rows are those
+ * of a full, stable sort of the source, and that a copy of the table kept up to date from the events it fires matches.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class SortedTableModelTest extends TestCase {
+    private static final int ID = 0;
+    private static final int PRICE = 1;
+
+    private TestFilteredTableModel.KeyedDefaultTableModel sourceModel;
+    private SortedTableModel sortedTableModel;
+    private EventReplica replica;
+    private Random random;
+    private int nextId;
+
+    public void setUp() {
+        Vector colNames = new Vector();
+        colNames.add("Id");
+        colNames.add("Price");
+        sourceModel = new TestFilteredTableModel.KeyedDefaultTableModel(new Vector(), colNames);
+        random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            sourceModel.addRow(newRow());
+        }
+
+        sortedTableModel = new SortedTableModel(sourceModel);
+        sortedTableModel.addSortingColumn("Price", false);
+        replica = new EventReplica(sortedTableModel);
+        sortedTableModel.addTableModelListener(replica);
+    }
+
+    public void testSingleRowChanges() {
+        for (int i = 0; i < 500; i++) {
+            applyRandomChange(1);
+            assertSorted();
+        }
+    }
+
+    public void testBatchedChanges() {
+        for (int i = 0; i < 500; i++) {
+            applyRandomChange(1 + random.nextInt(20));
+            assertSorted();
+        }
+    }
+
+    public void testBatchedChangesWithoutIncrementalResort() {
+        sortedTableModel.setIncrementalResort(false);
+        for (int i = 0; i < 200; i++) {
+            applyRandomChange(1 + random.nextInt(20));
+            assertSorted();
+        }
+    }
+
+    public void testDescendingOnTwoColumns() {
+        sortedTableModel.cancelSorting();
+        sortedTableModel.addSortingColumn("Price", true);
+        sortedTableModel.addSortingColumn("Id", false);
+        replica.reload();
+        for (int i = 0; i < 300; i++) {
+            applyRandomChange(1 + random.nextInt(10));
+            assertSorted();
+        }
+    }
+
+    public void testUnsorted() {
+        sortedTableModel.cancelSorting();
+        replica.reload();
+        for (int i = 0; i < 300; i++) {
+            applyRandomChange(1 + random.nextInt(10));
+            assertSorted();
+        }
+    }
+
+    private Object[] newRow() {
+        return new Object[]{new Integer(nextId++), new Integer(random.nextInt(50))};
+    }
+
+    private void applyRandomChange(int rowCount) {
+        int sourceRowCount = sourceModel.getRowCount();
+        int change = sourceRowCount < 50 ? 0 : random.nextInt(5);
+        rowCount = Math.min(rowCount, sourceRowCount);
+        Vector data = sourceModel.getDataVector();
+
+        if (change == 0) {
+            int firstRow = random.nextInt(sourceRowCount + 1);
+            for (int i = 0; i < rowCount; i++) {
+                data.add(firstRow + i, new Vector(java.util.Arrays.asList(newRow())));
+            }
+            sourceModel.fireTableRowsInserted(firstRow, firstRow + rowCount - 1);
+        } else if (change == 1) {
+            int firstRow = random.nextInt(sourceRowCount - rowCount + 1);
+            for (int i = 0; i < rowCount; i++) {
+                data.remove(firstRow);
+            }
+            sourceModel.fireTableRowsDeleted(firstRow, firstRow + rowCount - 1);
+        } else if (change == 2) {
+            int[] rows = newPrices(rowCount);
+            sourceModel.fireTableChanged(new CellsInColumnUpdatedEvent(sourceModel, rows, PRICE, null, null));
+        } else if (change == 3) {
+            int[] priceRows = newPrices(rowCount);
+            int[] idRows = new int[]{random.nextInt(sourceRowCount)};
+            CellsInColumnUpdatedEvent[] columnChanges = new CellsInColumnUpdatedEvent[]{
+                    new CellsInColumnUpdatedEvent(sourceModel, idRows, ID, null, null),
+                    new CellsInColumnUpdatedEvent(sourceModel, priceRows, PRICE, null, null)
+            };
+            sourceModel.fireTableChanged(new MultipleColumnChangeEvent(sourceModel, columnChanges, false));
+        } else {
+            int firstRow = random.nextInt(sourceRowCount - rowCount + 1);
+            for (int i = 0; i < rowCount; i++) {
+                sourceModel.getDataVector().set(firstRow + i, new Vector(java.util.Arrays.asList(newRow())));
+            }
+            sourceModel.fireTableChanged(new TableModelEvent(sourceModel, firstRow, firstRow + rowCount - 1, TableModelEvent.ALL_COLUMNS));
+        }
+    }
+
+    private int[] newPrices(int rowCount) {
+        int[] rows = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            rows[i] = random.nextInt(sourceModel.getRowCount());
+            ((Vector) sourceModel.getDataVector().get(rows[i])).set(PRICE, new Integer(random.nextInt(50)));
+        }
+        return rows;
+    }
+
+    private void assertSorted() {
+        List expectedRows = new ArrayList(sourceModel.getDataVector());
+        if (sortedTableModel.isSorting()) {
+            final boolean twoColumns = sortedTableModel.getSortingColumns().size() == 2;
+            Collections.sort(expectedRows, new Comparator() {
+                public int compare(Object o1, Object o2) {
+                    Integer price1 = (Integer) ((Vector) o1).get(PRICE);
+                    Integer price2 = (Integer) ((Vector) o2).get(PRICE);
+                    if (!twoColumns) return price1.compareTo(price2);
+                    int comparison = price2.compareTo(price1);
+                    if (comparison != 0) return comparison;
+                    return ((Integer) ((Vector) o1).get(ID)).compareTo((Integer) ((Vector) o2).get(ID));
+                }
+            });
+        }
+
+        assertEquals(expectedRows.size(), sortedTableModel.getRowCount());
+        assertEquals(expectedRows.size(), replica.getRowCount());
+        for (int i = 0; i < expectedRows.size(); i++) {
+            Object expectedId = ((Vector) expectedRows.get(i)).get(ID);
+            Object expectedPrice = ((Vector) expectedRows.get(i)).get(PRICE);
+            assertEquals(expectedId, sortedTableModel.getValueAt(i, ID));
+            assertEquals(expectedPrice, sortedTableModel.getValueAt(i, PRICE));
+            assertEquals(expectedId, replica.getValueAt(i, ID));
+            assertEquals(expectedPrice, replica.getValueAt(i, PRICE));
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.bhavaya.ui.table;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
+import org.bhavaya.ui.table.formula.FormulaEnabledObjectGraphTest;
 
 /**
  * Description
@@ -21,6 +22,13 @@ public class TableTestSuite extends TestSuite {
         addTestSuite(SplicedTableModelTest.class);
         addTestSuite(GenericTableTest.class);
         addTestSuite(TableTransformsTest.class);
+        addTestSuite(SortedTableModelTest.class);
+        addTestSuite(GroupedTableModelTest.class);
+        addTestSuite(PivotTableModelTest.class);
+        addTestSuite(TestFilteredTableModel.class);
+        addTestSuite(SeriesTableModelTest.class);
+        addTestSuite(CellChangeTimesTest.class);
+        addTestSuite(FormulaEnabledObjectGraphTest.class);
     }
 
     public static Test suite() {
@@ -2,7 +2,12 @@ package org.bhavaya.ui.table;
 
 import junit.framework.TestCase;
 
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
 import javax.swing.table.DefaultTableModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import java.util.Vector;
 import java.util.Arrays;
 
@@ -14,8 +19,6 @@ import org.bhavaya.ui.table.FilteredTableModel;
  * User: Nick Ebbutt
  * Date: 29-Feb-2008
  * Time: 15:59:59
- *
- * does not yet test table model event generation but that needs work anyway to make it more efficient
  */
 public class TestFilteredTableModel extends TestCase {
 
@@ -127,6 +130,121 @@ public class TestFilteredTableModel extends TestCase {
 
     }
 
+    public void testUpdatesFireRowEvents() {
+        filteredTableModel.addFilters(new FilteredTableModel.ColumnValueFilter("Value", "key4"));
+        final List<TableModelEvent> events = new ArrayList<TableModelEvent>();
+        filteredTableModel.addTableModelListener(new TableModelListener() {
+            public void tableChanged(TableModelEvent e) {
+                events.add(e);
+            }
+        });
+
+        //a column the filter does not read
+        defaultTableModel.setValueAt(1000, 7, 0);
+        testRowsInFilteredModel(6, 1000, 8, 9);
+        assertEvent(events.remove(0), TableModelEvent.UPDATE, 1, 1);
+
+        //a row which no longer passes the filter
+        defaultTableModel.setValueAt("key3", 8, 1);
+        testRowsInFilteredModel(6, 1000, 9);
+        assertEvent(events.remove(0), TableModelEvent.UPDATE, 2, 2);
+        assertEvent(events.remove(0), TableModelEvent.DELETE, 2, 2);
+
+        //a row which now passes the filter
+        defaultTableModel.setValueAt("key4", 2, 1);
+        testRowsInFilteredModel(2, 6, 1000, 9);
+        assertEvent(events.remove(0), TableModelEvent.INSERT, 0, 0);
+
+        //a row which does not pass before or after
+        defaultTableModel.setValueAt("key5", 0, 1);
+        assertTrue(events.isEmpty());
+    }
+
+    public void testRandomChanges() {
+        filteredTableModel.addFilters(new FilteredTableModel.ColumnValueFilter("Value", "key1", false));
+        filteredTableModel.addTableModelListener(new EventAndStateVerifier(filteredTableModel));
+        final List<TableModelEvent> dataChanges = new ArrayList<TableModelEvent>();
+        filteredTableModel.addTableModelListener(new TableModelListener() {
+            public void tableChanged(TableModelEvent e) {
+                if (TableUtilities.isAllDataChanged(e)) dataChanges.add(e);
+            }
+        });
+
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            int rowCount = defaultTableModel.getRowCount();
+            int changeRowCount = 1 + random.nextInt(3);
+            switch (random.nextInt(rowCount < 10 ? 1 : 4)) {
+                case 0:
+                    int firstRow = random.nextInt(rowCount + 1);
+                    Object[][] newRows = new Object[changeRowCount][];
+                    for (int j = 0; j < changeRowCount; j++) {
+                        newRows[j] = new Object[]{i, "key" + random.nextInt(3)};
+                    }
+                    insertRowsToModel(firstRow, newRows);
+                    break;
+                case 1:
+                    firstRow = random.nextInt(rowCount - changeRowCount + 1);
+                    deleteRowsFromUnderlyingModel(firstRow, firstRow + changeRowCount - 1);
+                    break;
+                case 2:
+                    //rows sharing the value of a random row
+                    Object oldValue = defaultTableModel.getValueAt(random.nextInt(rowCount), 1);
+                    Object newValue = "key" + random.nextInt(3);
+                    List<Integer> rows = new ArrayList<Integer>();
+                    for (int row = 0; row < rowCount && rows.size() < changeRowCount; row++) {
+                        if (oldValue.equals(defaultTableModel.getValueAt(row, 1))) {
+                            ((Vector) tableRows.get(row)).set(1, newValue);
+                            rows.add(row);
+                        }
+                    }
+                    int[] rowIndexes = new int[rows.size()];
+                    for (int j = 0; j < rowIndexes.length; j++) {
+                        rowIndexes[j] = rows.get(j);
+                    }
+                    defaultTableModel.fireTableChanged(new CellsInColumnUpdatedEvent(defaultTableModel, rowIndexes, 1, oldValue, newValue));
+                    break;
+                default:
+                    firstRow = random.nextInt(rowCount - changeRowCount + 1);
+                    for (int j = firstRow; j < firstRow + changeRowCount; j++) {
+                        ((Vector) tableRows.get(j)).set(0, i);
+                    }
+                    defaultTableModel.fireTableRowsUpdated(firstRow, firstRow + changeRowCount - 1);
+            }
+        }
+
+        assertTrue(dataChanges.isEmpty());
+        FilteredTableModel expected = new FilteredTableModel(defaultTableModel);
+        expected.addFilters(new FilteredTableModel.ColumnValueFilter("Value", "key1", false));
+        assertEquals(expected.getRowCount(), filteredTableModel.getRowCount());
+        for (int row = 0; row < expected.getRowCount(); row++) {
+            assertEquals(expected.getValueAt(row, 0), filteredTableModel.getValueAt(row, 0));
+            assertEquals(expected.getValueAt(row, 1), filteredTableModel.getValueAt(row, 1));
+        }
+    }
+
+    public void testParallelRefresh() {
+        for (int i = 10; i < 50000; i++) {
+            tableRows.add(new Vector(Arrays.asList(new Object[]{i, "key" + (i % 5)})));
+        }
+        defaultTableModel.fireTableDataChanged();
+
+        FilteredTableModel parallelModel = new FilteredTableModel(defaultTableModel);
+        parallelModel.setParallelRefresh(true);
+        parallelModel.setFilters(new FilteredTableModel.ColumnValueFilter("Value", "key2"));
+        filteredTableModel.setFilters(new FilteredTableModel.ColumnValueFilter("Value", "key2"));
+        assertEquals(filteredTableModel.getRowCount(), parallelModel.getRowCount());
+        for (int row = 0; row < filteredTableModel.getRowCount(); row++) {
+            assertEquals(filteredTableModel.getValueAt(row, 0), parallelModel.getValueAt(row, 0));
+        }
+    }
+
+    private void assertEvent(TableModelEvent e, int type, int firstRow, int lastRow) {
+        assertEquals(type, e.getType());
+        assertEquals(firstRow, e.getFirstRow());
+        assertEquals(lastRow, e.getLastRow());
+    }
+
     private void insertRowsToModel(int index, Object[]... rows) {
         int currentIndex = index;
         for ( Object[] row : rows ) {
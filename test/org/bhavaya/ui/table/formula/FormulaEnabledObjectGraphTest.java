@@ -0,0 +1,245 @@
+package org.bhavaya.ui.table.formula;
+
+import junit.framework.TestCase;
+import org.bhavaya.collection.BeanCollection;
+import org.bhavaya.collection.DefaultBeanCollection;
+import org.bhavaya.ui.table.BeanA;
+import org.bhavaya.ui.table.BeanCollectionTableModel;
+import org.bhavaya.ui.table.BeanD;
+import org.bhavaya.ui.table.CachedObjectGraph;
+import org.bhavaya.util.Generic;
+
+import java.util.*;
+
+/**
+ * Checks that the formula values recalculated by FormulaEnabledObjectGraph match evaluating each formula on its own,
+ * for tables small enough to be recalculated on one thread and large enough to be recalculated in parallel batches.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class FormulaEnabledObjectGraphTest extends TestCase {
+    private static final int SMALL_TABLE = 20;
+    private static final int LARGE_TABLE = 3000;
+    private static final long TIMEOUT = 20000;
+
+    private static final Set<Thread> evaluatingThreads = Collections.synchronizedSet(new HashSet<Thread>());
+
+    private BeanCollectionTableModel tableModel;
+
+    public FormulaEnabledObjectGraphTest(String s) {
+        super(s);
+    }
+
+    protected void setUp() throws Exception {
+        FormulaUtils.setFactoryInstance(new FormulaFactory() {
+            public Formula createFormula() {
+                return new SumFormula();
+            }
+        });
+    }
+
+    protected void tearDown() throws Exception {
+        if (tableModel != null) tableModel.dispose();
+        tableModel = null;
+        FormulaUtils.setFactoryInstance(null);
+    }
+
+    public void testRecalculationOnOneThread() throws Exception {
+        BeanA[] beans = createBeans(SMALL_TABLE);
+        FormulaManager formulaManager = createFormulaManager();
+
+        evaluatingThreads.clear();
+        createTableModel(beans, formulaManager);
+        assertFormulaValues(beans, formulaManager);
+        assertEquals(Collections.singleton(Thread.currentThread()), new HashSet<Thread>(evaluatingThreads));
+
+        updateBeans(beans, new Random(1));
+        assertFormulaValues(beans, formulaManager);
+    }
+
+    public void testRecalculationInParallelBatches() throws Exception {
+        BeanA[] beans = createBeans(LARGE_TABLE);
+        FormulaManager formulaManager = createFormulaManager();
+
+        evaluatingThreads.clear();
+        createTableModel(beans, formulaManager);
+        assertFormulaValues(beans, formulaManager);
+        assertTrue("Formulas were not recalculated in parallel", evaluatingThreads.size() > 1);
+
+        updateBeans(beans, new Random(2));
+        assertFormulaValues(beans, formulaManager);
+    }
+
+    public void testExpressionChangeRecompilesFormula() throws Exception {
+        BeanA[] beans = createBeans(LARGE_TABLE);
+        FormulaManager formulaManager = createFormulaManager();
+        createTableModel(beans, formulaManager);
+        assertFormulaValues(beans, formulaManager);
+
+        // "doubled" now also depends on y, so it has to be recalculated when y changes
+        formulaManager.getFormulaByName("doubled").setExpression("x + x + y");
+        Random random = new Random(3);
+        for (int i = 0; i < beans.length; i++) {
+            BeanD d = beans[i].getB().getC().getD();
+            d.setI(d.getI() + 1 + random.nextInt(1000));
+        }
+        assertFormulaValues(beans, formulaManager);
+    }
+
+    public void testFormulaManagerChangeRecalculatesFormulas() throws Exception {
+        BeanA[] beans = createBeans(LARGE_TABLE);
+        FormulaManager formulaManager = createFormulaManager();
+        createTableModel(beans, formulaManager);
+        assertFormulaValues(beans, formulaManager);
+
+        // change an expression and add a formula on a new symbol, as the formula management dialog does
+        Map<String, String> symbolToBeanPath = formulaManager.getSymbolToBeanPathMap();
+        symbolToBeanPath.put("z", "b.c.someDouble");
+        List<Formula> formulas = new ArrayList<Formula>();
+        for (Formula formula : formulaManager.getAllFormulas()) {
+            formulas.add(formula.copy());
+        }
+        formulas.get(1).setExpression("y + z");
+        formulas.add(new SumFormula("withZ", "x + z + z"));
+        FormulaManager newFormulaManager = new FormulaManager(symbolToBeanPath, formulas);
+        tableModel.setFormulaManager(newFormulaManager);
+        assertFormulaValues(beans, newFormulaManager);
+
+        updateBeans(beans, new Random(4));
+        assertFormulaValues(beans, newFormulaManager);
+    }
+
+    private void createTableModel(BeanA[] beans, FormulaManager formulaManager) {
+        BeanCollection beanCollection = new DefaultBeanCollection(BeanA.class);
+        beanCollection.addAll(Arrays.asList(beans));
+        tableModel = new BeanCollectionTableModel(beanCollection, false);
+        tableModel.setFormulaManager(formulaManager);
+    }
+
+    private static BeanA[] createBeans(int count) {
+        BeanA[] beans = new BeanA[count];
+        for (int i = 0; i < count; i++) {
+            beans[i] = new BeanA();
+            beans[i].setSomeDouble(i);
+            beans[i].getB().getC().getD().setI(i % 7);
+            beans[i].getB().getC().setSomeDouble(i / 2.0);
+        }
+        return beans;
+    }
+
+    private static FormulaManager createFormulaManager() throws FormulaException {
+        Map<String, String> symbolToBeanPath = new HashMap<String, String>();
+        symbolToBeanPath.put("x", "someDouble");
+        symbolToBeanPath.put("y", "b.c.d.i");
+        List<Formula> formulas = new ArrayList<Formula>();
+        formulas.add(new SumFormula("total", "x + y"));
+        formulas.add(new SumFormula("yOnly", "y"));
+        formulas.add(new SumFormula("doubled", "x + x"));
+        return new FormulaManager(symbolToBeanPath, formulas);
+    }
+
+    private static void updateBeans(BeanA[] beans, Random random) {
+        for (int i = 0; i < beans.length; i += 1 + random.nextInt(3)) {
+            beans[i].setSomeDouble(random.nextInt(1000));
+            if (random.nextBoolean()) beans[i].getB().getC().getD().setI(random.nextInt(1000));
+            if (random.nextBoolean()) beans[i].getB().getC().setSomeDouble(random.nextInt(1000));
+        }
+    }
+
+    /**
+     * Formula values are recalculated periodically and applied through the table's change queue, so this waits for
+     * them to match evaluating each formula directly against the bean.
+     */
+    private void assertFormulaValues(BeanA[] beans, FormulaManager formulaManager) throws Exception {
+        CachedObjectGraph graph = tableModel.getCachedObjectGraph();
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (true) {
+            String mismatch = null;
+            for (int i = 0; i < beans.length && mismatch == null; i++) {
+                for (Formula formula : formulaManager.getAllFormulas()) {
+                    Object expected = evaluate(formula, formulaManager, beans[i]);
+                    Object actual = graph.get(beans[i], FormulaUtils.getColumnLocator(formula));
+                    if (!expected.equals(actual)) {
+                        mismatch = formula.getName() + " of bean " + i + " expected: " + expected + " but was: " + actual;
+                        break;
+                    }
+                }
+            }
+            if (mismatch == null) return;
+            if (System.currentTimeMillis() > deadline) fail(mismatch);
+            Thread.sleep(50);
+        }
+    }
+
+    private static Object evaluate(Formula formula, FormulaManager formulaManager, Object bean) throws FormulaException {
+        Formula evaluator = formula.copy();
+        for (String symbol : evaluator.getSymbols()) {
+            evaluator.setSymbolValue(symbol, Generic.get(bean, Generic.beanPathStringToArray(formulaManager.getBeanPathForSymbol(symbol))));
+        }
+        return evaluator.evaluate();
+    }
+
+    /**
+     * Sums the symbols of an expression of the form "a + b + c".
+     */
+    private static class SumFormula extends AbstractFormula {
+        private List<String> symbols = new ArrayList<String>();
+        private Map<String, Double> values = new HashMap<String, Double>();
+
+        public SumFormula() {
+        }
+
+        public SumFormula(String name, String expression) throws FormulaException {
+            setName(name);
+            setExpression(expression);
+        }
+
+        private SumFormula(long id, String name, String expression, String symbol, boolean enabled) throws FormulaException {
+            super(id, name, expression, symbol, enabled);
+            parseExpression();
+        }
+
+        public void parseExpression() throws FormulaException {
+            symbols = new ArrayList<String>();
+            if (!hasExpression()) return;
+            String[] terms = getExpression().split("\\+");
+            for (String term : terms) {
+                String symbol = term.trim();
+                if (symbol.length() == 0) throw new FormulaException("Invalid expression " + getExpression());
+                symbols.add(symbol);
+            }
+        }
+
+        public void setSymbolValue(String symbol, Object value) {
+            values.put(symbol, ((Number) value).doubleValue());
+        }
+
+        public void setEmptySymbolValue(String symbol, Class<?> type) {
+            values.put(symbol, 0d);
+        }
+
+        public List<String> getSymbols() {
+            return symbols;
+        }
+
+        public boolean dependsOnSymbol(String symbol) {
+            return symbols.contains(symbol);
+        }
+
+        public FormulaResult evaluate() throws FormulaException {
+            evaluatingThreads.add(Thread.currentThread());
+            double sum = 0;
+            for (String symbol : symbols) {
+                Double value = values.get(symbol);
+                if (value == null) throw new FormulaException("No value for symbol " + symbol);
+                sum += value;
+            }
+            return new FormulaResult(sum);
+        }
+
+        public Formula copy() throws FormulaException {
+            return new SumFormula(getId(), getName(), getExpression(), getSymbol(), isEnabled());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+
+package org.bhavaya.util;
+
+import org.bhavaya.beans.Bean;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Date;
+
+/**
+ * Loads beans shaped like the output of the bean generator, with the BeanPropertyChangeSupport created lazily as
+ * DefaultObservable now does and created in the constructor as it used to, and reports the heap used per bean and the
+ * time to set a property on beans no one listens to.  Arguments are: bean count.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class BeanHeapBenchmark {
+    private static final String[] BOOKS = {"Book0", "Book1", "Book2", "Book3", "Book4"};
+
+    public static void main(String[] args) {
+        int beanCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        for (int pass = 0; pass < 2; pass++) {
+            report("eager listener support", beanCount, true);
+            report("lazy listener support", beanCount, false);
+        }
+    }
+
+    private static void report(String description, int beanCount, boolean eager) {
+        long usedBefore = usedMemory();
+        Trade[] trades = new Trade[beanCount];
+        Date tradeDate = new Date();
+        for (int i = 0; i < beanCount; i++) {
+            trades[i] = eager ? new EagerTrade(i, BOOKS[i % BOOKS.length], tradeDate) : new Trade(i, BOOKS[i % BOOKS.length], tradeDate);
+        }
+        long usedAfter = usedMemory();
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < beanCount; i++) {
+            trades[i].setQuantity(i * 2.0);
+        }
+        long setTime = System.nanoTime() - startTime;
+
+        // one observed bean, to check events still arrive
+        final int[] eventCount = new int[1];
+        trades[0].addPropertyChangeListener("quantity", new PropertyChangeListener() {
+            public void propertyChange(PropertyChangeEvent evt) {
+                eventCount[0]++;
+            }
+        });
+        trades[0].setQuantity(-1);
+
+        System.out.println(description + ": " + ((usedAfter - usedBefore) / beanCount) + " bytes per bean (including the array), "
+                + ((double) setTime / beanCount) + " nanos per unobserved set, " + eventCount[0] + " event(s) when observed");
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static class Trade extends Bean {
+        private long id;
+        private String book;
+        private double quantity;
+        private Date tradeDate;
+
+        public Trade(long id, String book, Date tradeDate) {
+            this.id = id;
+            this.book = book;
+            this.tradeDate = tradeDate;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getBook() {
+            return book;
+        }
+
+        public Date getTradeDate() {
+            return tradeDate;
+        }
+
+        public double getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(double quantity) {
+            double oldValue = this.quantity;
+            this.quantity = quantity;
+            firePropertyChange("quantity", oldValue, quantity);
+        }
+    }
+
+    private static class EagerTrade extends Trade {
+        public EagerTrade(long id, String book, Date tradeDate) {
+            super(id, book, tradeDate);
+            getPropertyChangeSupport();
+        }
+    }
+}
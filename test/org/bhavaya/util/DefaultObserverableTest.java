@@ -219,6 +219,60 @@ public class DefaultObserverableTest extends TestCase {
 
     }
 
+    public void testAddRemoveNamedListeners() {
+        final DummyObservable dummyObservable = new DummyObservable();
+        Assert.assertEquals(0, dummyObservable.getPropertyChangeListeners().length);
+        Assert.assertEquals(0, dummyObservable.getPropertyChangeListeners("property1").length);
+
+        final int[] eventCounts = new int[3];
+        PropertyChangeListener listener1 = new PropertyChangeListener() {
+            public void propertyChange(PropertyChangeEvent evt) {
+                eventCounts[0]++;
+            }
+        };
+        PropertyChangeListener listener2 = new PropertyChangeListener() {
+            public void propertyChange(PropertyChangeEvent evt) {
+                eventCounts[1]++;
+            }
+        };
+        PropertyChangeListener listener9 = new PropertyChangeListener() {
+            public void propertyChange(PropertyChangeEvent evt) {
+                eventCounts[2]++;
+            }
+        };
+
+        dummyObservable.addPropertyChangeListener("property1", listener1);
+        dummyObservable.addPropertyChangeListener("property2", listener2);
+        dummyObservable.addPropertyChangeListener("property9", listener9);
+        dummyObservable.addPropertyChangeListener("property9", listener1);
+        Assert.assertEquals(2, dummyObservable.getPropertyChangeListeners("property9").length);
+
+        // removing the listeners of a property in the middle leaves the others
+        dummyObservable.removePropertyChangeListener("property2", listener2);
+        Assert.assertEquals(0, dummyObservable.getPropertyChangeListeners("property2").length);
+        dummyObservable.setProperty1((short) 1);
+        dummyObservable.setProperty2(1);
+        dummyObservable.setProperty9("test");
+        Assert.assertEquals(2, eventCounts[0]);
+        Assert.assertEquals(0, eventCounts[1]);
+        Assert.assertEquals(1, eventCounts[2]);
+
+        try {
+            dummyObservable.removePropertyChangeListener("property2", listener2);
+            Assert.fail("cannot remove listener twice");
+        } catch (Exception e) {
+        }
+
+        dummyObservable.removePropertyChangeListener("property9", listener1);
+        Assert.assertEquals(1, dummyObservable.getPropertyChangeListeners("property9").length);
+
+        // a clone does not share the listeners
+        DummyObservable clone = (DummyObservable) dummyObservable.clone();
+        Assert.assertEquals(0, clone.getPropertyChangeListeners("property1").length);
+        clone.setProperty1((short) 2);
+        Assert.assertEquals(2, eventCounts[0]);
+    }
+
     private static class SinglePropertyChangeListener implements PropertyChangeListener {
         private boolean receivedEvent;
         private PropertyChangeEvent event;
@@ -244,7 +298,7 @@ public class DefaultObserverableTest extends TestCase {
         return equal;
     }
 
-    private static class DummyObservable extends DefaultObservable {
+    private static class DummyObservable extends DefaultObservable implements Cloneable {
         private short property1;
         private int property2;
         private long property3;
@@ -0,0 +1,161 @@
+/* Copyright (C) 2000-2003 The Software Conservancy as Trustee.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ *
+ * Nothing in this notice shall be deemed to grant any rights to trademarks,
+ * copyrights, patents, trade secrets or any other intellectual property of the
+ * licensor or any contributor except as expressly stated herein. No patent
+ * license is granted separate from the Software, for code that you delete from
+ * the Software, or for combinations of the Software with other software or
+ * hardware.
+ */
+
+package org.bhavaya.util;
+
+import java.lang.reflect.Method;
+
+/**
+ * Reads and writes bean properties through Method.invoke, as Generic used to, and through Generic.get and Generic.set,
+ * which call generated accessors once a property is in use.  The values read each way are compared.
+ * Arguments are: bean count, iteration count.  Run with beanFactory.generatedPropertyAccessors set to false to time
+ * Generic with reflection only.
+ *
+ * @author
+ * @version $Revision: 1.1 $
+ */
+public class PropertyAccessBenchmark {
+    private static final String[] PROPERTIES = {"quantity", "price", "book", "buy", "version"};
+
+    public static void main(String[] args) throws Exception {
+        int beanCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        Position[] positions = new Position[beanCount];
+        for (int i = 0; i < beanCount; i++) {
+            positions[i] = new Position(i * 100, i / 7.0, "Book" + (i % 10), i % 2 == 0, i);
+        }
+
+        Method[] readMethods = new Method[PROPERTIES.length];
+        Attribute[] attributes = new Attribute[PROPERTIES.length];
+        for (int i = 0; i < PROPERTIES.length; i++) {
+            attributes[i] = Generic.getType(Position.class).getAttribute(PROPERTIES[i]);
+            String name = PROPERTIES[i];
+            String prefix = attributes[i].getType() == boolean.class ? "is" : "get";
+            readMethods[i] = Position.class.getMethod(prefix + Character.toUpperCase(name.charAt(0)) + name.substring(1));
+        }
+
+        int mismatches = 0;
+        for (int i = 0; i < beanCount; i++) {
+            for (int j = 0; j < PROPERTIES.length; j++) {
+                if (!Utilities.equals(readMethods[j].invoke(positions[i]), Generic.get(positions[i], PROPERTIES[j]))) mismatches++;
+            }
+        }
+        System.out.println("Mismatches: " + mismatches);
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            long start = System.nanoTime();
+            int count = 0;
+            for (int i = 0; i < beanCount; i++) {
+                for (int j = 0; j < readMethods.length; j++) {
+                    if (readMethods[j].invoke(positions[i]) != null) count++;
+                }
+            }
+            long reflectionTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < beanCount; i++) {
+                for (int j = 0; j < PROPERTIES.length; j++) {
+                    if (Generic.get(positions[i], PROPERTIES[j]) != null) count++;
+                }
+            }
+            long genericTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < beanCount; i++) {
+                Generic.set(positions[i], "quantity", new Integer(i));
+                Generic.set(positions[i], "price", new Double(i));
+            }
+            long setTime = System.nanoTime() - start;
+
+            int reads = beanCount * PROPERTIES.length;
+            System.out.println("Method.invoke: " + (reflectionTime / reads) + " ns per read, Generic.get: "
+                    + (genericTime / reads) + " ns per read, Generic.set: " + (setTime / (beanCount * 2)) + " ns per write (" + count + ")");
+        }
+    }
+
+    public static class Position {
+        private int quantity;
+        private double price;
+        private String book;
+        private boolean buy;
+        private long version;
+
+        public Position() {
+        }
+
+        public Position(int quantity, double price, String book, boolean buy, long version) {
+            this.quantity = quantity;
+            this.price = price;
+            this.book = book;
+            this.buy = buy;
+            this.version = version;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice(double price) {
+            this.price = price;
+        }
+
+        public String getBook() {
+            return book;
+        }
+
+        public void setBook(String book) {
+            this.book = book;
+        }
+
+        public boolean isBuy() {
+            return buy;
+        }
+
+        public void setBuy(boolean buy) {
+            this.buy = buy;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public void setVersion(long version) {
+            this.version = version;
+        }
+    }
+}